@@ -16,6 +16,20 @@ TOOLCHAIN_TYPE_DEPS = [
     "@@bazel_tools//tools/cpp:toolchain_type",  # For rules_cc
 ]
 
+# The encoding of the per-target ide info files. "text" writes text-format protos, "json" writes the
+# same structs through json.encode, which the plugin can decode without the text-format tokenizer.
+# TEMPLATE-INCLUDE-BEGIN
+## #if( $jsonInfoFormat == "true" )
+##IDE_INFO_FORMAT = "json"
+## #else
+##IDE_INFO_FORMAT = "text"
+## #end
+# TEMPLATE-INCLUDE-END
+
+# TEMPLATE-IGNORE-BEGIN
+IDE_INFO_FORMAT = "text"
+# TEMPLATE-IGNORE-END
+
 def get_py_launcher(target, ctx):
     """Returns the python launcher for a given rule."""
 
@@ -47,6 +61,7 @@ semantics = struct(
     ),
     extra_deps = EXTRA_DEPS,
     extra_required_aspect_providers = [],
+    ide_info_format = IDE_INFO_FORMAT,
     py = struct(
         get_launcher = get_py_launcher,
     ),
@@ -585,7 +585,11 @@ def intellij_info_aspect_impl(target, ctx, semantics):
     if aspect_ids:
         aspect_hash = hash(".".join(aspect_ids))
         file_name = file_name + "-" + str(aspect_hash)
-    file_name = file_name + ".intellij-info.txt"
+    ide_info_format = getattr(semantics, "ide_info_format", "text")
+    if ide_info_format == "json":
+        file_name = file_name + ".intellij-info.json"
+    else:
+        file_name = file_name + ".intellij-info.txt"
     ide_info_file = ctx.actions.declare_file(file_name)
 
     target_key = make_target_key(ctx, target.label, aspect_ids)
@@ -619,7 +623,10 @@ def intellij_info_aspect_impl(target, ctx, semantics):
 
     # Output the ide information file.
     info = struct_omit_none(**ide_info)
-    ctx.actions.write(ide_info_file, proto.encode_text(info))
+    if ide_info_format == "json":
+        ctx.actions.write(ide_info_file, json.encode(info))
+    else:
+        ctx.actions.write(ide_info_file, proto.encode_text(info))
 
     # Return providers.
     return [
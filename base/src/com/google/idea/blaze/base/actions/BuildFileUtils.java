@@ -20,7 +20,6 @@ import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
 import com.google.idea.blaze.base.lang.buildfile.psi.FuncallExpression;
-import com.google.idea.blaze.base.lang.buildfile.psi.LoadStatement;
 import com.google.idea.blaze.base.lang.buildfile.references.BuildReferenceManager;
 import com.google.idea.blaze.base.lang.buildfile.search.BlazePackage;
 import com.google.idea.blaze.base.model.BlazeProjectData;
@@ -106,12 +105,12 @@ final class BuildFileUtils {
   @VisibleForTesting
   static Label findMacroWithMatchingPrefix(BuildFile buildFile, Label label) {
     Set<String> loadedSymbols =
-        Arrays.stream(buildFile.findChildrenByClass(LoadStatement.class))
+        Arrays.stream(buildFile.getLoadStatements())
             .flatMap(l -> Arrays.stream(l.getVisibleSymbolNames()))
             .collect(toImmutableSet());
 
     String nameToMatch = label.targetName().toString();
-    for (FuncallExpression expr : buildFile.findChildrenByClass(FuncallExpression.class)) {
+    for (FuncallExpression expr : buildFile.getTopLevelFuncalls()) {
       String name = expr.getNameArgumentValue();
       if (loadedSymbols.contains(expr.getFunctionName())
           && name != null
@@ -40,6 +40,12 @@ interface BazelExecService {
   @Throws(ExecutionException::class)
   fun build(ctx: BlazeContext, cmdBuilder: BlazeCommand.Builder): BlazeBuildOutputs
 
+  /**
+   * Same as [build], but additionally forwards every BEP event to the [listener] while the build is still running.
+   */
+  @Throws(ExecutionException::class)
+  fun build(ctx: BlazeContext, cmdBuilder: BlazeCommand.Builder, listener: BuildEventListener?): BlazeBuildOutputs
+
   /**
    * Runs a non-build Bazel command and returns the result. Stderr is piped to the context for visibility.
    * The caller must close the returned [ExecResult] to clean up temporary files.
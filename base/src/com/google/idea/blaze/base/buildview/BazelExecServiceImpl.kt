@@ -26,6 +26,9 @@ import com.google.idea.blaze.base.command.BlazeCommandName
 import com.google.idea.blaze.base.command.buildresult.BuildResult
 import com.google.idea.blaze.base.command.buildresult.BuildResultHelperBep
 import com.google.idea.blaze.base.command.buildresult.BuildResultParser
+import com.google.idea.blaze.base.command.buildresult.bepparser.BepOutputCollector
+import com.google.idea.blaze.base.command.buildresult.bepparser.BuildEventStreamProvider
+import com.google.idea.blaze.base.command.buildresult.bepparser.ParsedBepOutput
 import com.google.idea.blaze.base.execution.BazelGuard
 import com.google.idea.blaze.base.execution.ExecutionDeniedException
 import com.google.idea.blaze.base.model.primitives.WorkspaceRoot
@@ -34,28 +37,26 @@ import com.google.idea.blaze.base.scope.output.IssueOutput
 import com.google.idea.blaze.base.sync.aspects.BlazeBuildOutputs
 import com.google.idea.blaze.common.Interners
 import com.google.idea.blaze.common.PrintOutput
-import com.google.protobuf.CodedInputStream
 import com.intellij.execution.ExecutionException
 import com.intellij.execution.configurations.GeneralCommandLine
 import com.intellij.execution.configurations.PtyCommandLine
 import com.intellij.openapi.application.ApplicationManager
 import com.intellij.openapi.diagnostic.Logger
 import com.intellij.openapi.project.Project
-import com.intellij.util.io.LimitedInputStream
 import com.intellij.util.io.awaitExit
 import com.intellij.util.system.OS
 import com.intellij.util.ui.EDT
 import kotlinx.coroutines.*
-import java.io.BufferedInputStream
-import java.io.FileInputStream
 import java.io.OutputStream
 import java.nio.file.Files
 import java.util.*
 import kotlin.io.path.pathString
-import kotlin.time.Duration.Companion.milliseconds
 
 private val LOG: Logger = Logger.getInstance(BazelExecServiceImpl::class.java)
 
+// upper bound for waiting on new BEP data, in case file notifications are not delivered
+private const val POLL_TIMEOUT_MILLIS = 100L
+
 class BazelExecServiceImpl(private val project: Project, private val scope: CoroutineScope) : BazelExecService {
 
   @Throws(ExecutionException::class)
@@ -171,57 +172,50 @@ class BazelExecServiceImpl(private val project: Project, private val scope: Coro
     return exitCode
   }
 
-  private suspend fun parseEvent(ctx: BlazeContext, stream: BufferedInputStream) {
-    // make sure that there are at least four bytes already available
-    while (stream.available() < 4) {
-      delay(10.milliseconds)
-    }
-
-    // protobuf messages are delimited by size (encoded as varint32),
-    // read size manually to ensure the entire message is already available
-    val size = CodedInputStream.readRawVarint32(stream.read(), stream)
-
-    while (stream.available() < size) {
-      delay(10.milliseconds)
-    }
-
-    val eventStream = LimitedInputStream(stream, size)
-    val event = try {
-      BuildEvent.parseFrom(eventStream)
-    } catch (e: Exception) {
-      LOG.error("could not parse event", e)
-
-      // if the message could not be parsed, make sure to skip it
-      if (eventStream.bytesRead < size) {
-        stream.skip(size.toLong() - eventStream.bytesRead)
-      }
+  /**
+   * Follows the BEP file until bazel exited and all of its events are consumed. Every event is decoded once and
+   * passed to the [consumer].
+   */
+  private suspend fun parseEvents(helper: BuildResultHelperBep, exited: Job, consumer: BepEventConsumer) {
+    withContext(Dispatchers.IO) {
+      BepFileFollower(helper.outputFile.toPath()).use { follower ->
+        while (true) {
+          ensureActive()
 
-      return
-    }
+          // check before reading, so that the last read happens after bazel finished writing the file
+          val done = exited.isCompleted
+          if (follower.poll(consumer::accept)) continue
+          if (done) break
 
-    val issueReportingMode = BuildViewScope.of(ctx)?.issueReportingMode ?: IssueReportingMode.SYNC
-    BuildEventParser.parse(event, issueReportingMode)?.let(ctx::output)
-  }
-
-  private suspend fun parseEvents(ctx: BlazeContext, helper: BuildResultHelperBep) {
-    // wait for bazel to create the output file
-    while (!helper.outputFile.exists()) {
-      delay(10.milliseconds)
-    }
+          follower.awaitChange(POLL_TIMEOUT_MILLIS)
+        }
 
-    withContext(Dispatchers.IO) {
-      FileInputStream(helper.outputFile).buffered().use { stream ->
-        // keep reading events while the coroutine is active, i.e. bazel is still running,
-        // or while the stream has data available (to ensure that all events are processed)
-        while (isActive || stream.available() > 0) {
-          parseEvent(ctx, stream)
+        if (follower.hasPartialEvent()) {
+          // the trailing event is missing from the collected output, fall back to decoding the whole file
+          LOG.warn("BEP file ended with an incomplete event")
+          consumer.outputIncomplete = true
+        }
+        if (follower.skippedEvents > 0) {
+          // e.g. a skipped NAMED_SET would silently drop outputs, fall back to decoding the whole file
+          LOG.warn("${follower.skippedEvents} BEP events could not be parsed")
+          consumer.outputIncomplete = true
         }
+        consumer.bytesConsumed = follower.bytesConsumed
       }
     }
   }
 
   @Throws(ExecutionException::class)
   override fun build(ctx: BlazeContext, cmdBuilder: BlazeCommand.Builder): BlazeBuildOutputs {
+    return build(ctx, cmdBuilder, null)
+  }
+
+  @Throws(ExecutionException::class)
+  override fun build(
+    ctx: BlazeContext,
+    cmdBuilder: BlazeCommand.Builder,
+    listener: BuildEventListener?,
+  ): BlazeBuildOutputs {
     assertNonBlocking()
     LOG.assertTrue(cmdBuilder.name == BlazeCommandName.BUILD)
 
@@ -229,21 +223,29 @@ class BazelExecServiceImpl(private val project: Project, private val scope: Coro
       BuildResultHelperBep().use { provider ->
         cmdBuilder.addBlazeFlags(provider.buildFlags)
 
+        val consumer = BepEventConsumer(ctx, listener)
+
         val result = coroutineScope {
+          val exited = Job()
           val parseJob = launch(CoroutineName("EventParser")) {
             try {
-              parseEvents(ctx, provider)
+              parseEvents(provider, exited, consumer)
             } catch (e: CancellationException) {
               throw e
             } catch (e: Exception) {
+              consumer.outputIncomplete = true
               IssueOutput.warn("BEP parsing failed, build results may be incomplete").withThrowable(e).submit(ctx)
             }
           }
 
           val lineProcessor = LineProcessingOutputStream.of({ line -> ctx.println(line); false })
-          val exitCode = execute(ctx, cmdBuilder, usePty = true, stdout = lineProcessor)
+          val exitCode = try {
+            execute(ctx, cmdBuilder, usePty = true, stdout = lineProcessor)
+          } finally {
+            exited.complete()
+          }
 
-          parseJob.cancelAndJoin()
+          parseJob.join()
 
           BuildResult.fromExitCode(exitCode)
         }
@@ -252,6 +254,11 @@ class BazelExecServiceImpl(private val project: Project, private val scope: Coro
           return@executionScope BlazeBuildOutputs.noOutputs(result)
         }
 
+        consumer.parsedOutput()?.let { output ->
+          return@executionScope BlazeBuildOutputs.fromParsedBepOutput(output)
+        }
+
+        // the events could not be collected while following the file, decode it again from the start
         provider.getBepStream(Optional.empty()).use { bepStream ->
           BlazeBuildOutputs.fromParsedBepOutput(
             BuildResultParser.getBuildOutput(bepStream, Interners.STRING),
@@ -283,3 +290,52 @@ class BazelExecServiceImpl(private val project: Project, private val scope: Coro
     return ExecResult(exitCode, tempFile)
   }
 }
+
+/**
+ * Handles every decoded BEP event: reports issues, collects the build outputs and forwards the event to the
+ * [BuildEventListener] of the caller.
+ */
+private class BepEventConsumer(private val ctx: BlazeContext, private val listener: BuildEventListener?) {
+
+  private val collector = BepOutputCollector(Interners.STRING)
+
+  @Volatile
+  var outputIncomplete: Boolean = false
+
+  @Volatile
+  var bytesConsumed: Long = 0
+
+  fun accept(event: BuildEvent) {
+    val issueReportingMode = BuildViewScope.of(ctx)?.issueReportingMode ?: IssueReportingMode.SYNC
+    BuildEventParser.parse(event, issueReportingMode)?.let(ctx::output)
+
+    if (!outputIncomplete) {
+      try {
+        collector.accept(event)
+      } catch (e: Exception) {
+        LOG.warn("could not collect build outputs from BEP event", e)
+        outputIncomplete = true
+      }
+    }
+
+    try {
+      listener?.onBuildEvent(event)
+    } catch (e: CancellationException) {
+      throw e
+    } catch (e: Exception) {
+      LOG.warn("build event listener failed", e)
+    }
+  }
+
+  /** Returns the build outputs collected from the events, or null if some events could not be collected. */
+  fun parsedOutput(): ParsedBepOutput? {
+    if (outputIncomplete) return null
+
+    return try {
+      collector.build(bytesConsumed)
+    } catch (e: BuildEventStreamProvider.BuildEventStreamException) {
+      LOG.warn("could not collect build outputs from BEP events", e)
+      null
+    }
+  }
+}
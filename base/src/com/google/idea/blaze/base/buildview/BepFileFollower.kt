@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.idea.blaze.base.buildview
+
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEvent
+import com.intellij.openapi.diagnostic.Logger
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.NoSuchFileException
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.nio.file.StandardWatchEventKinds
+import java.nio.file.WatchService
+import java.util.concurrent.TimeUnit
+import java.util.function.Consumer
+
+private val LOG: Logger = Logger.getInstance(BepFileFollower::class.java)
+
+private const val INITIAL_BUFFER_SIZE = 64 * 1024
+
+/**
+ * Decodes the size delimited events of a BEP file while bazel is still appending to it.
+ *
+ * Data is read through a [FileChannel] into a reusable buffer, so every event is decoded exactly once. Waiting for
+ * new data uses a [WatchService] on the file's directory, which wakes up as soon as bazel writes on platforms with
+ * native file notifications and falls back to the timeout elsewhere.
+ */
+class BepFileFollower(private val file: Path) : AutoCloseable {
+
+  private var channel: FileChannel? = null
+
+  // always in write mode between calls, i.e. positioned after the data which has not been decoded yet
+  private var buffer: ByteBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE)
+
+  private val watcher: WatchService? = try {
+    file.fileSystem.newWatchService().also { watcher ->
+      file.parent.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY)
+    }
+  } catch (e: IOException) {
+    LOG.debug("could not watch BEP file, falling back to polling", e)
+    null
+  } catch (e: UnsupportedOperationException) {
+    null
+  }
+
+  /** Number of bytes of all events decoded so far. */
+  var bytesConsumed: Long = 0
+    private set
+
+  /** Number of events which could not be parsed and were not passed to the consumer. */
+  var skippedEvents: Int = 0
+    private set
+
+  /**
+   * Reads everything bazel appended since the last call and passes every complete event to [consumer]. Returns false
+   * if there was no new data, or if the file does not exist yet. Events which cannot be parsed are counted in
+   * [skippedEvents].
+   */
+  @Throws(IOException::class)
+  fun poll(consumer: Consumer<BuildEvent>): Boolean {
+    val channel = channel ?: open() ?: return false
+
+    var read = false
+    while (true) {
+      if (!buffer.hasRemaining()) {
+        // the pending event does not fit into the buffer
+        buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip())
+      }
+      if (channel.read(buffer) <= 0) return read
+
+      read = true
+      decode(consumer)
+    }
+  }
+
+  /** Blocks until the file might have changed, but at most [timeoutMillis]. */
+  @Throws(InterruptedException::class)
+  fun awaitChange(timeoutMillis: Long) {
+    if (watcher == null) {
+      Thread.sleep(timeoutMillis)
+      return
+    }
+
+    val key = watcher.poll(timeoutMillis, TimeUnit.MILLISECONDS) ?: return
+    key.pollEvents()
+    key.reset()
+  }
+
+  /** Returns true if there is data left which does not form a complete event. */
+  fun hasPartialEvent(): Boolean = buffer.position() > 0
+
+  private fun open(): FileChannel? {
+    return try {
+      FileChannel.open(file, StandardOpenOption.READ).also { channel = it }
+    } catch (e: NoSuchFileException) {
+      null
+    }
+  }
+
+  private fun decode(consumer: Consumer<BuildEvent>) {
+    buffer.flip()
+
+    while (buffer.hasRemaining()) {
+      val start = buffer.position()
+
+      // protobuf messages are delimited by size (encoded as varint32),
+      // only decode the message once all of it was read
+      val size = readVarint32(buffer)
+      if (size == null || buffer.remaining() < size) {
+        buffer.position(start)
+        break
+      }
+
+      val message = buffer.slice(buffer.position(), size)
+      buffer.position(buffer.position() + size)
+      bytesConsumed += buffer.position() - start
+
+      val event = try {
+        BuildEvent.parseFrom(message)
+      } catch (e: IOException) {
+        // the size prefix was valid, so the next event can still be decoded
+        LOG.warn("could not parse event", e)
+        skippedEvents++
+        continue
+      }
+      consumer.accept(event)
+    }
+
+    buffer.compact()
+  }
+
+  override fun close() {
+    channel?.close()
+    watcher?.close()
+  }
+}
+
+/** Reads a varint32 from the buffer, or returns null if the buffer ends before the varint does. */
+@Throws(IOException::class)
+private fun readVarint32(buffer: ByteBuffer): Int? {
+  var result = 0
+  var shift = 0
+  while (shift < 32) {
+    if (!buffer.hasRemaining()) return null
+
+    val b = buffer.get().toInt()
+    result = result or ((b and 0x7f) shl shift)
+    if (b and 0x80 == 0) return result
+
+    shift += 7
+  }
+  throw IOException("malformed varint in BEP file")
+}
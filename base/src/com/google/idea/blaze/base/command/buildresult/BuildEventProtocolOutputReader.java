@@ -33,7 +33,9 @@ import com.intellij.util.io.URLUtil;
 import java.io.File;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Predicate;
@@ -51,42 +53,69 @@ public final class BuildEventProtocolOutputReader {
    */
   public static BlazeTestResults parseTestResults(BuildEventStreamProvider streamProvider)
       throws BuildEventStreamException {
-    Map<String, Kind> labelToKind = new HashMap<>();
-    long startTimeMillis = 0L;
-    ImmutableList.Builder<BlazeTestResult> results = ImmutableList.builder();
+    TestResultParser parser = new TestResultParser();
     BuildEventStreamProtos.BuildEvent event;
     while ((event = streamProvider.getNext()) != null) {
+      parser.accept(event);
+    }
+    return parser.getResults();
+  }
+
+  /**
+   * Collects test results from build events which are passed one at a time, e.g. while the 'blaze
+   * test' invocation is still running.
+   */
+  public static final class TestResultParser {
+    private final Map<String, Kind> labelToKind = new HashMap<>();
+    private final ImmutableList.Builder<BlazeTestResult> results = ImmutableList.builder();
+    // results of targets which did not report their test summary yet
+    private final Map<String, List<BlazeTestResult>> pendingResults = new HashMap<>();
+    private long startTimeMillis = 0L;
+
+    /**
+     * Processes the next event. Returns all results of a target once it completed, i.e. once all
+     * of its runs and shards reported their results, and an empty list otherwise.
+     */
+    public ImmutableList<BlazeTestResult> accept(BuildEventStreamProtos.BuildEvent event) {
       switch (event.getId().getIdCase()) {
         case STARTED:
           startTimeMillis = event.getStarted().getStartTimeMillis();
-          continue;
+          break;
         case TARGET_COMPLETED:
           String label = event.getId().getTargetCompleted().getLabel();
           Kind kind = parseTargetKind(event.getCompleted().getTargetKind());
           if (kind != null) {
             labelToKind.put(label, kind);
           }
-          continue;
+          break;
         case TARGET_CONFIGURED:
           label = event.getId().getTargetConfigured().getLabel();
           kind = parseTargetKind(event.getConfigured().getTargetKind());
           if (kind != null) {
             labelToKind.put(label, kind);
           }
-          continue;
+          break;
         case TEST_RESULT:
           label = event.getId().getTestResult().getLabel();
-          results.add(
+          BlazeTestResult result =
               parseTestResult(
-                  label,
-                  labelToKind.get(label),
-                  event.getTestResult(),
-                  startTimeMillis));
-          continue;
+                  label, labelToKind.get(label), event.getTestResult(), startTimeMillis);
+          results.add(result);
+          pendingResults.computeIfAbsent(label, key -> new ArrayList<>()).add(result);
+          break;
+        case TEST_SUMMARY:
+          List<BlazeTestResult> completed =
+              pendingResults.remove(event.getId().getTestSummary().getLabel());
+          return completed != null ? ImmutableList.copyOf(completed) : ImmutableList.of();
         default: // continue
       }
+      return ImmutableList.of();
+    }
+
+    /** Returns the results of all events processed so far. */
+    public BlazeTestResults getResults() {
+      return BlazeTestResults.fromFlatList(results.build());
     }
-    return BlazeTestResults.fromFlatList(results.build());
   }
 
   /** Convert BEP 'target_kind' to our internal format */
@@ -60,7 +60,92 @@ fun parseBepArtifacts(stream: BuildEventStreamProvider, nullableInterner: Intern
   val semaphore = application.service<BepParserSemaphore>()
   semaphore.start()
   try {
-    val state = parseBep(stream, nullableInterner)
+    val collector = BepOutputCollector(nullableInterner)
+    for (event in generateSequence { stream.next }) {
+      collector.accept(event)
+    }
+    return collector.build(stream.getBytesConsumed())
+  }
+  finally {
+    semaphore.end()
+  }
+}
+
+/**
+ * Collects BEP events one at a time into a [ParsedBepOutput]. This allows building the output from the events
+ * decoded while following the BEP file of a running build, instead of decoding the whole file again afterward.
+ */
+class BepOutputCollector(nullableInterner: Interner<String>?) {
+  private val interner = nullableInterner ?: Interners.newStrongInterner()
+  private val state = BepParserState()
+  private var emptyBuildEventStream = true
+
+  fun accept(event: BuildEventStreamProtos.BuildEvent) {
+    emptyBuildEventStream = false
+    when (event.id.idCase) {
+      WORKSPACE_STATUS -> {
+        state.workspaceStatus = event.workspaceStatus.itemList
+          .fold(ImmutableMap.builder<String, String>()) { builder, item -> builder.put(item.key, item.value) }
+          .build()
+      }
+
+      NAMED_SET -> {
+        val namedSet = internNamedSet(event.getNamedSetOfFiles(), interner)
+        state.fileSets.add(interner.intern(event.id.namedSet.id), namedSet)
+      }
+
+      ACTION_COMPLETED -> {
+        Preconditions.checkState(event.hasAction())
+        if (!event.action.success) {
+          state.targetsWithErrors.add(event.id.actionCompleted.label)
+        }
+      }
+
+      TARGET_COMPLETED -> {
+        val label = event.id.targetCompleted.label
+        val configId = event.id.targetCompleted.configuration.id
+        val aspect = event.id.targetCompleted.aspect
+
+        for (o in event.completed.outputGroupList) {
+          val fileSetNames = getFileSets(o, interner)
+          state.outputs.setOutputGroupTargetConfigAspect(
+            interner.intern(o.name),
+            interner.intern(label),
+            interner.intern(configId),
+            interner.intern(aspect),
+            fileSetNames)
+        }
+      }
+
+      STARTED -> {
+        state.buildId = Strings.emptyToNull(event.started.uuid)
+        state.startTimeMillis = event.started.startTimeMillis
+      }
+
+      BUILD_FINISHED -> {
+        state.buildResult = event.finished.exitCode.code
+      }
+
+      CONFIGURATION -> {
+        Preconditions.checkState(event.hasConfiguration())
+        val configId = interner.intern(event.id.configuration.id)
+        val configuration = event.configuration
+        state.configurations[configId] = configuration
+      }
+
+      else -> Unit
+    }
+  }
+
+  /** Returns the output of all events accepted so far, [bytesConsumed] is the size of the decoded stream. */
+  @Throws(BuildEventStreamProvider.BuildEventStreamException::class)
+  fun build(bytesConsumed: Long): ParsedBepOutput {
+    // If stream is empty, it means that service failed to retrieve any blaze build event from build
+    // event stream. This should not happen if a build start correctly.
+    if (emptyBuildEventStream) {
+      throw BuildEventStreamProvider.BuildEventStreamException("No build events found")
+    }
+
     val fileSetMap: ImmutableMap<String, ParsedBepOutput.FileSet> =
       fillInTransitiveFileSetData(state.fileSets, state.outputs, state.startTimeMillis)
     return ParsedBepOutput(
@@ -69,13 +154,10 @@ fun parseBepArtifacts(stream: BuildEventStreamProvider, nullableInterner: Intern
       fileSetMap,
       state.startTimeMillis,
       state.buildResult,
-      stream.getBytesConsumed(),
+      bytesConsumed,
       ImmutableSet.copyOf(state.targetsWithErrors),
       ImmutableMap.copyOf(state.configurations))
   }
-  finally {
-    semaphore.end()
-  }
 }
 
 
@@ -255,75 +337,6 @@ private class FileSetBuilder {
 }
 
 
-@Throws(BuildEventStreamProvider.BuildEventStreamException::class)
-private fun parseBep(stream: BuildEventStreamProvider, nullableInterner: Interner<String>?): BepParserState {
-  val interner = nullableInterner ?: Interners.newStrongInterner()
-  val state = BepParserState()
-  var emptyBuildEventStream = true
-  for (event in generateSequence { stream.next }) {
-    emptyBuildEventStream = false
-    when (event.id.idCase) {
-      WORKSPACE_STATUS -> {
-        state.workspaceStatus = event.workspaceStatus.itemList
-          .fold(ImmutableMap.builder<String, String>()) { builder, item -> builder.put(item.key, item.value) }
-          .build()
-      }
-
-      NAMED_SET -> {
-        val namedSet = internNamedSet(event.getNamedSetOfFiles(), interner)
-        state.fileSets.add(interner.intern(event.id.namedSet.id), namedSet)
-      }
-
-      ACTION_COMPLETED -> {
-        Preconditions.checkState(event.hasAction())
-        if (!event.action.success) {
-          state.targetsWithErrors.add(event.id.actionCompleted.label)
-        }
-      }
-
-      TARGET_COMPLETED -> {
-        val label = event.id.targetCompleted.label
-        val configId = event.id.targetCompleted.configuration.id
-        val aspect = event.id.targetCompleted.aspect
-
-        for (o in event.completed.outputGroupList) {
-          val fileSetNames = getFileSets(o, interner)
-          state.outputs.setOutputGroupTargetConfigAspect(
-            interner.intern(o.name),
-            interner.intern(label),
-            interner.intern(configId),
-            interner.intern(aspect),
-            fileSetNames)
-        }
-      }
-
-      STARTED -> {
-        state.buildId = Strings.emptyToNull(event.started.uuid)
-        state.startTimeMillis = event.started.startTimeMillis
-      }
-
-      BUILD_FINISHED -> {
-        state.buildResult = event.finished.exitCode.code
-      }
-
-      CONFIGURATION -> {
-        Preconditions.checkState(event.hasConfiguration())
-        val configId = interner.intern(event.id.configuration.id)
-        val configuration = event.configuration
-        state.configurations[configId] = configuration
-      }
-
-      else -> Unit
-    }
-  }
-  // If stream is empty, it means that service failed to retrieve any blaze build event from build
-  // event stream. This should not happen if a build start correctly.
-  if (emptyBuildEventStream) {
-    throw BuildEventStreamProvider.BuildEventStreamException("No build events found")
-  }
-  return state
-}
-
 private fun getFileSets(group: BuildEventStreamProtos.OutputGroup, interner: Interner<String>): List<String> {
   return group.fileSetsList.map { interner.intern(it.id) }
 }
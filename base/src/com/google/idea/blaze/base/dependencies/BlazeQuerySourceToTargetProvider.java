@@ -20,8 +20,11 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.io.CharStreams;
 import com.google.common.util.concurrent.Futures;
+import com.google.devtools.build.lib.query2.proto.proto2api.Build.QueryResult;
+import com.google.devtools.build.lib.query2.proto.proto2api.Build.Target;
 import com.google.errorprone.annotations.MustBeClosed;
 import com.google.idea.blaze.base.buildview.BazelExecService;
 import com.google.idea.blaze.base.buildview.ExecResult;
@@ -113,23 +116,19 @@ public class BlazeQuerySourceToTargetProvider implements SourceToTargetProvider
     }
     return PooledThreadExecutor.INSTANCE.submit(
         () ->
-            Scope.root(
-                context -> {
-                  context.push(new IdeaLogScope());
-                  try {
-                    ImmutableList<TargetInfo> targetInfos =
-                        runDirectRdepsQuery(
-                            project, ImmutableList.of(label), context, ContextType.Other);
-                    if (shouldRunRecursiveRdepsQuery(
-                        ImmutableList.of(label), ContextType.Other, targetInfos)) {
-                      return runRecursiveRdepsQuery(
-                          project, ImmutableList.of(label), context, ContextType.Other);
-                    }
-                    return targetInfos;
-                  } catch (BlazeQuerySourceToTargetException ex) {
-                    return null;
-                  }
-                }));
+            SourceToTargetQueryCache.getInstance(project)
+                .getTargets(
+                    label,
+                    packagePath ->
+                        Scope.root(
+                            context -> {
+                              context.push(new IdeaLogScope());
+                              try {
+                                return runPackageRulesQuery(project, packagePath, context);
+                              } catch (BlazeQuerySourceToTargetException ex) {
+                                return null;
+                              }
+                            })));
   }
 
   /** Synchronously runs a blaze query to find the direct rdeps of the given source files. */
@@ -183,6 +182,57 @@ public class BlazeQuerySourceToTargetProvider implements SourceToTargetProvider
     return getTargetInfoList(project, context, type, directRdepsQuery);
   }
 
+  /**
+   * Queries all rules of a package at once, and maps the name of each file in the package to the
+   * rules directly depending on it. This is what {@code same_pkg_direct_rdeps} computes for a
+   * single file, so one query answers the lookups of all files in the package.
+   */
+  private static ImmutableListMultimap<String, TargetInfo> runPackageRulesQuery(
+      Project project, WorkspacePath packagePath, BlazeContext context)
+      throws BlazeQuerySourceToTargetException {
+    String prefix = "//" + packagePath.relativePath() + ":";
+    final var query = String.format("kind(rule, \"%sall\")", prefix);
+    final var queryFile = prepareQueryFile(project, query);
+    final var command = getBlazeCommandBuilder(
+        /* project = */ project,
+        /* type = */ ContextType.Other,
+        /* query = */ "--query_file=" + queryFile.toAbsolutePath(),
+        /* additionalBlazeFlags = */ ImmutableList.of("--output=proto")
+    );
+
+    try (final var result = BazelExecService.of(project).exec(context, command);
+        final var stdout = result.getStdout()) {
+      result.throwOnFailure();
+
+      ImmutableListMultimap.Builder<String, TargetInfo> targets = ImmutableListMultimap.builder();
+      for (Target target : QueryResult.parseFrom(stdout).getTargetList()) {
+        Label label = target.hasRule() ? Label.createIfValid(target.getRule().getName()) : null;
+        if (label == null) {
+          continue;
+        }
+        TargetInfo info = TargetInfo.builder(label, target.getRule().getRuleClass()).build();
+        for (String input : target.getRule().getRuleInputList()) {
+          // main repository labels may be printed with an explicit, empty repository name
+          String normalized = input.replaceFirst("^@@?//", "//");
+          if (normalized.startsWith(prefix)) {
+            targets.put(normalized.substring(prefix.length()), info);
+          }
+        }
+      }
+      return targets.build();
+    } catch (ExecutionException | BuildException | IOException e) {
+      throw new BlazeQuerySourceToTargetException("Failed to query rules of " + packagePath, e);
+    } finally {
+      if (!Registry.is("bazel.sync.keep.query.files")) {
+        try {
+          Files.deleteIfExists(queryFile);
+        } catch (IOException e) {
+          logger.error("Failed to delete query file", e);
+        }
+      }
+    }
+  }
+
   @Nullable
   private static ImmutableList<TargetInfo> runRecursiveRdepsQuery(
       Project project, Collection<Label> sources, BlazeContext context, ContextType type)
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.dependencies;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.idea.blaze.base.bazel.BuildSystemProvider;
+import com.google.idea.blaze.base.model.primitives.Label;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.settings.Blaze;
+import com.google.idea.blaze.base.settings.BlazeImportSettings;
+import com.google.idea.blaze.base.settings.BlazeImportSettingsManager;
+import com.google.idea.blaze.base.sync.data.BlazeDataStorage;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Persistent cache of the rules owning the source files of a package, as found by blaze query.
+ *
+ * <p>A single query answers the lookups of all source files in a package. Its result is stored in
+ * the project data directory together with a hash of the package's BUILD file, the files in the
+ * package (which its globs may match) and the workspace .bzl files it transitively loads, and
+ * reused until any of these change.
+ */
+public class SourceToTargetQueryCache {
+
+  private static final Logger logger = Logger.getInstance(SourceToTargetQueryCache.class);
+
+  private static final String CACHE_DIR = "sourceToTargetQueryCache";
+
+  // bump whenever the file format or the query changes
+  private static final String VERSION = "1";
+
+  private static final Pattern LOAD_PATTERN = Pattern.compile("load\\(\\s*[\"']([^\"']+)[\"']");
+
+  /** Runs the query for a package, mapping source file names to the rules using them. */
+  interface PackageQuery {
+    @Nullable
+    ImmutableListMultimap<String, TargetInfo> run(WorkspacePath packagePath);
+  }
+
+  public static SourceToTargetQueryCache getInstance(Project project) {
+    return project.getService(SourceToTargetQueryCache.class);
+  }
+
+  private final Project project;
+  private final Map<WorkspacePath, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<WorkspacePath, CompletableFuture<Entry>> pending = new ConcurrentHashMap<>();
+
+  public SourceToTargetQueryCache(Project project) {
+    this.project = project;
+  }
+
+  /**
+   * Returns the rules in the source file's package which directly depend on it, or null if the
+   * package could not be queried. Blocks while the package is queried, so has to be called in the
+   * background.
+   */
+  @Nullable
+  public ImmutableList<TargetInfo> getTargets(Label source, PackageQuery query) {
+    WorkspaceRoot workspaceRoot = WorkspaceRoot.fromProjectSafe(project);
+    File cacheDir = getCacheDir();
+    if (workspaceRoot == null || cacheDir == null) {
+      return null;
+    }
+    BuildSystemProvider provider = Blaze.getBuildSystemProvider(project);
+    return getTargets(
+        workspaceRoot, cacheDir, provider::findBuildFileInDirectory, source, query);
+  }
+
+  @VisibleForTesting
+  @Nullable
+  ImmutableList<TargetInfo> getTargets(
+      WorkspaceRoot workspaceRoot,
+      File cacheDir,
+      Function<File, File> buildFileFinder,
+      Label source,
+      PackageQuery query) {
+    if (source.isExternal()) {
+      return null;
+    }
+    WorkspacePath packagePath = source.blazePackage();
+    String fingerprint = fingerprint(workspaceRoot, buildFileFinder, packagePath);
+    if (fingerprint == null) {
+      return null;
+    }
+    String name = source.targetName().toString();
+
+    Entry entry = entries.get(packagePath);
+    if (entry != null && entry.fingerprint.equals(fingerprint)) {
+      return entry.targets.get(name);
+    }
+    // concurrent lookups in the same package share a single query
+    CompletableFuture<Entry> future = new CompletableFuture<>();
+    CompletableFuture<Entry> running = pending.putIfAbsent(packagePath, future);
+    if (running != null) {
+      entry = running.join();
+      return entry != null ? entry.targets.get(name) : null;
+    }
+    entry = null;
+    try {
+      entry = load(cacheDir, packagePath, fingerprint);
+      if (entry == null) {
+        ImmutableListMultimap<String, TargetInfo> targets = query.run(packagePath);
+        if (targets != null) {
+          entry = new Entry(fingerprint, targets);
+          store(cacheDir, packagePath, entry);
+        }
+      }
+      if (entry != null) {
+        entries.put(packagePath, entry);
+      }
+    } finally {
+      future.complete(entry);
+      pending.remove(packagePath, future);
+    }
+    return entry != null ? entry.targets.get(name) : null;
+  }
+
+  @Nullable
+  private File getCacheDir() {
+    BlazeImportSettings importSettings =
+        BlazeImportSettingsManager.getInstance(project).getImportSettings();
+    return importSettings != null
+        ? new File(BlazeDataStorage.getProjectDataDir(importSettings), CACHE_DIR)
+        : null;
+  }
+
+  /**
+   * Hashes the BUILD file, the listing of the package directory and the workspace .bzl files
+   * transitively loaded by the BUILD file, or returns null if the package has no BUILD file.
+   */
+  @Nullable
+  private static String fingerprint(
+      WorkspaceRoot workspaceRoot,
+      Function<File, File> buildFileFinder,
+      WorkspacePath packagePath) {
+    File packageDir = workspaceRoot.fileForPath(packagePath);
+    File buildFile = buildFileFinder.apply(packageDir);
+    if (buildFile == null) {
+      return null;
+    }
+    try {
+      byte[] content = Files.readAllBytes(buildFile.toPath());
+      Hasher hasher = Hashing.sha256().newHasher().putString(VERSION, UTF_8).putBytes(content);
+      for (String file : listPackage(packageDir.toPath(), buildFileFinder)) {
+        hasher.putString(file, UTF_8).putByte((byte) 0);
+      }
+      Set<Label> visited = new HashSet<>();
+      Deque<Label> queue = new ArrayDeque<>(loadedLabels(packagePath, new String(content, UTF_8)));
+      while (!queue.isEmpty()) {
+        Label loaded = queue.remove();
+        if (!visited.add(loaded)) {
+          continue;
+        }
+        WorkspacePath loadedPath = toWorkspacePath(loaded);
+        hasher.putString(loadedPath.relativePath(), UTF_8);
+        byte[] loadedContent;
+        try {
+          loadedContent = Files.readAllBytes(workspaceRoot.fileForPath(loadedPath).toPath());
+        } catch (NoSuchFileException e) {
+          // only the path is hashed, so the fingerprint changes once the file appears
+          continue;
+        }
+        hasher.putBytes(loadedContent);
+        queue.addAll(loadedLabels(loaded.blazePackage(), new String(loadedContent, UTF_8)));
+      }
+      return hasher.hash().toString();
+    } catch (IOException e) {
+      logger.warn("Failed to hash " + buildFile, e);
+      return null;
+    }
+  }
+
+  /**
+   * The sorted paths of the files and directories in a package, relative to the package directory.
+   * Subpackages are skipped, since globs don't cross package boundaries.
+   */
+  private static ImmutableList<String> listPackage(
+      Path packageDir, Function<File, File> buildFileFinder) throws IOException {
+    List<String> files = new ArrayList<>();
+    Files.walkFileTree(
+        packageDir,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (dir.equals(packageDir)) {
+              return FileVisitResult.CONTINUE;
+            }
+            if (buildFileFinder.apply(dir.toFile()) != null) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            files.add(packageDir.relativize(dir) + "/");
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            files.add(packageDir.relativize(file).toString());
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFileFailed(Path file, IOException e) {
+            // unreadable entries are still listed, so that their removal is noticed
+            files.add(packageDir.relativize(file).toString());
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    return ImmutableList.sortedCopyOf(files);
+  }
+
+  /** The workspace .bzl files loaded by a BUILD file. External repositories are ignored. */
+  @VisibleForTesting
+  static ImmutableList<WorkspacePath> loadedFiles(WorkspacePath packagePath, String buildFile) {
+    return loadedLabels(packagePath, buildFile).stream()
+        .map(SourceToTargetQueryCache::toWorkspacePath)
+        .collect(toImmutableList());
+  }
+
+  /**
+   * The labels of the workspace .bzl files loaded by a BUILD or .bzl file in the given package.
+   * External repositories are ignored.
+   */
+  private static ImmutableList<Label> loadedLabels(WorkspacePath packagePath, String content) {
+    ImmutableList.Builder<Label> labels = ImmutableList.builder();
+    Matcher matcher = LOAD_PATTERN.matcher(content);
+    while (matcher.find()) {
+      String label = matcher.group(1);
+      if (label.startsWith(":")) {
+        label = "//" + packagePath.relativePath() + label;
+      } else if (label.startsWith("@//") || label.startsWith("@@//")) {
+        label = label.substring(label.indexOf("//"));
+      }
+      Label parsed = label.startsWith("//") ? Label.createIfValid(label) : null;
+      if (parsed != null) {
+        labels.add(parsed);
+      }
+    }
+    return labels.build();
+  }
+
+  private static WorkspacePath toWorkspacePath(Label label) {
+    String pkg = label.blazePackage().relativePath();
+    String name = label.targetName().toString();
+    return new WorkspacePath(pkg.isEmpty() ? name : pkg + "/" + name);
+  }
+
+  private static File cacheFile(File cacheDir, WorkspacePath packagePath) {
+    String name = Hashing.sha256().hashString(packagePath.relativePath(), UTF_8).toString();
+    return new File(cacheDir, name);
+  }
+
+  @Nullable
+  private static Entry load(File cacheDir, WorkspacePath packagePath, String fingerprint) {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(cacheFile(cacheDir, packagePath).toPath(), UTF_8);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      logger.warn("Failed to read query cache of " + packagePath, e);
+      return null;
+    }
+    if (lines.isEmpty() || !lines.get(0).equals(fingerprint)) {
+      return null;
+    }
+    ImmutableListMultimap.Builder<String, TargetInfo> targets = ImmutableListMultimap.builder();
+    for (String line : lines.subList(1, lines.size())) {
+      String[] parts = line.split("\t");
+      Label label = parts.length == 3 ? Label.createIfValid(parts[1]) : null;
+      if (label == null) {
+        return null;
+      }
+      targets.put(parts[0], TargetInfo.builder(label, parts[2]).build());
+    }
+    return new Entry(fingerprint, targets.build());
+  }
+
+  private static void store(File cacheDir, WorkspacePath packagePath, Entry entry) {
+    List<String> lines = new ArrayList<>();
+    lines.add(entry.fingerprint);
+    entry.targets.forEach(
+        (source, target) -> lines.add(source + "\t" + target.label + "\t" + target.kindString));
+    Path file = cacheFile(cacheDir, packagePath).toPath();
+    try {
+      Files.createDirectories(file.getParent());
+      Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      Files.write(tmp, lines, UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Failed to write query cache of " + packagePath, e);
+    }
+  }
+
+  private static final class Entry {
+    final String fingerprint;
+    final ImmutableListMultimap<String, TargetInfo> targets;
+
+    Entry(String fingerprint, ImmutableListMultimap<String, TargetInfo> targets) {
+      this.fingerprint = fingerprint;
+      this.targets = targets;
+    }
+  }
+}
@@ -18,6 +18,7 @@ package com.google.idea.blaze.base.filecache;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
@@ -25,6 +26,7 @@ import com.google.common.base.Functions;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
@@ -59,20 +61,25 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 
@@ -81,6 +88,11 @@ import javax.annotation.Nullable;
  * interest will be copied locally.
  *
  * <p>Cache files have a hash appended to their name to allow matching to the original artifact.
+ *
+ * <p>The contents are stored once per digest in a content-addressed directory, and the cache files
+ * are hardlinks to them where the file system supports it. A manifest maps every cache file to the
+ * digest of its contents, so that the current state is known without listing the cache directory
+ * and unchanged outputs are never copied again.
  */
 public final class RemoteOutputsCache {
 
@@ -93,6 +105,15 @@ public final class RemoteOutputsCache {
 
   private static final Logger logger = Logger.getInstance(RemoteOutputsCache.class);
 
+  private static final String CONTENT_DIR = ".content";
+  private static final String MANIFEST_FILE = ".manifest";
+
+  // bump whenever the manifest format changes
+  private static final String MANIFEST_VERSION = "1";
+
+  // digests are used as file names, so anything else is treated as a missing digest
+  private static final Pattern DIGEST_PATTERN = Pattern.compile("[0-9a-zA-Z]+");
+
   private final File cacheDir;
   private final Project project;
   private volatile Map<String, File> cachedFiles = ImmutableMap.of();
@@ -108,7 +129,7 @@ public final class RemoteOutputsCache {
    * cached outputs.
    */
   public void initialize() {
-    cachedFiles = readCachedFiles();
+    cachedFiles = toCachedFiles(readManifest());
   }
 
   /** Finds the locally-cached version of this file, or null if it isn't in the cache. */
@@ -161,10 +182,11 @@ public final class RemoteOutputsCache {
         toCache.stream()
             .collect(toImmutableMap(RemoteOutputsCache::getCacheKey, Functions.identity()));
 
-    Map<String, File> cachedFiles = readCachedFiles();
+    Map<String, String> manifest = readManifest();
+    Map<String, File> cachedFiles = toCachedFiles(manifest);
     try {
       Map<String, RemoteOutputArtifact> updatedOutputs =
-          FileCacheDiffer.findUpdatedOutputs(newState, cachedFiles, previousOutputs);
+          findUpdatedOutputs(newState, manifest, cachedFiles, previousOutputs);
 
       List<File> removed =
           cachedFiles.entrySet().stream()
@@ -180,6 +202,16 @@ public final class RemoteOutputsCache {
           return;
         }
       }
+      // only the untouched entries are valid until the update completes
+      Map<String, String> unchanged = new HashMap<>();
+      manifest.forEach(
+          (key, digest) -> {
+            if (newState.containsKey(key) && !updatedOutputs.containsKey(key)) {
+              unchanged.put(key, digest);
+            }
+          });
+      writeManifest(unchanged);
+
       ImmutableList<RemoteOutputArtifact> artifactsToDownload =
           RemoteOutputArtifact.getRemoteArtifacts(updatedOutputs.values());
       ListenableFuture<?> downloadArtifactsFuture =
@@ -192,14 +224,23 @@ public final class RemoteOutputsCache {
           .withProgressMessage("Prefetching output artifacts...")
           .run();
 
-      List<ListenableFuture<?>> futures = new ArrayList<>(copyLocally(updatedOutputs));
+      Set<String> failed = ConcurrentHashMap.newKeySet();
+      List<ListenableFuture<?>> futures = new ArrayList<>(copyLocally(updatedOutputs, failed::add));
       futures.addAll(deleteCacheFiles(removed));
 
       Futures.allAsList(futures).get();
 
-      this.cachedFiles =
-          newState.keySet().stream()
-              .collect(toImmutableMap(Functions.identity(), k -> new File(cacheDir, k)));
+      Map<String, String> newManifest = new HashMap<>();
+      newState.forEach(
+          (key, artifact) -> {
+            if (!failed.contains(key)) {
+              newManifest.put(
+                  key, updatedOutputs.containsKey(key) ? digest(artifact) : manifest.get(key));
+            }
+          });
+      writeManifest(newManifest);
+      deleteUnusedContents(manifest.values(), newManifest.values());
+      this.cachedFiles = toCachedFiles(newManifest);
 
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt();
@@ -211,12 +252,117 @@ public final class RemoteOutputsCache {
     }
   }
 
-  private Map<String, File> readCachedFiles() {
+  /**
+   * Outputs with a digest are updated if the cached file has different contents or is missing, all
+   * others if {@link FileCacheDiffer} finds them to be out of date.
+   */
+  @VisibleForTesting
+  static Map<String, RemoteOutputArtifact> findUpdatedOutputs(
+      Map<String, RemoteOutputArtifact> newState,
+      Map<String, String> manifest,
+      Map<String, File> cachedFiles,
+      RemoteOutputArtifacts previousOutputs)
+      throws InterruptedException, ExecutionException {
+    Map<String, RemoteOutputArtifact> withoutDigest = new HashMap<>();
+    ImmutableMap.Builder<String, RemoteOutputArtifact> updated = ImmutableMap.builder();
+    newState.forEach(
+        (key, artifact) -> {
+          String digest = digest(artifact);
+          if (digest.isEmpty()) {
+            withoutDigest.put(key, artifact);
+          } else if (!digest.equals(manifest.get(key)) || !isCached(cachedFiles.get(key))) {
+            // the manifest can't tell whether the file was deleted behind our back
+            updated.put(key, artifact);
+          }
+        });
+    updated.putAll(FileCacheDiffer.findUpdatedOutputs(withoutDigest, cachedFiles, previousOutputs));
+    return updated.build();
+  }
+
+  private static boolean isCached(@Nullable File cachedFile) {
+    return cachedFile != null && cachedFile.exists();
+  }
+
+  /** The digest of the artifact's contents, or an empty string if it is unknown. */
+  private static String digest(RemoteOutputArtifact artifact) {
+    String digest = artifact.getDigest();
+    return digest != null && DIGEST_PATTERN.matcher(digest).matches() ? digest : "";
+  }
+
+  private Map<String, File> toCachedFiles(Map<String, String> manifest) {
+    return manifest.keySet().stream()
+        .collect(toImmutableMap(Functions.identity(), k -> new File(cacheDir, k)));
+  }
+
+  /**
+   * Reads the manifest, mapping the cache file names to their digests. Caches written before there
+   * was a manifest are listed once, with unknown digests.
+   */
+  private Map<String, String> readManifest() {
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(new File(cacheDir, MANIFEST_FILE).toPath(), UTF_8);
+    } catch (NoSuchFileException e) {
+      return readLegacyCachedFiles();
+    } catch (IOException e) {
+      logger.warn("Failed to read remote outputs cache manifest", e);
+      return readLegacyCachedFiles();
+    }
+    if (lines.isEmpty() || !lines.get(0).equals(MANIFEST_VERSION)) {
+      return readLegacyCachedFiles();
+    }
+    Map<String, String> manifest = new HashMap<>();
+    for (String line : lines.subList(1, lines.size())) {
+      int tab = line.indexOf('\t');
+      if (tab > 0) {
+        manifest.put(line.substring(0, tab), line.substring(tab + 1));
+      }
+    }
+    return manifest;
+  }
+
+  private Map<String, String> readLegacyCachedFiles() {
     File[] files = cacheDir.listFiles();
     if (files == null) {
       return ImmutableMap.of();
     }
-    return Arrays.stream(files).collect(toImmutableMap(File::getName, Functions.identity()));
+    return Arrays.stream(files)
+        .filter(File::isFile)
+        .map(File::getName)
+        .filter(name -> !name.equals(MANIFEST_FILE))
+        .collect(toImmutableMap(Functions.identity(), name -> ""));
+  }
+
+  private void writeManifest(Map<String, String> manifest) {
+    List<String> lines = new ArrayList<>(manifest.size() + 1);
+    lines.add(MANIFEST_VERSION);
+    manifest.forEach((key, digest) -> lines.add(key + "\t" + digest));
+    try {
+      Path tmp = Files.createTempFile(cacheDir.toPath(), MANIFEST_FILE, ".tmp");
+      Files.write(tmp, lines, UTF_8);
+      Files.move(
+          tmp,
+          new File(cacheDir, MANIFEST_FILE).toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Failed to write remote outputs cache manifest", e);
+    }
+  }
+
+  /** Deletes the stored contents which are no longer referenced by any cache file. */
+  private void deleteUnusedContents(Collection<String> oldDigests, Collection<String> newDigests) {
+    Set<String> used = ImmutableSet.copyOf(newDigests);
+    Path contentDir = new File(cacheDir, CONTENT_DIR).toPath();
+    for (String digest : ImmutableSet.copyOf(oldDigests)) {
+      if (!digest.isEmpty() && !used.contains(digest)) {
+        try {
+          Files.deleteIfExists(contentDir.resolve(digest));
+        } catch (IOException e) {
+          logger.warn(e);
+        }
+      }
+    }
   }
 
   /**
@@ -252,24 +398,111 @@ public final class RemoteOutputsCache {
     return new File(BlazeDataStorage.getProjectDataDir(importSettings), "remoteOutputCache");
   }
 
-  private Collection<ListenableFuture<?>> copyLocally(Map<String, RemoteOutputArtifact> updated) {
+  /**
+   * Copies the updated outputs into the cache. Outputs with the same digest are fetched only once,
+   * by a single task. Reports the keys which could not be copied to {@code failed}.
+   */
+  private Collection<ListenableFuture<?>> copyLocally(
+      Map<String, RemoteOutputArtifact> updated, Consumer<String> failed) {
+    Map<String, List<String>> keysByDigest = new HashMap<>();
     List<ListenableFuture<?>> futures = new ArrayList<>();
     updated.forEach(
-        (key, artifact) ->
+        (key, artifact) -> {
+          String digest = digest(artifact);
+          if (!digest.isEmpty()) {
+            keysByDigest.computeIfAbsent(digest, d -> new ArrayList<>()).add(key);
+            return;
+          }
+          futures.add(
+              FetchExecutor.EXECUTOR.submit(
+                  () -> {
+                    Path destination = new File(cacheDir, key).toPath();
+                    try (InputStream stream = artifact.getInputStream()) {
+                      Files.copy(stream, destination, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (IOException e) {
+                      logger.warn(
+                          String.format("Fail to copy artifact %s to %s", artifact, cacheDir), e);
+                      failed.accept(key);
+                    }
+                  }));
+        });
+    Path contentDir = new File(cacheDir, CONTENT_DIR).toPath();
+    keysByDigest.forEach(
+        (digest, keys) ->
             futures.add(
                 FetchExecutor.EXECUTOR.submit(
-                    () -> {
-                      Path destination = new File(cacheDir, key).toPath();
-                      try (InputStream stream = artifact.getInputStream()) {
-                        Files.copy(stream, destination, StandardCopyOption.REPLACE_EXISTING);
-                      } catch (IOException e) {
-                        logger.warn(
-                            String.format("Fail to copy artifact %s to %s", artifact, cacheDir), e);
-                      }
-                    })));
+                    () ->
+                        materializeAll(
+                            contentDir,
+                            cacheDir.toPath(),
+                            digest,
+                            updated.get(keys.get(0)),
+                            keys,
+                            failed))));
     return futures;
   }
 
+  /**
+   * Materializes the cache files of all keys sharing a digest. If none of them could be
+   * materialized, the stored contents are deleted again, since no manifest entry will reference
+   * them.
+   */
+  @VisibleForTesting
+  static void materializeAll(
+      Path contentDir,
+      Path cacheDir,
+      String digest,
+      RemoteOutputArtifact artifact,
+      List<String> keys,
+      Consumer<String> failed) {
+    boolean anyMaterialized = false;
+    for (String key : keys) {
+      try {
+        materialize(contentDir, cacheDir.resolve(key), digest, artifact);
+        anyMaterialized = true;
+      } catch (IOException e) {
+        logger.warn(String.format("Fail to copy artifact %s to %s", artifact, cacheDir), e);
+        failed.accept(key);
+      }
+    }
+    if (!anyMaterialized) {
+      try {
+        Files.deleteIfExists(contentDir.resolve(digest));
+      } catch (IOException e) {
+        logger.warn(e);
+      }
+    }
+  }
+
+  /**
+   * Stores the artifact's contents under its digest unless already present, then links {@code
+   * destination} to them. Falls back to a copy where hardlinks are not supported.
+   */
+  @VisibleForTesting
+  static void materialize(
+      Path contentDir, Path destination, String digest, RemoteOutputArtifact artifact)
+      throws IOException {
+    Path content = contentDir.resolve(digest);
+    if (!Files.exists(content)) {
+      Files.createDirectories(contentDir);
+      Path tmp = Files.createTempFile(contentDir, digest, ".tmp");
+      try (InputStream stream = artifact.getInputStream()) {
+        Files.copy(stream, tmp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(
+            tmp, content, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+    }
+    Files.deleteIfExists(destination);
+    try {
+      Files.createLink(destination, content);
+    } catch (IOException | UnsupportedOperationException e) {
+      // e.g. file systems without hardlinks, or a content directory on a different volume
+      Files.copy(content, destination, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
   private Collection<ListenableFuture<?>> deleteCacheFiles(Collection<File> files) {
     return files.stream()
         .map(
@@ -287,6 +520,8 @@ public final class RemoteOutputsCache {
 
   private void clearCache() {
     cachedFiles = ImmutableMap.of();
+    // deleted right away, so that the following update does not rely on the files being deleted
+    FileUtil.delete(new File(cacheDir, MANIFEST_FILE));
     if (cacheDir.exists()) {
       File[] cacheFiles = cacheDir.listFiles();
       if (cacheFiles != null) {
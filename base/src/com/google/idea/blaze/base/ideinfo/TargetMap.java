@@ -18,21 +18,72 @@ package com.google.idea.blaze.base.ideinfo;
 import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.devtools.intellij.model.ProjectData;
+import com.google.idea.blaze.base.model.primitives.Kind;
 import com.google.idea.blaze.base.model.primitives.Label;
-import java.util.Map.Entry;
+import com.google.idea.blaze.base.model.primitives.LanguageClass;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.Nullable;
 
 /** Map of configured targets (and soon aspects). */
 public final class TargetMap implements ProtoWrapper<ProjectData.TargetMap> {
-  private final ImmutableMap<TargetKey, TargetIdeInfo> targetMap;
+
+  /**
+   * Serialized targets which can be decoded one at a time, e.g. from a memory mapped project data
+   * cache.
+   */
+  public interface Source {
+    ImmutableSet<TargetKey> keys();
+
+    /** Decodes the target with the given key, or returns null if it cannot be decoded. */
+    @Nullable
+    TargetIdeInfo load(TargetKey key);
+
+    /** Returns the serialized target with the given key, without decoding it. */
+    @Nullable
+    ByteBuffer serialized(TargetKey key);
+  }
+
+  @Nullable private final Source source;
+  private final Map<TargetKey, TargetIdeInfo> decoded;
+  // keys of lazy targets which failed to decode
+  private final Set<TargetKey> undecodable;
+  @Nullable private volatile ImmutableMap<TargetKey, TargetIdeInfo> targetMap;
+
+  // secondary indexes, built on first use
+  @Nullable private volatile ImmutableListMultimap<Label, TargetKey> labelIndex;
+  @Nullable private volatile ImmutableListMultimap<Kind, TargetKey> kindIndex;
 
   public TargetMap(ImmutableMap<TargetKey, TargetIdeInfo> targetMap) {
+    this.source = null;
+    this.decoded = ImmutableMap.of();
+    this.undecodable = ImmutableSet.of();
     this.targetMap = targetMap;
   }
 
+  private TargetMap(Source source) {
+    this.source = source;
+    this.decoded = new ConcurrentHashMap<>();
+    this.undecodable = ConcurrentHashMap.newKeySet();
+    this.targetMap = null;
+  }
+
+  /**
+   * Returns a {@link TargetMap} which only decodes targets when they are first requested. Iterating
+   * over the map decodes all remaining targets once.
+   */
+  public static TargetMap lazy(Source source) {
+    return new TargetMap(source);
+  }
+
   public static TargetMap fromProto(ProjectData.TargetMap proto) {
     return new TargetMap(
         proto.getTargetsList().stream()
@@ -44,35 +95,108 @@ public final class TargetMap implements ProtoWrapper<ProjectData.TargetMap> {
   @Override
   public ProjectData.TargetMap toProto() {
     ProjectData.TargetMap.Builder builder = ProjectData.TargetMap.newBuilder();
-    targetMap.values().stream().map(TargetIdeInfo::toProto).forEach(builder::addTargets);
+    map().values().stream().map(TargetIdeInfo::toProto).forEach(builder::addTargets);
     return builder.build();
   }
 
   @Nullable
   public TargetIdeInfo get(TargetKey key) {
-    return targetMap.get(key);
+    ImmutableMap<TargetKey, TargetIdeInfo> map = targetMap;
+    if (map != null) {
+      return map.get(key);
+    }
+    TargetIdeInfo target = decoded.get(key);
+    if (target == null && source.keys().contains(key) && !undecodable.contains(key)) {
+      target = source.load(key);
+      if (target != null) {
+        decoded.put(key, target);
+      } else {
+        // the source already logged the failure, don't decode it again on every lookup
+        undecodable.add(key);
+      }
+    }
+    return target;
   }
 
+  /** Returns all targets with the given label, i.e. the plain target and its aspects. */
   public ImmutableList<TargetIdeInfo> get(Label label) {
-    return targetMap.entrySet()
-        .stream()
-        .filter(it -> it.getKey().label().equals(label))
-        .map(Entry::getValue)
+    return resolve(labelIndex().get(label));
+  }
+
+  /**
+   * Returns all targets whose kind belongs to the given language. The kinds of all targets are
+   * indexed on first use, later queries only visit the matching targets.
+   */
+  public ImmutableList<TargetIdeInfo> targetsOfLanguage(LanguageClass language) {
+    ImmutableListMultimap<Kind, TargetKey> index = kindIndex;
+    if (index == null) {
+      index =
+          map().values().stream()
+              .collect(
+                  ImmutableListMultimap.toImmutableListMultimap(
+                      TargetIdeInfo::getKind, TargetIdeInfo::getKey));
+      kindIndex = index;
+    }
+    return resolve(
+        index.keySet().stream()
+            .filter(kind -> kind.hasLanguage(language))
+            .flatMap(kind -> index.get(kind).stream())
+            .collect(ImmutableList.toImmutableList()));
+  }
+
+  private ImmutableList<TargetIdeInfo> resolve(Collection<TargetKey> keys) {
+    return keys.stream()
+        .map(this::get)
+        .filter(Objects::nonNull)
         .collect(ImmutableList.toImmutableList());
   }
 
+  /** The label index only needs the keys, so it doesn't decode lazy targets. */
+  private ImmutableListMultimap<Label, TargetKey> labelIndex() {
+    ImmutableListMultimap<Label, TargetKey> index = labelIndex;
+    if (index == null) {
+      index =
+          keys().stream()
+              .collect(ImmutableListMultimap.toImmutableListMultimap(TargetKey::label, key -> key));
+      labelIndex = index;
+    }
+    return index;
+  }
+
+  /** Whether there is a target with the given key, which doesn't decode lazy targets. */
   public boolean contains(TargetKey key) {
-    return targetMap.containsKey(key);
+    return keys().contains(key);
   }
 
   public ImmutableCollection<TargetIdeInfo> targets() {
-    return targetMap.values();
+    return map().values();
   }
 
   public ImmutableMap<TargetKey, TargetIdeInfo> map() {
-    return targetMap;
+    ImmutableMap<TargetKey, TargetIdeInfo> map = targetMap;
+    if (map != null) {
+      return map;
+    }
+    synchronized (this) {
+      if (targetMap == null) {
+        ImmutableMap.Builder<TargetKey, TargetIdeInfo> builder = ImmutableMap.builder();
+        for (TargetKey key : source.keys()) {
+          TargetIdeInfo target = get(key);
+          if (target != null) {
+            builder.put(key, target);
+          }
+        }
+        targetMap = builder.build();
+        decoded.clear();
+      }
+      return targetMap;
+    }
   }
 
+  /**
+   * Lazy target maps are compared by their serialized targets, so that comparing them does not
+   * decode every target.
+   */
   @Override
   public boolean equals(Object o) {
     if (o == this) {
@@ -82,15 +206,63 @@ public final class TargetMap implements ProtoWrapper<ProjectData.TargetMap> {
       return false;
     }
     TargetMap other = (TargetMap) o;
-    return Objects.equals(targetMap, other.targetMap);
+    if (source == null && other.source == null) {
+      return Objects.equals(targetMap, other.targetMap);
+    }
+    if (!keys().equals(other.keys())) {
+      return false;
+    }
+    return keys().stream().allMatch(key -> sameTarget(other, key));
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(targetMap);
+    // only the keys, which are consistent between lazy and decoded target maps
+    return keys().hashCode();
+  }
+
+  /** The keys of all targets, which unlike {@link #map()} doesn't decode lazy targets. */
+  public ImmutableSet<TargetKey> keys() {
+    return source != null ? source.keys() : targetMap.keySet();
+  }
+
+  /**
+   * Returns the serialized target with the given key, or null if there is none. Lazy targets are
+   * returned as stored, without decoding them.
+   */
+  @Nullable
+  public ByteBuffer serialized(TargetKey key) {
+    if (source != null) {
+      return source.serialized(key);
+    }
+    TargetIdeInfo target = targetMap.get(key);
+    return target != null ? ByteBuffer.wrap(target.toProto().toByteArray()) : null;
+  }
+
+  /**
+   * Whether both maps hold the same target for the given key. Targets which were already decoded
+   * are compared directly, all others by their serialized form.
+   */
+  public boolean sameTarget(TargetMap other, TargetKey key) {
+    TargetIdeInfo target = decodedTarget(key);
+    TargetIdeInfo otherTarget = other.decodedTarget(key);
+    if (target != null && target == otherTarget) {
+      return true;
+    }
+    if (source == null && other.source == null) {
+      return Objects.equals(target, otherTarget);
+    }
+    return Objects.equals(serialized(key), other.serialized(key));
+  }
+
+  @Nullable
+  private TargetIdeInfo decodedTarget(TargetKey key) {
+    ImmutableMap<TargetKey, TargetIdeInfo> map = targetMap;
+    return map != null ? map.get(key) : decoded.get(key);
   }
 
   public int size() {
-    return this.targetMap.size();
+    ImmutableMap<TargetKey, TargetIdeInfo> map = targetMap;
+    return map != null ? map.size() : source.keys().size();
   }
 }
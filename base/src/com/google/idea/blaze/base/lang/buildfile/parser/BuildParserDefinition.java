@@ -23,6 +23,7 @@ import com.google.idea.blaze.base.lang.buildfile.lexer.TokenKind;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildElementType;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildElementTypes;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
+import com.google.idea.blaze.base.lang.buildfile.stubs.BuildStubElementType;
 import com.google.idea.common.experiments.DeveloperFlag;
 import com.intellij.extapi.psi.ASTWrapperPsiElement;
 import com.intellij.lang.ASTNode;
@@ -80,6 +81,9 @@ public class BuildParserDefinition implements ParserDefinition {
     if (type instanceof BuildElementType) {
       return ((BuildElementType) type).createElement(node);
     }
+    if (type instanceof BuildStubElementType) {
+      return ((BuildStubElementType<?, ?>) type).createElement(node);
+    }
     return new ASTWrapperPsiElement(node);
   }
 
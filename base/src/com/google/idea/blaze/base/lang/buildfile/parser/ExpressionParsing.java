@@ -18,9 +18,9 @@ package com.google.idea.blaze.base.lang.buildfile.parser;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.idea.blaze.base.lang.buildfile.lexer.TokenKind;
-import com.google.idea.blaze.base.lang.buildfile.psi.BuildElementType;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildElementTypes;
 import com.intellij.lang.PsiBuilder;
+import com.intellij.psi.tree.IElementType;
 import java.util.EnumSet;
 
 /** For parsing expressions in BUILD files. */
@@ -318,7 +318,7 @@ public class ExpressionParsing extends Parsing {
     mark.done(BuildElementTypes.ARGUMENT_LIST);
   }
 
-  private BuildElementType getFuncallExpressionType(String functionName) {
+  private IElementType getFuncallExpressionType(String functionName) {
     if ("glob".equals(functionName)) {
       return BuildElementTypes.GLOB_EXPRESSION;
     }
@@ -15,14 +15,16 @@
  */
 package com.google.idea.blaze.base.lang.buildfile.psi;
 
-import com.google.idea.blaze.base.lang.buildfile.language.BuildFileType;
-import com.intellij.psi.tree.IFileElementType;
+import com.google.idea.blaze.base.lang.buildfile.stubs.BuildFileElementType;
+import com.google.idea.blaze.base.lang.buildfile.stubs.FuncallExpressionElementType;
+import com.google.idea.blaze.base.lang.buildfile.stubs.FunctionStatementElementType;
+import com.google.idea.blaze.base.lang.buildfile.stubs.LoadStatementElementType;
 import com.intellij.psi.tree.TokenSet;
 
 /** Collects the types used by the PsiBuilder to construct the AST */
 public interface BuildElementTypes {
 
-  IFileElementType BUILD_FILE = new IFileElementType(BuildFileType.INSTANCE.getLanguage());
+  BuildFileElementType BUILD_FILE = new BuildFileElementType();
 
   // Statements
   BuildElementType RETURN_STATEMENT = new BuildElementType("return", ReturnStatement.class);
@@ -32,10 +34,10 @@ public interface BuildElementTypes {
   BuildElementType AUGMENTED_ASSIGNMENT =
       new BuildElementType("aug_assign", AugmentedAssignmentStatement.class);
   BuildElementType FLOW_STATEMENT = new BuildElementType("flow", FlowStatement.class);
-  BuildElementType LOAD_STATEMENT = new BuildElementType("load", LoadStatement.class);
+  LoadStatementElementType LOAD_STATEMENT = new LoadStatementElementType("load");
   BuildElementType INCLUDE_STATEMENT = new BuildElementType("include", IncludeStatement.class);
-  BuildElementType FUNCTION_STATEMENT =
-      new BuildElementType("function_def", FunctionStatement.class);
+  FunctionStatementElementType FUNCTION_STATEMENT =
+      new FunctionStatementElementType("function_def");
   BuildElementType FOR_STATEMENT = new BuildElementType("for", ForStatement.class);
   BuildElementType IF_STATEMENT = new BuildElementType("if", IfStatement.class);
 
@@ -67,8 +69,8 @@ public interface BuildElementTypes {
       new BuildElementType("dict_entry", DictionaryEntryLiteral.class);
   BuildElementType BINARY_OP_EXPRESSION =
       new BuildElementType("binary_op", BinaryOpExpression.class);
-  BuildElementType FUNCALL_EXPRESSION =
-      new BuildElementType("function_call", FuncallExpression.class);
+  FuncallExpressionElementType FUNCALL_EXPRESSION =
+      new FuncallExpressionElementType("function_call");
   BuildElementType DOT_EXPRESSION = new BuildElementType("dot_expr", DotExpression.class);
   BuildElementType STRING_LITERAL = new BuildElementType("string", StringLiteral.class);
   BuildElementType INTEGER_LITERAL = new BuildElementType("int", IntegerLiteral.class);
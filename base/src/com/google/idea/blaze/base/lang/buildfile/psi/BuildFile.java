@@ -18,6 +18,9 @@ package com.google.idea.blaze.base.lang.buildfile.psi;
 import com.google.idea.blaze.base.lang.buildfile.language.BuildFileType;
 import com.google.idea.blaze.base.lang.buildfile.references.QuoteType;
 import com.google.idea.blaze.base.lang.buildfile.search.BlazePackage;
+import com.google.idea.blaze.base.lang.buildfile.stubs.FuncallExpressionStub;
+import com.google.idea.blaze.base.lang.buildfile.stubs.FunctionStatementStub;
+import com.google.idea.blaze.base.lang.buildfile.stubs.LoadStatementStub;
 import com.google.idea.blaze.base.model.primitives.Label;
 import com.google.idea.blaze.base.sync.workspace.WorkspaceHelper;
 import com.intellij.extapi.psi.PsiFileBase;
@@ -27,6 +30,8 @@ import com.intellij.openapi.project.Project;
 import com.intellij.psi.FileViewProvider;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNamedElement;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubTree;
 import com.intellij.util.PathUtil;
 import com.intellij.util.Processor;
 import icons.BlazeIcons;
@@ -34,6 +39,9 @@ import icons.BlazeIcons;
 import javax.annotation.Nullable;
 import javax.swing.*;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /** Build file PSI element */
 public class BuildFile extends PsiFileBase implements BuildElement, DocStringOwner {
@@ -147,6 +155,15 @@ public class BuildFile extends PsiFileBase implements BuildElement, DocStringOwn
   /** Finds a top-level rule with a "name" keyword argument with the given value. */
   @Nullable
   public FuncallExpression findRule(String name) {
+    List<FuncallExpressionStub> stubs = findTopLevelStubs(FuncallExpressionStub.class);
+    if (stubs != null) {
+      for (FuncallExpressionStub stub : stubs) {
+        if (name.equals(stub.getName())) {
+          return stub.getPsi();
+        }
+      }
+      return null;
+    }
     for (FuncallExpression expr : findChildrenByClass(FuncallExpression.class)) {
       String ruleName = expr.getNameArgumentValue();
       if (name.equals(ruleName)) {
@@ -168,7 +185,11 @@ public class BuildFile extends PsiFileBase implements BuildElement, DocStringOwn
 
   @Nullable
   public FunctionStatement findLoadedFunction(String name) {
-    for (LoadStatement loadStatement : findChildrenByClass(LoadStatement.class)) {
+    for (LoadStatement loadStatement : getLoadStatements()) {
+      if (!Arrays.asList(loadStatement.getVisibleSymbolNames()).contains(name)) {
+        // checked on the stub first, so that only the matching load statement needs the AST
+        continue;
+      }
       for (LoadedSymbol loadedSymbol : loadStatement.getImportedSymbolElements()) {
         if (name.equals(loadedSymbol.getSymbolString())) {
           PsiElement element = loadedSymbol.getLoadedElement();
@@ -246,9 +267,52 @@ public class BuildFile extends PsiFileBase implements BuildElement, DocStringOwn
   }
 
   public FunctionStatement[] getFunctionDeclarations() {
+    List<FunctionStatementStub> stubs = findTopLevelStubs(FunctionStatementStub.class);
+    if (stubs != null) {
+      return stubs.stream().map(FunctionStatementStub::getPsi).toArray(FunctionStatement[]::new);
+    }
     return findChildrenByClass(FunctionStatement.class);
   }
 
+  public LoadStatement[] getLoadStatements() {
+    List<LoadStatementStub> stubs = findTopLevelStubs(LoadStatementStub.class);
+    if (stubs != null) {
+      return stubs.stream().map(LoadStatementStub::getPsi).toArray(LoadStatement[]::new);
+    }
+    return findChildrenByClass(LoadStatement.class);
+  }
+
+  /** All top-level function calls, i.e. the rules and macros of a BUILD file. */
+  public FuncallExpression[] getTopLevelFuncalls() {
+    List<FuncallExpressionStub> stubs = findTopLevelStubs(FuncallExpressionStub.class);
+    if (stubs != null) {
+      return stubs.stream().map(FuncallExpressionStub::getPsi).toArray(FuncallExpression[]::new);
+    }
+    return findChildrenByClass(FuncallExpression.class);
+  }
+
+  /**
+   * Returns the top-level stubs of the given type, or null if the AST is already loaded, in which
+   * case the PSI children are used instead.
+   */
+  @Nullable
+  private <S extends StubElement<?>> List<S> findTopLevelStubs(Class<S> stubClass) {
+    if (isContentsLoaded()) {
+      return null;
+    }
+    StubTree stubTree = getStubTree();
+    if (stubTree == null) {
+      return null;
+    }
+    List<S> stubs = new ArrayList<>();
+    for (StubElement<?> child : stubTree.getRoot().getChildrenStubs()) {
+      if (stubClass.isInstance(child)) {
+        stubs.add(stubClass.cast(child));
+      }
+    }
+    return stubs;
+  }
+
   @Override
   public Icon getIcon(int flags) {
     return BlazeIcons.BuildFile;
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.psi;
+
+import com.google.idea.blaze.base.lang.buildfile.lexer.BuildToken;
+import com.google.idea.blaze.base.lang.buildfile.psi.util.PsiUtils;
+import com.google.idea.blaze.base.lang.buildfile.search.BlazePackage;
+import com.intellij.lang.ASTNode;
+import com.intellij.navigation.ItemPresentation;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiReference;
+import com.intellij.psi.tree.IElementType;
+import javax.annotation.Nullable;
+import javax.swing.Icon;
+
+/**
+ * Implementations shared by the AST based {@link BuildElementImpl} and the stub based {@link
+ * BuildStubBasedElementImpl}, which can't share a base class.
+ */
+final class BuildPsiImplUtil {
+  private BuildPsiImplUtil() {}
+
+  @Nullable
+  static <P extends PsiElement> P getPsiChild(
+      ASTNode node, IElementType type, Class<P> psiClass) {
+    ASTNode childNode = node.findChildByType(type);
+    return childNode != null && psiClass.isInstance(childNode.getPsi())
+        ? psiClass.cast(childNode.getPsi())
+        : null;
+  }
+
+  static String nonNullName(@Nullable String name) {
+    return name != null ? name : "<unnamed>";
+  }
+
+  @Nullable
+  static PsiElement getReferencedElement(PsiElement element) {
+    for (PsiReference ref : element.getReferences()) {
+      PsiElement resolved = ref.resolve();
+      if (resolved != null) {
+        return resolved;
+      }
+    }
+    return null;
+  }
+
+  static ItemPresentation getPresentation(BuildElement element) {
+    return new ItemPresentation() {
+      @Override
+      public String getPresentableText() {
+        return element.getPresentableText();
+      }
+
+      @Override
+      public String getLocationString() {
+        return element.getLocationString();
+      }
+
+      @Override
+      public Icon getIcon(boolean unused) {
+        return element.getIcon(0);
+      }
+    };
+  }
+
+  @Nullable
+  static BlazePackage getBlazePackage(PsiElement element) {
+    PsiFile file = element.getContainingFile();
+    return file != null ? BlazePackage.getContainingPackage(file) : null;
+  }
+
+  /** The identifier naming a named element, e.g. a function definition or a parameter. */
+  @Nullable
+  static ASTNode getNameNode(PsiElement element) {
+    return element.getNode().findChildByType(BuildToken.IDENTIFIER);
+  }
+
+  @Nullable
+  static PsiElement getNameIdentifier(PsiElement element) {
+    ASTNode nameNode = getNameNode(element);
+    return nameNode != null ? nameNode.getPsi() : null;
+  }
+
+  static void setName(PsiElement element, String name) {
+    ASTNode nameElement = PsiUtils.createNewName(element.getProject(), name);
+    ASTNode nameNode = getNameNode(element);
+    if (nameNode != null) {
+      element.getNode().replaceChild(nameNode, nameElement);
+    }
+  }
+
+  /** The offset of the name, or {@code defaultOffset} for unnamed elements. */
+  static int getNameOffset(PsiElement element, int defaultOffset) {
+    ASTNode name = getNameNode(element);
+    return name != null ? name.getStartOffset() : defaultOffset;
+  }
+}
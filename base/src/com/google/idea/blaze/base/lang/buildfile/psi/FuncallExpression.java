@@ -21,12 +21,15 @@ import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile.BlazeFileType;
 import com.google.idea.blaze.base.lang.buildfile.psi.util.PsiUtils;
 import com.google.idea.blaze.base.lang.buildfile.references.FuncallReference;
 import com.google.idea.blaze.base.lang.buildfile.references.LabelUtils;
+import com.google.idea.blaze.base.lang.buildfile.stubs.FuncallExpressionStub;
 import com.google.idea.blaze.base.model.primitives.Kind;
 import com.google.idea.blaze.base.model.primitives.Label;
 import com.intellij.lang.ASTNode;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.psi.StubBasedPsiElement;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.util.IncorrectOperationException;
 import com.intellij.util.Processor;
 import icons.BlazeIcons;
@@ -38,13 +41,17 @@ import javax.swing.Icon;
  * PSI element for an function call.<br>
  * Could be a top-level rule, Skylark function reference, or general some other python function call
  */
-public class FuncallExpression extends BuildElementImpl
-    implements Expression, PsiNameIdentifierOwner {
+public class FuncallExpression extends BuildStubBasedElementImpl<FuncallExpressionStub>
+    implements Expression, PsiNameIdentifierOwner, StubBasedPsiElement<FuncallExpressionStub> {
 
   public FuncallExpression(ASTNode astNode) {
     super(astNode);
   }
 
+  public FuncallExpression(FuncallExpressionStub stub, IStubElementType<?, ?> nodeType) {
+    super(stub, nodeType);
+  }
+
   @Override
   protected void acceptVisitor(BuildElementVisitor visitor) {
     visitor.visitFuncallExpression(this);
@@ -53,6 +60,10 @@ public class FuncallExpression extends BuildElementImpl
   /** The name of the function being called. */
   @Nullable
   public String getFunctionName() {
+    FuncallExpressionStub stub = getGreenStub();
+    if (stub != null) {
+      return stub.getFunctionName();
+    }
     ASTNode node = getFunctionNameNode();
     return node != null ? node.getText() : null;
   }
@@ -105,6 +116,10 @@ public class FuncallExpression extends BuildElementImpl
 
   /** Top-level funcalls are almost always BUILD rules. */
   public boolean isTopLevel() {
+    if (getGreenStub() != null) {
+      // only top-level funcalls have stubs
+      return true;
+    }
     ASTNode parent = getNode().getTreeParent();
     return parent == null || parent.getElementType() == BuildElementTypes.BUILD_FILE;
   }
@@ -173,6 +188,10 @@ public class FuncallExpression extends BuildElementImpl
   /** Value of keyword argument with name "name", if one is present. */
   @Nullable
   public String getNameArgumentValue() {
+    FuncallExpressionStub stub = getGreenStub();
+    if (stub != null) {
+      return stub.getName();
+    }
     StringLiteral node = getNameArgumentValueNode();
     return node != null ? node.getStringContents() : null;
   }
@@ -15,21 +15,73 @@
  */
 package com.google.idea.blaze.base.lang.buildfile.psi;
 
+import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import com.google.idea.blaze.base.lang.buildfile.references.QuoteType;
+import com.google.idea.blaze.base.lang.buildfile.stubs.FunctionStatementStub;
 import com.intellij.lang.ASTNode;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiNameIdentifierOwner;
+import com.intellij.psi.StubBasedPsiElement;
+import com.intellij.psi.stubs.IStubElementType;
 import com.intellij.util.PlatformIcons;
 import javax.annotation.Nullable;
 import javax.swing.Icon;
 
-/** PSI element for a function definition statement. */
-public class FunctionStatement extends NamedBuildElement
-    implements Statement, StatementListContainer, DocStringOwner {
+/**
+ * PSI element for a function definition statement.
+ *
+ * <p>Top-level definitions are stubbed, so the name is the same as in {@link NamedBuildElement},
+ * but read from the stub if the AST is not loaded.
+ */
+public class FunctionStatement extends BuildStubBasedElementImpl<FunctionStatementStub>
+    implements Statement,
+        StatementListContainer,
+        DocStringOwner,
+        PsiNameIdentifierOwner,
+        StubBasedPsiElement<FunctionStatementStub> {
 
   public FunctionStatement(ASTNode astNode) {
     super(astNode);
   }
 
+  public FunctionStatement(FunctionStatementStub stub, IStubElementType<?, ?> nodeType) {
+    super(stub, nodeType);
+  }
+
+  @Nullable
+  public ASTNode getNameNode() {
+    return BuildPsiImplUtil.getNameNode(this);
+  }
+
+  @Override
+  @Nullable
+  public String getName() {
+    FunctionStatementStub stub = getGreenStub();
+    if (stub != null) {
+      return stub.getName();
+    }
+    ASTNode node = getNameNode();
+    return node != null ? node.getText() : null;
+  }
+
+  @Override
+  @Nullable
+  public PsiElement getNameIdentifier() {
+    return BuildPsiImplUtil.getNameIdentifier(this);
+  }
+
+  @CanIgnoreReturnValue
+  @Override
+  public PsiElement setName(String name) {
+    BuildPsiImplUtil.setName(this, name);
+    return this;
+  }
+
+  @Override
+  public int getTextOffset() {
+    return BuildPsiImplUtil.getNameOffset(this, super.getTextOffset());
+  }
+
   @Override
   protected void acceptVisitor(BuildElementVisitor visitor) {
     visitor.visitFunctionStatement(this);
@@ -74,4 +126,9 @@ public class FunctionStatement extends NamedBuildElement
     }
     return null;
   }
+
+  @Override
+  public String toString() {
+    return super.toString() + "('" + getName() + "')";
+  }
 }
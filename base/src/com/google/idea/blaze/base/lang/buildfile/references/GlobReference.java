@@ -37,6 +37,7 @@ import com.intellij.psi.ResolveResult;
 import com.intellij.psi.impl.source.resolve.reference.impl.PsiPolyVariantCachingReference;
 import com.intellij.util.IncorrectOperationException;
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -114,12 +115,13 @@ public class GlobReference extends PsiPolyVariantCachingReference {
     Project project = element.getProject();
     try {
       List<File> files =
-          UnixGlob.forPath(containingDirectory)
-              .addPatterns(includes)
-              .addExcludes(excludes)
-              .setExcludeDirectories(directoriesExcluded)
-              .setDirectoryFilter(directoryFilter(project, containingDirectory.getPath()))
-              .glob();
+          GlobResultCache.getInstance(project)
+              .get(
+                  containingDirectory,
+                  includes,
+                  excludes,
+                  directoriesExcluded,
+                  () -> glob(project, containingDirectory, includes, excludes, directoriesExcluded));
 
       List<ResolveResult> results = Lists.newArrayListWithCapacity(files.size());
       for (File file : files) {
@@ -135,6 +137,25 @@ public class GlobReference extends PsiPolyVariantCachingReference {
     }
   }
 
+  private static ImmutableList<File> glob(
+      Project project,
+      File containingDirectory,
+      List<String> includes,
+      List<String> excludes,
+      boolean directoriesExcluded) {
+    try {
+      return ImmutableList.copyOf(
+          UnixGlob.forPath(containingDirectory)
+              .addPatterns(includes)
+              .addExcludes(excludes)
+              .setExcludeDirectories(directoriesExcluded)
+              .setDirectoryFilter(directoryFilter(project, containingDirectory.getPath()))
+              .glob());
+    } catch (IOException | InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
   /** Don't traverse sub-directories which are themselves blaze packages */
   private static Predicate<File> directoryFilter(Project project, String base) {
     BuildSystemProvider provider = Blaze.getBuildSystemProvider(project);
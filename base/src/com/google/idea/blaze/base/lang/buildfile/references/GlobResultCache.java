@@ -0,0 +1,213 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.references;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import java.io.File;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the files matched by globs, per blaze package.
+ *
+ * <p>Entries are keyed by the glob's patterns, and dropped when a file or directory is created,
+ * deleted, moved or renamed anywhere under the package. Changes to the file contents don't affect
+ * globs, so they keep the cache.
+ *
+ * <p>Globs walk the file system directly, while the cache only sees VFS events. Files created
+ * outside the IDE in directories which the VFS never loaded produce no event, so entries also
+ * expire after a while, and only a bounded number of packages is kept.
+ */
+public class GlobResultCache {
+
+  private static final int MAX_PACKAGES = 1000;
+  private static final Duration EXPIRY = Duration.ofMinutes(5);
+
+  // beyond this many changed paths in one batch, e.g. on a branch switch, drop the whole cache
+  @VisibleForTesting static final int MAX_INVALIDATED_PATHS = 1000;
+
+  public static GlobResultCache getInstance(Project project) {
+    return project.getService(GlobResultCache.class);
+  }
+
+  private final Map<String, Map<Key, ImmutableList<File>>> packages;
+
+  // incremented on every invalidation, so that a glob racing with a file change isn't cached
+  private final AtomicLong modificationCount = new AtomicLong();
+
+  public GlobResultCache() {
+    this(Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  GlobResultCache(Ticker ticker) {
+    Cache<String, Map<Key, ImmutableList<File>>> cache =
+        CacheBuilder.newBuilder()
+            .maximumSize(MAX_PACKAGES)
+            .expireAfterWrite(EXPIRY)
+            .ticker(ticker)
+            .build();
+    this.packages = cache.asMap();
+  }
+
+  /** Returns the cached files of a glob, or computes them by walking the package. */
+  public ImmutableList<File> get(
+      File packageDirectory,
+      List<String> includes,
+      List<String> excludes,
+      boolean excludeDirectories,
+      Supplier<ImmutableList<File>> glob) {
+    String packagePath = FileUtil.toSystemIndependentName(packageDirectory.getPath());
+    Key key = new Key(includes, excludes, excludeDirectories);
+    Map<Key, ImmutableList<File>> globs = packages.get(packagePath);
+    ImmutableList<File> files = globs != null ? globs.get(key) : null;
+    if (files != null) {
+      return files;
+    }
+
+    long count = modificationCount.get();
+    files = glob.get();
+    if (count == modificationCount.get()) {
+      packages.computeIfAbsent(packagePath, p -> new ConcurrentHashMap<>()).put(key, files);
+    }
+    return files;
+  }
+
+  /** Drops the packages containing any of the paths, and the packages inside them. */
+  @VisibleForTesting
+  void invalidate(Set<String> paths) {
+    if (paths.isEmpty()) {
+      return;
+    }
+    modificationCount.incrementAndGet();
+    if (paths.size() > MAX_INVALIDATED_PATHS) {
+      packages.clear();
+      return;
+    }
+    // a single pass over the packages: drop those which are a changed path, or under one, ...
+    packages.keySet().removeIf(packagePath -> isUnderAny(packagePath, paths));
+    // ... and those containing a changed path
+    for (String path : paths) {
+      for (String parent = parentPath(path); parent != null; parent = parentPath(parent)) {
+        packages.remove(parent);
+      }
+    }
+  }
+
+  private static boolean isUnderAny(String path, Set<String> ancestors) {
+    for (String parent = path; parent != null; parent = parentPath(parent)) {
+      if (ancestors.contains(parent)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Nullable
+  private static String parentPath(String path) {
+    int index = path.lastIndexOf('/');
+    return index > 0 ? path.substring(0, index) : null;
+  }
+
+  /** Invalidates the cache on changes to the file tree. */
+  static class Invalidator implements BulkFileListener {
+    private final Project project;
+
+    Invalidator(Project project) {
+      this.project = project;
+    }
+
+    @Override
+    public void after(List<? extends VFileEvent> events) {
+      GlobResultCache cache = project.getServiceIfCreated(GlobResultCache.class);
+      if (cache == null || cache.packages.isEmpty()) {
+        return;
+      }
+      // collect the whole batch first, so that the cached packages are only visited once
+      Set<String> paths = new HashSet<>();
+      for (VFileEvent event : events) {
+        if (event instanceof VFileContentChangeEvent) {
+          continue;
+        }
+        if (event instanceof VFilePropertyChangeEvent
+            && !((VFilePropertyChangeEvent) event).isRename()) {
+          continue;
+        }
+        paths.add(event.getPath());
+        if (event instanceof VFileMoveEvent) {
+          paths.add(((VFileMoveEvent) event).getOldPath());
+        } else if (event instanceof VFilePropertyChangeEvent) {
+          paths.add(((VFilePropertyChangeEvent) event).getOldPath());
+        } else if (event instanceof VFileCopyEvent) {
+          VFileCopyEvent copy = (VFileCopyEvent) event;
+          paths.add(copy.getNewParent().getPath() + "/" + copy.getNewChildName());
+        }
+      }
+      cache.invalidate(paths);
+    }
+  }
+
+  private static final class Key {
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final boolean excludeDirectories;
+
+    Key(List<String> includes, List<String> excludes, boolean excludeDirectories) {
+      this.includes = ImmutableList.copyOf(includes);
+      this.excludes = ImmutableList.copyOf(excludes);
+      this.excludeDirectories = excludeDirectories;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return excludeDirectories == other.excludeDirectories
+          && includes.equals(other.includes)
+          && excludes.equals(other.excludes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(includes, excludes, excludeDirectories);
+    }
+  }
+}
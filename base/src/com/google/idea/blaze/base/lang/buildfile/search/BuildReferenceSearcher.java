@@ -20,6 +20,7 @@ import com.google.idea.blaze.base.lang.buildfile.language.BuildFileType;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile.BlazeFileType;
 import com.google.idea.blaze.base.lang.buildfile.psi.FuncallExpression;
+import com.google.idea.blaze.base.lang.buildfile.psi.FunctionStatement;
 import com.google.idea.blaze.base.lang.buildfile.psi.NamedBuildElement;
 import com.google.idea.blaze.base.lang.buildfile.psi.util.PsiUtils;
 import com.google.idea.blaze.base.lang.buildfile.references.LabelUtils;
@@ -28,6 +29,7 @@ import com.intellij.openapi.application.QueryExecutorBase;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiNamedElement;
 import com.intellij.psi.PsiReference;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.search.LocalSearchScope;
@@ -48,8 +50,8 @@ public class BuildReferenceSearcher extends QueryExecutorBase<PsiReference, Sear
   @Override
   public void processQuery(SearchParameters params, Processor<? super PsiReference> consumer) {
     PsiElement element = params.getElementToSearch();
-    if (element instanceof NamedBuildElement) {
-      String fnName = ((NamedBuildElement) element).getName();
+    if (element instanceof NamedBuildElement || element instanceof FunctionStatement) {
+      String fnName = ((PsiNamedElement) element).getName();
       if (fnName != null) {
         searchForString(params, element, fnName);
       }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.stubs;
+
+import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
+import com.google.idea.blaze.base.lang.buildfile.psi.FuncallExpression;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.stubs.StringStubIndexExtension;
+import com.intellij.psi.stubs.StubIndex;
+import com.intellij.psi.stubs.StubIndexKey;
+import java.util.Collection;
+import javax.annotation.Nullable;
+
+/**
+ * Indexes top-level function calls by the value of their "name" argument, i.e. rules by target
+ * name.
+ *
+ * <p>Index keys can't depend on the location of a file, so the package is not part of the key.
+ * Instead, lookups are restricted to the package's BUILD file, which together identifies a label.
+ */
+public class BuildRuleNameIndex extends StringStubIndexExtension<FuncallExpression> {
+
+  public static final StubIndexKey<String, FuncallExpression> KEY =
+      StubIndexKey.createIndexKey("build.rule.name");
+
+  private static final int VERSION = 1;
+
+  @Override
+  public StubIndexKey<String, FuncallExpression> getKey() {
+    return KEY;
+  }
+
+  @Override
+  public int getVersion() {
+    return super.getVersion() + VERSION;
+  }
+
+  /** Finds the rule with the given name in a BUILD file, without loading the file's AST. */
+  @Nullable
+  public static FuncallExpression findRule(BuildFile buildFile, String name) {
+    VirtualFile file = buildFile.getVirtualFile();
+    if (file == null || DumbService.isDumb(buildFile.getProject())) {
+      return buildFile.findRule(name);
+    }
+    Collection<FuncallExpression> rules =
+        StubIndex.getElements(
+            KEY,
+            name,
+            buildFile.getProject(),
+            GlobalSearchScope.fileScope(buildFile.getProject(), file),
+            FuncallExpression.class);
+    return rules.isEmpty() ? null : rules.iterator().next();
+  }
+}
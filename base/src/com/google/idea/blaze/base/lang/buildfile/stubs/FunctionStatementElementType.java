@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.stubs;
+
+import com.google.idea.blaze.base.lang.buildfile.psi.FunctionStatement;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
+import java.io.IOException;
+
+/** Element type of function definitions, i.e. the symbols a Skylark extension exports. */
+public class FunctionStatementElementType
+    extends BuildStubElementType<FunctionStatementStub, FunctionStatement> {
+
+  public FunctionStatementElementType(String debugName) {
+    super(debugName);
+  }
+
+  @Override
+  public PsiElement createElement(ASTNode node) {
+    return new FunctionStatement(node);
+  }
+
+  @Override
+  public FunctionStatement createPsi(FunctionStatementStub stub) {
+    return new FunctionStatement(stub, this);
+  }
+
+  @Override
+  public FunctionStatementStub createStub(FunctionStatement psi, StubElement<?> parentStub) {
+    return new FunctionStatementStub(parentStub, this, psi.getName());
+  }
+
+  @Override
+  public void serialize(FunctionStatementStub stub, StubOutputStream dataStream)
+      throws IOException {
+    dataStream.writeName(stub.getName());
+  }
+
+  @Override
+  public FunctionStatementStub deserialize(StubInputStream dataStream, StubElement parentStub)
+      throws IOException {
+    return new FunctionStatementStub(parentStub, this, dataStream.readNameString());
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.stubs;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.lang.buildfile.psi.LoadStatement;
+import com.google.idea.blaze.base.lang.buildfile.psi.LoadedSymbol;
+import com.intellij.lang.ASTNode;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.stubs.StubElement;
+import com.intellij.psi.stubs.StubInputStream;
+import com.intellij.psi.stubs.StubOutputStream;
+import java.io.IOException;
+
+/** Element type of load statements. */
+public class LoadStatementElementType
+    extends BuildStubElementType<LoadStatementStub, LoadStatement> {
+
+  public LoadStatementElementType(String debugName) {
+    super(debugName);
+  }
+
+  @Override
+  public PsiElement createElement(ASTNode node) {
+    return new LoadStatement(node);
+  }
+
+  @Override
+  public LoadStatement createPsi(LoadStatementStub stub) {
+    return new LoadStatement(stub, this);
+  }
+
+  @Override
+  public LoadStatementStub createStub(LoadStatement psi, StubElement<?> parentStub) {
+    ImmutableList.Builder<String> symbols = ImmutableList.builder();
+    for (LoadedSymbol symbol : psi.getImportedSymbolElements()) {
+      String name = symbol.getSymbolString();
+      if (name != null) {
+        symbols.add(name);
+      }
+    }
+    return new LoadStatementStub(parentStub, this, psi.getImportedPath(), symbols.build());
+  }
+
+  @Override
+  public void serialize(LoadStatementStub stub, StubOutputStream dataStream) throws IOException {
+    dataStream.writeName(stub.getImportedPath());
+    dataStream.writeVarInt(stub.getVisibleSymbolNames().size());
+    for (String symbol : stub.getVisibleSymbolNames()) {
+      dataStream.writeName(symbol);
+    }
+  }
+
+  @Override
+  public LoadStatementStub deserialize(StubInputStream dataStream, StubElement parentStub)
+      throws IOException {
+    String importedPath = dataStream.readNameString();
+    int count = dataStream.readVarInt();
+    ImmutableList.Builder<String> symbols = ImmutableList.builderWithExpectedSize(count);
+    for (int i = 0; i < count; i++) {
+      symbols.add(dataStream.readNameString());
+    }
+    return new LoadStatementStub(parentStub, this, importedPath, symbols.build());
+  }
+}
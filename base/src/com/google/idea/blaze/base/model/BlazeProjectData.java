@@ -18,6 +18,7 @@ package com.google.idea.blaze.base.model;
 import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.devtools.intellij.model.ProjectData;
 import com.google.idea.blaze.base.command.info.BlazeInfo;
 import com.google.idea.blaze.base.dependencies.TargetInfo;
@@ -35,9 +36,9 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Objects;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
 
 /**
  * The top-level object serialized to cache.
@@ -94,9 +95,43 @@ public abstract class BlazeProjectData {
   @VisibleForTesting
   public static BlazeProjectData fromProto(
       BuildSystemName buildSystemName, ProjectData.BlazeProjectData proto) {
+    return fromProto(buildSystemName, proto, parseTargetData(buildSystemName, proto));
+  }
+
+  /**
+   * Creates the project data from a proto whose target map is stored separately, see {@link
+   * IndexedProjectDataFile}.
+   */
+  static BlazeProjectData fromProto(
+      BuildSystemName buildSystemName, ProjectData.BlazeProjectData proto, TargetMap targetMap) {
+    final var targetData = parseTargetData(buildSystemName, proto);
+    return fromProto(
+        buildSystemName,
+        proto,
+        new ProjectTargetData(targetMap, targetData.ideInterfaceState, targetData.remoteOutputs));
+  }
+
+  /**
+   * Creates the project data from a proto whose target map and ide interface state are stored
+   * separately, see {@link ProjectDataDeltaLog}.
+   */
+  static BlazeProjectData fromProto(
+      BuildSystemName buildSystemName,
+      ProjectData.BlazeProjectData proto,
+      TargetMap targetMap,
+      @Nullable BlazeIdeInterfaceState ideInterfaceState) {
+    final var remoteOutputs =
+        RemoteOutputArtifacts.fromProto(buildSystemName, proto.getTargetData().getRemoteOutputs());
+    return fromProto(
+        buildSystemName, proto, new ProjectTargetData(targetMap, ideInterfaceState, remoteOutputs));
+  }
+
+  private static BlazeProjectData fromProto(
+      BuildSystemName buildSystemName,
+      ProjectData.BlazeProjectData proto,
+      ProjectTargetData targetData) {
     final var blazeInfo = BlazeInfo.fromProto(buildSystemName, proto.getBlazeInfo());
     final var workspacePathResolver = WorkspacePathResolver.fromProto(proto.getWorkspacePathResolver());
-    final var targetData = parseTargetData(buildSystemName, proto);
 
     return builder()
         .targetData(targetData)
@@ -133,8 +168,35 @@ public abstract class BlazeProjectData {
 
   @VisibleForTesting
   public ProjectData.BlazeProjectData toProto() {
+    return toProto(targetData());
+  }
+
+  /** Serializes everything but the targets, which {@link IndexedProjectDataFile} stores itself. */
+  ProjectData.BlazeProjectData toProtoWithoutTargetMap() {
+    ProjectTargetData targetData = targetData();
+    return toProto(
+        new ProjectTargetData(
+            new TargetMap(ImmutableMap.of()),
+            targetData.ideInterfaceState,
+            targetData.remoteOutputs));
+  }
+
+  /**
+   * Serializes everything but the targets and the ide interface state, which {@link
+   * ProjectDataDeltaLog} records as changes.
+   */
+  ProjectData.BlazeProjectData toProtoWithoutTargetState() {
+    ProjectTargetData targetData = targetData();
+    return toProto(
+        new ProjectTargetData(
+            new TargetMap(ImmutableMap.of()),
+            /* ideInterfaceState= */ null,
+            targetData.remoteOutputs));
+  }
+
+  private ProjectData.BlazeProjectData toProto(ProjectTargetData targetData) {
     return ProjectData.BlazeProjectData.newBuilder()
-        .setTargetData(targetData().toProto())
+        .setTargetData(targetData.toProto())
         .setBlazeVersionData(blazeVersionData().toProto())
         .setBlazeInfo(blazeInfo().toProto())
         .setWorkspacePathResolver(workspacePathResolver().toProto())
@@ -155,16 +217,15 @@ public abstract class BlazeProjectData {
     }
 
     // otherwise just return any matching target
-    return map.targets().stream()
-        .filter(t -> Objects.equals(label, t.getKey().label()))
+    return map.get(label).stream()
         .findFirst()
         .map(TargetIdeInfo::toTargetInfo)
         .orElse(null);
   }
 
   public ImmutableList<Label> targets() {
-    return targetMap().targets().stream()
-        .map(it -> it.getKey().label())
+    return targetMap().keys().stream()
+        .map(TargetKey::label)
         .collect(ImmutableList.toImmutableList());
   }
 
@@ -188,4 +249,18 @@ public abstract class BlazeProjectData {
       proto.writeTo(stream);
     }
   }
+
+  /**
+   * Loads project data written by {@link #saveToDiskIndexed}. Targets are decoded from the memory
+   * mapped file when they are first accessed.
+   */
+  public static BlazeProjectData loadFromDiskIndexed(BuildSystemName buildSystemName, File file)
+      throws IOException {
+    return IndexedProjectDataFile.read(buildSystemName, file.toPath());
+  }
+
+  /** Writes the project data in an uncompressed format indexed by {@link TargetKey}. */
+  public void saveToDiskIndexed(File file) throws IOException {
+    IndexedProjectDataFile.write(this, file.toPath());
+  }
 }
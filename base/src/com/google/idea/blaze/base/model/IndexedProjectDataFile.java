@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.CountingOutputStream;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
+import com.google.devtools.intellij.model.ProjectData;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.settings.BuildSystemName;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.SystemInfo;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import javax.annotation.Nullable;
+
+/**
+ * Uncompressed, memory mapped storage for {@link BlazeProjectData}.
+ *
+ * <p>Each target is stored as its own serialized {@link IntellijIdeInfo.TargetIdeInfo}, followed
+ * by the remaining project data and a {@link TargetKey} to offset table:
+ *
+ * <pre>
+ *   [target]* [meta length][meta] [entry count]([key length][key][offset][length])* [meta offset][magic]
+ * </pre>
+ *
+ * <p>Loading only decodes the project data and the keys, the targets themselves are decoded by
+ * {@link TargetMap#lazy} when they are first accessed.
+ */
+final class IndexedProjectDataFile {
+  private static final Logger logger = Logger.getInstance(IndexedProjectDataFile.class);
+
+  private static final int MAGIC = 0x424c5a31; // "BLZ1"
+  private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES;
+
+  private IndexedProjectDataFile() {}
+
+  static void write(BlazeProjectData data, Path file) throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (CountingOutputStream counting =
+            new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)));
+        DataOutputStream out = new DataOutputStream(counting)) {
+      // lazy targets are copied as stored, without decoding them
+      TargetMap targetMap = data.targetMap();
+      ImmutableList<TargetKey> keys = targetMap.keys().asList();
+      long[] offsets = new long[keys.size()];
+      int[] lengths = new int[keys.size()];
+      WritableByteChannel channel = Channels.newChannel(out);
+      for (int i = 0; i < keys.size(); i++) {
+        ByteBuffer bytes = targetMap.serialized(keys.get(i));
+        offsets[i] = counting.getCount();
+        lengths[i] = bytes.remaining();
+        channel.write(bytes);
+      }
+
+      long metaOffset = counting.getCount();
+      byte[] meta = data.toProtoWithoutTargetMap().toByteArray();
+      out.writeInt(meta.length);
+      out.write(meta);
+
+      out.writeInt(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        byte[] keyBytes = keys.get(i).toProto().toByteArray();
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeLong(offsets[i]);
+        out.writeInt(lengths[i]);
+      }
+      out.writeLong(metaOffset);
+      out.writeInt(MAGIC);
+
+      if (counting.getCount() > Integer.MAX_VALUE) {
+        throw new IOException("Project data too large to be memory mapped");
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  static BlazeProjectData read(BuildSystemName buildSystemName, Path file) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE || channel.size() < FOOTER_SIZE) {
+        throw new IOException("Invalid project data file size: " + channel.size());
+      }
+      buffer = SystemInfo.isWindows ? readFully(channel) : map(channel);
+    }
+
+    int footer = buffer.limit() - FOOTER_SIZE;
+    if (buffer.getInt(footer + Long.BYTES) != MAGIC) {
+      throw new IOException("Not an indexed project data file: " + file);
+    }
+    ByteBuffer in = buffer.duplicate();
+    in.position((int) buffer.getLong(footer));
+
+    ProjectData.BlazeProjectData meta =
+        ProjectData.BlazeProjectData.parseFrom(slice(in, in.getInt()));
+
+    int count = in.getInt();
+    ImmutableMap.Builder<TargetKey, Entry> index = ImmutableMap.builderWithExpectedSize(count);
+    for (int i = 0; i < count; i++) {
+      TargetKey key = TargetKey.fromProto(IntellijIdeInfo.TargetKey.parseFrom(slice(in, in.getInt())));
+      index.put(key, new Entry((int) in.getLong(), in.getInt()));
+    }
+
+    return BlazeProjectData.fromProto(
+        buildSystemName, meta, TargetMap.lazy(new MappedSource(buffer, index.build())));
+  }
+
+  private static ByteBuffer map(FileChannel channel) throws IOException {
+    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+  }
+
+  /**
+   * Windows can't replace or delete a file while it is mapped, and a mapping is only released once
+   * the buffer is garbage collected. The file is read into memory instead, so that the next save
+   * can replace it.
+   */
+  private static ByteBuffer readFully(FileChannel channel) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of project data file");
+      }
+    }
+    return buffer.flip();
+  }
+
+  /** Returns the next {@code length} bytes of {@code in} and advances past them. */
+  private static ByteBuffer slice(ByteBuffer in, int length) {
+    ByteBuffer slice = in.slice(in.position(), length);
+    in.position(in.position() + length);
+    return slice;
+  }
+
+  private static final class Entry {
+    private final int offset;
+    private final int length;
+
+    Entry(int offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static final class MappedSource implements TargetMap.Source {
+    private final ByteBuffer buffer;
+    private final ImmutableMap<TargetKey, Entry> index;
+
+    MappedSource(ByteBuffer buffer, ImmutableMap<TargetKey, Entry> index) {
+      this.buffer = buffer;
+      this.index = index;
+    }
+
+    @Override
+    public ImmutableSet<TargetKey> keys() {
+      return index.keySet();
+    }
+
+    @Nullable
+    @Override
+    public TargetIdeInfo load(TargetKey key) {
+      ByteBuffer bytes = serialized(key);
+      if (bytes == null) {
+        return null;
+      }
+      try {
+        return TargetIdeInfo.fromProto(IntellijIdeInfo.TargetIdeInfo.parseFrom(bytes));
+      } catch (InvalidProtocolBufferException e) {
+        logger.warn("Could not decode target " + key, e);
+        return null;
+      }
+    }
+
+    @Nullable
+    @Override
+    public ByteBuffer serialized(TargetKey key) {
+      Entry entry = index.get(key);
+      return entry != null ? buffer.slice(entry.offset, entry.length) : null;
+    }
+  }
+}
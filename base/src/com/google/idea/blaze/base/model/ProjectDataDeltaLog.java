@@ -0,0 +1,284 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.model;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
+import com.google.devtools.intellij.model.ProjectData;
+import com.google.devtools.intellij.model.ProjectData.LocalFileOrOutputArtifact;
+import com.google.idea.blaze.base.filecache.ArtifactStateProtoConverter;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.settings.BuildSystemName;
+import com.google.idea.blaze.base.sync.aspects.BlazeIdeInterfaceState;
+import com.google.idea.blaze.common.artifact.ArtifactState;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.intellij.openapi.diagnostic.Logger;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Append-only log of {@link ProjectData.ProjectDataDelta} entries on top of a persisted {@link
+ * BlazeProjectData} snapshot.
+ *
+ * <p>Each entry records the targets and aspect output files which were added, changed or removed
+ * since the previously persisted state, and the top level project data fields which changed, so
+ * writing it costs time proportional to the size of the change rather than the size of the
+ * project. Targets are compared and applied in their serialized form, so neither direction decodes
+ * the targets of a lazily loaded snapshot. A truncated trailing entry, e.g. after a crash, is
+ * ignored when reading the log back.
+ */
+public final class ProjectDataDeltaLog {
+  private static final Logger logger = Logger.getInstance(ProjectDataDeltaLog.class);
+
+  private ProjectDataDeltaLog() {}
+
+  /** Appends the changes between {@code previous} and {@code next} to the log file. */
+  public static void append(BlazeProjectData previous, BlazeProjectData next, File log)
+      throws IOException {
+    ProjectData.ProjectDataDelta delta = diff(previous, next);
+    try (OutputStream out =
+        new BufferedOutputStream(new FileOutputStream(log, /* append= */ true))) {
+      delta.writeDelimitedTo(out);
+    }
+  }
+
+  /** Returns {@code base} with all entries of the log file applied, in order. */
+  public static BlazeProjectData apply(
+      BuildSystemName buildSystemName, BlazeProjectData base, File log) throws IOException {
+    ProjectData.BlazeProjectData.Builder meta = null;
+    Map<TargetKey, ByteString> updatedTargets = new LinkedHashMap<>();
+    Set<TargetKey> removedTargets = new HashSet<>();
+    BlazeIdeInterfaceState baseState = base.targetData().ideInterfaceState;
+    Map<String, ArtifactState> files = new LinkedHashMap<>(ideInfoFiles(baseState));
+    Map<String, TargetKey> fileToTarget = new HashMap<>(fileToTarget(baseState));
+
+    try (InputStream in = new BufferedInputStream(new FileInputStream(log))) {
+      while (true) {
+        ProjectData.ProjectDataDelta delta;
+        try {
+          delta = ProjectData.ProjectDataDelta.parseDelimitedFrom(in);
+        } catch (InvalidProtocolBufferException e) {
+          logger.warn("Ignoring truncated project data delta", e);
+          break;
+        }
+        if (delta == null) {
+          break;
+        }
+        if (meta == null) {
+          meta = base.toProtoWithoutTargetState().toBuilder();
+        }
+        applyChangedFields(delta, meta);
+        for (IntellijIdeInfo.TargetKey removed : delta.getRemovedTargetsList()) {
+          TargetKey key = TargetKey.fromProto(removed);
+          updatedTargets.remove(key);
+          removedTargets.add(key);
+        }
+        for (IntellijIdeInfo.TargetIdeInfo updated : delta.getUpdatedTargetsList()) {
+          TargetKey key = TargetKey.fromProto(updated.getKey());
+          updatedTargets.put(key, updated.toByteString());
+          removedTargets.remove(key);
+        }
+        delta.getRemovedIdeInfoFilesList().forEach(files::remove);
+        for (LocalFileOrOutputArtifact file :
+            delta.getUpdatedIdeInterfaceState().getIdeInfoFilesList()) {
+          ArtifactState state = ArtifactStateProtoConverter.fromProto(file);
+          if (state != null) {
+            files.put(state.getKey(), state);
+          }
+        }
+        delta.getRemovedFileToTargetList().forEach(fileToTarget::remove);
+        delta
+            .getUpdatedIdeInterfaceState()
+            .getFileToTargetMap()
+            .forEach((file, key) -> fileToTarget.put(file, TargetKey.fromProto(key)));
+      }
+    }
+    if (meta == null) {
+      return base;
+    }
+
+    TargetMap targetMap =
+        updatedTargets.isEmpty() && removedTargets.isEmpty()
+            ? base.targetMap()
+            : TargetMap.lazy(new PatchedTargets(base.targetMap(), updatedTargets, removedTargets));
+    BlazeIdeInterfaceState state =
+        baseState == null && files.isEmpty() && fileToTarget.isEmpty()
+            ? null
+            : BlazeIdeInterfaceState.create(files, fileToTarget);
+    return BlazeProjectData.fromProto(buildSystemName, meta.build(), targetMap, state);
+  }
+
+  private static ProjectData.ProjectDataDelta diff(
+      BlazeProjectData previous, BlazeProjectData next) throws IOException {
+    ProjectData.ProjectDataDelta.Builder delta = ProjectData.ProjectDataDelta.newBuilder();
+    diffFields(previous.toProtoWithoutTargetState(), next.toProtoWithoutTargetState(), delta);
+
+    TargetMap oldTargets = previous.targetMap();
+    TargetMap newTargets = next.targetMap();
+    if (oldTargets != newTargets) {
+      ImmutableSet<TargetKey> oldKeys = oldTargets.keys();
+      ImmutableSet<TargetKey> newKeys = newTargets.keys();
+      for (TargetKey key : newKeys) {
+        if (!oldKeys.contains(key) || !newTargets.sameTarget(oldTargets, key)) {
+          ByteBuffer target = newTargets.serialized(key);
+          if (target != null) {
+            delta.addUpdatedTargets(IntellijIdeInfo.TargetIdeInfo.parseFrom(target));
+          }
+        }
+      }
+      oldKeys.stream()
+          .filter(key -> !newKeys.contains(key))
+          .forEach(key -> delta.addRemovedTargets(key.toProto()));
+    }
+
+    BlazeIdeInterfaceState oldState = previous.targetData().ideInterfaceState;
+    BlazeIdeInterfaceState newState = next.targetData().ideInterfaceState;
+    if (oldState == newState) {
+      return delta.build();
+    }
+    ProjectData.BlazeIdeInterfaceState.Builder updatedState =
+        ProjectData.BlazeIdeInterfaceState.newBuilder();
+
+    Map<String, ArtifactState> oldFiles = ideInfoFiles(oldState);
+    Map<String, ArtifactState> newFiles = ideInfoFiles(newState);
+    newFiles.forEach(
+        (key, file) -> {
+          if (!file.equals(oldFiles.get(key))) {
+            updatedState.addIdeInfoFiles(ArtifactStateProtoConverter.toProto(file));
+          }
+        });
+    oldFiles.keySet().stream()
+        .filter(key -> !newFiles.containsKey(key))
+        .forEach(delta::addRemovedIdeInfoFiles);
+
+    Map<String, TargetKey> oldFileToTarget = fileToTarget(oldState);
+    Map<String, TargetKey> newFileToTarget = fileToTarget(newState);
+    newFileToTarget.forEach(
+        (file, key) -> {
+          if (!Objects.equals(key, oldFileToTarget.get(file))) {
+            updatedState.putFileToTarget(file, key.toProto());
+          }
+        });
+    oldFileToTarget.keySet().stream()
+        .filter(file -> !newFileToTarget.containsKey(file))
+        .forEach(delta::addRemovedFileToTarget);
+
+    return delta.setUpdatedIdeInterfaceState(updatedState).build();
+  }
+
+  /**
+   * Records the top level fields of {@code next} which differ from {@code previous}. Each changed
+   * field is stored whole, unchanged fields are left out.
+   */
+  private static void diffFields(
+      ProjectData.BlazeProjectData previous,
+      ProjectData.BlazeProjectData next,
+      ProjectData.ProjectDataDelta.Builder delta) {
+    ProjectData.BlazeProjectData.Builder changed = ProjectData.BlazeProjectData.newBuilder();
+    for (FieldDescriptor field : ProjectData.BlazeProjectData.getDescriptor().getFields()) {
+      if (previous.getField(field).equals(next.getField(field))) {
+        continue;
+      }
+      if (next.hasField(field)) {
+        changed.setField(field, next.getField(field));
+      } else {
+        delta.addClearedProjectDataFields(field.getNumber());
+      }
+    }
+    delta.setProjectData(changed);
+  }
+
+  private static void applyChangedFields(
+      ProjectData.ProjectDataDelta delta, ProjectData.BlazeProjectData.Builder meta) {
+    delta.getProjectData().getAllFields().forEach(meta::setField);
+    for (int number : delta.getClearedProjectDataFieldsList()) {
+      FieldDescriptor field =
+          ProjectData.BlazeProjectData.getDescriptor().findFieldByNumber(number);
+      if (field != null) {
+        meta.clearField(field);
+      }
+    }
+  }
+
+  private static Map<String, ArtifactState> ideInfoFiles(@Nullable BlazeIdeInterfaceState state) {
+    return state != null ? state.getIdeInfoFileState() : ImmutableMap.of();
+  }
+
+  private static Map<String, TargetKey> fileToTarget(@Nullable BlazeIdeInterfaceState state) {
+    return state != null ? state.getIdeInfoFileToTargetKey() : ImmutableMap.of();
+  }
+
+  /** The targets of a base target map with the changes of the log applied, still serialized. */
+  private static final class PatchedTargets implements TargetMap.Source {
+    private final TargetMap base;
+    private final ImmutableMap<TargetKey, ByteString> updated;
+    private final ImmutableSet<TargetKey> keys;
+
+    PatchedTargets(TargetMap base, Map<TargetKey, ByteString> updated, Set<TargetKey> removed) {
+      this.base = base;
+      this.updated = ImmutableMap.copyOf(updated);
+      ImmutableSet.Builder<TargetKey> keys = ImmutableSet.builder();
+      base.keys().stream().filter(key -> !removed.contains(key)).forEach(keys::add);
+      this.keys = keys.addAll(updated.keySet()).build();
+    }
+
+    @Override
+    public ImmutableSet<TargetKey> keys() {
+      return keys;
+    }
+
+    @Nullable
+    @Override
+    public TargetIdeInfo load(TargetKey key) {
+      ByteString bytes = updated.get(key);
+      if (bytes == null) {
+        return base.get(key);
+      }
+      try {
+        return TargetIdeInfo.fromProto(IntellijIdeInfo.TargetIdeInfo.parseFrom(bytes));
+      } catch (InvalidProtocolBufferException e) {
+        logger.warn("Could not decode target " + key, e);
+        return null;
+      }
+    }
+
+    @Nullable
+    @Override
+    public ByteBuffer serialized(TargetKey key) {
+      ByteString bytes = updated.get(key);
+      return bytes != null ? bytes.asReadOnlyByteBuffer() : base.serialized(key);
+    }
+  }
+}
@@ -29,7 +29,7 @@ import com.google.idea.blaze.base.run.PendingRunConfigurationContext;
 import com.google.idea.blaze.base.settings.Blaze;
 import com.google.idea.blaze.base.settings.BlazeImportSettings.ProjectType;
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
-import com.google.idea.blaze.base.targetmaps.ReverseDependencyMap;
+import com.google.idea.blaze.base.targetmaps.DependencyGraph;
 import com.google.idea.common.experiments.BoolExperiment;
 import com.intellij.execution.runners.ExecutionEnvironment;
 import com.intellij.openapi.actionSystem.DataContext;
@@ -110,8 +110,8 @@ public class PendingWebTestContext extends TestContext implements PendingRunConf
       return ImmutableList.of();
     }
     TargetMap targetMap = projectData.targetMap();
-    return ReverseDependencyMap.get(project)
-        .get(TargetKey.forPlainTarget(wrappedTest.label))
+    return DependencyGraph.get(project)
+        .getReverseDependencies(TargetKey.forPlainTarget(wrappedTest.label))
         .stream()
         .map(targetMap::get)
         .filter(Objects::nonNull)
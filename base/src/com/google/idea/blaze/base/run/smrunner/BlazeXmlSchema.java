@@ -17,62 +17,300 @@ package com.google.idea.blaze.base.run.smrunner;
 
 import static java.util.stream.Collectors.joining;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import javax.annotation.Nullable;
-import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.annotation.XmlAnyElement;
-import javax.xml.bind.annotation.XmlAttribute;
-import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlMixed;
-import javax.xml.bind.annotation.XmlRootElement;
-import javax.xml.parsers.SAXParserFactory;
-import javax.xml.transform.sax.SAXSource;
-import org.xml.sax.InputSource;
-import org.xml.sax.XMLReader;
-
-/** Used to parse the test.xml generated by the blaze/bazel testing framework. */
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Used to parse the test.xml generated by the blaze/bazel testing framework.
+ *
+ * <p>The XML is read with a streaming parser. Captured output and failure details are capped at
+ * {@link #MAX_TEXT_LENGTH} characters per element, so that test runs with huge system-out sections
+ * don't need a correspondingly huge heap.
+ */
 public class BlazeXmlSchema {
 
-  private static final JAXBContext CONTEXT;
+  @VisibleForTesting static final int MAX_TEXT_LENGTH = 1 << 20;
 
-  static {
-    try {
-      CONTEXT = JAXBContext.newInstance(TestSuite.class, TestSuites.class);
-    } catch (JAXBException e) {
-      throw new RuntimeException(e);
-    }
+  private static final XMLInputFactory FACTORY = createInputFactory();
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    return factory;
   }
 
   public static TestSuite parse(InputStream input) {
+    XMLStreamReader reader = null;
     try {
-      SAXParserFactory spf = SAXParserFactory.newInstance();
-      spf.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-      spf.setFeature("http://xml.org/sax/features/external-general-entities", false);
-      spf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
-      spf.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-      XMLReader xmlReader = spf.newSAXParser().getXMLReader();
-      SAXSource source = new SAXSource(xmlReader, new InputSource(input));
-
-      Object parsed = CONTEXT.createUnmarshaller().unmarshal(source);
-      return parsed instanceof TestSuites
-          ? ((TestSuites) parsed).convertToTestSuite()
-          : (TestSuite) parsed;
-
+      reader = FACTORY.createXMLStreamReader(input);
+      reader.nextTag();
+      switch (reader.getLocalName()) {
+        case "testsuites":
+          return readTestSuites(reader).convertToTestSuite();
+        case "testsuite":
+          return readTestSuite(reader);
+        default:
+          throw new XMLStreamException("Unexpected root element " + reader.getLocalName());
+      }
     } catch (Exception e) {
       throw new RuntimeException("Failed to parse test XML", e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // nothing left to clean up
+        }
+      }
+    }
+  }
+
+  private static TestSuites readTestSuites(XMLStreamReader reader) throws XMLStreamException {
+    TestSuites suites = new TestSuites();
+    while (nextChild(reader)) {
+      if (reader.getLocalName().equals("testsuite")) {
+        suites.testSuites.add(readTestSuite(reader));
+      } else {
+        skipElement(reader);
+      }
+    }
+    return suites;
+  }
+
+  private static TestSuite readTestSuite(XMLStreamReader reader) throws XMLStreamException {
+    TestSuite suite = new TestSuite();
+    suite.name = reader.getAttributeValue(null, "name");
+    suite.classname = reader.getAttributeValue(null, "classname");
+    suite.tests = intAttribute(reader, "tests");
+    suite.failures = intAttribute(reader, "failures");
+    suite.errors = intAttribute(reader, "errors");
+    suite.skipped = intAttribute(reader, "skipped");
+    suite.disabled = intAttribute(reader, "disabled");
+    suite.time = doubleAttribute(reader, "time");
+
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "system-out":
+          suite.sysOut = readText(reader);
+          break;
+        case "system-err":
+          suite.sysErr = readText(reader);
+          break;
+        case "error":
+          suite.error = readErrorOrFailureOrSkipped(reader);
+          break;
+        case "failure":
+          suite.failure = readErrorOrFailureOrSkipped(reader);
+          break;
+        case "testsuite":
+          suite.testSuites.add(readTestSuite(reader));
+          break;
+        case "testdecorator":
+          suite.testDecorators.add(readTestSuite(reader));
+          break;
+        case "testcase":
+          suite.testCases.add(readTestCase(reader));
+          break;
+        default:
+          skipElement(reader);
+      }
+    }
+    return suite;
+  }
+
+  private static TestCase readTestCase(XMLStreamReader reader) throws XMLStreamException {
+    TestCase test = new TestCase();
+    test.name = reader.getAttributeValue(null, "name");
+    test.classname = reader.getAttributeValue(null, "classname");
+    test.status = reader.getAttributeValue(null, "status");
+    test.result = reader.getAttributeValue(null, "result");
+    test.time = reader.getAttributeValue(null, "time");
+
+    while (nextChild(reader)) {
+      switch (reader.getLocalName()) {
+        case "system-out":
+          test.sysOut = readText(reader);
+          break;
+        case "system-err":
+          test.sysErr = readText(reader);
+          break;
+        case "error":
+          test.errors.add(readErrorOrFailureOrSkipped(reader));
+          break;
+        case "failure":
+          test.failures.add(readErrorOrFailureOrSkipped(reader));
+          break;
+        case "skipped":
+          test.skipped = readErrorOrFailureOrSkipped(reader);
+          break;
+        default:
+          skipElement(reader);
+      }
+    }
+    return test;
+  }
+
+  private static ErrorOrFailureOrSkipped readErrorOrFailureOrSkipped(XMLStreamReader reader)
+      throws XMLStreamException {
+    ErrorOrFailureOrSkipped err = new ErrorOrFailureOrSkipped();
+    err.message = reader.getAttributeValue(null, "message");
+    err.type = reader.getAttributeValue(null, "type");
+
+    TextBuilder content = null;
+    while (true) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        break;
+      } else if (isText(event)) {
+        if (content == null) {
+          content = new TextBuilder();
+        }
+        content.append(reader);
+      } else if (event == XMLStreamConstants.START_ELEMENT) {
+        switch (reader.getLocalName()) {
+          case "expected":
+            err.expected = readValues(reader);
+            break;
+          case "actual":
+            err.actual = readValues(reader);
+            break;
+          default:
+            skipElement(reader);
+        }
+      }
+    }
+    if (content != null) {
+      err.content = new ArrayList<>();
+      err.content.add(content.toString());
+    }
+    return err;
+  }
+
+  private static Values readValues(XMLStreamReader reader) throws XMLStreamException {
+    Values values = new Values();
+    while (nextChild(reader)) {
+      if (reader.getLocalName().equals("value")) {
+        values.values.add(readText(reader));
+      } else {
+        skipElement(reader);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Advances to the next child element of the current element. Returns false once the end of the
+   * current element is reached.
+   */
+  private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+    while (true) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      }
+      if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+        return false;
+      }
+    }
+  }
+
+  /** Skips the current element including all of its children. */
+  private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      } else if (event == XMLStreamConstants.END_DOCUMENT) {
+        return;
+      }
+    }
+  }
+
+  /** Reads the text content of the current element, ignoring the text of nested elements. */
+  private static String readText(XMLStreamReader reader) throws XMLStreamException {
+    TextBuilder text = new TextBuilder();
+    while (true) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+        return text.toString();
+      } else if (isText(event)) {
+        text.append(reader);
+      } else if (event == XMLStreamConstants.START_ELEMENT) {
+        skipElement(reader);
+      }
+    }
+  }
+
+  private static boolean isText(int event) {
+    return event == XMLStreamConstants.CHARACTERS
+        || event == XMLStreamConstants.CDATA
+        || event == XMLStreamConstants.SPACE;
+  }
+
+  private static int intAttribute(XMLStreamReader reader, String name) {
+    String value = reader.getAttributeValue(null, name);
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  private static double doubleAttribute(XMLStreamReader reader, String name) {
+    String value = reader.getAttributeValue(null, name);
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /** Collects text up to {@link #MAX_TEXT_LENGTH} characters, and counts the rest. */
+  private static class TextBuilder {
+    private final StringBuilder text = new StringBuilder();
+    private long truncated = 0;
+
+    void append(XMLStreamReader reader) {
+      int length = reader.getTextLength();
+      int remaining = MAX_TEXT_LENGTH - text.length();
+      if (length > remaining) {
+        truncated += length - remaining;
+        length = remaining;
+      }
+      text.append(reader.getTextCharacters(), reader.getTextStart(), length);
+    }
+
+    @Override
+    public String toString() {
+      if (truncated == 0) {
+        return text.toString();
+      }
+      return text + "\n... (" + truncated + " characters truncated)";
     }
   }
 
   // optional wrapping XML element. Some test runners don't include it.
-  @XmlRootElement(name = "testsuites")
   static class TestSuites {
-    @XmlElement(name = "testsuite")
     List<TestSuite> testSuites = Lists.newArrayList();
 
     TestSuite convertToTestSuite() {
@@ -83,36 +321,24 @@ public class BlazeXmlSchema {
   }
 
   /** XML output by blaze test runners. */
-  @XmlRootElement(name = "testsuite")
   public static class TestSuite {
-    @XmlAttribute public String name;
-    @XmlAttribute public String classname;
-    @XmlAttribute public int tests;
-    @XmlAttribute public int failures;
-    @XmlAttribute public int errors;
-    @XmlAttribute public int skipped;
-    @XmlAttribute public int disabled;
-    @XmlAttribute public double time;
-
-    @XmlElement(name = "system-out")
-    public String sysOut;
+    public String name;
+    public String classname;
+    public int tests;
+    public int failures;
+    public int errors;
+    public int skipped;
+    public int disabled;
+    public double time;
 
-    @XmlElement(name = "system-err")
+    public String sysOut;
     public String sysErr;
 
-    @XmlElement(name = "error", type = ErrorOrFailureOrSkipped.class)
     ErrorOrFailureOrSkipped error;
-
-    @XmlElement(name = "failure", type = ErrorOrFailureOrSkipped.class)
     ErrorOrFailureOrSkipped failure;
 
-    @XmlElement(name = "testsuite")
     public List<TestSuite> testSuites = Lists.newArrayList();
-
-    @XmlElement(name = "testdecorator")
     List<TestSuite> testDecorators = Lists.newArrayList();
-
-    @XmlElement(name = "testcase")
     public List<TestCase> testCases = Lists.newArrayList();
 
     /** Used to merge test suites from a single target, split across multiple shards */
@@ -152,25 +378,17 @@ public class BlazeXmlSchema {
 
   /** Individual test case XML output by blaze test runners. */
   public static class TestCase {
-    @XmlAttribute public String name;
-    @XmlAttribute public String classname;
-    @XmlAttribute public String status;
-    @XmlAttribute public String result;
-    @XmlAttribute public String time;
+    public String name;
+    public String classname;
+    public String status;
+    public String result;
+    public String time;
 
-    @XmlElement(name = "system-out")
     String sysOut;
-
-    @XmlElement(name = "system-err")
     String sysErr;
 
-    @XmlElement(name = "error", type = ErrorOrFailureOrSkipped.class)
     public List<ErrorOrFailureOrSkipped> errors = Lists.newArrayList();
-
-    @XmlElement(name = "failure", type = ErrorOrFailureOrSkipped.class)
     public List<ErrorOrFailureOrSkipped> failures = Lists.newArrayList();
-
-    @XmlElement(name = "skipped", type = ErrorOrFailureOrSkipped.class)
     public ErrorOrFailureOrSkipped skipped;
   }
 
@@ -188,23 +406,17 @@ public class BlazeXmlSchema {
   }
 
   static class ErrorOrFailureOrSkipped {
-    // Can't use @XmlValue with @XmlElement
-    @XmlMixed
-    @XmlAnyElement(lax = true)
+    // the text of the element, excluding the expected and actual values
     private List<Object> content;
 
-    @XmlAttribute String message;
-    @XmlAttribute String type;
+    String message;
+    String type;
 
-    @XmlElement(name = "expected", type = Values.class)
     Values expected;
-
-    @XmlElement(name = "actual", type = Values.class)
     Values actual;
   }
 
   static class Values {
-    @XmlElement(name = "value", type = String.class)
     List<String> values = new ArrayList<>();
   }
 }
@@ -40,6 +40,7 @@ import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
 import com.google.idea.blaze.common.artifact.BlazeArtifact;
 import com.google.idea.common.experiments.BoolExperiment;
 import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.execution.testframework.TestConsoleProperties;
 import com.intellij.execution.testframework.sm.runner.GeneralTestEventsProcessor;
 import com.intellij.execution.testframework.sm.runner.OutputToGeneralTestEventsConverter;
@@ -59,6 +60,11 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 import jetbrains.buildServer.messages.serviceMessages.TestSuiteStarted;
 
@@ -72,8 +78,17 @@ public class BlazeXmlToTestEventsConverter extends OutputToGeneralTestEventsConv
     NO_ERROR.message = "No message"; // cannot be null
   }
 
+  // upper bound for waiting on new results, so that the streaming stops soon after termination
+  private static final long POLL_TIMEOUT_MILLIS = 200;
+
   private final BlazeTestResultFinderStrategy testResultFinderStrategy;
 
+  // targets whose results were already reported while the invocation was running
+  private final Set<Label> reportedTargets = ConcurrentHashMap.newKeySet();
+  private final Object reportLock = new Object();
+  private volatile boolean terminated = false;
+  @Nullable private Future<?> streaming;
+
   public BlazeXmlToTestEventsConverter(
       String testFrameworkName,
       TestConsoleProperties testConsoleProperties,
@@ -82,9 +97,47 @@ public class BlazeXmlToTestEventsConverter extends OutputToGeneralTestEventsConv
     this.testResultFinderStrategy = testResultFinderStrategy;
   }
 
+  @Override
+  public synchronized void onStartTesting() {
+    super.onStartTesting();
+    if (streaming == null && !terminated) {
+      // not on the FetchExecutor, since it waits for the test XML files parsed there
+      streaming = ApplicationManager.getApplication().executeOnPooledThread(this::streamTestResults);
+    }
+  }
+
+  /**
+   * Reports the results of every test target as soon as it completed, until the invocation
+   * terminated. Stops right away if the results can only be found once it completed.
+   */
+  private void streamTestResults() {
+    boolean attached = false;
+    while (!terminated) {
+      BlazeTestResults testResults;
+      try {
+        testResults = testResultFinderStrategy.pollTestResults(POLL_TIMEOUT_MILLIS);
+      } catch (GetArtifactsException e) {
+        Logger.getInstance(this.getClass()).warn("Could not follow test results", e);
+        return;
+      }
+      if (testResults == null) {
+        return;
+      }
+      if (testResults.perTargetResults.isEmpty()) {
+        continue;
+      }
+      if (!attached) {
+        getProcessor().onTestsReporterAttached();
+        attached = true;
+      }
+      processTestResults(testResults);
+    }
+  }
+
   @Override
   public void flushBufferOnProcessTermination(int exitCode) {
     super.flushBufferOnProcessTermination(exitCode);
+    stopStreaming();
 
     try {
       BlazeTestResults testResults = testResultFinderStrategy.findTestResults();
@@ -100,19 +153,53 @@ public class BlazeXmlToTestEventsConverter extends OutputToGeneralTestEventsConv
     }
   }
 
+  private void stopStreaming() {
+    Future<?> streaming;
+    synchronized (this) {
+      terminated = true;
+      streaming = this.streaming;
+    }
+    if (streaming == null) {
+      return;
+    }
+    try {
+      streaming.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | CancellationException e) {
+      Logger.getInstance(this.getClass()).warn("Streaming test results failed", e);
+    }
+  }
+
   private void processAllTestResults(BlazeTestResults testResults) {
     onStartTesting();
     getProcessor().onTestsReporterAttached();
+    processTestResults(testResults);
+  }
+
+  /** Parses the test XML files of all targets in parallel and reports targets not reported yet. */
+  private void processTestResults(BlazeTestResults testResults) {
     List<ListenableFuture<ParsedTargetResults>> futures = new ArrayList<>();
     for (Label label : testResults.perTargetResults.keySet()) {
+      if (reportedTargets.contains(label)) {
+        continue;
+      }
       futures.add(
           FetchExecutor.EXECUTOR.submit(
               () -> parseTestXml(label, testResults.perTargetResults.get(label))));
     }
     List<ParsedTargetResults> parsedResults =
         FuturesUtil.getIgnoringErrors(Futures.allAsList(futures));
-    if (parsedResults != null) {
-      parsedResults.forEach(this::processParsedTestResults);
+    if (parsedResults == null) {
+      return;
+    }
+    // targets are reported one at a time, so that the events of their suites do not interleave
+    synchronized (reportLock) {
+      for (ParsedTargetResults parsed : parsedResults) {
+        if (reportedTargets.add(parsed.label)) {
+          processParsedTestResults(parsed);
+        }
+      }
     }
   }
 
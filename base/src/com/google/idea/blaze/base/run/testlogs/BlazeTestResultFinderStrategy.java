@@ -16,6 +16,7 @@
 package com.google.idea.blaze.base.run.testlogs;
 
 import com.google.idea.blaze.base.command.buildresult.GetArtifactsException;
+import javax.annotation.Nullable;
 
 /** A strategy for locating results from 'blaze test' invocation (e.g. output XML files). */
 public interface BlazeTestResultFinderStrategy {
@@ -27,6 +28,17 @@ public interface BlazeTestResultFinderStrategy {
    */
   BlazeTestResults findTestResults() throws GetArtifactsException;
 
+  /**
+   * Returns the results of test targets which completed since the last call, while the 'blaze
+   * test' invocation is still running. Waits at most {@code timeoutMillis} for new results, and
+   * returns BlazeTestResults.NO_RESULTS if there are none. Returns null if results can only be
+   * found once the invocation completed.
+   */
+  @Nullable
+  default BlazeTestResults pollTestResults(long timeoutMillis) throws GetArtifactsException {
+    return null;
+  }
+
   /** Remove any temporary files used by this result finder. */
   void deleteTemporaryOutputFiles();
 }
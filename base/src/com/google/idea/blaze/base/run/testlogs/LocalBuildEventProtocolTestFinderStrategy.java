@@ -15,6 +15,8 @@
  */
 package com.google.idea.blaze.base.run.testlogs;
 
+import com.google.idea.blaze.base.buildview.BepFileFollower;
+import com.google.idea.blaze.base.command.buildresult.BuildEventProtocolOutputReader.TestResultParser;
 import com.google.idea.blaze.base.command.buildresult.GetArtifactsException;
 import com.google.idea.blaze.base.command.buildresult.BuildResultParser;
 import com.google.idea.blaze.base.command.buildresult.bepparser.BuildEventStreamProvider;
@@ -23,21 +25,51 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * A strategy for locating results from a single 'blaze test' invocation (e.g. output XML files).
  *
- * <p>Parses the output BEP proto written by blaze to locate the test XML files.
+ * <p>Parses the output BEP proto written by blaze to locate the test XML files. While blaze is
+ * running, the BEP file is followed to report the results of every completed test target.
  */
 public final class LocalBuildEventProtocolTestFinderStrategy
     implements BlazeTestResultFinderStrategy {
   private static final Logger LOG = Logger.getInstance(LocalBuildEventProtocolTestFinderStrategy.class);
   private final File outputFile;
 
+  // follows the BEP file while blaze is running, guarded by this
+  @Nullable private BepFileFollower follower;
+  private final TestResultParser liveParser = new TestResultParser();
+
   public LocalBuildEventProtocolTestFinderStrategy(File outputFile) {
     this.outputFile = outputFile;
   }
 
+  @Override
+  public synchronized BlazeTestResults pollTestResults(long timeoutMillis)
+      throws GetArtifactsException {
+    if (follower == null) {
+      follower = new BepFileFollower(outputFile.toPath());
+    }
+    List<BlazeTestResult> completed = new ArrayList<>();
+    try {
+      if (!follower.poll(event -> completed.addAll(liveParser.accept(event)))) {
+        follower.awaitChange(timeoutMillis);
+        follower.poll(event -> completed.addAll(liveParser.accept(event)));
+      }
+    } catch (IOException e) {
+      throw new GetArtifactsException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GetArtifactsException(e);
+    }
+    return BlazeTestResults.fromFlatList(completed);
+  }
+
   @Override
   public BlazeTestResults findTestResults() throws GetArtifactsException {
     try (final var bepStream =
@@ -51,6 +83,12 @@ public final class LocalBuildEventProtocolTestFinderStrategy
 
   @Override
   public void deleteTemporaryOutputFiles() {
+    synchronized (this) {
+      if (follower != null) {
+        follower.close();
+        follower = null;
+      }
+    }
     if (!outputFile.delete()) {
       LOG.warn("Could not delete BEP output file: " + outputFile);
     }
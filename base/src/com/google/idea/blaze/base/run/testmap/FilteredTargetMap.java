@@ -17,7 +17,6 @@ package com.google.idea.blaze.base.run.testmap;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Queues;
@@ -28,7 +27,7 @@ import com.google.idea.blaze.base.ideinfo.TargetMap;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
 import com.google.idea.blaze.base.sync.workspace.ArtifactLocationDecoder;
-import com.google.idea.blaze.base.targetmaps.ReverseDependencyMap;
+import com.google.idea.blaze.base.targetmaps.DependencyGraph;
 import com.intellij.openapi.project.Project;
 import java.io.File;
 import java.util.Collection;
@@ -64,13 +63,13 @@ public class FilteredTargetMap {
     BlazeProjectData blazeProjectData =
         BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
     if (blazeProjectData != null) {
-      return targetsForSourceFilesImpl(ReverseDependencyMap.get(project), sourceFiles);
+      return targetsForSourceFilesImpl(DependencyGraph.get(project), sourceFiles);
     }
     return ImmutableSet.of();
   }
 
   private ImmutableSet<TargetIdeInfo> targetsForSourceFilesImpl(
-      ImmutableMultimap<TargetKey, TargetKey> rdepsMap, Collection<File> sourceFiles) {
+      DependencyGraph dependencyGraph, Collection<File> sourceFiles) {
     ImmutableSet.Builder<TargetIdeInfo> result = ImmutableSet.builder();
     Set<TargetKey> roots =
         sourceFiles.stream()
@@ -90,7 +89,7 @@ public class FilteredTargetMap {
       if (filter.test(target)) {
         result.add(target);
       }
-      todo.addAll(rdepsMap.get(targetKey));
+      todo.addAll(dependencyGraph.getReverseDependencies(targetKey));
     }
     return result.build();
   }
@@ -20,7 +20,6 @@ import static java.util.stream.Collectors.toList;
 
 import com.google.common.collect.ImmutableList;
 import com.google.idea.blaze.base.dependencies.TargetInfo;
-import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
 import com.google.idea.blaze.base.ideinfo.TargetKey;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.primitives.TargetExpression;
@@ -237,9 +236,8 @@ public class TargetExpressionListUi extends JPanel {
             .collect(toImmutableList());
       }
 
-      return projectData.targetMap().targets().stream()
-          .filter(TargetIdeInfo::isPlainTarget)
-          .map(TargetIdeInfo::getKey)
+      return projectData.targetMap().keys().stream()
+          .filter(TargetKey::isPlainTarget)
           .map(TargetKey::label)
           .filter(importRoots::importAsSource)
           .map(TargetExpression::toString)
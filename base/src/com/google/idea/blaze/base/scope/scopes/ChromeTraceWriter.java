@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.scope.scopes;
+
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes {@link TimingScope} trees in the Chrome trace event format, which can be opened in
+ * Perfetto or chrome://tracing.
+ *
+ * <p>Every scope becomes a complete event on the thread which began it, so that overlapping
+ * phases and parallel shards show up next to each other.
+ */
+public final class ChromeTraceWriter {
+
+  // all scopes belong to the IDE process
+  private static final int PID = 1;
+
+  private ChromeTraceWriter() {}
+
+  public static void write(List<TimingScope> roots, Writer writer) throws IOException {
+    Map<Long, String> threadNames = new LinkedHashMap<>();
+    JsonWriter json = new JsonWriter(writer);
+    json.beginObject();
+    json.name("displayTimeUnit").value("ms");
+    json.name("traceEvents").beginArray();
+    for (TimingScope root : roots) {
+      writeScope(json, root, threadNames);
+    }
+    for (Map.Entry<Long, String> thread : threadNames.entrySet()) {
+      json.beginObject();
+      json.name("name").value("thread_name");
+      json.name("ph").value("M");
+      json.name("pid").value(PID);
+      json.name("tid").value(thread.getKey());
+      json.name("args").beginObject().name("name").value(thread.getValue()).endObject();
+      json.endObject();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  private static void writeScope(
+      JsonWriter json, TimingScope scope, Map<Long, String> threadNames) throws IOException {
+    Instant start = scope.getStartTime();
+    Instant end = scope.getEndTime();
+    if (start == null || end == null) {
+      // never began or still running, neither of which can be placed on the timeline
+      return;
+    }
+    threadNames.putIfAbsent(scope.getThreadId(), scope.getThreadName());
+    long startMicros = toMicros(start);
+    json.beginObject();
+    json.name("name").value(scope.getName());
+    json.name("cat").value(scope.getEventType().name());
+    json.name("ph").value("X");
+    json.name("ts").value(startMicros);
+    json.name("dur").value(Math.max(0, toMicros(end) - startMicros));
+    json.name("pid").value(PID);
+    json.name("tid").value(scope.getThreadId());
+    json.endObject();
+    for (TimingScope child : scope.getChildren()) {
+      writeScope(json, child, threadNames);
+    }
+  }
+
+  private static long toMicros(Instant instant) {
+    return TimeUnit.SECONDS.toMicros(instant.getEpochSecond())
+        + TimeUnit.NANOSECONDS.toMicros(instant.getNano());
+  }
+}
@@ -46,9 +46,14 @@ public class TimingScope implements BlazeScope {
   private final EventType eventType;
 
   private Instant startTime;
+  @Nullable private Instant endTime;
+  private long threadId;
+  private String threadName;
 
   private Optional<Duration> duration = Optional.empty();
 
+  private final TimingScopeEvent jfrEvent = new TimingScopeEvent();
+
   private final List<TimingScopeListener> scopeListeners = Lists.newArrayList();
 
   @Nullable private TimingScope parentScope;
@@ -63,6 +68,10 @@ public class TimingScope implements BlazeScope {
   @Override
   public void onScopeBegin(BlazeContext context) {
     startTime = Instant.now();
+    Thread thread = Thread.currentThread();
+    threadId = thread.getId();
+    threadName = thread.getName();
+    jfrEvent.begin();
     parentScope = context.getParentScope(this);
 
     if (parentScope != null) {
@@ -72,6 +81,14 @@ public class TimingScope implements BlazeScope {
 
   @Override
   public void onScopeEnd(BlazeContext context) {
+    endTime = Instant.now();
+    commitJfrEvent();
+    if (parentScope == null) {
+      TimingTraceScope traceScope = context.getScope(TimingTraceScope.class);
+      if (traceScope != null) {
+        traceScope.onRootScopeEnd(this);
+      }
+    }
     if (context.isCancelled()) {
       duration = Optional.of(Duration.ZERO);
       return;
@@ -89,6 +106,48 @@ public class TimingScope implements BlazeScope {
     }
   }
 
+  private void commitJfrEvent() {
+    jfrEvent.end();
+    if (jfrEvent.shouldCommit()) {
+      jfrEvent.name = name;
+      jfrEvent.type = eventType.name();
+      jfrEvent.commit();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public EventType getEventType() {
+    return eventType;
+  }
+
+  /** The time the scope began, or null if it has not begun yet. */
+  @Nullable
+  public Instant getStartTime() {
+    return startTime;
+  }
+
+  /** The time the scope ended, or null if it has not ended yet. */
+  @Nullable
+  public Instant getEndTime() {
+    return endTime;
+  }
+
+  /** The id of the thread which began the scope. */
+  public long getThreadId() {
+    return threadId;
+  }
+
+  public String getThreadName() {
+    return threadName;
+  }
+
+  public ImmutableList<TimingScope> getChildren() {
+    return ImmutableList.copyOf(children);
+  }
+
   private TimedEvent getTimedEvent() {
     return new TimedEvent(name, eventType, duration.orElse(Duration.ZERO), children.isEmpty());
   }
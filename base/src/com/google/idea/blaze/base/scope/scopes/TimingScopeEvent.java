@@ -0,0 +1,35 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.scope.scopes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** JFR event emitted for every {@link TimingScope}, covering the same interval. */
+@Name("com.google.idea.blaze.TimingScope")
+@Label("Timing Scope")
+@Category({"Bazel", "Sync"})
+@Description("A timed operation of a sync or build")
+public final class TimingScopeEvent extends Event {
+  @Label("Name")
+  String name;
+
+  @Label("Type")
+  String type;
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.scope.scopes;
+
+import com.google.idea.blaze.base.scope.BlazeScope;
+import java.util.function.Consumer;
+
+/**
+ * Collects the outermost {@link TimingScope}s of its context, e.g. to export the complete timing
+ * tree of an operation once it has finished.
+ */
+public class TimingTraceScope implements BlazeScope {
+
+  private final Consumer<TimingScope> rootScopeConsumer;
+
+  public TimingTraceScope(Consumer<TimingScope> rootScopeConsumer) {
+    this.rootScopeConsumer = rootScopeConsumer;
+  }
+
+  /** Called once a {@link TimingScope} without a parent {@link TimingScope} has ended. */
+  void onRootScopeEnd(TimingScope scope) {
+    rootScopeConsumer.accept(scope);
+  }
+}
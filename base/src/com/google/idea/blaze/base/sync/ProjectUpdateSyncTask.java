@@ -16,6 +16,7 @@
 package com.google.idea.blaze.base.sync;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.idea.blaze.base.async.FutureUtil;
 import com.google.idea.blaze.base.async.FutureUtil.FutureResult;
@@ -258,7 +259,10 @@ final class ProjectUpdateSyncTask {
 
     ListenableFuture<DirectoryStructure> directoryStructureFuture =
         DirectoryStructure.getRootDirectoryStructure(
-            project, workspaceRoot, projectState.getProjectViewSet());
+            project,
+            workspaceRoot,
+            projectState.getProjectViewSet(),
+            /* walkAll= */ syncMode == SyncMode.FULL);
 
     refreshVirtualFileSystem(context, project, newProjectData);
 
@@ -348,6 +352,11 @@ final class ProjectUpdateSyncTask {
           context.push(new TimingScope("UpdateProjectStructure", EventType.Other));
           context.output(new StatusOutput("Initializing project SDKs..."));
           ApplicationManager.getApplication().invokeAndWait(() -> createSdks(newBlazeProjectData));
+          context.output(new StatusOutput("Resolving library roots..."));
+          List<BlazeLibrary> libraries =
+              BlazeLibraryCollector.getLibraries(projectViewSet, newBlazeProjectData);
+          ImmutableList<LibraryEditor.LibraryRoots> libraryRoots =
+              LibraryEditor.computeLibraryRoots(project, newBlazeProjectData, libraries);
           context.output(new StatusOutput("Committing project structure..."));
 
           try {
@@ -363,7 +372,9 @@ final class ProjectUpdateSyncTask {
                                   blazeVersionData,
                                   directoryStructure,
                                   newBlazeProjectData,
-                                  oldBlazeProjectData);
+                                  oldBlazeProjectData,
+                                  libraries,
+                                  libraryRoots);
                             }));
           } catch (ProcessCanceledException e) {
             context.setCancelled();
@@ -387,7 +398,9 @@ final class ProjectUpdateSyncTask {
       BlazeVersionData blazeVersionData,
       DirectoryStructure directoryStructure,
       BlazeProjectData newBlazeProjectData,
-      @Nullable BlazeProjectData oldBlazeProjectData) {
+      @Nullable BlazeProjectData oldBlazeProjectData,
+      List<BlazeLibrary> libraries,
+      List<LibraryEditor.LibraryRoots> libraryRoots) {
 
     for (BlazeSyncPlugin syncPlugin : BlazeSyncPlugin.EP_NAME.getExtensions()) {
       syncPlugin.updateProjectSdk(
@@ -422,10 +435,8 @@ final class ProjectUpdateSyncTask {
         directoryStructure,
         workspaceModifiableModel);
 
-    List<BlazeLibrary> libraries =
-        BlazeLibraryCollector.getLibraries(projectViewSet, newBlazeProjectData);
     LibraryEditor.updateProjectLibraries(
-        project, context, projectViewSet, newBlazeProjectData, libraries);
+        project, context, projectViewSet, newBlazeProjectData, libraryRoots);
     LibraryEditor.configureDependencies(project, workspaceModifiableModel, libraries);
 
     for (BlazeSyncPlugin blazeSyncPlugin : BlazeSyncPlugin.EP_NAME.getExtensions()) {
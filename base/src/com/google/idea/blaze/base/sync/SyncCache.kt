@@ -16,22 +16,41 @@
 package com.google.idea.blaze.base.sync
 
 import com.google.common.annotations.VisibleForTesting
+import com.google.common.collect.ImmutableMap
 import com.google.common.collect.ImmutableSet
-import com.google.common.collect.Maps
+import com.google.idea.blaze.base.logging.EventLoggingService
 import com.google.idea.blaze.base.model.BlazeProjectData
 import com.google.idea.blaze.base.projectview.ProjectViewSet
 import com.google.idea.blaze.base.scope.BlazeContext
 import com.google.idea.blaze.base.settings.BlazeImportSettings
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager
-import com.google.idea.blaze.base.util.LockCriticalSection
-import com.google.idea.blaze.base.util.LockCriticalSection.TryLockResult.Acquired
 import com.intellij.openapi.components.Service
+import com.intellij.openapi.diagnostic.ControlFlowException
+import com.intellij.openapi.diagnostic.logger
+import com.intellij.openapi.extensions.ExtensionPointName
+import com.intellij.openapi.progress.ProgressManager
 import com.intellij.openapi.project.Project
+import java.util.concurrent.CancellationException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.FutureTask
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.atomic.AtomicLong
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
 
-/** Computes a cache on the project data.  */
+private val LOG = logger<SyncCache>()
+
+/**
+ * Computes a cache on the project data.
+ *
+ * Every key is computed at most once per sync, by the first caller requesting it. Concurrent
+ * callers for the same key wait for that computation, while different keys are computed in
+ * parallel. A failed computation is cached as well, and rethrown to every caller until the next
+ * sync.
+ */
 @Service(Service.Level.PROJECT)
 class SyncCache(private val project: Project, private val scope: CoroutineScope) {
   /** Computes a value based on the sync project data.  */
@@ -39,60 +58,181 @@ class SyncCache(private val project: Project, private val scope: CoroutineScope)
     fun compute(project: Project, projectData: BlazeProjectData): T?
   }
 
-  private data class Data(val cache: MutableMap<Any, Any?>)
+  /** Computes commonly used cache entries in the background right after each sync. */
+  interface Prewarmer {
+    fun prewarm(project: Project)
+  }
 
-  private val data = Data(Maps.newConcurrentMap<Any, Any>())
-  private val section = LockCriticalSection<Data>(data)
+  /** Hit, miss and compute time counters of a single key, reset after each sync. */
+  class Stats {
+    val hits = AtomicLong()
+    val misses = AtomicLong()
+    val computeNanos = AtomicLong()
+  }
+
+  private val cache = ConcurrentHashMap<Any, FutureTask<Any?>>()
+  private val stats = ConcurrentHashMap<Any, Stats>()
+
+  // incremented by each clear, so that computations started on the previous project data are
+  // never published
+  private val generation = AtomicLong()
 
   /**
-   * Tries to get a value from the cache. If cache can't be acquired immediately,
-   * then computation is scheduled in the background and null is returned.
+   * Tries to get a value from the cache. If it has not been computed yet, then computation is
+   * scheduled in the background and null is returned.
    */
   fun <T> tryGet(key: Any, computable: SyncCacheComputable<T?>): T? {
-    val result = section.tryUse {
-      cache.containsKey(key) to cache[key]
+    val task = cache[key]
+    if (task != null && !task.isDone) {
+      // already being computed, don't block a background thread just to wait for it
+      return null
     }
-
-    if (result is Acquired<Pair<Boolean, Any?>> && result.value.first) {
-      @Suppress("UNCHECKED_CAST")
-      return result.value.second as T?
-    } else {
-      // in case there's a computation running for the same key, then this
-      // is no-op, otherwise this is
-      scope.launch {
-        get(key, computable)
+    if (task != null && !task.isCancelled) {
+      try {
+        statsFor(key).hits.incrementAndGet()
+        @Suppress("UNCHECKED_CAST")
+        return task.get() as T?
+      } catch (e: ExecutionException) {
+        if (e.cause !is ControlFlowException) {
+          // failures are cached until the next sync
+          return null
+        }
+        // the computing caller was cancelled, compute it again below
+        cache.remove(key, task)
       }
     }
 
+    scope.launch(Dispatchers.Default) {
+      get(key, computable)
+    }
     return null
   }
 
   /** Computes a value derived from the sync project data and caches it until the next sync.  */
   fun <T> get(key: Any, computable: SyncCacheComputable<T?>): T? {
-    return section.withLockInterruptible {
-      if (cache.containsKey(key)) {
+    while (true) {
+      ProgressManager.checkCanceled()
+
+      var task = cache[key]
+      if (task != null) {
+        statsFor(key).hits.incrementAndGet()
+      } else {
+        val expectedGeneration = generation.get()
+        val blazeProjectData =
+          BlazeProjectDataManager.getInstance(project).getBlazeProjectData() ?: return null
+        val newTask = FutureTask { compute(key, computable, blazeProjectData) }
+        task = cache.putIfAbsent(key, newTask)
+        if (task == null) {
+          if (generation.get() != expectedGeneration) {
+            // cleared after the project data was read, which may already be outdated
+            cache.remove(key, newTask)
+            continue
+          }
+          statsFor(key).misses.incrementAndGet()
+          newTask.run()
+          task = newTask
+        }
+      }
+
+      val result = await(key, task)
+      if (result !== RETRY) {
         @Suppress("UNCHECKED_CAST")
-        return@withLockInterruptible cache[key] as T?
+        return result as T?
+      }
+    }
+  }
+
+  private fun <T> compute(
+    key: Any,
+    computable: SyncCacheComputable<T?>,
+    blazeProjectData: BlazeProjectData,
+  ): Any? {
+    val start = System.nanoTime()
+    val value = computable.compute(project, blazeProjectData)
+    val duration = System.nanoTime() - start
+    statsFor(key).computeNanos.addAndGet(duration)
+    EventLoggingService.getInstance().logEvent(
+      SyncCache::class.java,
+      "SyncCacheCompute",
+      ImmutableMap.of("key", keyName(key)),
+      duration,
+    )
+    return value
+  }
+
+  /**
+   * Waits for the computation while checking for cancellation. Returns [RETRY] if the computation
+   * was cancelled by its own caller, in which case another caller has to take over.
+   */
+  private fun await(key: Any, task: FutureTask<Any?>): Any? {
+    while (true) {
+      ProgressManager.checkCanceled()
+      try {
+        return task.get(100, TimeUnit.MILLISECONDS)
+      } catch (e: TimeoutException) {
+        continue
+      } catch (e: CancellationException) {
+        cache.remove(key, task)
+        return RETRY
+      } catch (e: ExecutionException) {
+        val cause = e.cause ?: e
+        if (cause is ControlFlowException) {
+          // either our own cancellation, which checkCanceled rethrows, or the computing caller's
+          cache.remove(key, task)
+          ProgressManager.checkCanceled()
+          return RETRY
+        }
+        // the failure stays cached, so it's not recomputed by every caller until the next sync
+        throw cause
       }
-      val blazeProjectData =
-        BlazeProjectDataManager.getInstance(project).getBlazeProjectData()
-          ?: return@withLockInterruptible null
+    }
+  }
 
-      val value = computable.compute(project, blazeProjectData)
-      cache[key] = value
-      value
+  /** Computes all entries of registered [Prewarmer]s in parallel, in the background. */
+  fun prewarm() {
+    for (prewarmer in PREWARMER_EP.extensionList) {
+      scope.launch(Dispatchers.Default) {
+        try {
+          prewarmer.prewarm(project)
+        } catch (e: Exception) {
+          if (e is ControlFlowException || e is CancellationException) {
+            throw e
+          }
+          LOG.warn("Failed to prewarm sync cache with ${prewarmer.javaClass.name}", e)
+        }
+      }
     }
   }
 
+  @VisibleForTesting
+  fun stats(key: Any): Stats? = stats[key]
+
+  private fun statsFor(key: Any): Stats = stats.computeIfAbsent(key) { Stats() }
+
   @VisibleForTesting
   fun clear() {
-    // use of raw runBlocking here because we're called by
-    // this plugin and thread context might not be correctly set
-    // as we haven't addressed this yet
-    runBlocking {
-      section.withLock {
-        cache.clear()
-      }
+    generation.incrementAndGet()
+    val tasks = ArrayList(cache.values)
+    cache.clear()
+    // computations of the previous sync are no longer needed, their results are dropped
+    tasks.forEach { it.cancel(false) }
+    logStats()
+  }
+
+  private fun logStats() {
+    val snapshot = HashMap(stats)
+    stats.clear()
+    for ((key, keyStats) in snapshot) {
+      EventLoggingService.getInstance().logEvent(
+        SyncCache::class.java,
+        "SyncCacheStats",
+        ImmutableMap.of(
+          "key", keyName(key),
+          "hits", keyStats.hits.get().toString(),
+          "misses", keyStats.misses.get().toString(),
+        ),
+        keyStats.computeNanos.get(),
+      )
     }
   }
 
@@ -109,13 +249,24 @@ class SyncCache(private val project: Project, private val scope: CoroutineScope)
     ) {
       val syncCache = getInstance(project)
       syncCache.clear()
+      if (syncResult?.successful() == true) {
+        syncCache.prewarm()
+      }
     }
   }
 
   companion object {
+    private val RETRY = Any()
+
+    @JvmField
+    val PREWARMER_EP: ExtensionPointName<Prewarmer> =
+      ExtensionPointName.create("com.google.idea.blaze.SyncCachePrewarmer")
+
     @JvmStatic
     fun getInstance(project: Project): SyncCache {
       return project.getService(SyncCache::class.java)
     }
+
+    private fun keyName(key: Any): String = (key as? Class<*>)?.simpleName ?: key.toString()
   }
 }
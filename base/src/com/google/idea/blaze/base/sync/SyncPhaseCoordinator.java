@@ -73,12 +73,14 @@ import com.google.idea.blaze.base.settings.BlazeUserSettings.FocusBehavior;
 import com.google.idea.blaze.base.settings.BuildBinaryType;
 import com.google.idea.blaze.base.sync.SyncScope.SyncCanceledException;
 import com.google.idea.blaze.base.sync.SyncScope.SyncFailedException;
+import com.google.idea.blaze.base.sync.aspects.AspectOutputPrefetcher;
 import com.google.idea.blaze.base.sync.aspects.BlazeBuildOutputs;
 import com.google.idea.blaze.base.sync.aspects.storage.AspectStorageService;
 import com.google.idea.blaze.base.sync.data.BlazeDataStorage;
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
 import com.google.idea.blaze.base.sync.libraries.BlazeLibraryCollector;
 import com.google.idea.blaze.base.sync.projectstructure.ModuleFinder;
+import com.google.idea.blaze.base.sync.workspace.RealPathCache;
 import com.google.idea.blaze.base.toolwindow.Task;
 import com.google.idea.blaze.base.util.SaveUtil;
 import com.google.idea.blaze.common.PrintOutput;
@@ -202,6 +204,9 @@ public final class SyncPhaseCoordinator {
   @GuardedBy("this")
   private UpdatePhaseTask pendingUpdateTask;
 
+  // open during the project update phase of the running sync
+  @Nullable private volatile RealPathCache.Session realPathCacheSession;
+
   SyncPhaseCoordinator(Project project) {
     this.project = project;
     singleThreadedExecutor =
@@ -326,6 +331,7 @@ public final class SyncPhaseCoordinator {
     SyncResult syncResult = SyncResult.FAILURE;
     SyncStats.Builder stats = SyncStats.builder();
     try {
+      SyncTraceExporter.getInstance(project).startSync();
       SaveUtil.saveAllFiles();
       onSyncStart(project, context, params.syncMode());
       if (!context.shouldContinue()) {
@@ -395,6 +401,7 @@ public final class SyncPhaseCoordinator {
     Instant startTime = Instant.now();
     int buildId = nextBuildId.getAndIncrement();
     try {
+      SyncTraceExporter.getInstance(project).startSync();
       SaveUtil.saveAllFiles();
       onSyncStart(project, context, params.syncMode());
       if (!context.shouldContinue()) {
@@ -462,6 +469,8 @@ public final class SyncPhaseCoordinator {
       } else {
         context.setHasError();
       }
+      // there is no update phase to take the results prefetched during the build
+      AspectOutputPrefetcher.of(project).clear();
       finishSync(
           params,
           startTime,
@@ -552,6 +561,9 @@ public final class SyncPhaseCoordinator {
       if (!syncResult.successful() || !updateTask.buildResult().hasValidOutputs()) {
         return;
       }
+      // the build and blaze info are done, so symlinks under the execution root stay put until
+      // the sync finishes
+      realPathCacheSession = RealPathCache.getInstance().startCaching();
       List<TimedEvent> timedEvents =
           SyncScope.runWithTiming(
               context,
@@ -587,14 +599,23 @@ public final class SyncPhaseCoordinator {
       syncResult = SyncResult.FAILURE;
     } finally {
       SyncProjectState projectState = updateTask.projectState();
-      finishSync(
-          updateTask.syncParams(),
-          updateTask.startTime(),
-          context,
-          projectState != null ? projectState.getProjectViewSet() : null,
-          updateTask.buildIds(),
-          syncResult,
-          stats);
+      try {
+        finishSync(
+            updateTask.syncParams(),
+            updateTask.startTime(),
+            context,
+            projectState != null ? projectState.getProjectViewSet() : null,
+            updateTask.buildIds(),
+            syncResult,
+            stats);
+      } finally {
+        if (realPathCacheSession != null) {
+          realPathCacheSession.close();
+          realPathCacheSession = null;
+        }
+        // results which the target map update did not take, e.g. because the build failed
+        AspectOutputPrefetcher.of(project).clear();
+      }
     }
   }
 
@@ -656,7 +677,7 @@ public final class SyncPhaseCoordinator {
         }
         int librariesCount = BlazeLibraryCollector.getLibraries(projectViewSet, projectData).size();
         stats
-            .setTargetMapSize(projectData.targetMap().targets().size())
+            .setTargetMapSize(projectData.targetMap().size())
             .setLibraryCount(librariesCount);
         onSyncComplete(
             project, context, projectViewSet, buildIds, projectData, syncParams, syncResult);
@@ -678,11 +699,16 @@ public final class SyncPhaseCoordinator {
           .setTotalClockTime(Duration.between(startTime, Instant.now()));
       EventLoggingService.getInstance().log(stats.build());
       context.output(new StatusOutput("Sync " + syncStatus));
-      outputTimingSummary(context, stats.getCurrentTimedEvents());
+      RealPathCache.Session realPathCache = realPathCacheSession;
+      outputTimingSummary(
+          context,
+          stats.getCurrentTimedEvents(),
+          realPathCache != null ? realPathCache.statsSummary() : null);
 
     } catch (Throwable e) {
       logSyncError(context, e);
     } finally {
+      SyncTraceExporter.getInstance(project).finishSync();
       afterSync(project, syncParams, context, syncResult, buildIds);
     }
   }
@@ -704,6 +730,7 @@ public final class SyncPhaseCoordinator {
     context.push(new ProgressIndicatorScope(indicator));
     context.push(new NetworkTrafficTrackingScope());
     context.push(new SharedStringPoolScope());
+    context.push(SyncTraceExporter.getInstance(project).newScope());
 
     BlazeUserSettings userSettings = BlazeUserSettings.getInstance();
     context
@@ -852,7 +879,9 @@ public final class SyncPhaseCoordinator {
   }
 
   private static void outputTimingSummary(
-      BlazeContext context, ImmutableList<TimedEvent> timedEvents) {
+      BlazeContext context,
+      ImmutableList<TimedEvent> timedEvents,
+      @Nullable String realPathCacheStats) {
     Map<EventType, Long> totalTimes = new LinkedHashMap<>();
     for (EventType type : EventType.values()) {
       long totalTimeMillis =
@@ -871,6 +900,9 @@ public final class SyncPhaseCoordinator {
             .map(e -> String.format("%s: %s", e.getKey(), durationStr(e.getValue())))
             .collect(joining(", "));
 
+    if (realPathCacheStats != null) {
+      summary += "\n" + realPathCacheStats;
+    }
     context.output(PrintOutput.log("\nTiming summary:\n" + summary));
   }
 
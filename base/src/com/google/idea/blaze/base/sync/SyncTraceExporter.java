@@ -0,0 +1,192 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.scope.scopes.ChromeTraceWriter;
+import com.google.idea.blaze.base.scope.scopes.TimingScope;
+import com.google.idea.blaze.base.scope.scopes.TimingScopeEvent;
+import com.google.idea.blaze.base.scope.scopes.TimingTraceScope;
+import com.google.idea.blaze.base.settings.BlazeImportSettings;
+import com.google.idea.blaze.base.settings.BlazeImportSettingsManager;
+import com.google.idea.blaze.base.sync.data.BlazeDataStorage;
+import com.google.idea.common.experiments.BoolExperiment;
+import com.google.idea.common.experiments.IntExperiment;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+import jdk.jfr.Recording;
+
+/**
+ * Exports the timing of the last syncs to the project data directory, as a Chrome trace of all
+ * {@link TimingScope}s and as a JFR recording of the matching {@link TimingScopeEvent}s.
+ *
+ * <p>A trace spans from the start of a sync to its end, including project updates queued in the
+ * meantime. Only the traces of the last {@link #tracesToKeep} syncs are kept.
+ */
+public class SyncTraceExporter {
+
+  private static final Logger logger = Logger.getInstance(SyncTraceExporter.class);
+
+  private static final String TRACE_DIR = "syncTraces";
+  private static final String TRACE_EXTENSION = ".json";
+  private static final String JFR_EXTENSION = ".jfr";
+
+  @VisibleForTesting
+  static final IntExperiment tracesToKeep = new IntExperiment("blaze.sync.traces.to.keep", 5);
+
+  private static final BoolExperiment recordJfr =
+      new BoolExperiment("blaze.sync.traces.record.jfr", true);
+
+  public static SyncTraceExporter getInstance(Project project) {
+    return project.getService(SyncTraceExporter.class);
+  }
+
+  private final Project project;
+
+  // guarded by this, null if no sync is running
+  @Nullable private List<TimingScope> rootScopes;
+  @Nullable private Recording recording;
+
+  public SyncTraceExporter(Project project) {
+    this.project = project;
+  }
+
+  /** Starts a new trace, unless the trace of a previous sync is still running. */
+  public synchronized void startSync() {
+    if (rootScopes != null || tracesToKeep.getValue() <= 0) {
+      return;
+    }
+    rootScopes = new ArrayList<>();
+    if (recordJfr.getValue()) {
+      try {
+        Recording recording = new Recording();
+        recording.setName("Sync " + project.getName());
+        recording.enable(TimingScopeEvent.class);
+        recording.start();
+        this.recording = recording;
+      } catch (IllegalStateException | SecurityException e) {
+        logger.warn("Failed to start JFR recording", e);
+      }
+    }
+  }
+
+  /** Returns a scope collecting the timing of the current sync into the trace. */
+  public TimingTraceScope newScope() {
+    return new TimingTraceScope(this::addRootScope);
+  }
+
+  private synchronized void addRootScope(TimingScope scope) {
+    if (rootScopes != null) {
+      rootScopes.add(scope);
+    }
+  }
+
+  /** Writes the trace of the sync and deletes those of older syncs. */
+  public void finishSync() {
+    List<TimingScope> scopes;
+    Recording recording;
+    synchronized (this) {
+      if (rootScopes == null) {
+        return;
+      }
+      scopes = ImmutableList.copyOf(rootScopes);
+      recording = this.recording;
+      rootScopes = null;
+      this.recording = null;
+    }
+    File traceDir = getTraceDir();
+    if (traceDir == null) {
+      if (recording != null) {
+        recording.close();
+      }
+      return;
+    }
+    String baseName =
+        "sync-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.ROOT).format(new Date());
+    try {
+      Files.createDirectories(traceDir.toPath());
+      Path trace = traceDir.toPath().resolve(baseName + TRACE_EXTENSION);
+      try (Writer writer = Files.newBufferedWriter(trace, UTF_8)) {
+        ChromeTraceWriter.write(scopes, writer);
+      }
+      if (recording != null) {
+        recording.stop();
+        recording.dump(traceDir.toPath().resolve(baseName + JFR_EXTENSION));
+      }
+    } catch (IOException | IllegalStateException e) {
+      logger.warn("Failed to write sync trace", e);
+    } finally {
+      if (recording != null) {
+        recording.close();
+      }
+    }
+    deleteOldTraces(traceDir, tracesToKeep.getValue());
+  }
+
+  /** Deletes all but the {@code count} most recent traces, both Chrome traces and JFR files. */
+  @VisibleForTesting
+  static void deleteOldTraces(File traceDir, int count) {
+    File[] files = traceDir.listFiles();
+    if (files == null) {
+      return;
+    }
+    // the base names sort by time
+    TreeSet<String> baseNames = new TreeSet<>();
+    for (File file : files) {
+      String name = file.getName();
+      int extension = name.lastIndexOf('.');
+      if (extension > 0) {
+        baseNames.add(name.substring(0, extension));
+      }
+    }
+    while (baseNames.size() > count) {
+      String oldest = baseNames.pollFirst();
+      Arrays.stream(files)
+          .filter(f -> f.getName().startsWith(oldest + "."))
+          .forEach(
+              f -> {
+                if (!f.delete()) {
+                  logger.warn("Failed to delete old sync trace " + f);
+                }
+              });
+    }
+  }
+
+  @Nullable
+  private File getTraceDir() {
+    BlazeImportSettings importSettings =
+        BlazeImportSettingsManager.getInstance(project).getImportSettings();
+    return importSettings != null
+        ? new File(BlazeDataStorage.getProjectDataDir(importSettings), TRACE_DIR)
+        : null;
+  }
+}
@@ -28,7 +28,6 @@ import com.google.idea.blaze.base.buildview.BazelExecService;
 import com.google.idea.blaze.base.command.BlazeCommand;
 import com.google.idea.blaze.base.command.BlazeCommandName;
 import com.google.idea.blaze.base.dependencies.TargetInfo;
-import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.primitives.Label;
 import com.google.idea.blaze.base.model.primitives.TargetExpression;
@@ -83,8 +82,7 @@ public class CleanProjectTargetsSyncAction extends BlazeProjectSyncAction {
                       context.push(new IdeaLogScope());
 
                       ImmutableSet<Label> deleted =
-                          findDeletedTargets(
-                              project, projectData.targetMap().targets().asList(), context);
+                          findDeletedTargets(project, projectData.targets(), context);
                       if (deleted == null) {
                         return;
                       }
@@ -105,9 +103,9 @@ public class CleanProjectTargetsSyncAction extends BlazeProjectSyncAction {
    */
   @Nullable
   private static ImmutableSet<Label> findDeletedTargets(
-      Project project, List<TargetIdeInfo> targets, BlazeContext context) {
+      Project project, List<Label> targets, BlazeContext context) {
     Set<Label> foundTargets = new HashSet<>();
-    for (List<TargetIdeInfo> group : Lists.partition(targets, SHARD_SIZE)) {
+    for (List<Label> group : Lists.partition(targets, SHARD_SIZE)) {
       ImmutableList<TargetInfo> toKeep = runBlazeQuery(project, getQuery(group), context);
       if (toKeep == null) {
         return null;
@@ -115,14 +113,13 @@ public class CleanProjectTargetsSyncAction extends BlazeProjectSyncAction {
       toKeep.forEach(t -> foundTargets.add(t.label));
     }
     return targets.stream()
-        .map(t -> t.getKey().label())
         .filter(l -> !foundTargets.contains(l))
         .collect(toImmutableSet());
   }
 
-  private static String getQuery(List<TargetIdeInfo> targets) {
+  private static String getQuery(List<Label> targets) {
     return targets.stream()
-        .map(t -> String.format("'%s'", t.getKey().label()))
+        .map(l -> String.format("'%s'", l))
         .collect(joining("+"));
   }
 
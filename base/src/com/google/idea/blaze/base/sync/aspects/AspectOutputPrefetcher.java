@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.aspects;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEvent;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
+import com.google.idea.blaze.base.buildview.BuildEventListener;
+import com.google.idea.blaze.base.command.buildresult.LocalFileArtifact;
+import com.google.idea.blaze.base.command.buildresult.bepparser.OutputArtifactParser;
+import com.google.idea.blaze.base.sync.aspects.strategy.AspectStrategy;
+import com.google.idea.blaze.common.artifact.ArtifactState;
+import com.google.idea.blaze.common.artifact.OutputArtifact;
+import com.google.idea.common.experiments.BoolExperiment;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.Service.Level;
+import com.intellij.openapi.project.Project;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Parses aspect output files while the sync build is still running.
+ *
+ * <p>Bazel reports the outputs of each target in {@code NAMED_SET} events as soon as the target is
+ * built. For every local {@code intellij-info} file which changed since the last sync, the proto is
+ * parsed right away on the {@link BlazeExecutor}, so most of the parse time is hidden behind the
+ * build. {@link BlazeIdeInterfaceAspectsImpl} picks the results up when updating the target map and
+ * falls back to parsing any file which was not prefetched or changed again in the meantime.
+ */
+@Service(Level.PROJECT)
+public final class AspectOutputPrefetcher {
+
+  private static final BoolExperiment enabled =
+      new BoolExperiment("blaze.sync.prefetch.aspect.outputs.during.build", true);
+
+  private final Map<String, Prefetched> prefetched = new ConcurrentHashMap<>();
+  // bumped by start and clear, so that listeners of a previous build stop inserting results
+  private final AtomicLong generation = new AtomicLong();
+  private volatile ImmutableMap<String, ArtifactState> previousState = ImmutableMap.of();
+
+  public static AspectOutputPrefetcher of(Project project) {
+    return project.getService(AspectOutputPrefetcher.class);
+  }
+
+  /**
+   * Drops any previous results and prepares for a new sync build. Files whose state matches {@code
+   * previousState} are not prefetched, since the target map update will not read them.
+   */
+  public void start(@Nullable ImmutableMap<String, ArtifactState> previousState) {
+    generation.incrementAndGet();
+    prefetched.clear();
+    this.previousState = previousState != null ? previousState : ImmutableMap.of();
+  }
+
+  /** Returns a listener for a single build shard, or null if prefetching is disabled. */
+  @Nullable
+  public BuildEventListener newListener(AspectStrategy aspectStrategy) {
+    if (!enabled.getValue()) {
+      return null;
+    }
+    return new Listener(aspectStrategy, currentGeneration());
+  }
+
+  /**
+   * Returns the parsed proto for the given aspect output, or null if it has not been prefetched or
+   * the file changed after it was parsed. Each result can only be taken once.
+   */
+  @Nullable
+  public ListenableFuture<IntellijIdeInfo.TargetIdeInfo> take(ArtifactState state) {
+    Prefetched result = prefetched.remove(state.getKey());
+    if (result == null || result.state.isMoreRecent(state)) {
+      return null;
+    }
+    return result.proto;
+  }
+
+  /** Releases all results which were not taken by the target map update. */
+  public void clear() {
+    generation.incrementAndGet();
+    prefetched.clear();
+    previousState = ImmutableMap.of();
+  }
+
+  private void prefetch(
+      OutputArtifact artifact, AspectStrategy aspectStrategy, long listenerGeneration) {
+    if (!(artifact instanceof LocalFileArtifact)) {
+      // remote outputs have to be downloaded first, they are handled by the regular update path
+      return;
+    }
+    ArtifactState state = artifact.toArtifactState();
+    if (state == null) {
+      return;
+    }
+    prefetch(state, () -> aspectStrategy.readAspectFile(artifact), listenerGeneration);
+  }
+
+  /** Parses an aspect output in the background, unless it is unchanged since the last sync. */
+  @VisibleForTesting
+  void prefetch(
+      ArtifactState state,
+      Callable<IntellijIdeInfo.TargetIdeInfo> reader,
+      long listenerGeneration) {
+    if (generation.get() != listenerGeneration) {
+      return;
+    }
+    ArtifactState previous = previousState.get(state.getKey());
+    if (previous != null && !previous.isMoreRecent(state)) {
+      return;
+    }
+    Prefetched result =
+        prefetched.computeIfAbsent(
+            state.getKey(),
+            key -> new Prefetched(state, BlazeExecutor.getInstance().submit(reader)));
+    if (generation.get() != listenerGeneration) {
+      // cleared while inserting, don't leave a result of the previous build behind
+      prefetched.remove(state.getKey(), result);
+      result.proto.cancel(false);
+    }
+  }
+
+  /** Identifies the build which new listeners belong to. */
+  @VisibleForTesting
+  long currentGeneration() {
+    return generation.get();
+  }
+
+  private class Listener implements BuildEventListener {
+    private final AspectStrategy aspectStrategy;
+    private final long generation;
+    private volatile long startTimeMillis = 0L;
+
+    Listener(AspectStrategy aspectStrategy, long generation) {
+      this.aspectStrategy = aspectStrategy;
+      this.generation = generation;
+    }
+
+    @Override
+    public void onBuildEvent(BuildEvent event) {
+      switch (event.getId().getIdCase()) {
+        case STARTED:
+          startTimeMillis = event.getStarted().getStartTimeMillis();
+          break;
+        case NAMED_SET:
+          for (BuildEventStreamProtos.File file : event.getNamedSetOfFiles().getFilesList()) {
+            if (!AspectStrategy.ASPECT_OUTPUT_FILE_PREDICATE.test(file.getName())) {
+              continue;
+            }
+            OutputArtifact artifact = OutputArtifactParser.parseArtifact(file, startTimeMillis);
+            if (artifact != null) {
+              prefetch(artifact, aspectStrategy, generation);
+            }
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  private static class Prefetched {
+    private final ArtifactState state;
+    private final ListenableFuture<IntellijIdeInfo.TargetIdeInfo> proto;
+
+    Prefetched(ArtifactState state, ListenableFuture<IntellijIdeInfo.TargetIdeInfo> proto) {
+      this.state = state;
+      this.proto = proto;
+    }
+  }
+}
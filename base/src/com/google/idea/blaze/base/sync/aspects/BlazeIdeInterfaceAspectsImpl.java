@@ -35,6 +35,7 @@ import com.google.idea.blaze.base.async.FutureUtil;
 import com.google.idea.blaze.base.async.executor.BlazeExecutor;
 import com.google.idea.blaze.base.bazel.BuildSystem.BuildInvoker;
 import com.google.idea.blaze.base.buildview.BazelExecService;
+import com.google.idea.blaze.base.buildview.BuildEventListener;
 import com.google.idea.blaze.base.command.BlazeCommand;
 import com.google.idea.blaze.base.command.BlazeCommandName;
 import com.google.idea.blaze.base.command.BlazeFlags;
@@ -79,12 +80,14 @@ import com.google.idea.blaze.base.settings.BuildBinaryType;
 import com.google.idea.blaze.base.sync.BlazeSyncBuildResult;
 import com.google.idea.blaze.base.sync.BuildPhaseSyncTask;
 import com.google.idea.blaze.base.sync.SyncProjectState;
+import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
 import com.google.idea.blaze.base.command.buildresult.BuildResult.Status;
 import com.google.idea.blaze.base.sync.aspects.strategy.AspectStrategy;
 import com.google.idea.blaze.base.sync.aspects.strategy.AspectStrategy.OutputGroup;
 import com.google.idea.blaze.base.sync.projectview.ImportRoots;
 import com.google.idea.blaze.base.sync.projectview.LanguageSupport;
 import com.google.idea.blaze.base.sync.projectview.WorkspaceLanguageSettings;
+import com.google.idea.blaze.base.sync.sharding.ShardCostHistory;
 import com.google.idea.blaze.base.sync.sharding.ShardedBuildProgressTracker;
 import com.google.idea.blaze.base.sync.sharding.ShardedTargetList;
 import com.google.idea.blaze.base.toolwindow.Task;
@@ -161,7 +164,7 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
     if (state == null) {
       return null;
     }
-    context.output(PrintOutput.log("Target map size: " + state.targetMap.targets().size()));
+    context.output(PrintOutput.log("Target map size: " + state.targetMap.size()));
 
     RemoteOutputArtifacts oldRemoteOutputs = RemoteOutputArtifacts.fromProjectData(oldProjectData);
     // combine outputs map, then filter to remove out-of-date / unnecessary items
@@ -360,25 +363,35 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
 
               ListeningExecutorService executor = BlazeExecutor.getInstance().getExecutor();
 
-              // Read protos from any new files
+              // Read protos from any new files, reusing those already parsed during the build
+              AspectOutputPrefetcher prefetcher = AspectOutputPrefetcher.of(project);
               List<ListenableFuture<TargetFilePair>> futures = Lists.newArrayList();
               for (OutputArtifactWithoutDigest file : fileState.getUpdatedOutputs()) {
+                ArtifactState artifactState =
+                    fileState.getNewState().get(file.getBazelOutRelativePath());
+                ListenableFuture<IntellijIdeInfo.TargetIdeInfo> prefetched =
+                    artifactState != null ? prefetcher.take(artifactState) : null;
+                ListenableFuture<IntellijIdeInfo.TargetIdeInfo> message =
+                    prefetched != null
+                        ? prefetched
+                        : executor.submit(() -> aspectStrategy.readAspectFile(file));
                 futures.add(
-                    executor.submit(
-                        () -> {
+                    Futures.transform(
+                        message,
+                        proto -> {
                           totalSizeLoaded.addAndGet(file.getLength());
-                          IntellijIdeInfo.TargetIdeInfo message =
-                              aspectStrategy.readAspectFile(file);
                           TargetIdeInfo target =
                               protoToTarget(
                                   languageSettings,
                                   importRoots,
-                                  message,
+                                  proto,
                                   ignoredLanguages,
                                   syncTime);
                           return new TargetFilePair(file, target);
-                        }));
+                        },
+                        executor));
               }
+              prefetcher.clear();
 
               Set<TargetKey> newTargets = new HashSet<>();
               Set<String> configurations = new LinkedHashSet<>();
@@ -598,6 +611,16 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
     // The build is a sync iff INFO output group is present
     boolean isSync = outputGroups.contains(OutputGroup.INFO);
 
+    // Parse aspect outputs as soon as bazel reports them, see AspectOutputPrefetcher
+    AspectOutputPrefetcher prefetcher = isSync ? AspectOutputPrefetcher.of(project) : null;
+    if (prefetcher != null) {
+      BlazeProjectData oldProjectData =
+          BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
+      BlazeIdeInterfaceState oldState =
+          oldProjectData != null ? oldProjectData.targetData().ideInterfaceState : null;
+      prefetcher.start(oldState != null ? oldState.ideInfoFileState : null);
+    }
+
     Function<Integer, String> progressMessage =
         count ->
             String.format(
@@ -656,6 +679,7 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
                   setupToolWindow(project, childContext, workspaceRoot, task);
                   progressTracker.onBuildStarted(context);
 
+                  long startMillis = System.currentTimeMillis();
                   try {
                     BlazeBuildOutputs result =
                         runBuildForTargets(
@@ -666,13 +690,18 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
                             targets,
                             aspectStrategy,
                             outputGroups,
-                            additionalBlazeFlags);
+                            additionalBlazeFlags,
+                            prefetcher != null ? prefetcher.newListener(aspectStrategy) : null);
                     if (result.buildResult().outOfMemory()) {
                       logger.warn(
                           String.format(
                               "Build shard failed with OOM error build-id=%s",
                               result.getBuildIds().stream().findFirst().orElse(null)));
                     }
+                    if (isSync && shardedTargets.shardCount() > 1) {
+                      ShardCostHistory.getInstance(project)
+                          .record(targets, System.currentTimeMillis() - startMillis, result);
+                    }
                     printShardFinishedSummary(context, task.getName(), result, invoker);
                     synchronized (combinedResult) {
                       combinedResult.set(
@@ -753,7 +782,8 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
       List<? extends TargetExpression> targets,
       AspectStrategy aspectStrategy,
       ImmutableSet<OutputGroup> outputGroups,
-      List<String> additionalBlazeFlags)
+      List<String> additionalBlazeFlags,
+      @Nullable BuildEventListener buildEventListener)
       throws BuildException {
 
     Path targetPatternFile = prepareTargetPatternFile(project, targets);
@@ -772,7 +802,7 @@ public class BlazeIdeInterfaceAspectsImpl implements BlazeIdeInterface {
 
     aspectStrategy.addAspectAndOutputGroups(project, builder, outputGroups, activeLanguages);
     try {
-      return BazelExecService.of(project).build(context, builder);
+      return BazelExecService.of(project).build(context, builder, buildEventListener);
     } catch (com.intellij.execution.ExecutionException e) {
       throw new BuildException("Failed to build targets", e);
     } finally {
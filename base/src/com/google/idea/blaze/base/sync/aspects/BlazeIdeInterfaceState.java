@@ -54,6 +54,21 @@ public final class BlazeIdeInterfaceState
     this.ideInfoFileToTargetKey = ImmutableBiMap.copyOf(ideInfoFileToTargetKey);
   }
 
+  public static BlazeIdeInterfaceState create(
+      Map<String, ArtifactState> ideInfoFileState,
+      Map<String, TargetKey> ideInfoFileToTargetKey) {
+    return new BlazeIdeInterfaceState(
+        ideInfoFileState, ImmutableBiMap.copyOf(ideInfoFileToTargetKey));
+  }
+
+  public ImmutableMap<String, ArtifactState> getIdeInfoFileState() {
+    return ideInfoFileState;
+  }
+
+  public ImmutableBiMap<String, TargetKey> getIdeInfoFileToTargetKey() {
+    return ideInfoFileToTargetKey;
+  }
+
   public static BlazeIdeInterfaceState fromProto(ProjectData.BlazeIdeInterfaceState proto) {
     ImmutableMap<String, TargetKey> targets =
         ProtoWrapper.map(proto.getFileToTargetMap(), Functions.identity(), TargetKey::fromProto);
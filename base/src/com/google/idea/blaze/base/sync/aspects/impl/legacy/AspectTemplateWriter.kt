@@ -26,6 +26,7 @@ import com.google.idea.blaze.base.sync.aspects.storage.AspectWriter
 import com.google.idea.blaze.base.sync.codegenerator.CodeGeneratorRuleNameHelper
 import com.google.idea.blaze.base.util.TemplateWriter
 import com.intellij.openapi.project.Project
+import com.intellij.openapi.util.registry.Registry
 import java.io.IOException
 import java.nio.file.Path
 
@@ -94,6 +95,7 @@ class AspectTemplateWriter : AspectWriter {
     val externalWorkspaceData = state.externalWorkspaceData
     val isAtLeastBazel8 = state.blazeVersionData.bazelIsAtLeastVersion(8, 0, 0)
     val isAtLeastBazel9 = state.blazeVersionData.bazelIsAtLeastVersion(9, 0, 0)
+    val isJsonInfoFormat = Registry.`is`("bazel.sync.aspect.json.output")
     val isNotBzlmod = state.blazeInfo.starlarkSemantics?.contains("enable_bzlmod=false") ?: false
     fun hasRepository(name: String) = externalWorkspaceData?.getByRepoName(name) != null
 
@@ -103,7 +105,8 @@ class AspectTemplateWriter : AspectWriter {
     return ImmutableMap.of(
       "bazel8OrAbove", if (isAtLeastBazel8) "true" else "false",
       "bazel9OrAbove", if (isAtLeastBazel9) "true" else "false",
-      "isPythonEnabled", if (isPythonEnabled) "true" else "false"
+      "isPythonEnabled", if (isPythonEnabled) "true" else "false",
+      "jsonInfoFormat", if (isJsonInfoFormat) "true" else "false"
     )
   }
 
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.aspects.strategy;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Streaming decoder for aspect output files written with {@code json.encode}.
+ *
+ * <p>The aspect encodes the same structs it would otherwise pass to {@code proto.encode_text}, so
+ * object keys are proto field names, enums are numbers (or names) and {@code null} marks an absent
+ * field. Unknown fields are skipped, matching the lenient text-format parser.
+ */
+final class AspectJsonReader {
+
+  private AspectJsonReader() {}
+
+  static void merge(Reader reader, Message.Builder builder) throws IOException {
+    JsonReader json = new JsonReader(reader);
+    try {
+      mergeMessage(json, builder);
+    } catch (IllegalStateException | NumberFormatException e) {
+      throw new IOException("Malformed aspect output: " + e.getMessage(), e);
+    }
+  }
+
+  private static void mergeMessage(JsonReader json, Message.Builder builder) throws IOException {
+    Descriptor descriptor = builder.getDescriptorForType();
+    json.beginObject();
+    while (json.hasNext()) {
+      FieldDescriptor field = descriptor.findFieldByName(json.nextName());
+      if (field == null || json.peek() == JsonToken.NULL) {
+        json.skipValue();
+      } else if (field.isMapField() && json.peek() == JsonToken.BEGIN_OBJECT) {
+        mergeMap(json, builder, field);
+      } else if (field.isRepeated()) {
+        json.beginArray();
+        while (json.hasNext()) {
+          if (json.peek() == JsonToken.NULL) {
+            json.skipValue();
+          } else {
+            builder.addRepeatedField(field, readValue(json, builder, field));
+          }
+        }
+        json.endArray();
+      } else if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+        mergeMessage(json, builder.getFieldBuilder(field));
+      } else {
+        builder.setField(field, readValue(json, builder, field));
+      }
+    }
+    json.endObject();
+  }
+
+  /** Starlark dicts are encoded as JSON objects, proto maps as repeated key/value entries. */
+  private static void mergeMap(JsonReader json, Message.Builder builder, FieldDescriptor field)
+      throws IOException {
+    Descriptor entryType = field.getMessageType();
+    FieldDescriptor keyField = entryType.findFieldByNumber(1);
+    FieldDescriptor valueField = entryType.findFieldByNumber(2);
+    json.beginObject();
+    while (json.hasNext()) {
+      Message.Builder entry = builder.newBuilderForField(field);
+      entry.setField(keyField, parseKey(keyField, json.nextName()));
+      if (json.peek() == JsonToken.NULL) {
+        json.skipValue();
+      } else {
+        entry.setField(valueField, readValue(json, entry, valueField));
+      }
+      builder.addRepeatedField(field, entry.build());
+    }
+    json.endObject();
+  }
+
+  private static Object parseKey(FieldDescriptor keyField, String key) {
+    switch (keyField.getJavaType()) {
+      case INT:
+        return Integer.parseInt(key);
+      case LONG:
+        return Long.parseLong(key);
+      case BOOLEAN:
+        return Boolean.parseBoolean(key);
+      default:
+        return key;
+    }
+  }
+
+  private static Object readValue(JsonReader json, Message.Builder builder, FieldDescriptor field)
+      throws IOException {
+    switch (field.getJavaType()) {
+      case INT:
+        return json.nextInt();
+      case LONG:
+        return json.nextLong();
+      case FLOAT:
+        return (float) json.nextDouble();
+      case DOUBLE:
+        return json.nextDouble();
+      case BOOLEAN:
+        return json.nextBoolean();
+      case STRING:
+        return json.nextString();
+      case BYTE_STRING:
+        return ByteString.copyFromUtf8(json.nextString());
+      case ENUM:
+        return readEnum(json, field);
+      case MESSAGE:
+        Message.Builder child = builder.newBuilderForField(field);
+        mergeMessage(json, child);
+        return child.build();
+    }
+    throw new IOException("Unsupported field type for " + field.getFullName());
+  }
+
+  private static EnumValueDescriptor readEnum(JsonReader json, FieldDescriptor field)
+      throws IOException {
+    EnumValueDescriptor value =
+        json.peek() == JsonToken.NUMBER
+            ? field.getEnumType().findValueByNumber(json.nextInt())
+            : field.getEnumType().findValueByName(json.nextString());
+    if (value == null) {
+      throw new IOException("Unknown enum value for " + field.getFullName());
+    }
+    return value;
+  }
+}
@@ -46,8 +46,14 @@ import java.util.function.Predicate;
  */
 public abstract class AspectStrategy {
 
+  /** Suffix of aspect output files holding a text-format {@code TargetIdeInfo}. */
+  public static final String TEXT_OUTPUT_FILE_SUFFIX = ".intellij-info.txt";
+
+  /** Suffix of aspect output files holding a {@code TargetIdeInfo} encoded as JSON. */
+  public static final String JSON_OUTPUT_FILE_SUFFIX = ".intellij-info.json";
+
   public static final Predicate<String> ASPECT_OUTPUT_FILE_PREDICATE =
-      str -> str.endsWith(".intellij-info.txt");
+      str -> str.endsWith(TEXT_OUTPUT_FILE_SUFFIX) || str.endsWith(JSON_OUTPUT_FILE_SUFFIX);
 
   /**
    * A Blaze output group created by the aspect.
@@ -152,11 +158,20 @@ public abstract class AspectStrategy {
         .addBlazeFlags("--output_groups=" + Joiner.on(',').join(groups));
   }
 
+  /**
+   * Parses an aspect output file. The reader is selected by the file suffix, JSON files are decoded
+   * with a streaming reader and everything else falls back to the text-format parser.
+   */
   public final IntellijIdeInfo.TargetIdeInfo readAspectFile(BlazeArtifact file) throws IOException {
     try (InputStream inputStream = file.getInputStream()) {
-      final var  builder = IntellijIdeInfo.TargetIdeInfo.newBuilder();
-      final var parser = TextFormat.Parser.newBuilder().setAllowUnknownFields(true).build();
-      parser.merge(new InputStreamReader(inputStream, UTF_8), builder);
+      final var builder = IntellijIdeInfo.TargetIdeInfo.newBuilder();
+      final var reader = new InputStreamReader(inputStream, UTF_8);
+      if (file.getArtifactPath().toString().endsWith(JSON_OUTPUT_FILE_SUFFIX)) {
+        AspectJsonReader.merge(reader, builder);
+      } else {
+        final var parser = TextFormat.Parser.newBuilder().setAllowUnknownFields(true).build();
+        parser.merge(reader, builder);
+      }
       return builder.build();
     }
   }
@@ -17,7 +17,6 @@ package com.google.idea.blaze.base.sync.autosync;
 
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
 import com.google.idea.blaze.base.ideinfo.TargetKey;
@@ -27,7 +26,7 @@ import com.google.idea.blaze.base.model.primitives.TargetExpression;
 import com.google.idea.blaze.base.sync.BlazeSyncParams;
 import com.google.idea.blaze.base.sync.SyncMode;
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
-import com.google.idea.blaze.base.targetmaps.ReverseDependencyMap;
+import com.google.idea.blaze.base.targetmaps.DependencyGraph;
 import com.google.idea.blaze.base.targetmaps.SourceToTargetMap;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -94,9 +93,8 @@ class ProtoAutoSyncProvider implements AutoSyncProvider {
     }
     ImmutableList.Builder<Label> output = new ImmutableList.Builder<>();
     Queue<TargetKey> todo = Queues.newArrayDeque();
-    ImmutableMultimap<TargetKey, TargetKey> reverseDependencyMap =
-        ReverseDependencyMap.get(project);
-    todo.addAll(reverseDependencyMap.get(target));
+    DependencyGraph dependencyGraph = DependencyGraph.get(project);
+    todo.addAll(dependencyGraph.getReverseDependencies(target));
     Set<TargetKey> seen = Sets.newHashSet();
     while (!todo.isEmpty()) {
       TargetKey targetKey = todo.remove();
@@ -106,7 +104,7 @@ class ProtoAutoSyncProvider implements AutoSyncProvider {
       if (targetKey.isPlainTarget()) {
         output.add(targetKey.label());
       } else {
-        todo.addAll(reverseDependencyMap.get(targetKey));
+        todo.addAll(dependencyGraph.getReverseDependencies(targetKey));
       }
     }
     return output.build();
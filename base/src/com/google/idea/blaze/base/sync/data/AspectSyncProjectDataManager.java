@@ -15,6 +15,7 @@
  */
 package com.google.idea.blaze.base.sync.data;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -23,16 +24,20 @@ import com.google.idea.blaze.base.buildview.BuildViewMigration;
 import com.google.idea.blaze.base.io.FileOperationProvider;
 import com.google.idea.blaze.base.logging.EventLoggingService;
 import com.google.idea.blaze.base.model.BlazeProjectData;
+import com.google.idea.blaze.base.model.ProjectDataDeltaLog;
 import com.google.idea.blaze.base.settings.BlazeImportSettings;
+import com.google.idea.blaze.base.settings.BuildSystemName;
 import com.google.idea.common.util.ConcurrencyUtil;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.registry.Registry;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import javax.annotation.Nullable;
@@ -43,11 +48,21 @@ public class AspectSyncProjectDataManager implements BlazeProjectDataManager {
   private static final Logger logger =
       Logger.getInstance(AspectSyncProjectDataManager.class.getName());
 
+  private static final String CACHE_FILE = "cache.dat.gz";
+  private static final String INDEXED_CACHE_FILE = "cache.dat.idx";
+  private static final String DELTA_LOG_FILE = "cache.dat.log";
+
+  // the number of deltas appended before the log is compacted into a new snapshot
+  private static final int MAX_DELTAS = 10;
+
   private final Project project;
   // a per-project single-threaded executor to write project data to disk
   private final ListeningExecutorService writeDataExecutor;
 
   @Nullable private volatile BlazeProjectData projectData;
+  // the project data as currently stored on disk, guarded by this
+  @Nullable private BlazeProjectData persistedData;
+  private int deltaCount;
 
   public AspectSyncProjectDataManager(Project project) {
     this.project = project;
@@ -65,8 +80,15 @@ public class AspectSyncProjectDataManager implements BlazeProjectDataManager {
       return projectData;
     }
     try {
-      File file = getCacheFile(project, importSettings);
-      projectData = BlazeProjectData.loadFromDisk(importSettings.getBuildSystem(), file);
+      BlazeProjectData data = loadSnapshot(importSettings);
+      File log = getDeltaLogFile(project, importSettings);
+      if (log.exists()) {
+        data = ProjectDataDeltaLog.apply(importSettings.getBuildSystem(), data, log);
+        // a crash may have left a partial entry at the end of the log, so don't append to it
+        deltaCount = MAX_DELTAS;
+      }
+      projectData = data;
+      persistedData = data;
       return projectData;
     } catch (Throwable e) {
       if (!(e instanceof FileNotFoundException)) {
@@ -76,6 +98,33 @@ public class AspectSyncProjectDataManager implements BlazeProjectDataManager {
     }
   }
 
+  private BlazeProjectData loadSnapshot(BlazeImportSettings importSettings) throws IOException {
+    return loadSnapshot(
+        importSettings.getBuildSystem(),
+        getCacheFile(project, importSettings),
+        getIndexedCacheFile(project, importSettings),
+        useIndexedCache());
+  }
+
+  /**
+   * Loads the latest project data snapshot. Only one of the two files is kept by a save, so the
+   * indexed file is read whenever the other is missing, even if the indexed cache has since been
+   * turned off.
+   */
+  @VisibleForTesting
+  static BlazeProjectData loadSnapshot(
+      BuildSystemName buildSystemName, File file, File indexedFile, boolean preferIndexed)
+      throws IOException {
+    if (indexedFile.exists() && (preferIndexed || !file.exists())) {
+      try {
+        return BlazeProjectData.loadFromDiskIndexed(buildSystemName, indexedFile);
+      } catch (IOException e) {
+        logger.warn("Could not load indexed project data, falling back to " + CACHE_FILE, e);
+      }
+    }
+    return BlazeProjectData.loadFromDisk(buildSystemName, file);
+  }
+
   @Override
   @Nullable
   public BlazeProjectData getBlazeProjectData() {
@@ -96,11 +145,35 @@ public class AspectSyncProjectDataManager implements BlazeProjectDataManager {
                 (ProgressIndicator indicator) -> {
                   try {
                     File file = getCacheFile(project, importSettings);
+                    File indexedFile = getIndexedCacheFile(project, importSettings);
+                    File log = getDeltaLogFile(project, importSettings);
                     if (!file.getParentFile().exists()) {
                       file.getParentFile().mkdirs();
                     }
                     synchronized (this) {
-                      this.projectData.saveToDisk(file);
+                      BlazeProjectData data = this.projectData;
+                      if (data == null || data == persistedData) {
+                        // already written by an earlier save
+                        return;
+                      }
+                      File snapshot = indexedFile.exists() ? indexedFile : file;
+                      if (shouldAppendDelta(snapshot, log)) {
+                        ProjectDataDeltaLog.append(persistedData, data, log);
+                        deltaCount++;
+                        file = log;
+                      } else {
+                        // drop the log first, so it's never applied on top of a newer snapshot
+                        Files.deleteIfExists(log.toPath());
+                        deltaCount = 0;
+                        if (useIndexedCache() && saveIndexed(data, indexedFile)) {
+                          Files.deleteIfExists(file.toPath());
+                          file = indexedFile;
+                        } else {
+                          data.saveToDisk(file);
+                          Files.deleteIfExists(indexedFile.toPath());
+                        }
+                      }
+                      persistedData = data;
                     }
                     logFileSize(projectData, file);
 
@@ -110,6 +183,32 @@ public class AspectSyncProjectDataManager implements BlazeProjectDataManager {
                 });
   }
 
+  /**
+   * Whether the next save can be written as a delta against {@link #persistedData}, rather than a
+   * full snapshot. The log is compacted once it holds too many entries or grows to half the size
+   * of the snapshot.
+   */
+  private boolean shouldAppendDelta(File snapshot, File log) {
+    if (!useDeltaLog() || persistedData == null || deltaCount >= MAX_DELTAS) {
+      return false;
+    }
+    FileOperationProvider files = FileOperationProvider.getInstance();
+    if (!files.exists(snapshot)) {
+      return false;
+    }
+    return !files.exists(log) || files.getFileSize(log) < files.getFileSize(snapshot) / 2;
+  }
+
+  private static boolean saveIndexed(BlazeProjectData projectData, File file) {
+    try {
+      projectData.saveToDiskIndexed(file);
+      return true;
+    } catch (IOException e) {
+      logger.warn("Could not save indexed project data, falling back to " + CACHE_FILE, e);
+      return false;
+    }
+  }
+
   private static void logFileSize(BlazeProjectData projectData, File cacheFile) {
     ImmutableMap.Builder<String, String> data = ImmutableMap.builder();
     data.put("size", Long.toString(FileOperationProvider.getInstance().getFileSize(cacheFile)));
@@ -130,6 +229,23 @@ public class AspectSyncProjectDataManager implements BlazeProjectDataManager {
   }
 
   private static File getCacheFile(Project project, BlazeImportSettings importSettings) {
-    return new File(BlazeDataStorage.getProjectCacheDir(project, importSettings), "cache.dat.gz");
+    return new File(BlazeDataStorage.getProjectCacheDir(project, importSettings), CACHE_FILE);
+  }
+
+  private static File getIndexedCacheFile(Project project, BlazeImportSettings importSettings) {
+    return new File(
+        BlazeDataStorage.getProjectCacheDir(project, importSettings), INDEXED_CACHE_FILE);
+  }
+
+  private static File getDeltaLogFile(Project project, BlazeImportSettings importSettings) {
+    return new File(BlazeDataStorage.getProjectCacheDir(project, importSettings), DELTA_LOG_FILE);
+  }
+
+  private static boolean useDeltaLog() {
+    return Registry.is("bazel.sync.project.data.delta.log");
+  }
+
+  private static boolean useIndexedCache() {
+    return Registry.is("bazel.sync.project.data.indexed");
   }
 }
@@ -15,19 +15,39 @@
  */
 package com.google.idea.blaze.base.sync.libraries;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.idea.blaze.base.io.VfsUtils;
+import com.google.idea.blaze.base.io.VirtualFileSystemProvider;
+import com.google.idea.common.experiments.BoolExperiment;
 import com.intellij.navigation.ItemPresentation;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.roots.SyntheticLibrary;
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.RefreshQueue;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import icons.BlazeIcons;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
 import javax.annotation.Nullable;
 import javax.swing.Icon;
@@ -35,12 +55,31 @@ import javax.swing.Icon;
 /**
  * A {@link SyntheticLibrary} pointing to a list of external files for a language. Only supports one
  * instance per value of presentableText.
+ *
+ * <p>Files which are not in the VFS yet are resolved in the background: their parent directories
+ * are refreshed with a single asynchronous {@link RefreshQueue} request, rather than refreshing
+ * every file on its own. The files are then looked up in a non-blocking read action, and added to
+ * the source roots on the EDT.
+ *
+ * <p>With directory roots enabled, a directory whose children all belong to the library replaces
+ * them as a single source root, so libraries made of whole directory trees don't need a root per
+ * file. Files created in such a directory later on are part of the library as well, which is why
+ * this is off by default.
  */
 public final class BlazeExternalSyntheticLibrary extends SyntheticLibrary
     implements ItemPresentation {
+  private static final BoolExperiment batchedResolution =
+      new BoolExperiment("blaze.external.library.batched.resolution", true);
+  private static final BoolExperiment directoryRoots =
+      new BoolExperiment("blaze.external.library.directory.roots", false);
+
   private final String presentableText;
   private final ImmutableSet<File> files;
   private final Set<VirtualFile> validFiles;
+  private final Runnable onFilesResolved;
+
+  // the source roots if files were merged into directory roots, otherwise the valid files are used
+  @Nullable private volatile ImmutableSet<VirtualFile> mergedRoots;
 
   /**
    * Constructs library with an initial set of valid {@link VirtualFile}s.
@@ -50,14 +89,163 @@ public final class BlazeExternalSyntheticLibrary extends SyntheticLibrary
    * @param files collection of files that this synthetic library is responsible for.
    */
   public BlazeExternalSyntheticLibrary(String presentableText, Collection<File> files) {
+    this(presentableText, files, () -> {});
+  }
+
+  /**
+   * Constructs library with an initial set of valid {@link VirtualFile}s.
+   *
+   * @param files collection of files that this synthetic library is responsible for.
+   * @param onFilesResolved invoked after the source roots were updated in the background, i.e.
+   *     files missing from the VFS were added or files were merged into directory roots
+   */
+  BlazeExternalSyntheticLibrary(
+      String presentableText, Collection<File> files, Runnable onFilesResolved) {
     this.presentableText = presentableText;
     this.files = ImmutableSet.copyOf(files);
-    this.validFiles =
-        Sets.newConcurrentHashSet(
-            files.stream()
-                .map(f -> VfsUtils.resolveVirtualFile(f, /* refreshIfNeeded= */ true))
-                .filter(Objects::nonNull)
-                .collect(toImmutableSet()));
+    this.onFilesResolved = onFilesResolved;
+    if (batchedResolution.getValue()) {
+      this.validFiles = Sets.newConcurrentHashSet();
+      resolveInBackground(addCachedFiles(this.files));
+    } else {
+      this.validFiles =
+          Sets.newConcurrentHashSet(
+              files.stream()
+                  .map(f -> VfsUtils.resolveVirtualFile(f, /* refreshIfNeeded= */ true))
+                  .filter(Objects::nonNull)
+                  .collect(toImmutableSet()));
+    }
+  }
+
+  /** Adds the files which are already in the VFS, and returns all other files. */
+  private List<File> addCachedFiles(Collection<File> files) {
+    LocalFileSystem fileSystem = VirtualFileSystemProvider.getInstance().getSystem();
+    List<File> missing = new ArrayList<>();
+    for (File file : files) {
+      VirtualFile vf = fileSystem.findFileByPathIfCached(file.getPath());
+      if (vf != null && vf.isValid()) {
+        validFiles.add(vf);
+      } else {
+        missing.add(file);
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * Refreshes the parent directories of the missing files in one asynchronous request, then
+   * updates the source roots.
+   */
+  private void resolveInBackground(List<File> missing) {
+    if (missing.isEmpty() && !directoryRoots.getValue()) {
+      return;
+    }
+    LocalFileSystem fileSystem = VirtualFileSystemProvider.getInstance().getSystem();
+    // many files share a parent directory, only look up each one once
+    Map<File, VirtualFile> ancestors = new HashMap<>();
+    Set<VirtualFile> directories = new LinkedHashSet<>();
+    for (File file : missing) {
+      File parent = file.getParentFile();
+      if (parent == null) {
+        continue;
+      }
+      VirtualFile directory =
+          ancestors.computeIfAbsent(parent, dir -> findExistingAncestor(fileSystem, dir));
+      if (directory != null) {
+        directories.add(directory);
+      }
+    }
+    if (directories.isEmpty()) {
+      updateSourceRoots(fileSystem, ImmutableList.of());
+      return;
+    }
+    RefreshQueue.getInstance()
+        .refresh(
+            /* async= */ true,
+            /* recursive= */ false,
+            () -> updateSourceRoots(fileSystem, missing),
+            directories);
+  }
+
+  /**
+   * Looks up the refreshed files and computes the new source roots off the EDT, then publishes them
+   * on the EDT.
+   */
+  private void updateSourceRoots(LocalFileSystem fileSystem, List<File> refreshed) {
+    ReadAction.nonBlocking(
+            () -> {
+              ImmutableList<VirtualFile> resolved =
+                  refreshed.stream()
+                      .map(fileSystem::findFileByIoFile)
+                      .filter(vf -> vf != null && vf.isValid())
+                      .collect(toImmutableList());
+              if (!directoryRoots.getValue()) {
+                return Pair.create(resolved, (ImmutableSet<VirtualFile>) null);
+              }
+              Set<VirtualFile> libraryFiles = new HashSet<>(validFiles);
+              libraryFiles.addAll(resolved);
+              return Pair.create(resolved, mergeDirectoryRoots(libraryFiles));
+            })
+        .finishOnUiThread(
+            ModalityState.NON_MODAL,
+            result -> {
+              boolean changed = validFiles.addAll(result.first);
+              if (result.second != null && !result.second.equals(getSourceRoots())) {
+                mergedRoots = result.second;
+                changed = true;
+              }
+              if (changed) {
+                onFilesResolved.run();
+              }
+            })
+        .submit(AppExecutorUtil.getAppExecutorService());
+  }
+
+  /**
+   * Replaces files by their parent directory wherever all children of the directory are covered,
+   * starting from the deepest directories so that whole trees collapse into a single root.
+   */
+  @VisibleForTesting
+  static ImmutableSet<VirtualFile> mergeDirectoryRoots(Set<VirtualFile> files) {
+    Set<VirtualFile> roots = new HashSet<>(files);
+    // a directory always has a shorter path than its descendants
+    PriorityQueue<VirtualFile> directories =
+        new PriorityQueue<>(
+            Comparator.comparingInt((VirtualFile dir) -> dir.getPath().length()).reversed());
+    Set<VirtualFile> queued = new HashSet<>();
+    for (VirtualFile file : files) {
+      VirtualFile parent = file.getParent();
+      if (parent != null && queued.add(parent)) {
+        directories.add(parent);
+      }
+    }
+    while (!directories.isEmpty()) {
+      VirtualFile directory = directories.poll();
+      VirtualFile[] children = directory.getChildren();
+      if (children.length == 0 || !Arrays.stream(children).allMatch(roots::contains)) {
+        continue;
+      }
+      Arrays.asList(children).forEach(roots::remove);
+      roots.add(directory);
+      VirtualFile parent = directory.getParent();
+      if (parent != null && queued.add(parent)) {
+        directories.add(parent);
+      }
+    }
+    return ImmutableSet.copyOf(roots);
+  }
+
+  /** Returns the closest ancestor directory which exists in the VFS, without refreshing. */
+  @Nullable
+  private static VirtualFile findExistingAncestor(LocalFileSystem fileSystem, File directory) {
+    while (directory != null) {
+      VirtualFile vf = fileSystem.findFileByIoFile(directory);
+      if (vf != null && vf.isValid()) {
+        return vf;
+      }
+      directory = directory.getParentFile();
+    }
+    return null;
   }
 
   @Nullable
@@ -72,17 +260,26 @@ public final class BlazeExternalSyntheticLibrary extends SyntheticLibrary
     } else {
       validFiles.removeAll(deletedFiles);
     }
+    ImmutableSet<VirtualFile> roots = mergedRoots;
+    if (roots != null && !roots.stream().allMatch(VirtualFile::isValid)) {
+      mergedRoots = roots.stream().filter(VirtualFile::isValid).collect(toImmutableSet());
+    }
   }
 
   void restoreMissingFiles() {
     if (validFiles.size() < files.size()) {
-      Sets.difference(
+      Set<File> missingFiles =
+          Sets.difference(
               files,
               validFiles.stream()
                   .filter(VirtualFile::isValid)
                   .map(VfsUtil::virtualToIoFile)
-                  .collect(toImmutableSet()))
-          .stream()
+                  .collect(toImmutableSet()));
+      if (batchedResolution.getValue()) {
+        resolveInBackground(addCachedFiles(ImmutableSet.copyOf(missingFiles)));
+        return;
+      }
+      missingFiles.stream()
           .map(file -> VfsUtils.resolveVirtualFile(file, /* refreshIfNeeded= */ false))
           .filter(Objects::nonNull)
           .forEach(validFiles::add);
@@ -93,7 +290,8 @@ public final class BlazeExternalSyntheticLibrary extends SyntheticLibrary
   public Set<VirtualFile> getSourceRoots() {
     // this must return a set, otherwise SyntheticLibrary#contains will create a new set each time
     // it's invoked (very frequently, on the EDT)
-    return validFiles;
+    ImmutableSet<VirtualFile> roots = mergedRoots;
+    return roots != null ? roots : validFiles;
   }
 
   @Override
@@ -117,13 +117,29 @@ public class ExternalLibraryManager implements Disposable {
                   return !files.isEmpty()
                       ? Maps.immutableEntry(
                           provider.getClass(),
-                          new BlazeExternalSyntheticLibrary(provider.getLibraryName(), files))
+                          new BlazeExternalSyntheticLibrary(
+                              provider.getLibraryName(), files, this::onFilesResolved))
                       : null;
                 })
             .filter(Objects::nonNull)
             .collect(toImmutableMap(Map.Entry::getKey, Map.Entry::getValue));
   }
 
+  /**
+   * Files which were missing from the VFS are resolved in the background, after the roots change
+   * of the sync. Reindex once they were added.
+   */
+  private void onFilesResolved() {
+    if (duringBlazeSync || project.isDisposed()) {
+      return;
+    }
+    Transactions.submitWriteActionTransaction(
+        this,
+        () ->
+            ProjectRootManagerEx.getInstanceEx(project)
+                .makeRootsChange(() -> {}, /* fileTypes= */ false, /* fireEvents= */ true));
+  }
+
   @Override
   public void dispose() {}
 
@@ -17,6 +17,7 @@ package com.google.idea.blaze.base.sync.libraries;
 
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -35,13 +36,17 @@ import com.intellij.openapi.externalSystem.service.project.IdeModifiableModelsPr
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.DependencyScope;
 import com.intellij.openapi.roots.ModifiableRootModel;
+import com.intellij.openapi.roots.OrderRootType;
 import com.intellij.openapi.roots.libraries.Library;
 import com.intellij.openapi.roots.libraries.LibraryTable;
 import com.intellij.openapi.roots.libraries.LibraryTablesRegistrar;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -50,33 +55,106 @@ import java.util.function.Predicate;
 public class LibraryEditor {
   private static final Logger logger = Logger.getInstance(LibraryEditor.class);
 
+  /** The roots of a library, as they should be in IntelliJ's project model. */
+  public static final class LibraryRoots {
+    private final LibraryFilesProvider libraryFilesProvider;
+    private final ImmutableList<String> classFileUrls;
+    private final ImmutableList<String> sourceFileUrls;
+
+    private LibraryRoots(
+        LibraryFilesProvider libraryFilesProvider,
+        ImmutableList<String> classFileUrls,
+        ImmutableList<String> sourceFileUrls) {
+      this.libraryFilesProvider = libraryFilesProvider;
+      this.classFileUrls = classFileUrls;
+      this.sourceFileUrls = sourceFileUrls;
+    }
+
+    private boolean matches(Library library) {
+      return Arrays.asList(library.getUrls(OrderRootType.CLASSES)).equals(classFileUrls)
+          && Arrays.asList(library.getUrls(OrderRootType.SOURCES)).equals(sourceFileUrls);
+    }
+  }
+
+  /**
+   * Computes the roots of the libraries. This looks up every root in the VFS, so should be done
+   * before entering the write action which updates the libraries.
+   */
+  public static ImmutableList<LibraryRoots> computeLibraryRoots(
+      Project project, BlazeProjectData blazeProjectData, Collection<BlazeLibrary> libraries) {
+    Set<String> libraryKeys = new HashSet<>();
+    ImmutableList.Builder<LibraryRoots> roots = ImmutableList.builder();
+    for (BlazeLibrary library : libraries) {
+      LibraryFilesProvider libraryFilesProvider =
+          LibraryFilesProviderFactory.getInstance(project).get(library);
+      if (libraryKeys.add(libraryFilesProvider.getName())) {
+        roots.add(computeLibraryRoots(libraryFilesProvider, blazeProjectData));
+      }
+    }
+    return roots.build();
+  }
+
+  @VisibleForTesting
+  static LibraryRoots computeLibraryRoots(
+      LibraryFilesProvider libraryFilesProvider, BlazeProjectData blazeProjectData) {
+    return new LibraryRoots(
+        libraryFilesProvider,
+        LibraryModifier.existingUrls(libraryFilesProvider.getClassFilesUrls(blazeProjectData)),
+        LibraryModifier.existingUrls(libraryFilesProvider.getSourceFilesUrls(blazeProjectData)));
+  }
+
+  /**
+   * Updates the project libraries to the given roots. Only libraries whose roots changed are
+   * modified, so that unchanged libraries cause no root change events.
+   */
   public static void updateProjectLibraries(
       Project project,
       BlazeContext context,
       ProjectViewSet projectViewSet,
       BlazeProjectData blazeProjectData,
-      Collection<BlazeLibrary> libraries) {
+      Collection<LibraryRoots> libraries) {
+    updateProjectLibraries(
+        new IdeModifiableModelsProviderImpl(project),
+        context,
+        projectViewSet,
+        blazeProjectData,
+        libraries);
+  }
+
+  @VisibleForTesting
+  static void updateProjectLibraries(
+      IdeModifiableModelsProvider modelsProvider,
+      BlazeContext context,
+      ProjectViewSet projectViewSet,
+      BlazeProjectData blazeProjectData,
+      Collection<LibraryRoots> libraries) {
     Set<LibraryKey> intelliJLibraryState = Sets.newHashSet();
-    IdeModifiableModelsProvider modelsProvider = new IdeModifiableModelsProviderImpl(project);
+    Map<String, Library> existingLibraries = new HashMap<>();
     for (Library library : modelsProvider.getAllLibraries()) {
       String name = library.getName();
       if (name != null) {
         intelliJLibraryState.add(LibraryKey.fromIntelliJLibraryName(name));
+        existingLibraries.put(name, library);
       }
     }
     context.output(PrintOutput.log(String.format(Locale.ROOT, "Workspace has %d libraries", libraries.size())));
 
     try {
       Set<String> newLibraryKeys = new HashSet<>();
-      libraries.forEach(
-          library -> {
-            LibraryFilesProvider libraryFilesProvider =
-                LibraryFilesProviderFactory.getInstance(project).get(library);
-            String key = libraryFilesProvider.getName();
-            if (newLibraryKeys.add(key)) {
-              updateLibrary(modelsProvider, blazeProjectData, libraryFilesProvider);
-            }
-          });
+      int updated = 0;
+      for (LibraryRoots roots : libraries) {
+        String key = roots.libraryFilesProvider.getName();
+        newLibraryKeys.add(key);
+        Library existing = existingLibraries.get(key);
+        if (existing == null || !roots.matches(existing)) {
+          new LibraryModifier(roots.libraryFilesProvider, modelsProvider)
+              .updateModifiableModel(roots.classFileUrls, roots.sourceFileUrls);
+          updated++;
+        }
+      }
+      context.output(
+          PrintOutput.log(
+              String.format(Locale.ROOT, "Updated %d changed libraries", updated)));
 
       // Garbage collect unused libraries
       List<LibrarySource> librarySources = Lists.newArrayList();
@@ -96,7 +174,7 @@ public class LibraryEditor {
       for (LibraryKey libraryKey : intelliJLibraryState) {
         String libraryIntellijName = libraryKey.getIntelliJLibraryName();
         if (!newLibraryKeys.contains(libraryIntellijName)) {
-          Library library = modelsProvider.getLibraryByName(libraryIntellijName);
+          Library library = existingLibraries.get(libraryIntellijName);
           if (!gcRetentionFilter.test(library)) {
             if (library != null) {
               modelsProvider.removeLibrary(library);
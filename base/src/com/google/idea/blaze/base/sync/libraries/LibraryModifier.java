@@ -15,6 +15,8 @@
  */
 package com.google.idea.blaze.base.sync.libraries;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.idea.blaze.base.io.VirtualFileSystemProvider;
 import com.google.idea.blaze.base.model.BlazeProjectData;
 import com.google.idea.blaze.base.model.LibraryFilesProvider;
@@ -30,6 +32,8 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.util.io.URLUtil;
 import java.io.File;
+import java.util.Collection;
+import java.util.List;
 
 /** Modifies {@link Library} content in {@link Library.ModifiableModel}. */
 public class LibraryModifier {
@@ -49,13 +53,22 @@ public class LibraryModifier {
 
   /** Writes the library content to its {@link Library.ModifiableModel}. */
   public void updateModifiableModel(BlazeProjectData blazeProjectData) {
+    updateModifiableModel(
+        existingUrls(libraryFilesProvider.getClassFilesUrls(blazeProjectData)),
+        existingUrls(libraryFilesProvider.getSourceFilesUrls(blazeProjectData)));
+  }
+
+  /**
+   * Replaces the library roots with the given ones, which have to exist. See {@link
+   * #existingUrls}.
+   */
+  void updateModifiableModel(List<String> classFileUrls, List<String> sourceFileUrls) {
     removeAllContents();
-    for (String classFileUrl : libraryFilesProvider.getClassFilesUrls(blazeProjectData)) {
-      addRoot(classFileUrl, OrderRootType.CLASSES);
+    for (String classFileUrl : classFileUrls) {
+      modifiableModel.addRoot(classFileUrl, OrderRootType.CLASSES);
     }
-
-    for (String sourceFileUrl : libraryFilesProvider.getSourceFilesUrls(blazeProjectData)) {
-      addRoot(sourceFileUrl, OrderRootType.SOURCES);
+    for (String sourceFileUrl : sourceFileUrls) {
+      modifiableModel.addRoot(sourceFileUrl, OrderRootType.SOURCES);
     }
   }
 
@@ -69,13 +82,24 @@ public class LibraryModifier {
     return modelsProvider.getModifiableLibraryModel(library);
   }
 
-  private void addRoot(String fileUrl, OrderRootType orderRootType) {
-    VirtualFile virtualFile = VirtualFileManager.getInstance().findFileByUrl(fileUrl);
-    if (virtualFile == null || !virtualFile.exists()) {
-      logger.warn("No local file found for " + fileUrl);
-      return;
+  /**
+   * Returns the URLs which have a local file, i.e. those which can be library roots. Looking up the
+   * files is expensive, so should be done outside of the write action where possible.
+   *
+   * <p>Duplicates are dropped, as the library keeps each root only once, and the result is compared
+   * to the library's roots to find out whether it changed.
+   */
+  static ImmutableList<String> existingUrls(Collection<String> fileUrls) {
+    ImmutableSet.Builder<String> existing = ImmutableSet.builder();
+    for (String fileUrl : fileUrls) {
+      VirtualFile virtualFile = VirtualFileManager.getInstance().findFileByUrl(fileUrl);
+      if (virtualFile == null || !virtualFile.exists()) {
+        logger.warn("No local file found for " + fileUrl);
+        continue;
+      }
+      existing.add(fileUrl);
     }
-    modifiableModel.addRoot(fileUrl, orderRootType);
+    return existing.build().asList();
   }
 
   public static String pathToUrl(File path) {
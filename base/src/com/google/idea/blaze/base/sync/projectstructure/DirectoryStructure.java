@@ -16,6 +16,7 @@
 package com.google.idea.blaze.base.sync.projectstructure;
 
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
 import com.google.common.collect.Lists;
@@ -32,9 +33,14 @@ import com.google.idea.blaze.base.settings.Blaze;
 import com.google.idea.blaze.base.sync.projectview.ImportRoots;
 import com.intellij.openapi.project.Project;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -52,14 +58,21 @@ public class DirectoryStructure {
     this.directories = directories;
   }
 
+  /**
+   * Computes the directory structure of all project root directories.
+   *
+   * @param walkAll whether to walk the whole file system, rather than only the directories which
+   *     changed since the last persisted {@link DirectoryStructureSnapshot}
+   */
   public static ListenableFuture<DirectoryStructure> getRootDirectoryStructure(
-      Project project, WorkspaceRoot workspaceRoot, ProjectViewSet projectViewSet) {
+      Project project, WorkspaceRoot workspaceRoot, ProjectViewSet projectViewSet, boolean walkAll) {
     AtomicBoolean cancelled = new AtomicBoolean(false);
     try {
       ListenableFuture<DirectoryStructure> future =
           FetchExecutor.EXECUTOR.submit(
               () ->
-                  computeRootDirectoryStructure(project, workspaceRoot, projectViewSet, cancelled));
+                  computeRootDirectoryStructure(
+                      project, workspaceRoot, projectViewSet, walkAll, cancelled));
       future.addListener(() -> cancelled.set(true), MoreExecutors.directExecutor());
       return future;
 
@@ -73,15 +86,45 @@ public class DirectoryStructure {
       Project project,
       WorkspaceRoot workspaceRoot,
       ProjectViewSet projectViewSet,
+      boolean walkAll,
       AtomicBoolean cancelled)
       throws ExecutionException, InterruptedException {
-    FileOperationProvider fileOperationProvider = FileOperationProvider.getInstance();
     ImportRoots importRoots =
         ImportRoots.builder(workspaceRoot, Blaze.getBuildSystemName(project))
             .add(projectViewSet)
             .build();
-    Collection<WorkspacePath> rootDirectories = importRoots.rootDirectories();
-    Set<WorkspacePath> excludeDirectories = importRoots.excludeDirectories();
+    if (DirectoryStructureSnapshot.enabled.getValue()) {
+      return DirectoryStructureSnapshot.getInstance(project)
+          .getDirectoryStructure(
+              workspaceRoot,
+              importRoots,
+              walkAll,
+              directories -> {
+                DirectoryStructure structure =
+                    walkDirectories(
+                        workspaceRoot, importRoots.excludeDirectories(), directories, cancelled);
+                if (cancelled.get()) {
+                  // the walk stopped early, so the structure must not be persisted
+                  throw new CancellationException();
+                }
+                return structure;
+              });
+    }
+    return walkDirectories(
+        workspaceRoot, importRoots.excludeDirectories(), importRoots.rootDirectories(), cancelled);
+  }
+
+  /**
+   * Walks the given directories, returning a directory structure with an entry for each of them
+   * which exists.
+   */
+  static DirectoryStructure walkDirectories(
+      WorkspaceRoot workspaceRoot,
+      Set<WorkspacePath> excludeDirectories,
+      Collection<WorkspacePath> rootDirectories,
+      AtomicBoolean cancelled)
+      throws ExecutionException, InterruptedException {
+    FileOperationProvider fileOperationProvider = FileOperationProvider.getInstance();
     List<ListenableFuture<PathStructurePair>> futures =
         Lists.newArrayListWithExpectedSize(rootDirectories.size());
     for (WorkspacePath rootDirectory : rootDirectories) {
@@ -103,6 +146,47 @@ public class DirectoryStructure {
     return new DirectoryStructure(result.build());
   }
 
+  /** Adds the workspace relative paths of all directories in the structure to {@code paths}. */
+  static void collectPaths(DirectoryStructure structure, Collection<String> paths) {
+    for (Map.Entry<WorkspacePath, DirectoryStructure> entry : structure.directories.entrySet()) {
+      paths.add(entry.getKey().relativePath());
+      collectPaths(entry.getValue(), paths);
+    }
+  }
+
+  /**
+   * Builds the directory structure of the given root directories from the workspace relative paths
+   * of all directories below them, without touching the file system.
+   */
+  static DirectoryStructure fromPaths(
+      Collection<WorkspacePath> rootDirectories, Collection<String> paths) {
+    Map<String, List<String>> children = new HashMap<>();
+    for (String path : paths) {
+      if (path.isEmpty()) {
+        continue;
+      }
+      int separator = path.lastIndexOf('/');
+      String parent = separator == -1 ? "" : path.substring(0, separator);
+      children.computeIfAbsent(parent, p -> new ArrayList<>()).add(path);
+    }
+    Set<String> existing = new HashSet<>(paths);
+    ImmutableMap.Builder<WorkspacePath, DirectoryStructure> result = ImmutableMap.builder();
+    for (WorkspacePath rootDirectory : rootDirectories) {
+      if (existing.contains(rootDirectory.relativePath())) {
+        result.put(rootDirectory, fromPaths(rootDirectory.relativePath(), children));
+      }
+    }
+    return new DirectoryStructure(result.build());
+  }
+
+  private static DirectoryStructure fromPaths(String path, Map<String, List<String>> children) {
+    ImmutableMap.Builder<WorkspacePath, DirectoryStructure> result = ImmutableMap.builder();
+    for (String child : children.getOrDefault(path, ImmutableList.of())) {
+      result.put(new WorkspacePath(child), fromPaths(child, children));
+    }
+    return new DirectoryStructure(result.build());
+  }
+
   private static ListenableFuture<PathStructurePair> walkDirectoryStructure(
       WorkspaceRoot workspaceRoot,
       Set<WorkspacePath> excludeDirectories,
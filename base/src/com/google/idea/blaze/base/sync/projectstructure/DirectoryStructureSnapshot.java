@@ -0,0 +1,355 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.projectstructure;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.settings.BlazeImportSettings;
+import com.google.idea.blaze.base.settings.BlazeImportSettingsManager;
+import com.google.idea.blaze.base.sync.data.BlazeDataStorage;
+import com.google.idea.blaze.base.sync.projectview.ImportRoots;
+import com.google.idea.common.experiments.BoolExperiment;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * The directories below the project root directories as of the last sync, persisted in the project
+ * data directory.
+ *
+ * <p>Directories which are created, deleted, moved or renamed between syncs are recorded from VFS
+ * events, and only those are walked again by the next sync. The snapshot itself is only held in
+ * memory while the directory structure is computed.
+ */
+public class DirectoryStructureSnapshot implements Disposable {
+
+  static final BoolExperiment enabled =
+      new BoolExperiment("blaze.sync.directory.structure.snapshot", true);
+
+  private static final Logger logger = Logger.getInstance(DirectoryStructureSnapshot.class);
+
+  private static final String SNAPSHOT_FILE = "directoryStructure";
+
+  // bump whenever the file format changes
+  private static final String VERSION = "1";
+
+  /**
+   * Walks the given directories of the file system. Throws rather than returning partial results.
+   */
+  interface Walker {
+    DirectoryStructure walk(Collection<WorkspacePath> directories)
+        throws ExecutionException, InterruptedException;
+  }
+
+  public static DirectoryStructureSnapshot getInstance(Project project) {
+    return project.getService(DirectoryStructureSnapshot.class);
+  }
+
+  private final Supplier<File> snapshotFile;
+
+  // absolute paths of directories which changed since the snapshot was taken
+  private final Set<String> changedPaths = ConcurrentHashMap.newKeySet();
+
+  public DirectoryStructureSnapshot(Project project) {
+    this(() -> getSnapshotFile(project));
+  }
+
+  @VisibleForTesting
+  DirectoryStructureSnapshot(Supplier<File> snapshotFile) {
+    this.snapshotFile = snapshotFile;
+  }
+
+  /**
+   * Returns the directory structure of the root directories, walking only the directories which
+   * changed since the last snapshot, and persists the updated snapshot.
+   */
+  DirectoryStructure getDirectoryStructure(
+      WorkspaceRoot workspaceRoot, ImportRoots importRoots, boolean walkAll, Walker walker)
+      throws ExecutionException, InterruptedException {
+    // changes recorded from now on are applied by the next sync
+    List<String> changed = new ArrayList<>(changedPaths);
+    changedPaths.removeAll(changed);
+    try {
+      return getDirectoryStructure(workspaceRoot, importRoots, walkAll, walker, changed);
+    } catch (Throwable t) {
+      // nothing was persisted, so the next sync has to walk the changed directories again
+      changedPaths.addAll(changed);
+      throw t;
+    }
+  }
+
+  private DirectoryStructure getDirectoryStructure(
+      WorkspaceRoot workspaceRoot,
+      ImportRoots importRoots,
+      boolean walkAll,
+      Walker walker,
+      List<String> changed)
+      throws ExecutionException, InterruptedException {
+    String rootsKey = rootsKey(importRoots);
+    NavigableSet<String> paths = walkAll ? null : load(rootsKey);
+    if (paths == null) {
+      paths = new TreeSet<>();
+      DirectoryStructure.collectPaths(walker.walk(importRoots.rootDirectories()), paths);
+      store(rootsKey, paths);
+      return DirectoryStructure.fromPaths(importRoots.rootDirectories(), paths);
+    }
+
+    List<WorkspacePath> toWalk = new ArrayList<>();
+    for (WorkspacePath path : topmost(workspaceRoot, changed)) {
+      removeSubtree(paths, path.relativePath());
+      if (isReachable(paths, importRoots, path)) {
+        toWalk.add(path);
+      }
+    }
+    if (!changed.isEmpty()) {
+      DirectoryStructure.collectPaths(walker.walk(toWalk), paths);
+      store(rootsKey, paths);
+    }
+    return DirectoryStructure.fromPaths(importRoots.rootDirectories(), paths);
+  }
+
+  /** Returns the changed directories in the workspace, without those below another one. */
+  private static List<WorkspacePath> topmost(WorkspaceRoot workspaceRoot, List<String> changed) {
+    NavigableSet<String> sorted = new TreeSet<>();
+    for (String path : changed) {
+      WorkspacePath workspacePath = workspaceRoot.workspacePathForSafe(new File(path));
+      if (workspacePath != null) {
+        sorted.add(workspacePath.relativePath());
+      }
+    }
+    List<WorkspacePath> result = new ArrayList<>();
+    String previous = null;
+    for (String path : sorted) {
+      if (previous != null && isUnder(path, previous)) {
+        continue;
+      }
+      result.add(new WorkspacePath(path));
+      previous = path;
+    }
+    return result;
+  }
+
+  private static boolean isUnder(String path, String ancestor) {
+    return ancestor.isEmpty() || path.equals(ancestor) || path.startsWith(ancestor + "/");
+  }
+
+  private static void removeSubtree(NavigableSet<String> paths, String path) {
+    if (path.isEmpty()) {
+      paths.clear();
+      return;
+    }
+    paths.remove(path);
+    // '0' is the character right after '/'
+    paths.subSet(path + "/", true, path + "0", false).clear();
+  }
+
+  /** Whether the directory would have been reached by walking the root directories. */
+  private static boolean isReachable(
+      Set<String> paths, ImportRoots importRoots, WorkspacePath path) {
+    if (importRoots.rootDirectories().contains(path)) {
+      return true;
+    }
+    if (importRoots.excludeDirectories().contains(path)) {
+      return false;
+    }
+    WorkspacePath parent = path.getParent();
+    return parent != null && paths.contains(parent.relativePath());
+  }
+
+  private static String rootsKey(ImportRoots importRoots) {
+    List<String> roots = new ArrayList<>();
+    importRoots.rootDirectories().forEach(root -> roots.add(root.relativePath()));
+    List<String> excludes = new ArrayList<>();
+    importRoots.excludeDirectories().forEach(exclude -> excludes.add(exclude.relativePath()));
+    roots.sort(null);
+    excludes.sort(null);
+    return String.join(",", roots) + "\t" + String.join(",", excludes);
+  }
+
+  /** Records that a directory changed since the last sync. */
+  void directoryChanged(String path) {
+    changedPaths.add(path);
+  }
+
+  @Nullable
+  private static File getSnapshotFile(Project project) {
+    BlazeImportSettings importSettings =
+        BlazeImportSettingsManager.getInstance(project).getImportSettings();
+    return importSettings != null
+        ? new File(BlazeDataStorage.getProjectDataDir(importSettings), SNAPSHOT_FILE)
+        : null;
+  }
+
+  /** Returns the persisted directories, or null if there is no snapshot for these roots. */
+  @Nullable
+  private NavigableSet<String> load(String rootsKey) {
+    File file = snapshotFile.get();
+    if (file == null) {
+      return null;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), UTF_8)) {
+      if (!VERSION.equals(reader.readLine()) || !rootsKey.equals(reader.readLine())) {
+        return null;
+      }
+      NavigableSet<String> paths = new TreeSet<>();
+      String line;
+      while ((line = reader.readLine()) != null) {
+        paths.add(line);
+      }
+      return paths;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      logger.warn("Failed to read directory structure snapshot", e);
+      return null;
+    }
+  }
+
+  private void store(String rootsKey, Collection<String> paths) {
+    File snapshot = snapshotFile.get();
+    if (snapshot == null) {
+      return;
+    }
+    Path file = snapshot.toPath();
+    try {
+      Files.createDirectories(file.getParent());
+      Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, UTF_8)) {
+        writer.write(VERSION);
+        writer.newLine();
+        writer.write(rootsKey);
+        writer.newLine();
+        for (String path : paths) {
+          writer.write(path);
+          writer.newLine();
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Failed to write directory structure snapshot", e);
+    }
+  }
+
+  @Override
+  public void dispose() {
+    if (changedPaths.isEmpty()) {
+      return;
+    }
+    // the changes are not persisted, so the next sync has to walk everything again
+    File file = snapshotFile.get();
+    if (file != null) {
+      try {
+        Files.deleteIfExists(file.toPath());
+      } catch (IOException e) {
+        logger.warn("Failed to delete directory structure snapshot", e);
+      }
+    }
+  }
+
+  /** Records directories in the workspace which are created, deleted, moved or renamed. */
+  static class ChangeListener implements BulkFileListener {
+    private final Project project;
+
+    ChangeListener(Project project) {
+      this.project = project;
+    }
+
+    @Override
+    public void after(List<? extends VFileEvent> events) {
+      if (!enabled.getValue()) {
+        return;
+      }
+      DirectoryStructureSnapshot snapshot = null;
+      String workspaceDir = null;
+      for (VFileEvent event : events) {
+        if (event instanceof VFileContentChangeEvent || !isDirectoryEvent(event)) {
+          continue;
+        }
+        if (snapshot == null) {
+          WorkspaceRoot workspaceRoot = WorkspaceRoot.fromProjectSafe(project);
+          if (workspaceRoot == null) {
+            return;
+          }
+          workspaceDir = FileUtil.toSystemIndependentName(workspaceRoot.directory().getPath());
+          snapshot = getInstance(project);
+        }
+        for (String path : changedPaths(event)) {
+          // events are application wide, so ignore other projects and unrelated directories
+          if (FileUtil.isAncestor(workspaceDir, path, /* strict= */ false)) {
+            snapshot.directoryChanged(path);
+          }
+        }
+      }
+    }
+
+    private static boolean isDirectoryEvent(VFileEvent event) {
+      if (event instanceof VFileCreateEvent) {
+        return ((VFileCreateEvent) event).isDirectory();
+      }
+      if (event instanceof VFilePropertyChangeEvent
+          && !((VFilePropertyChangeEvent) event).isRename()) {
+        return false;
+      }
+      VirtualFile file = event.getFile();
+      return file != null && file.isDirectory();
+    }
+
+    private static ImmutableList<String> changedPaths(VFileEvent event) {
+      if (event instanceof VFileMoveEvent) {
+        return ImmutableList.of(event.getPath(), ((VFileMoveEvent) event).getOldPath());
+      }
+      if (event instanceof VFilePropertyChangeEvent) {
+        return ImmutableList.of(event.getPath(), ((VFilePropertyChangeEvent) event).getOldPath());
+      }
+      if (event instanceof VFileCopyEvent) {
+        VFileCopyEvent copy = (VFileCopyEvent) event;
+        return ImmutableList.of(copy.getNewParent().getPath() + "/" + copy.getNewChildName());
+      }
+      return ImmutableList.of(event.getPath());
+    }
+  }
+}
@@ -45,13 +45,14 @@ import com.intellij.openapi.util.io.FileUtil;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
-import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -326,6 +327,7 @@ public final class ImportRoots {
     private final ImmutableSet<WorkspacePath> rootDirectories;
     private final ImmutableSet<WorkspacePath> excludeDirectories;
     private final ImmutableSet<WorkspacePath> excludePathsForBazelQuery;
+    private final DirectoryTrie directoryTrie;
 
     @VisibleForTesting
     ProjectDirectoriesHelper(
@@ -335,27 +337,74 @@ public final class ImportRoots {
       this.rootDirectories = ImmutableSet.copyOf(rootDirectories);
       this.excludeDirectories = ImmutableSet.copyOf(excludeDirectories);
       this.excludePathsForBazelQuery = ImmutableSet.copyOf(excludePathsForBazelQuery);
+      this.directoryTrie = DirectoryTrie.create(this.rootDirectories, this.excludeDirectories);
     }
 
     boolean containsWorkspacePath(WorkspacePath workspacePath) {
-      boolean included = false;
-      boolean excluded = false;
-      for (WorkspacePath rootDirectory : rootDirectories) {
-        included = included || isSubdirectory(rootDirectory, workspacePath);
-      }
-      for (WorkspacePath excludeDirectory : excludeDirectories) {
-        excluded = excluded || isSubdirectory(excludeDirectory, workspacePath);
+      return directoryTrie.contains(workspacePath.relativePath());
+    }
+  }
+
+  /**
+   * The root and exclude directories, compiled into a trie of path segments. A path is contained
+   * if one of its ancestors (or itself) is a root directory and none is an exclude directory, which
+   * takes a single walk over the segments of the path.
+   */
+  private static final class DirectoryTrie {
+    private final Map<String, DirectoryTrie> children = new HashMap<>();
+    private boolean root;
+    private boolean excluded;
+
+    static DirectoryTrie create(
+        Collection<WorkspacePath> rootDirectories, Collection<WorkspacePath> excludeDirectories) {
+      DirectoryTrie trie = new DirectoryTrie();
+      rootDirectories.forEach(directory -> trie.node(directory.relativePath()).root = true);
+      excludeDirectories.forEach(directory -> trie.node(directory.relativePath()).excluded = true);
+      return trie;
+    }
+
+    private DirectoryTrie node(String path) {
+      DirectoryTrie node = this;
+      int start = 0;
+      while (start < path.length()) {
+        int end = segmentEnd(path, start);
+        if (end > start) {
+          node = node.children.computeIfAbsent(path.substring(start, end), s -> new DirectoryTrie());
+        }
+        start = end + 1;
       }
-      return included && !excluded;
+      return node;
     }
 
-    private static boolean isSubdirectory(WorkspacePath ancestor, WorkspacePath descendant) {
-      if (ancestor.isWorkspaceRoot()) {
-        return true;
+    boolean contains(String path) {
+      DirectoryTrie node = this;
+      boolean included = false;
+      int start = 0;
+      while (true) {
+        if (node.excluded) {
+          return false;
+        }
+        included |= node.root;
+        // skip empty segments, as java.nio.file.Path does
+        while (start < path.length() && path.charAt(start) == '/') {
+          start++;
+        }
+        if (start >= path.length()) {
+          return included;
+        }
+        int end = segmentEnd(path, start);
+        node = node.children.get(path.substring(start, end));
+        if (node == null) {
+          // no deeper root or exclude directory applies
+          return included;
+        }
+        start = end + 1;
       }
-      Path ancestorPath = FileSystems.getDefault().getPath(ancestor.relativePath());
-      Path descendantPath = FileSystems.getDefault().getPath(descendant.relativePath());
-      return descendantPath.startsWith(ancestorPath);
+    }
+
+    private static int segmentEnd(String path, int start) {
+      int end = path.indexOf('/', start);
+      return end == -1 ? path.length() : end;
     }
   }
 }
@@ -144,7 +144,7 @@ public class BlazeBuildTargetSharder {
         }
 
         return new ShardedTargetsResult(
-            shardSingleTargets(expandedTargets.singleTargets, getTargetShardSize(viewSet)),
+            shardSingleTargets(project, expandedTargets.singleTargets, getTargetShardSize(viewSet)),
             expandedTargets.buildResult);
       default:
         throw new IllegalStateException("Unhandled sharding approach: " + approach);
@@ -225,6 +225,20 @@ public class BlazeBuildTargetSharder {
     return BuildBatchingService.batchTargets(canonicalizeSingleTargets(targets), shardSize);
   }
 
+  /**
+   * Shards a list of individual blaze targets, balancing the shards by the cost measured in
+   * previous syncs where available.
+   */
+  private static ShardedTargetList shardSingleTargets(
+      Project project, List<TargetExpression> targets, int shardSize) {
+    ImmutableSet<Label> singleTargets = canonicalizeSingleTargets(targets);
+    ShardedTargetList costBased =
+        CostBasedTargetSharder.shardTargets(project, singleTargets, shardSize);
+    return costBased != null
+        ? costBased
+        : BuildBatchingService.batchTargets(singleTargets, shardSize);
+  }
+
   /**
    * Given an ordered list of individual blaze targets (with no wildcard expressions other than for
    * excluded target patterns), removes duplicates and excluded targets, returning an unordered set.
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.sharding;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.logging.utils.ShardStats.ShardingApproach;
+import com.google.idea.blaze.base.model.primitives.Label;
+import com.google.idea.blaze.base.sync.sharding.ShardCostHistory.Cost;
+import com.google.idea.common.experiments.BoolExperiment;
+import com.intellij.openapi.project.Project;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * Splits targets into shards of similar predicted cost, based on the {@link ShardCostHistory} of
+ * previous syncs.
+ *
+ * <p>Splitting by target count alone tends to put all expensive packages into the same shard,
+ * which then dominates the build time and is the first to run out of memory. Instead, packages
+ * are assigned greedily, most expensive first, to the cheapest shard with room left. The cost of a
+ * package combines its share of the measured build time and of the output size. The BEP reports
+ * no memory use, so the output size is the only proxy for the memory needed to build a package.
+ * The number of shards and the maximum number of targets per shard are the same as for {@link
+ * LexicographicTargetSharder}.
+ */
+final class CostBasedTargetSharder {
+
+  // off by default, since it takes precedence over the BuildBatchingService extensions, which
+  // aren't given a project to read the history from
+  static final BoolExperiment enabled =
+      new BoolExperiment("blaze.sync.cost.based.sharding", false);
+
+  private CostBasedTargetSharder() {}
+
+  /**
+   * Returns the sharded targets, or null if there is no history for any of them or they fit into
+   * a single shard anyway.
+   */
+  @Nullable
+  static ShardedTargetList shardTargets(Project project, Set<Label> targets, int shardSize) {
+    if (!enabled.getValue()) {
+      return null;
+    }
+    ShardCostHistory history = ShardCostHistory.getInstance(project);
+    ImmutableList<ImmutableList<Label>> batches =
+        calculateTargetBatches(targets, shardSize, history::getCost);
+    return batches != null
+        ? new ShardedTargetList(batches, ShardingApproach.COST_BASED_TARGET_SHARDER, shardSize)
+        : null;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  static ImmutableList<ImmutableList<Label>> calculateTargetBatches(
+      Set<Label> targets, int shardSize, Function<Label, Cost> history) {
+    int shardCount = (targets.size() + shardSize - 1) / shardSize;
+    if (shardCount <= 1) {
+      return null;
+    }
+
+    Map<String, List<Label>> packages = new TreeMap<>();
+    for (Label label : targets) {
+      packages
+          .computeIfAbsent(ShardCostHistory.packageKey(label), p -> new ArrayList<>())
+          .add(label);
+    }
+
+    // packages without history are assumed to be as expensive as the average target
+    List<Package> measured = new ArrayList<>();
+    List<Package> unmeasured = new ArrayList<>();
+    double knownTargets = 0;
+    double knownMillis = 0;
+    double knownBytes = 0;
+    for (List<Label> labels : packages.values()) {
+      labels.sort(Comparator.comparing(Label::toString));
+      Cost cost = history.apply(labels.get(0));
+      if (cost == null) {
+        unmeasured.add(new Package(labels, 0, 0));
+      } else {
+        measured.add(new Package(labels, cost.millisPerTarget, cost.bytesPerTarget));
+        knownTargets += labels.size();
+        knownMillis += cost.millisPerTarget * labels.size();
+        knownBytes += cost.bytesPerTarget * labels.size();
+      }
+    }
+    if (measured.isEmpty()) {
+      return null;
+    }
+    for (Package pkg : unmeasured) {
+      measured.add(
+          new Package(pkg.labels, knownMillis / knownTargets, knownBytes / knownTargets));
+    }
+    double totalMillis = measured.stream().mapToDouble(p -> p.millis).sum();
+    double totalBytes = measured.stream().mapToDouble(p -> p.bytes).sum();
+    for (Package pkg : measured) {
+      pkg.cost =
+          (totalMillis > 0 ? pkg.millis / totalMillis : 0)
+              + (totalBytes > 0 ? pkg.bytes / totalBytes : 0);
+    }
+    measured.sort(Comparator.comparingDouble((Package p) -> -p.cost));
+
+    List<Shard> shards = new ArrayList<>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new Shard());
+    }
+    for (Package pkg : measured) {
+      double costPerTarget = pkg.cost / pkg.labels.size();
+      List<Label> remaining = pkg.labels;
+      while (!remaining.isEmpty()) {
+        // there is always room left, since shardCount * shardSize >= number of targets
+        Shard shard =
+            shards.stream()
+                .filter(s -> s.labels.size() < shardSize)
+                .min(Comparator.comparingDouble(s -> s.cost))
+                .get();
+        int count = Math.min(shardSize - shard.labels.size(), remaining.size());
+        shard.labels.addAll(remaining.subList(0, count));
+        shard.cost += costPerTarget * count;
+        remaining = remaining.subList(count, remaining.size());
+      }
+    }
+
+    // the most expensive shards first, so they start early when building in parallel
+    return shards.stream()
+        .filter(s -> !s.labels.isEmpty())
+        .sorted(Comparator.comparingDouble((Shard s) -> -s.cost))
+        .map(
+            s ->
+                s.labels.stream()
+                    .sorted(Comparator.comparing(Label::toString))
+                    .collect(toImmutableList()))
+        .collect(toImmutableList());
+  }
+
+  private static final class Package {
+    final List<Label> labels;
+    final double millis;
+    final double bytes;
+    double cost;
+
+    Package(List<Label> labels, double millisPerTarget, double bytesPerTarget) {
+      this.labels = labels;
+      this.millis = millisPerTarget * labels.size();
+      this.bytes = bytesPerTarget * labels.size();
+    }
+  }
+
+  private static final class Shard {
+    final List<Label> labels = new ArrayList<>();
+    double cost;
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.sharding;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.idea.blaze.base.command.buildresult.BuildResult;
+import com.google.idea.blaze.base.model.primitives.Label;
+import com.google.idea.blaze.base.model.primitives.TargetExpression;
+import com.google.idea.blaze.base.settings.BlazeImportSettings;
+import com.google.idea.blaze.base.settings.BlazeImportSettingsManager;
+import com.google.idea.blaze.base.sync.aspects.BlazeBuildOutputs;
+import com.google.idea.blaze.base.sync.data.BlazeDataStorage;
+import com.google.idea.blaze.common.artifact.OutputArtifact;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Per package cost of the sync builds, measured in previous syncs and stored in the project data
+ * directory.
+ *
+ * <p>The BEP of a shard does not attribute time to individual targets, so the wall time of a shard
+ * is split between its packages in proportion to the size of their aspect outputs, which tracks
+ * the analysis and aspect work much better than the number of targets does. Each sync blends its
+ * measurements with the previous ones, so a single slow build does not dominate the history.
+ * Packages which were not built for a while are dropped, and only the most recently measured ones
+ * are kept, so the history doesn't grow without bound.
+ */
+public class ShardCostHistory {
+
+  private static final Logger logger = Logger.getInstance(ShardCostHistory.class);
+
+  private static final String HISTORY_FILE = "shardCostHistory";
+
+  // bump whenever the file format changes
+  private static final String VERSION = "2";
+
+  @VisibleForTesting static final int MAX_PACKAGES = 50_000;
+  @VisibleForTesting static final Duration MAX_AGE = Duration.ofDays(30);
+
+  /** Measured cost of a single target of a package. */
+  public static final class Cost {
+    final double millisPerTarget;
+    final double bytesPerTarget;
+    // when the package was last measured, in milliseconds since the epoch
+    final long measuredAt;
+
+    @VisibleForTesting
+    Cost(double millisPerTarget, double bytesPerTarget) {
+      this(millisPerTarget, bytesPerTarget, System.currentTimeMillis());
+    }
+
+    @VisibleForTesting
+    Cost(double millisPerTarget, double bytesPerTarget, long measuredAt) {
+      this.millisPerTarget = millisPerTarget;
+      this.bytesPerTarget = bytesPerTarget;
+      this.measuredAt = measuredAt;
+    }
+
+    private Cost blend(Cost measured) {
+      return new Cost(
+          (millisPerTarget + measured.millisPerTarget) / 2,
+          (bytesPerTarget + measured.bytesPerTarget) / 2,
+          Math.max(measuredAt, measured.measuredAt));
+    }
+  }
+
+  public static ShardCostHistory getInstance(Project project) {
+    return project.getService(ShardCostHistory.class);
+  }
+
+  private final Project project;
+
+  // lazily loaded from disk, guarded by this
+  @Nullable private Map<String, Cost> costs;
+
+  public ShardCostHistory(Project project) {
+    this.project = project;
+  }
+
+  /** Returns the measured cost of a target in {@code label}'s package, or null if unknown. */
+  @Nullable
+  public synchronized Cost getCost(Label label) {
+    return getCosts().get(packageKey(label));
+  }
+
+  /** Records the cost of a build shard and writes the updated history to disk. */
+  public void record(
+      List<? extends TargetExpression> targets, long durationMillis, BlazeBuildOutputs outputs) {
+    if (outputs.buildResult().status == BuildResult.Status.FATAL_ERROR) {
+      // the shard did not build all of its targets, so its cost is not representative
+      return;
+    }
+    Map<String, Long> bytes = new HashMap<>();
+    outputs
+        .perTargetArtifacts()
+        .asMap()
+        .forEach(
+            (target, artifacts) -> {
+              Label label = Label.createIfValid(target);
+              if (label != null) {
+                long size = artifacts.stream().mapToLong(OutputArtifact::getLength).sum();
+                bytes.merge(packageKey(label), size, Long::sum);
+              }
+            });
+    Map<String, Cost> measured = measure(targets, durationMillis, bytes);
+    if (measured.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      Map<String, Cost> costs = getCosts();
+      measured.forEach((pkg, cost) -> costs.merge(pkg, cost, Cost::blend));
+      evict(costs, System.currentTimeMillis());
+      store(costs);
+    }
+  }
+
+  /**
+   * Splits the duration of a shard between its packages, in proportion to their output size or,
+   * if there are no outputs at all, to their number of targets.
+   */
+  @VisibleForTesting
+  static Map<String, Cost> measure(
+      List<? extends TargetExpression> targets, long durationMillis, Map<String, Long> bytes) {
+    Map<String, Integer> targetCounts = new HashMap<>();
+    for (TargetExpression target : targets) {
+      if (target instanceof Label && !target.isExcluded()) {
+        targetCounts.merge(packageKey((Label) target), 1, Integer::sum);
+      }
+    }
+    long totalBytes = 0;
+    int totalTargets = 0;
+    for (Map.Entry<String, Integer> entry : targetCounts.entrySet()) {
+      totalBytes += bytes.getOrDefault(entry.getKey(), 0L);
+      totalTargets += entry.getValue();
+    }
+
+    Map<String, Cost> result = new HashMap<>();
+    for (Map.Entry<String, Integer> entry : targetCounts.entrySet()) {
+      long packageBytes = bytes.getOrDefault(entry.getKey(), 0L);
+      double share =
+          totalBytes > 0
+              ? (double) packageBytes / totalBytes
+              : (double) entry.getValue() / totalTargets;
+      int count = entry.getValue();
+      result.put(
+          entry.getKey(), new Cost(durationMillis * share / count, (double) packageBytes / count));
+    }
+    return result;
+  }
+
+  /**
+   * Drops the packages not measured within {@link #MAX_AGE}, then all but the {@link
+   * #MAX_PACKAGES} most recently measured ones.
+   */
+  @VisibleForTesting
+  static void evict(Map<String, Cost> costs, long now) {
+    long oldest = now - MAX_AGE.toMillis();
+    costs.values().removeIf(cost -> cost.measuredAt < oldest);
+    if (costs.size() <= MAX_PACKAGES) {
+      return;
+    }
+    List<Map.Entry<String, Cost>> entries = new ArrayList<>(costs.entrySet());
+    entries.sort(Comparator.comparingLong((Map.Entry<String, Cost> e) -> -e.getValue().measuredAt));
+    for (Map.Entry<String, Cost> entry : entries.subList(MAX_PACKAGES, entries.size())) {
+      costs.remove(entry.getKey());
+    }
+  }
+
+  /** The label up to the target name, e.g. {@code //foo/bar} or {@code @repo//foo}. */
+  static String packageKey(Label label) {
+    String string = label.toString();
+    return string.substring(0, string.lastIndexOf(':'));
+  }
+
+  private Map<String, Cost> getCosts() {
+    if (costs == null) {
+      costs = load();
+    }
+    return costs;
+  }
+
+  @Nullable
+  private File getHistoryFile() {
+    BlazeImportSettings importSettings =
+        BlazeImportSettingsManager.getInstance(project).getImportSettings();
+    return importSettings != null
+        ? new File(BlazeDataStorage.getProjectDataDir(importSettings), HISTORY_FILE)
+        : null;
+  }
+
+  private Map<String, Cost> load() {
+    Map<String, Cost> result = new HashMap<>();
+    File file = getHistoryFile();
+    if (file == null) {
+      return result;
+    }
+    List<String> lines;
+    try {
+      lines = Files.readAllLines(file.toPath(), UTF_8);
+    } catch (NoSuchFileException e) {
+      return result;
+    } catch (IOException e) {
+      logger.warn("Failed to read shard cost history", e);
+      return result;
+    }
+    if (lines.isEmpty() || !lines.get(0).equals(VERSION)) {
+      return result;
+    }
+    for (String line : lines.subList(1, lines.size())) {
+      String[] parts = line.split("\t");
+      if (parts.length != 4) {
+        continue;
+      }
+      try {
+        result.put(
+            parts[0],
+            new Cost(
+                Double.parseDouble(parts[1]),
+                Double.parseDouble(parts[2]),
+                Long.parseLong(parts[3])));
+      } catch (NumberFormatException e) {
+        // skip the corrupt entry, it is measured again by the next sync
+      }
+    }
+    return result;
+  }
+
+  private void store(Map<String, Cost> costs) {
+    File historyFile = getHistoryFile();
+    if (historyFile == null) {
+      return;
+    }
+    List<String> lines = new ArrayList<>(costs.size() + 1);
+    lines.add(VERSION);
+    costs.forEach(
+        (pkg, cost) ->
+            lines.add(
+                String.join(
+                    "\t",
+                    pkg,
+                    String.valueOf(cost.millisPerTarget),
+                    String.valueOf(cost.bytesPerTarget),
+                    String.valueOf(cost.measuredAt))));
+    Path file = historyFile.toPath();
+    try {
+      Files.createDirectories(file.getParent());
+      Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      Files.write(tmp, lines, UTF_8);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Failed to write shard cost history", e);
+    }
+  }
+}
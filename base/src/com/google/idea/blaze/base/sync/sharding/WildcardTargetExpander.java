@@ -18,9 +18,15 @@ package com.google.idea.blaze.base.sync.sharding;
 import static com.google.common.base.Verify.verify;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.idea.blaze.base.async.FutureUtil;
+import com.google.idea.blaze.base.async.FutureUtil.FutureResult;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
 import com.google.idea.blaze.base.bazel.BuildSystem.BuildInvoker;
 import com.google.idea.blaze.base.command.BlazeCommand;
 import com.google.idea.blaze.base.command.BlazeCommandName;
@@ -47,17 +53,23 @@ import com.google.idea.blaze.base.sync.projectview.LanguageSupport;
 import com.google.idea.blaze.base.sync.workspace.WorkspacePathResolver;
 import com.google.idea.blaze.exception.BuildException;
 import com.google.idea.common.experiments.BoolExperiment;
+import com.google.idea.common.experiments.IntExperiment;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -65,9 +77,18 @@ import javax.annotation.Nullable;
 /** Expands wildcard target patterns into individual blaze targets. */
 public class WildcardTargetExpander {
 
+  private static final Logger logger = Logger.getInstance(WildcardTargetExpander.class);
+
   private static final BoolExperiment filterByRuleType =
       new BoolExperiment("blaze.build.filter.by.rule.type", true);
 
+  /**
+   * The number of wildcard expansion queries run at the same time. A blaze server runs one command
+   * at a time, so more than one only helps build systems which run queries elsewhere.
+   */
+  private static final IntExperiment queryParallelism =
+      new IntExperiment("blaze.wildcard.expansion.query.parallelism", 1);
+
   static class ExpandedTargetsResult {
     final List<TargetExpression> singleTargets;
     final BuildResult buildResult;
@@ -160,16 +181,126 @@ public class WildcardTargetExpander {
             allTargets, BlazeBuildTargetSharder.PACKAGE_SHARD_SIZE);
     Predicate<String> handledRulesPredicate = handledRuleTypes(projectViewSet);
     boolean excludeManualTargets = excludeManualTargets(project, projectViewSet, context);
+
+    return queryShards(
+        context,
+        shards,
+        queryParallelism.getValue(),
+        shard -> queryIndividualTargets(context, buildBinary, shard, excludeManualTargets),
+        handledRulesPredicate);
+  }
+
+  /** Runs the query of a single shard. */
+  @VisibleForTesting
+  interface ShardQuery {
+    /** Returns the label_kind output of the query, or null if there is nothing to query. */
+    @Nullable
+    InputStream run(List<TargetExpression> shard) throws BuildException;
+  }
+
+  /**
+   * Runs the queries of all shards, at most {@code parallelism} at a time, and merges their
+   * results in shard order. The output of a query is parsed off the query executor, so that it
+   * overlaps with the queries of the following shards.
+   */
+  @VisibleForTesting
+  static ExpandedTargetsResult queryShards(
+      BlazeContext context,
+      List<? extends List<TargetExpression>> shards,
+      int parallelism,
+      ShardQuery query,
+      Predicate<String> handledRulesPredicate) {
+    // new executor for each expansion, so we get an up-to-date experiment value. This is fine,
+    // because it's just a view of the single application pool executor. Doesn't need to be shutdown
+    // for the same reason
+    ListeningExecutorService queryExecutor =
+        MoreExecutors.listeningDecorator(
+            AppExecutorUtil.createBoundedApplicationPoolExecutor(
+                "WildcardTargetExpander", Math.max(1, parallelism)));
+    AtomicInteger started = new AtomicInteger();
+    AtomicBoolean failed = new AtomicBoolean();
+    // query outputs not parsed yet; whoever removes an output from here closes it
+    Set<InputStream> unparsedOutputs = ConcurrentHashMap.newKeySet();
+    AtomicBoolean finished = new AtomicBoolean();
+    List<ListenableFuture<ExpandedTargetsResult>> futures = new ArrayList<>();
+    for (List<TargetExpression> shard : shards) {
+      // a null output means the shard was skipped or its query failed
+      ListenableFuture<InputStream> queryOutput =
+          queryExecutor.submit(
+              () -> {
+                if (failed.get()) {
+                  return null;
+                }
+                context.output(
+                    new StatusOutput(
+                        String.format(
+                            "Expanding wildcard target patterns, shard %s of %s",
+                            started.incrementAndGet(), shards.size())));
+                try {
+                  InputStream output = query.run(shard);
+                  if (output == null) {
+                    output = InputStream.nullInputStream();
+                  }
+                  unparsedOutputs.add(output);
+                  // the expansion may have been cancelled while the query ran
+                  if (finished.get()) {
+                    closeUnparsed(unparsedOutputs, output);
+                    return null;
+                  }
+                  return output;
+                } catch (BuildException e) {
+                  logger.warn("Error running blaze query to expand target patterns", e);
+                  failed.set(true);
+                  return null;
+                }
+              });
+      futures.add(
+          Futures.transform(
+              queryOutput,
+              output -> {
+                if (output == null) {
+                  return new ExpandedTargetsResult(ImmutableList.of(), BuildResult.FATAL_ERROR);
+                }
+                if (!unparsedOutputs.remove(output)) {
+                  // already closed, since the expansion was cancelled
+                  return new ExpandedTargetsResult(ImmutableList.of(), BuildResult.FATAL_ERROR);
+                }
+                // no need to parse the output if another shard failed already
+                if (failed.get()) {
+                  closeQuietly(output);
+                  return new ExpandedTargetsResult(ImmutableList.of(), BuildResult.FATAL_ERROR);
+                }
+                ExpandedTargetsResult result =
+                    parseQueryOutput(output, handledRulesPredicate, shard);
+                if (result.buildResult.status == Status.FATAL_ERROR) {
+                  failed.set(true);
+                }
+                return result;
+              },
+              BlazeExecutor.getInstance().getExecutor()));
+    }
+
+    FutureResult<List<ExpandedTargetsResult>> results;
+    try {
+      results =
+          FutureUtil.waitForFuture(context, Futures.allAsList(futures))
+              .onError("Expanding wildcard target patterns failed")
+              .run();
+      if (!results.success()) {
+        return new ExpandedTargetsResult(ImmutableList.of(), BuildResult.FATAL_ERROR);
+      }
+    } finally {
+      // close the outputs of cancelled shards, including those of queries still running
+      futures.forEach(f -> f.cancel(true));
+      finished.set(true);
+      for (InputStream output : ImmutableList.copyOf(unparsedOutputs)) {
+        closeUnparsed(unparsedOutputs, output);
+      }
+    }
+
+    // merge in shard order, stopping at the first failure like a sequential expansion would
     ExpandedTargetsResult output = null;
-    for (int i = 0; i < shards.size(); i++) {
-      List<TargetExpression> shard = shards.get(i);
-      context.output(
-          new StatusOutput(
-              String.format(
-                  "Expanding wildcard target patterns, shard %s of %s", i + 1, shards.size())));
-      ExpandedTargetsResult result =
-          queryIndividualTargets(
-              project, context, buildBinary, handledRulesPredicate, shard, excludeManualTargets);
+    for (ExpandedTargetsResult result : results.result()) {
       output = output == null ? result : ExpandedTargetsResult.merge(output, result);
       if (output.buildResult.status == Status.FATAL_ERROR) {
         return output;
@@ -178,6 +309,20 @@ public class WildcardTargetExpander {
     return output;
   }
 
+  private static void closeUnparsed(Set<InputStream> unparsedOutputs, InputStream output) {
+    if (unparsedOutputs.remove(output)) {
+      closeQuietly(output);
+    }
+  }
+
+  private static void closeQuietly(InputStream output) {
+    try {
+      output.close();
+    } catch (IOException e) {
+      logger.warn("Error closing blaze query output", e);
+    }
+  }
+
   /**
    * A workaround to optionally allow manual targets if the user has specified the
    * '--build_manual_tests' flag in their .blazeproject file.
@@ -199,28 +344,38 @@ public class WildcardTargetExpander {
         .contains("--build_manual_tests") && !SyncProjectTargetsHelper.shouldSyncManualTargets(projectView);
   }
 
-  /** Runs a blaze query to expand the input target patterns to individual blaze targets. */
-  private static ExpandedTargetsResult queryIndividualTargets(
-      Project project,
+  /**
+   * Runs a blaze query to expand the input target patterns to individual blaze targets, and returns
+   * its output. Returns null if there is nothing to query.
+   */
+  @Nullable
+  private static InputStream queryIndividualTargets(
       BlazeContext context,
       BuildInvoker buildBinary,
-      Predicate<String> handledRulesPredicate,
       List<TargetExpression> targetPatterns,
-      boolean excludeManualTargets) {
+      boolean excludeManualTargets)
+      throws BuildException {
     final var query = new QueryBuilder()
         .includeTargets(targetPatterns)
         .excludeManualTag(excludeManualTargets)
         .excludeNoIdeTag(true);
     if (query.isEmpty()) {
       // will be empty if there are no non-excluded targets
-      return new ExpandedTargetsResult(ImmutableList.of(), BuildResult.SUCCESS);
+      return null;
     }
     BlazeCommand.Builder builder =
         BlazeCommand.builder(buildBinary, BlazeCommandName.QUERY)
             .addBlazeFlags(BlazeFlags.KEEP_GOING)
             .addBlazeFlags("--output=label_kind")
             .addBlazeFlags(query.build());
+    return buildBinary.invokeQuery(builder, context);
+  }
 
+  /** Parses the label_kind output of a query, line by line as it is read. */
+  private static ExpandedTargetsResult parseQueryOutput(
+      InputStream queryOutput,
+      Predicate<String> handledRulesPredicate,
+      List<TargetExpression> targetPatterns) {
     // it's fine to include wildcards here; they're guaranteed not to clash with actual labels.
     Set<String> explicitTargets =
         targetPatterns.stream().map(TargetExpression::toString).collect(Collectors.toSet());
@@ -230,13 +385,12 @@ public class WildcardTargetExpander {
             : t -> handledRulesPredicate.test(t.ruleType) || explicitTargets.contains(t.label);
 
     BlazeQueryLabelKindParser outputProcessor = new BlazeQueryLabelKindParser(filter);
-    try (InputStream queryResultStream = buildBinary.invokeQuery(builder, context)) {
+    try (InputStream queryResultStream = queryOutput) {
       new BufferedReader(new InputStreamReader(queryResultStream, UTF_8))
           .lines()
           .forEach(outputProcessor::processLine);
-    } catch (IOException | BuildException e) {
-      Logger.getInstance(WildcardTargetExpander.class)
-          .warn("Error running blaze query to expand the input target pattern", e);
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("Error reading blaze query output", e);
       return new ExpandedTargetsResult(outputProcessor.getTargetLabels(), BuildResult.FATAL_ERROR);
     }
     return new ExpandedTargetsResult(outputProcessor.getTargetLabels(), BuildResult.SUCCESS);
@@ -25,7 +25,6 @@ import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.util.io.FileUtil;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Objects;
@@ -94,13 +93,12 @@ public final class ArtifactLocationDecoderImpl implements ArtifactLocationDecode
   private @Nullable File tryToResolveExternalArtifactToMainWorkspace(ArtifactLocation artifactLocation) {
     if (artifactLocation.isExternal()) {
       try {
-        File realFile = blazeInfo.getExecutionRoot().toPath()
-            .resolve(artifactLocation.getExecutionRootRelativePath()).toRealPath().toFile();
-        if (pathResolver.getWorkspacePath(realFile) != null) {
-          return realFile;
+        // null is ok as it might not exist
+        Path realPath = RealPathCache.getInstance().toRealPath(blazeInfo.getExecutionRoot().toPath()
+            .resolve(artifactLocation.getExecutionRootRelativePath()));
+        if (realPath != null && pathResolver.getWorkspacePath(realPath.toFile()) != null) {
+          return realPath.toFile();
         }
-      } catch (NoSuchFileException ignore) {
-        // this is ok as it might not exist
       } catch (IOException ioException) {
         LOG.warn("Failed to resolve real path for " + artifactLocation.getExecutionRootRelativePath() +
                 "\n" + ioException.getClass().getSimpleName() + ": " + ioException.getMessage());
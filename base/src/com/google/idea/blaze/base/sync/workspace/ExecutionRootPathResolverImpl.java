@@ -24,7 +24,7 @@ import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
 import com.intellij.openapi.diagnostic.Logger;
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.VisibleForTesting;
 
@@ -128,12 +128,11 @@ public class ExecutionRootPathResolverImpl implements ExecutionRootPathResolver
     final var pathInExecutionRoot = path.getRootedAt(outputBase.toPath());
 
     try {
-      File realPath = pathInExecutionRoot.toRealPath().toFile();
-      if (workspacePathResolver.getWorkspacePath(realPath) != null) {
-        return ImmutableList.of(realPath);
+      // null is ok as it might not exist
+      Path realPath = RealPathCache.getInstance().toRealPath(pathInExecutionRoot);
+      if (realPath != null && workspacePathResolver.getWorkspacePath(realPath.toFile()) != null) {
+        return ImmutableList.of(realPath.toFile());
       }
-    } catch (NoSuchFileException ignore) {
-      // this is ok as it might not exist
     } catch (IOException ioException) {
       LOG.warn("Failed to resolve real path for " + pathInExecutionRoot, ioException);
     }
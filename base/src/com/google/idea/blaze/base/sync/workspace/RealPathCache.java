@@ -0,0 +1,150 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.workspace;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Memoizes {@link Path#toRealPath} of paths under the execution root and output base, which are
+ * resolved over and over again for every target referencing an external workspace.
+ *
+ * <p>Symlinks in these directories are changed by builds, so real paths are only cached during
+ * the project update phase of a sync, after its build and blaze info have completed. Outside of
+ * it, every lookup resolves the path again. Paths which don't exist are never cached. Paths are
+ * keyed including their root, so results for a different execution root are never mixed up.
+ *
+ * <p>The cache is shared by all projects, so syncs of different projects may overlap. Each sync
+ * opens its own {@link Session}, and real paths stay cached until the last open session is closed.
+ */
+public final class RealPathCache {
+
+  private static final RealPathCache INSTANCE = new RealPathCache();
+
+  public static RealPathCache getInstance() {
+    return INSTANCE;
+  }
+
+  private final Map<String, Path> realPaths = new ConcurrentHashMap<>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private volatile boolean caching;
+
+  // guarded by this
+  private int openSessions;
+
+  private RealPathCache() {}
+
+  /**
+   * Returns the real path of {@code path}, or null if it does not exist. Other I/O errors are
+   * rethrown.
+   */
+  @Nullable
+  public Path toRealPath(Path path) throws IOException {
+    if (!caching) {
+      return resolve(path);
+    }
+    String key = path.toString();
+    Path cached = realPaths.get(key);
+    if (cached != null) {
+      hits.incrementAndGet();
+      return cached;
+    }
+    misses.incrementAndGet();
+    Path realPath = resolve(path);
+    // a missing path may appear at any time, so only existing paths are cached
+    if (realPath != null && caching) {
+      realPaths.put(key, realPath);
+    }
+    return realPath;
+  }
+
+  @Nullable
+  private static Path resolve(Path path) throws IOException {
+    try {
+      return path.toRealPath();
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Starts caching real paths, until the returned session is closed. Called once the build and
+   * blaze info of a sync have completed, so that the symlinks don't change until then.
+   */
+  public synchronized Session startCaching() {
+    if (openSessions++ == 0) {
+      realPaths.clear();
+      caching = true;
+    }
+    return new Session(hits.get(), misses.get());
+  }
+
+  private synchronized void stopCaching() {
+    if (--openSessions == 0) {
+      caching = false;
+      realPaths.clear();
+    }
+  }
+
+  /** A sync's use of the cache. Real paths are cached until every open session is closed. */
+  public final class Session implements AutoCloseable {
+    private final long startHits;
+    private final long startMisses;
+    private boolean closed;
+
+    private Session(long startHits, long startMisses) {
+      this.startHits = startHits;
+      this.startMisses = startMisses;
+    }
+
+    /**
+     * Returns the hit and miss counts since the session started, or null if unused. These include
+     * the lookups of other syncs running at the same time.
+     */
+    @Nullable
+    public String statsSummary() {
+      long hitCount = hits.get() - startHits;
+      long total = hitCount + misses.get() - startMisses;
+      if (total == 0) {
+        return null;
+      }
+      return String.format(
+          Locale.ROOT,
+          "Real path cache: %d lookups, %d hits (%.0f%%)",
+          total,
+          hitCount,
+          100d * hitCount / total);
+    }
+
+    @Override
+    public void close() {
+      synchronized (RealPathCache.this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+      }
+      stopCaching();
+    }
+  }
+}
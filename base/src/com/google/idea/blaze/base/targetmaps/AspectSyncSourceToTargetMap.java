@@ -48,6 +48,14 @@ public class AspectSyncSourceToTargetMap implements SourceToTargetMap {
     getSourceToTargetMap();
   }
 
+  /** Computes the source to target map in the background after each sync. */
+  static class Prewarmer implements SyncCache.Prewarmer {
+    @Override
+    public void prewarm(Project project) {
+      new AspectSyncSourceToTargetMap(project).getSourceToTargetMap();
+    }
+  }
+
   @Override
   public ImmutableList<Label> getTargetsToBuildForSourceFile(File sourceFile) {
     BlazeProjectData blazeProjectData =
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.targetmaps;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.idea.blaze.base.ideinfo.Dependency;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.model.BlazeProjectData;
+import com.google.idea.blaze.base.sync.SyncCache;
+import com.intellij.openapi.project.Project;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dependency graph of the target map with targets numbered densely and edges stored as int arrays
+ * in compressed sparse row form.
+ *
+ * <p>Forward edges follow {@link TransitiveDependencyMap}, i.e. every dependency is reduced to its
+ * plain target, whether or not it is part of the target map. Reverse edges use the exact
+ * dependency key and only exist for dependencies in the target map.
+ */
+public final class DependencyGraph {
+  private static final DependencyGraph EMPTY = create(new TargetMap(ImmutableMap.of()));
+
+  // the number of transitive closures kept for targets which are queried repeatedly
+  private static final int MAX_MEMOIZED_CLOSURES = 256;
+
+  private final TargetKey[] keys;
+  private final Map<TargetKey, Integer> ids;
+  private final int[] forwardOffsets;
+  private final int[] forwardEdges;
+  private final int[] reverseOffsets;
+  private final int[] reverseEdges;
+
+  private final Map<Integer, BitSet> closures =
+      new LinkedHashMap<Integer, BitSet>(16, 0.75f, /* accessOrder= */ true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BitSet> eldest) {
+          return size() > MAX_MEMOIZED_CLOSURES;
+        }
+      };
+
+  private DependencyGraph(
+      TargetKey[] keys,
+      Map<TargetKey, Integer> ids,
+      int[] forwardOffsets,
+      int[] forwardEdges,
+      int[] reverseOffsets,
+      int[] reverseEdges) {
+    this.keys = keys;
+    this.ids = ids;
+    this.forwardOffsets = forwardOffsets;
+    this.forwardEdges = forwardEdges;
+    this.reverseOffsets = reverseOffsets;
+    this.reverseEdges = reverseEdges;
+  }
+
+  /** Returns the dependency graph of the current project data, computed once per sync. */
+  public static DependencyGraph get(Project project) {
+    DependencyGraph graph =
+        SyncCache.getInstance(project).get(DependencyGraph.class, DependencyGraph::create);
+    return graph != null ? graph : EMPTY;
+  }
+
+  @SuppressWarnings("unused")
+  private static DependencyGraph create(Project project, BlazeProjectData projectData) {
+    return create(projectData.targetMap());
+  }
+
+  @VisibleForTesting
+  static DependencyGraph create(TargetMap targetMap) {
+    Map<TargetKey, Integer> ids = new HashMap<>();
+    List<TargetKey> keys = new ArrayList<>();
+    for (TargetKey key : targetMap.map().keySet()) {
+      ids.put(key, keys.size());
+      keys.add(key);
+    }
+    int targetCount = keys.size();
+
+    int[] forwardOffsets = new int[targetCount + 1];
+    int[] reverseCounts = new int[targetCount + 1];
+    IntList forwardEdges = new IntList();
+    IntList reverseSources = new IntList();
+    IntList reverseTargets = new IntList();
+    for (int id = 0; id < targetCount; id++) {
+      TargetIdeInfo target = targetMap.get(keys.get(id));
+      forwardOffsets[id] = forwardEdges.size;
+      for (Dependency dep : target.getDependencies()) {
+        TargetKey depKey = dep.getTargetKey();
+        Integer exact = ids.get(depKey);
+        if (exact != null && exact < targetCount) {
+          reverseSources.add(exact);
+          reverseTargets.add(id);
+          reverseCounts[exact]++;
+        }
+        TargetKey plain = TargetKey.forPlainTarget(depKey.label());
+        Integer plainId = ids.get(plain);
+        if (plainId == null) {
+          plainId = keys.size();
+          ids.put(plain, plainId);
+          keys.add(plain);
+        }
+        forwardEdges.add(plainId);
+      }
+    }
+    forwardOffsets[targetCount] = forwardEdges.size;
+
+    // dependencies outside of the target map have no edges of their own
+    int nodeCount = keys.size();
+    int[] forwardOffsetsAll = new int[nodeCount + 1];
+    System.arraycopy(forwardOffsets, 0, forwardOffsetsAll, 0, targetCount + 1);
+    for (int id = targetCount + 1; id <= nodeCount; id++) {
+      forwardOffsetsAll[id] = forwardEdges.size;
+    }
+
+    int[] reverseOffsets = new int[nodeCount + 1];
+    for (int id = 0; id < nodeCount; id++) {
+      reverseOffsets[id + 1] = reverseOffsets[id] + (id < targetCount ? reverseCounts[id] : 0);
+    }
+    int[] reverseEdges = new int[reverseSources.size];
+    int[] next = reverseOffsets.clone();
+    for (int i = 0; i < reverseSources.size; i++) {
+      reverseEdges[next[reverseSources.get(i)]++] = reverseTargets.get(i);
+    }
+
+    return new DependencyGraph(
+        keys.toArray(new TargetKey[0]),
+        ids,
+        forwardOffsetsAll,
+        forwardEdges.toArray(),
+        reverseOffsets,
+        reverseEdges);
+  }
+
+  /** Returns the targets which directly depend on {@code key}. */
+  public ImmutableList<TargetKey> getReverseDependencies(TargetKey key) {
+    Integer id = ids.get(key);
+    if (id == null) {
+      return ImmutableList.of();
+    }
+    ImmutableList.Builder<TargetKey> result = ImmutableList.builder();
+    for (int i = reverseOffsets[id]; i < reverseOffsets[id + 1]; i++) {
+      result.add(keys[reverseEdges[i]]);
+    }
+    return result.build();
+  }
+
+  /**
+   * Returns true if {@code possibleDependent} transitively depends on {@code possibleDependency}.
+   */
+  public boolean hasTransitiveDependency(
+      TargetKey possibleDependent, TargetKey possibleDependency) {
+    Integer from = ids.get(possibleDependent);
+    Integer to = ids.get(possibleDependency);
+    return from != null && to != null && transitiveClosure(from).get(to);
+  }
+
+  /** Returns the transitive dependencies of {@code key}, in breadth-first order. */
+  public ImmutableSet<TargetKey> getTransitiveDependencies(TargetKey key) {
+    Integer id = ids.get(key);
+    if (id == null) {
+      return ImmutableSet.of();
+    }
+    ImmutableSet.Builder<TargetKey> result = ImmutableSet.builder();
+    traverse(id, dep -> result.add(keys[dep]));
+    return result.build();
+  }
+
+  /**
+   * Returns the targets in {@code possibleDependencies} which {@code possibleDependent} depends on.
+   */
+  public ImmutableSet<TargetKey> filterTransitiveDependencies(
+      TargetKey possibleDependent, Collection<TargetKey> possibleDependencies) {
+    Integer id = ids.get(possibleDependent);
+    if (id == null) {
+      return ImmutableSet.of();
+    }
+    BitSet closure = transitiveClosure(id);
+    return possibleDependencies.stream()
+        .filter(
+            dep -> {
+              Integer depId = ids.get(dep);
+              return depId != null && closure.get(depId);
+            })
+        .collect(ImmutableSet.toImmutableSet());
+  }
+
+  private BitSet transitiveClosure(int id) {
+    synchronized (closures) {
+      BitSet closure = closures.get(id);
+      if (closure != null) {
+        return closure;
+      }
+    }
+    BitSet closure = new BitSet(keys.length);
+    traverse(id, closure::set);
+    synchronized (closures) {
+      closures.put(id, closure);
+    }
+    return closure;
+  }
+
+  private interface IntConsumer {
+    void accept(int id);
+  }
+
+  /** Breadth-first traversal of the transitive dependencies, excluding {@code from} itself. */
+  private void traverse(int from, IntConsumer consumer) {
+    BitSet visited = new BitSet(keys.length);
+    int[] queue = new int[keys.length];
+    int head = 0;
+    int tail = 0;
+    for (int i = forwardOffsets[from]; i < forwardOffsets[from + 1]; i++) {
+      int dep = forwardEdges[i];
+      if (!visited.get(dep)) {
+        visited.set(dep);
+        queue[tail++] = dep;
+      }
+    }
+    while (head < tail) {
+      int id = queue[head++];
+      consumer.accept(id);
+      for (int i = forwardOffsets[id]; i < forwardOffsets[id + 1]; i++) {
+        int dep = forwardEdges[i];
+        if (!visited.get(dep)) {
+          visited.set(dep);
+          queue[tail++] = dep;
+        }
+      }
+    }
+  }
+
+  /** Computes the dependency graph in the background after each sync. */
+  static class Prewarmer implements SyncCache.Prewarmer {
+    @Override
+    public void prewarm(Project project) {
+      get(project);
+    }
+  }
+
+  /** Growable int array, to avoid boxing every edge while building the graph. */
+  private static final class IntList {
+    private int[] values = new int[16];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    int get(int index) {
+      return values[index];
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+}
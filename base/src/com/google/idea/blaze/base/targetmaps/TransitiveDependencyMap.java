@@ -23,8 +23,6 @@ import com.google.idea.blaze.base.ideinfo.Dependency;
 import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
 import com.google.idea.blaze.base.ideinfo.TargetKey;
 import com.google.idea.blaze.base.ideinfo.TargetMap;
-import com.google.idea.blaze.base.model.BlazeProjectData;
-import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
 import com.intellij.openapi.project.Project;
 import java.util.Collection;
 import java.util.HashSet;
@@ -52,15 +50,8 @@ public class TransitiveDependencyMap {
    */
   public boolean hasTransitiveDependency(
       TargetKey possibleDependent, TargetKey possibleDependency) {
-
-    BlazeProjectData blazeProjectData =
-        BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
-    if (blazeProjectData == null) {
-      return false;
-    }
-
-    return getTransitiveDependenciesStream(possibleDependent, blazeProjectData.targetMap())
-        .anyMatch(possibleDependency::equals);
+    return DependencyGraph.get(project)
+        .hasTransitiveDependency(possibleDependent, possibleDependency);
   }
 
   /**
@@ -72,27 +63,12 @@ public class TransitiveDependencyMap {
    */
   public ImmutableSet<TargetKey> filterPossibleTransitiveDeps(
       TargetKey possibleDependent, Collection<TargetKey> possibleDependencies) {
-    BlazeProjectData blazeProjectData =
-        BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
-    if (blazeProjectData == null) {
-      return ImmutableSet.of();
-    }
-    ImmutableSet<TargetKey> possibleDepsSet = ImmutableSet.copyOf(possibleDependencies);
-    return getTransitiveDependenciesStream(possibleDependent, blazeProjectData.targetMap())
-        .filter(possibleDepsSet::contains)
-        .distinct()
-        .limit(possibleDepsSet.size())
-        .collect(ImmutableSet.toImmutableSet());
+    return DependencyGraph.get(project)
+        .filterTransitiveDependencies(possibleDependent, possibleDependencies);
   }
 
   public ImmutableCollection<TargetKey> getTransitiveDependencies(TargetKey targetKey) {
-    BlazeProjectData blazeProjectData =
-        BlazeProjectDataManager.getInstance(project).getBlazeProjectData();
-    if (blazeProjectData == null) {
-      return ImmutableSet.of();
-    }
-    // TODO: see if we need caching.
-    return getTransitiveDependencies(targetKey, blazeProjectData.targetMap());
+    return DependencyGraph.get(project).getTransitiveDependencies(targetKey);
   }
 
   public static ImmutableCollection<TargetKey> getTransitiveDependencies(
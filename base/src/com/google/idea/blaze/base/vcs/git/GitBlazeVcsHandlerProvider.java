@@ -72,9 +72,11 @@ public class GitBlazeVcsHandlerProvider implements BlazeVcsHandlerProvider {
 
   static class GitBlazeVcsHandler implements BlazeVcsHandler {
 
+    private final Project project;
     private final WorkspaceRoot workspaceRoot;
 
     GitBlazeVcsHandler(Project project) {
+      this.project = project;
       this.workspaceRoot = WorkspaceRoot.fromProject(project);
     }
 
@@ -87,6 +89,10 @@ public class GitBlazeVcsHandlerProvider implements BlazeVcsHandlerProvider {
             if (upstreamSha == null) {
               return null;
             }
+            if (GitWorkingSetCache.enabled.getValue()) {
+              return GitWorkingSetCache.getInstance(project)
+                  .getWorkingSet(workspaceRoot, upstreamSha, context);
+            }
             return GitWorkingSetProvider.calculateWorkingSet(workspaceRoot, upstreamSha, context);
           });
     }
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.vcs.git;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.settings.Blaze;
+import com.google.idea.blaze.base.sync.workspace.WorkingSet;
+import com.google.idea.blaze.base.vcs.git.GitWorkingSetProvider.Change;
+import com.google.idea.blaze.base.vcs.git.GitWorkingSetProvider.RepositoryInfo;
+import com.google.idea.common.experiments.BoolExperiment;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * Caches the git working set between syncs.
+ *
+ * <p>The changes committed since the upstream commit are kept until HEAD or the upstream SHA
+ * change. The uncommitted changes are kept until the index changes, and in the meantime only the
+ * files changed in the VFS are passed to {@code git status} again, so that repeated working set
+ * queries don't scan the whole tree. A full {@code git status} runs again whenever the recorded
+ * changes may be incomplete, i.e. after files were changed outside the IDE or too many changed.
+ */
+public class GitWorkingSetCache {
+
+  static final BoolExperiment enabled =
+      new BoolExperiment("blaze.vcs.git.cached.working.set", false);
+
+  private static final Logger logger = Logger.getInstance(GitWorkingSetCache.class);
+
+  // beyond this many changed paths, a full git status is cheaper than listing them all
+  @VisibleForTesting static final int MAX_INCREMENTAL_PATHS = 500;
+
+  public static GitWorkingSetCache getInstance(Project project) {
+    return project.getService(GitWorkingSetCache.class);
+  }
+
+  /** The git commands run by the cache. */
+  @VisibleForTesting
+  interface Git {
+    @Nullable
+    RepositoryInfo getRepositoryInfo(WorkspaceRoot workspaceRoot);
+
+    @Nullable
+    NavigableMap<String, Change> getCommittedChanges(
+        WorkspaceRoot workspaceRoot, String head, String upstreamSha, BlazeContext context);
+
+    @Nullable
+    NavigableMap<String, Change> getStatus(
+        WorkspaceRoot workspaceRoot, Collection<String> gitPaths, BlazeContext context);
+  }
+
+  private static final Git COMMAND_LINE_GIT =
+      new Git() {
+        @Nullable
+        @Override
+        public RepositoryInfo getRepositoryInfo(WorkspaceRoot workspaceRoot) {
+          return GitWorkingSetProvider.getRepositoryInfo(workspaceRoot);
+        }
+
+        @Nullable
+        @Override
+        public NavigableMap<String, Change> getCommittedChanges(
+            WorkspaceRoot workspaceRoot, String head, String upstreamSha, BlazeContext context) {
+          return GitWorkingSetProvider.getCommittedChanges(
+              workspaceRoot, head, upstreamSha, context);
+        }
+
+        @Nullable
+        @Override
+        public NavigableMap<String, Change> getStatus(
+            WorkspaceRoot workspaceRoot, Collection<String> gitPaths, BlazeContext context) {
+          return GitWorkingSetProvider.getStatus(workspaceRoot, gitPaths, context);
+        }
+      };
+
+  private final Git git;
+  private final Function<WorkspaceRoot, List<String>> artifactDirectories;
+
+  // workspace relative paths of files which changed since the last git status
+  private final Set<String> changedPaths = ConcurrentHashMap.newKeySet();
+
+  // set when the changed paths may miss changes, so the next call runs a full git status
+  private volatile boolean fullStatusRequired;
+
+  // guarded by this
+  @Nullable private String head;
+  @Nullable private String upstreamSha;
+  private long indexTimestamp;
+  @Nullable private NavigableMap<String, Change> committed;
+  @Nullable private NavigableMap<String, Change> status;
+
+  public GitWorkingSetCache(Project project) {
+    this(
+        COMMAND_LINE_GIT,
+        workspaceRoot ->
+            Blaze.getBuildSystemProvider(project).buildArtifactDirectories(workspaceRoot));
+  }
+
+  @VisibleForTesting
+  GitWorkingSetCache(Git git, Function<WorkspaceRoot, List<String>> artifactDirectories) {
+    this.git = git;
+    this.artifactDirectories = artifactDirectories;
+  }
+
+  /**
+   * Returns the changes between the git commit specified by the provided SHA and the working tree,
+   * or null if an error occurred.
+   */
+  @Nullable
+  synchronized WorkingSet getWorkingSet(
+      WorkspaceRoot workspaceRoot, String upstreamSha, BlazeContext context) {
+    // files changed from now on are checked again by the next call
+    boolean fullStatus = fullStatusRequired;
+    fullStatusRequired = false;
+    List<String> changed = new ArrayList<>(changedPaths);
+    changedPaths.removeAll(changed);
+
+    RepositoryInfo repository = git.getRepositoryInfo(workspaceRoot);
+    if (repository == null) {
+      return invalidate();
+    }
+    long indexTimestamp = repository.indexFile.lastModified();
+
+    if (committed == null
+        || !repository.head.equals(head)
+        || !upstreamSha.equals(this.upstreamSha)) {
+      committed = git.getCommittedChanges(workspaceRoot, repository.head, upstreamSha, context);
+      if (committed == null) {
+        return invalidate();
+      }
+      status = null;
+    }
+    if (status != null && !fullStatus && indexTimestamp == this.indexTimestamp) {
+      List<String> gitPaths = toGitPaths(repository.workspacePrefix, changed);
+      if (!gitPaths.isEmpty()) {
+        NavigableMap<String, Change> updated = git.getStatus(workspaceRoot, gitPaths, context);
+        if (updated == null) {
+          return invalidate();
+        }
+        gitPaths.forEach(path -> removeSubtree(status, path));
+        status.putAll(updated);
+        logger.info(
+            String.format("Updated git working set for %d changed paths", gitPaths.size()));
+      }
+    } else {
+      status = null;
+    }
+    if (status == null) {
+      status = git.getStatus(workspaceRoot, ImmutableList.of(), context);
+      if (status == null) {
+        return invalidate();
+      }
+    }
+
+    this.head = repository.head;
+    this.upstreamSha = upstreamSha;
+    this.indexTimestamp = indexTimestamp;
+    return GitWorkingSetProvider.toWorkingSet(
+        repository.workspacePrefix, GitWorkingSetProvider.combine(committed, status));
+  }
+
+  @Nullable
+  private WorkingSet invalidate() {
+    committed = null;
+    status = null;
+    return null;
+  }
+
+  /**
+   * Records a file changed in the VFS. Changes from a VFS refresh were made outside the IDE, which
+   * doesn't necessarily see all of them, so they force a full git status.
+   */
+  @VisibleForTesting
+  void fileChanged(WorkspaceRoot workspaceRoot, String path, boolean fromRefresh) {
+    WorkspacePath workspacePath = workspaceRoot.workspacePathForSafe(new File(path));
+    if (workspacePath == null || workspacePath.isWorkspaceRoot()) {
+      return;
+    }
+    String relativePath = workspacePath.relativePath();
+    // the index timestamp covers changes in the git directory
+    if (isUnder(relativePath, ".git")
+        || artifactDirectories.apply(workspaceRoot).stream()
+            .anyMatch(dir -> isUnder(relativePath, dir))) {
+      return;
+    }
+    if (fromRefresh) {
+      fullStatusRequired = true;
+      changedPaths.clear();
+      return;
+    }
+    if (fullStatusRequired) {
+      return;
+    }
+    changedPaths.add(relativePath);
+    if (changedPaths.size() > MAX_INCREMENTAL_PATHS) {
+      fullStatusRequired = true;
+      changedPaths.clear();
+    }
+  }
+
+  /**
+   * Converts the changed workspace paths to paths relative to the git root, leaving out paths
+   * below another changed path.
+   */
+  private static List<String> toGitPaths(String workspacePrefix, List<String> changed) {
+    List<String> result = new ArrayList<>();
+    String previous = null;
+    for (String path : new TreeSet<>(changed)) {
+      if (previous == null || !isUnder(path, previous)) {
+        result.add(workspacePrefix + path);
+        previous = path;
+      }
+    }
+    return result;
+  }
+
+  private static boolean isUnder(String path, String ancestor) {
+    return path.equals(ancestor) || path.startsWith(ancestor + "/");
+  }
+
+  private static void removeSubtree(NavigableMap<String, Change> changes, String path) {
+    changes.remove(path);
+    // '0' is the character right after '/'
+    changes.subMap(path + "/", true, path + "0", false).clear();
+  }
+
+  /** Records the files changed in the VFS. */
+  static class ChangeListener implements BulkFileListener {
+    private final Project project;
+
+    ChangeListener(Project project) {
+      this.project = project;
+    }
+
+    @Override
+    public void after(List<? extends VFileEvent> events) {
+      GitWorkingSetCache cache = project.getServiceIfCreated(GitWorkingSetCache.class);
+      if (cache == null) {
+        return;
+      }
+      WorkspaceRoot workspaceRoot = WorkspaceRoot.fromProjectSafe(project);
+      if (workspaceRoot == null) {
+        return;
+      }
+      for (VFileEvent event : events) {
+        boolean fromRefresh = event.isFromRefresh();
+        cache.fileChanged(workspaceRoot, event.getPath(), fromRefresh);
+        if (event instanceof VFileMoveEvent) {
+          cache.fileChanged(workspaceRoot, ((VFileMoveEvent) event).getOldPath(), fromRefresh);
+        } else if (event instanceof VFilePropertyChangeEvent
+            && ((VFilePropertyChangeEvent) event).isRename()) {
+          cache.fileChanged(
+              workspaceRoot, ((VFilePropertyChangeEvent) event).getOldPath(), fromRefresh);
+        } else if (event instanceof VFileCopyEvent) {
+          VFileCopyEvent copy = (VFileCopyEvent) event;
+          cache.fileChanged(
+              workspaceRoot,
+              copy.getNewParent().getPath() + "/" + copy.getNewChildName(),
+              fromRefresh);
+        }
+      }
+    }
+  }
+}
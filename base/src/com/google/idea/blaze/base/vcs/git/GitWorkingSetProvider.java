@@ -15,10 +15,11 @@
  */
 package com.google.idea.blaze.base.vcs.git;
 
-import com.google.common.base.Strings;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.idea.blaze.base.async.process.ExternalTask;
-import com.google.idea.blaze.base.async.process.LineProcessingOutputStream;
 import com.google.idea.blaze.base.model.primitives.WorkspacePath;
 import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
 import com.google.idea.blaze.base.scope.BlazeContext;
@@ -26,88 +27,329 @@ import com.google.idea.blaze.base.scope.scopes.TimingScope;
 import com.google.idea.blaze.base.scope.scopes.TimingScope.EventType;
 import com.google.idea.blaze.base.sync.workspace.WorkingSet;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.text.StringUtil;
 import java.io.ByteArrayOutputStream;
-import java.util.Arrays;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import javax.annotation.Nullable;
 
-/** Vcs diff provider for git. */
+/**
+ * Vcs diff provider for git.
+ *
+ * <p>The working set is the combination of the changes committed since the upstream commit, which
+ * only depend on HEAD and the upstream SHA, and the output of a single {@code git status}, which
+ * covers both uncommitted and untracked files. {@code git status} uses the untracked cache and
+ * fsmonitor whenever the repository has them enabled.
+ */
 public class GitWorkingSetProvider {
 
   private static final Logger logger = Logger.getInstance(GitWorkingSetProvider.class);
 
+  /** The kind of change of a single file. */
+  enum Change {
+    ADDED,
+    MODIFIED,
+    DELETED
+  }
+
+  /** The state of the repository which the working set depends on. */
+  static final class RepositoryInfo {
+    // the workspace root relative to the git root, empty or ending with a '/'
+    final String workspacePrefix;
+    final File indexFile;
+    final String head;
+
+    RepositoryInfo(String workspacePrefix, File indexFile, String head) {
+      this.workspacePrefix = workspacePrefix;
+      this.indexFile = indexFile;
+      this.head = head;
+    }
+  }
+
   /**
-   * Finds all changes between HEAD and the git commit specified by the provided SHA.<br>
+   * Finds all changes between the working tree and the git commit specified by the provided SHA.
+   * <br>
    * Returns null if an error occurred.
    */
   @Nullable
   public static WorkingSet calculateWorkingSet(
       WorkspaceRoot workspaceRoot, String upstreamSha, BlazeContext context) {
-
-    String gitRoot = getConsoleOutput(workspaceRoot, "git", "rev-parse", "--show-toplevel");
-    if (gitRoot == null) {
+    RepositoryInfo repository = getRepositoryInfo(workspaceRoot);
+    if (repository == null) {
       return null;
     }
-    GitStatusLineProcessor processor = new GitStatusLineProcessor(workspaceRoot, gitRoot);
-    ByteArrayOutputStream stderr = new ByteArrayOutputStream();
-
-    // Do a git diff to find all modified files we know about
-    int retVal =
-        ExternalTask.builder(workspaceRoot)
-            .args("git", "diff", "--name-status", "--no-renames", upstreamSha)
-            .context(context)
-            .stdout(LineProcessingOutputStream.of(processor))
-            .stderr(stderr)
-            .build()
-            .run(new TimingScope("GitDiff", EventType.Other));
-    if (retVal != 0) {
-      logger.error(stderr);
+    Map<String, Change> committed =
+        getCommittedChanges(workspaceRoot, repository.head, upstreamSha, context);
+    if (committed == null) {
+      return null;
+    }
+    Map<String, Change> status = getStatus(workspaceRoot, ImmutableList.of(), context);
+    if (status == null) {
       return null;
     }
+    return toWorkingSet(repository.workspacePrefix, combine(committed, status));
+  }
 
-    // Finally list all untracked files, as they're not caught by the git diff step above
-    String untrackedFilesOutput =
-        getConsoleOutput(workspaceRoot, "git", "ls-files", "--others", "--exclude-standard");
-    if (untrackedFilesOutput == null) {
+  /** Returns the git root, git directory and HEAD of the repository, or null on errors. */
+  @Nullable
+  static RepositoryInfo getRepositoryInfo(WorkspaceRoot workspaceRoot) {
+    String output =
+        runGit(
+            workspaceRoot,
+            null,
+            null,
+            "git",
+            "rev-parse",
+            "--show-prefix",
+            "--absolute-git-dir",
+            "HEAD");
+    if (output == null) {
+      return null;
+    }
+    String[] lines = output.split("\n", -1);
+    if (lines.length < 3) {
+      logger.warn("Unexpected output of git rev-parse: " + output);
       return null;
     }
+    return new RepositoryInfo(lines[0], new File(lines[1], "index"), lines[2]);
+  }
 
-    List<WorkspacePath> untrackedFiles =
-        Arrays.asList(untrackedFilesOutput.split("\n"))
-            .stream()
-            .filter(s -> !Strings.isNullOrEmpty(s))
-            .filter(WorkspacePath::isValid)
-            .map(WorkspacePath::new)
-            .collect(Collectors.toList());
-
-    return new WorkingSet(
-        ImmutableList.<WorkspacePath>builder()
-            .addAll(processor.addedFiles)
-            .addAll(untrackedFiles)
-            .build(),
-        ImmutableList.copyOf(processor.modifiedFiles),
-        ImmutableList.copyOf(processor.deletedFiles));
+  /**
+   * Returns the changes committed between the upstream commit and HEAD, keyed by their path
+   * relative to the git root, or null on errors.
+   */
+  @Nullable
+  static NavigableMap<String, Change> getCommittedChanges(
+      WorkspaceRoot workspaceRoot, String head, String upstreamSha, BlazeContext context) {
+    if (head.equals(upstreamSha)) {
+      return new TreeMap<>();
+    }
+    String output =
+        runGit(
+            workspaceRoot,
+            context,
+            new TimingScope("GitDiff", EventType.Other),
+            "git",
+            "diff",
+            "--name-status",
+            "--no-renames",
+            "-z",
+            upstreamSha,
+            head);
+    return output != null ? parseNameStatus(output) : null;
+  }
+
+  /**
+   * Returns the uncommitted and untracked changes, keyed by their path relative to the git root, or
+   * null on errors. If {@code gitPaths} isn't empty, only changes below these paths are listed.
+   */
+  @Nullable
+  static NavigableMap<String, Change> getStatus(
+      WorkspaceRoot workspaceRoot, Collection<String> gitPaths, BlazeContext context) {
+    ImmutableList.Builder<String> args = ImmutableList.builder();
+    args.add(
+        "git",
+        // don't refresh the index, which would change its timestamp
+        "--no-optional-locks",
+        "status",
+        "--porcelain=v2",
+        "-z",
+        "--no-renames",
+        "--untracked-files=all");
+    if (!gitPaths.isEmpty()) {
+      args.add("--");
+      gitPaths.forEach(path -> args.add(":(top,literal)" + path));
+    }
+    String output =
+        runGit(
+            workspaceRoot,
+            context,
+            new TimingScope("GitStatus", EventType.Other),
+            args.build().toArray(new String[0]));
+    return output != null ? parseStatus(output) : null;
+  }
+
+  /** Parses the output of {@code git diff --name-status -z}. */
+  @VisibleForTesting
+  static NavigableMap<String, Change> parseNameStatus(String output) {
+    NavigableMap<String, Change> changes = new TreeMap<>();
+    String[] tokens = output.split("\0");
+    for (int i = 0; i + 1 < tokens.length; i += 2) {
+      String status = tokens[i];
+      String path = tokens[i + 1];
+      if (status.startsWith("A")) {
+        changes.put(path, Change.ADDED);
+      } else if (status.startsWith("D")) {
+        changes.put(path, Change.DELETED);
+      } else if (!status.isEmpty()) {
+        changes.put(path, Change.MODIFIED);
+      }
+    }
+    return changes;
+  }
+
+  /** Parses the output of {@code git status --porcelain=v2 -z}. */
+  @VisibleForTesting
+  static NavigableMap<String, Change> parseStatus(String output) {
+    NavigableMap<String, Change> changes = new TreeMap<>();
+    String[] records = output.split("\0");
+    for (int i = 0; i < records.length; i++) {
+      String record = records[i];
+      if (record.isEmpty()) {
+        continue;
+      }
+      switch (record.charAt(0)) {
+        case '1':
+          {
+            // 1 <XY> <sub> <mH> <mI> <mW> <hH> <hI> <path>
+            String[] fields = record.split(" ", 9);
+            if (fields.length == 9) {
+              Change change = ordinaryChange(fields[1]);
+              if (change != null) {
+                changes.put(fields[8], change);
+              }
+            }
+            break;
+          }
+        case '2':
+          {
+            // 2 <XY> <sub> <mH> <mI> <mW> <hH> <hI> <X><score> <path>, followed by the original path
+            String[] fields = record.split(" ", 10);
+            if (fields.length == 10) {
+              changes.put(fields[9], Change.ADDED);
+            }
+            if (i + 1 < records.length) {
+              changes.put(records[++i], Change.DELETED);
+            }
+            break;
+          }
+        case 'u':
+          {
+            // u <XY> <sub> <m1> <m2> <m3> <mW> <h1> <h2> <h3> <path>
+            String[] fields = record.split(" ", 11);
+            if (fields.length == 11) {
+              changes.put(fields[10], Change.MODIFIED);
+            }
+            break;
+          }
+        case '?':
+          changes.put(record.substring(2), Change.ADDED);
+          break;
+        default:
+          // headers and ignored files
+          break;
+      }
+    }
+    return changes;
+  }
+
+  /** The change of an ordinary entry relative to HEAD, from its index and working tree status. */
+  @Nullable
+  private static Change ordinaryChange(String xy) {
+    char index = xy.charAt(0);
+    char workingTree = xy.length() > 1 ? xy.charAt(1) : '.';
+    if (index == 'A') {
+      // added to the index, then deleted again
+      return workingTree == 'D' ? null : Change.ADDED;
+    }
+    if (index == 'D' || workingTree == 'D') {
+      return Change.DELETED;
+    }
+    return Change.MODIFIED;
+  }
+
+  /**
+   * Applies the uncommitted changes on top of the committed ones, giving the changes between the
+   * upstream commit and the working tree.
+   */
+  @VisibleForTesting
+  static NavigableMap<String, Change> combine(
+      Map<String, Change> committed, Map<String, Change> uncommitted) {
+    NavigableMap<String, Change> result = new TreeMap<>(committed);
+    uncommitted.forEach(
+        (path, change) -> {
+          Change combined = combine(committed.get(path), change);
+          if (combined != null) {
+            result.put(path, combined);
+          } else {
+            result.remove(path);
+          }
+        });
+    return result;
+  }
+
+  @Nullable
+  private static Change combine(@Nullable Change committed, Change uncommitted) {
+    if (committed == null) {
+      return uncommitted;
+    }
+    switch (committed) {
+      case ADDED:
+        return uncommitted == Change.DELETED ? null : Change.ADDED;
+      case MODIFIED:
+        return uncommitted == Change.DELETED ? Change.DELETED : Change.MODIFIED;
+      case DELETED:
+        return uncommitted == Change.DELETED ? Change.DELETED : Change.MODIFIED;
+    }
+    throw new AssertionError(committed);
+  }
+
+  /** Converts changes keyed by git root relative paths into a working set of the workspace. */
+  @VisibleForTesting
+  static WorkingSet toWorkingSet(String workspacePrefix, Map<String, Change> changes) {
+    ImmutableList.Builder<WorkspacePath> added = ImmutableList.builder();
+    ImmutableList.Builder<WorkspacePath> modified = ImmutableList.builder();
+    ImmutableList.Builder<WorkspacePath> deleted = ImmutableList.builder();
+    changes.forEach(
+        (gitPath, change) -> {
+          if (!gitPath.startsWith(workspacePrefix)) {
+            return;
+          }
+          String relativePath = gitPath.substring(workspacePrefix.length());
+          if (!WorkspacePath.isValid(relativePath)) {
+            return;
+          }
+          WorkspacePath workspacePath = new WorkspacePath(relativePath);
+          switch (change) {
+            case ADDED:
+              added.add(workspacePath);
+              break;
+            case MODIFIED:
+              modified.add(workspacePath);
+              break;
+            case DELETED:
+              deleted.add(workspacePath);
+              break;
+          }
+        });
+    return new WorkingSet(added.build(), modified.build(), deleted.build());
   }
 
   /** @return the console output, in string form, or null if there was a non-zero exit code. */
   @Nullable
-  private static String getConsoleOutput(WorkspaceRoot workspaceRoot, String... commands) {
+  private static String runGit(
+      WorkspaceRoot workspaceRoot,
+      @Nullable BlazeContext context,
+      @Nullable TimingScope timingScope,
+      String... commands) {
     ByteArrayOutputStream stdout = new ByteArrayOutputStream();
     ByteArrayOutputStream stderr = new ByteArrayOutputStream();
 
-    int retVal =
+    ExternalTask task =
         ExternalTask.builder(workspaceRoot)
             .args(commands)
+            .context(context)
             .stdout(stdout)
             .stderr(stderr)
-            .build()
-            .run();
+            .build();
+    int retVal = timingScope != null ? task.run(timingScope) : task.run();
     if (retVal != 0) {
       logger.error(stderr);
       return null;
     }
-    return StringUtil.trimEnd(stdout.toString(), "\n");
+    String output = stdout.toString(UTF_8);
+    return output.endsWith("\n") ? output.substring(0, output.length() - 1) : output;
   }
 }
@@ -23,12 +23,14 @@ import com.google.idea.blaze.base.MockProjectViewManager;
 import com.google.idea.blaze.base.lang.buildfile.BuildFileIntegrationTestCase;
 import com.google.idea.blaze.base.lang.buildfile.completion.BuildLookupElement;
 import com.google.idea.blaze.base.lang.buildfile.psi.BuildFile;
+import com.google.idea.blaze.base.lang.buildfile.psi.FuncallExpression;
 import com.google.idea.blaze.base.model.primitives.Label;
 import com.google.idea.blaze.base.model.primitives.WorkspacePath;
 import com.google.idea.blaze.base.projectview.ProjectViewSet;
 import com.google.idea.blaze.base.projectview.parser.ProjectViewParser;
 import com.google.idea.blaze.base.scope.BlazeContext;
 import com.google.idea.blaze.base.sync.workspace.WorkspacePathResolverImpl;
+import com.intellij.psi.PsiElement;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
@@ -86,6 +88,20 @@ public class BuildReferenceManagerTest extends BuildFileIntegrationTestCase {
     assertThat(otherResults).containsNoneIn(new String[] {":.ijwb"});
   }
 
+  @Test
+  public void testResolveRuleFromIndex() {
+    createBuildFile(
+        new WorkspacePath("java/com/google/BUILD"),
+        "java_library(name = 'lib')",
+        "java_binary(name = 'app', deps = [':lib'])");
+
+    BuildReferenceManager manager = new BuildReferenceManager(getProject());
+    PsiElement rule = manager.resolveLabel(Label.create("//java/com/google:app"));
+    assertThat(rule).isInstanceOf(FuncallExpression.class);
+    assertThat(((FuncallExpression) rule).getFunctionName()).isEqualTo("java_binary");
+    assertThat(manager.resolveLabel(Label.create("//java/com/google:missing"))).isNull();
+  }
+
   protected void setProjectView(String... contents) {
     BlazeContext context = BlazeContext.create();
     ProjectViewParser projectViewParser =
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.libraries;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.idea.blaze.base.BlazeIntegrationTestCase;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.testFramework.PlatformTestUtil;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the batched resolution of {@link BlazeExternalSyntheticLibrary} files. */
+@RunWith(JUnit4.class)
+public final class BlazeExternalSyntheticLibraryTest extends BlazeIntegrationTestCase {
+
+  @Override
+  protected boolean isLightTestCase() {
+    // files have to exist on disk without being known to the VFS
+    return false;
+  }
+
+  @Test
+  public void testFilesMissingFromVfsResolvedInBackground() throws Exception {
+    VirtualFile cached = workspace.createFile(new WorkspacePath("lib/Cached.java"));
+    File missing = workspaceRoot.fileForPath(new WorkspacePath("lib/Missing.java"));
+    Files.write(missing.toPath(), new byte[0]);
+    assertThat(LocalFileSystem.getInstance().findFileByPathIfCached(missing.getPath())).isNull();
+    AtomicInteger resolved = new AtomicInteger();
+
+    BlazeExternalSyntheticLibrary library =
+        new BlazeExternalSyntheticLibrary(
+            "Test Library",
+            ImmutableList.of(new File(cached.getPath()), missing),
+            resolved::incrementAndGet);
+
+    // files which are already in the VFS are added right away
+    assertThat(library.getSourceRoots()).containsExactly(cached);
+
+    PlatformTestUtil.waitWithEventsDispatching(
+        "Missing file was not resolved", () -> resolved.get() > 0, /* timeoutInSeconds= */ 10);
+    VirtualFile missingFile = LocalFileSystem.getInstance().findFileByIoFile(missing);
+    assertThat(missingFile).isNotNull();
+    assertThat(library.getSourceRoots()).containsExactly(cached, missingFile);
+    assertThat(resolved.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testNonexistentFilesNotAdded() throws Exception {
+    VirtualFile cached = workspace.createFile(new WorkspacePath("lib/Cached.java"));
+    File nonexistent = workspaceRoot.fileForPath(new WorkspacePath("lib/Nonexistent.java"));
+    File created = workspaceRoot.fileForPath(new WorkspacePath("lib/Created.java"));
+    Files.write(created.toPath(), new byte[0]);
+    AtomicInteger resolved = new AtomicInteger();
+
+    BlazeExternalSyntheticLibrary library =
+        new BlazeExternalSyntheticLibrary(
+            "Test Library",
+            ImmutableList.of(new File(cached.getPath()), nonexistent, created),
+            resolved::incrementAndGet);
+
+    PlatformTestUtil.waitWithEventsDispatching(
+        "Created file was not resolved", () -> resolved.get() > 0, /* timeoutInSeconds= */ 10);
+    assertThat(library.getSourceRoots())
+        .containsExactly(cached, LocalFileSystem.getInstance().findFileByIoFile(created));
+  }
+
+  @Test
+  public void testFullyCoveredDirectoriesMergedIntoRoots() throws Exception {
+    VirtualFile a = workspace.createFile(new WorkspacePath("lib/tree/A.java"));
+    VirtualFile b = workspace.createFile(new WorkspacePath("lib/tree/sub/B.java"));
+    VirtualFile c = workspace.createFile(new WorkspacePath("lib/partial/C.java"));
+    workspace.createFile(new WorkspacePath("lib/partial/NotInLibrary.java"));
+
+    assertThat(BlazeExternalSyntheticLibrary.mergeDirectoryRoots(ImmutableSet.of(a, b, c)))
+        .containsExactly(a.getParent(), c);
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.libraries;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.BlazeIntegrationTestCase;
+import com.google.idea.blaze.base.model.BlazeProjectData;
+import com.google.idea.blaze.base.model.LibraryFilesProvider;
+import com.google.idea.blaze.base.model.MockBlazeProjectDataBuilder;
+import com.google.idea.blaze.base.projectview.ProjectViewSet;
+import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.sync.libraries.LibraryEditor.LibraryRoots;
+import com.intellij.openapi.application.WriteAction;
+import com.intellij.openapi.externalSystem.service.project.IdeModifiableModelsProviderImpl;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.OrderRootType;
+import com.intellij.openapi.roots.libraries.Library;
+import com.intellij.openapi.roots.libraries.LibraryTablesRegistrar;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Integration tests for {@link LibraryEditor#updateProjectLibraries}. */
+@RunWith(JUnit4.class)
+public class LibraryEditorTest extends BlazeIntegrationTestCase {
+
+  private final BlazeProjectData projectData = MockBlazeProjectDataBuilder.builder().build();
+
+  @Test
+  public void testUnchangedLibraryNotModified() {
+    File classes = directory("/lib/classes");
+    File sources = directory("/lib/sources");
+    update(library("lib", classes, sources));
+
+    List<String> modified = update(library("lib", classes, sources));
+
+    assertThat(modified).isEmpty();
+    assertThat(getLibrary("lib")).isNotNull();
+  }
+
+  @Test
+  public void testChangedClassRootsUpdated() {
+    File sources = directory("/lib/sources");
+    update(library("lib", directory("/lib/classes"), sources));
+
+    File newClasses = directory("/lib/other_classes");
+    List<String> modified = update(library("lib", newClasses, sources));
+
+    assertThat(modified).containsExactly("lib");
+    assertThat(getLibrary("lib").getUrls(OrderRootType.CLASSES))
+        .asList()
+        .containsExactly(LibraryModifier.pathToUrl(newClasses));
+  }
+
+  @Test
+  public void testChangedSourceRootsUpdated() {
+    File classes = directory("/lib/classes");
+    update(library("lib", classes, directory("/lib/sources")));
+
+    File newSources = directory("/lib/other_sources");
+    List<String> modified = update(library("lib", classes, newSources));
+
+    assertThat(modified).containsExactly("lib");
+    assertThat(getLibrary("lib").getUrls(OrderRootType.SOURCES))
+        .asList()
+        .containsExactly(LibraryModifier.pathToUrl(newSources));
+  }
+
+  @Test
+  public void testNewLibraryCreated() {
+    File classes = directory("/lib/classes");
+    update(library("lib", classes, directory("/lib/sources")));
+
+    List<String> modified =
+        update(
+            library("lib", classes, directory("/lib/sources")),
+            library("new_lib", directory("/new_lib/classes"), directory("/new_lib/sources")));
+
+    assertThat(modified).containsExactly("new_lib");
+    assertThat(getLibrary("new_lib")).isNotNull();
+  }
+
+  @Test
+  public void testRemovedLibraryGarbageCollected() {
+    update(
+        library("lib", directory("/lib/classes"), directory("/lib/sources")),
+        library("old_lib", directory("/old_lib/classes"), directory("/old_lib/sources")));
+
+    update(library("lib", directory("/lib/classes"), directory("/lib/sources")));
+
+    assertThat(getLibrary("old_lib")).isNull();
+    assertThat(getLibrary("lib")).isNotNull();
+  }
+
+  @Test
+  public void testDuplicateRootsDoNotCauseUpdate() {
+    File classes = directory("/lib/classes");
+    File sources = directory("/lib/sources");
+    update(library("lib", ImmutableList.of(classes, classes), ImmutableList.of(sources)));
+
+    List<String> modified =
+        update(library("lib", ImmutableList.of(classes, classes), ImmutableList.of(sources)));
+
+    assertThat(modified).isEmpty();
+  }
+
+  private File directory(String path) {
+    return new File(fileSystem.createDirectory(path).getPath());
+  }
+
+  private LibraryRoots library(String name, File classes, File sources) {
+    return library(name, ImmutableList.of(classes), ImmutableList.of(sources));
+  }
+
+  private LibraryRoots library(
+      String name, ImmutableList<File> classes, ImmutableList<File> sources) {
+    return LibraryEditor.computeLibraryRoots(
+        new LibraryFilesProvider() {
+          @Override
+          public String getName() {
+            return name;
+          }
+
+          @Override
+          public ImmutableList<File> getClassFiles(BlazeProjectData blazeProjectData) {
+            return classes;
+          }
+
+          @Override
+          public ImmutableList<File> getSourceFiles(BlazeProjectData blazeProjectData) {
+            return sources;
+          }
+        },
+        projectData);
+  }
+
+  /** Updates the project libraries, returning the names of the libraries which were modified. */
+  private List<String> update(LibraryRoots... libraries) {
+    RecordingModelsProvider modelsProvider = new RecordingModelsProvider(getProject());
+    WriteAction.runAndWait(
+        () ->
+            LibraryEditor.updateProjectLibraries(
+                modelsProvider,
+                BlazeContext.create(),
+                ProjectViewSet.builder().build(),
+                projectData,
+                ImmutableList.copyOf(libraries)));
+    return modelsProvider.modified;
+  }
+
+  private Library getLibrary(String name) {
+    return LibraryTablesRegistrar.getInstance()
+        .getLibraryTable(getProject())
+        .getLibraryByName(name);
+  }
+
+  private static class RecordingModelsProvider extends IdeModifiableModelsProviderImpl {
+    final List<String> modified = new ArrayList<>();
+
+    RecordingModelsProvider(Project project) {
+      super(project);
+    }
+
+    @Override
+    public Library.ModifiableModel getModifiableLibraryModel(Library library) {
+      modified.add(library.getName());
+      return super.getModifiableLibraryModel(library);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.buildview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEvent;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEventId;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEventId.TargetCompletedId;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link BepFileFollower}. */
+@RunWith(JUnit4.class)
+public class BepFileFollowerTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testDecodesEventsAppendedBetweenPolls() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("bep");
+    List<BuildEvent> events = new ArrayList<>();
+    try (BepFileFollower follower = new BepFileFollower(file)) {
+      assertThat(follower.poll(events::add)).isFalse();
+
+      append(file, delimited(event("//foo:a")));
+      assertThat(follower.poll(events::add)).isTrue();
+      append(file, delimited(event("//foo:b")));
+      assertThat(follower.poll(events::add)).isTrue();
+
+      assertThat(events).containsExactly(event("//foo:a"), event("//foo:b")).inOrder();
+      assertThat(follower.hasPartialEvent()).isFalse();
+      assertThat(follower.getBytesConsumed()).isEqualTo(Files.size(file));
+    }
+  }
+
+  @Test
+  public void testEventSplitAcrossWritesIsDecodedOnce() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("bep");
+    byte[] bytes = delimited(event("//foo:a"));
+    List<BuildEvent> events = new ArrayList<>();
+    try (BepFileFollower follower = new BepFileFollower(file)) {
+      append(file, Arrays.copyOfRange(bytes, 0, bytes.length / 2));
+      follower.poll(events::add);
+      assertThat(events).isEmpty();
+      assertThat(follower.hasPartialEvent()).isTrue();
+
+      append(file, Arrays.copyOfRange(bytes, bytes.length / 2, bytes.length));
+      follower.poll(events::add);
+
+      assertThat(events).containsExactly(event("//foo:a"));
+      assertThat(follower.hasPartialEvent()).isFalse();
+    }
+  }
+
+  @Test
+  public void testTruncatedTrailingEventIsReported() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("bep");
+    byte[] last = delimited(event("//foo:b"));
+    append(file, delimited(event("//foo:a")));
+    append(file, Arrays.copyOfRange(last, 0, last.length - 1));
+    List<BuildEvent> events = new ArrayList<>();
+    try (BepFileFollower follower = new BepFileFollower(file)) {
+      follower.poll(events::add);
+
+      assertThat(events).containsExactly(event("//foo:a"));
+      assertThat(follower.hasPartialEvent()).isTrue();
+    }
+  }
+
+  @Test
+  public void testUnparsableEventIsSkippedAndCounted() throws Exception {
+    Path file = folder.getRoot().toPath().resolve("bep");
+    append(file, delimited(event("//foo:a")));
+    // a complete message of one byte, which is the invalid field tag zero
+    append(file, new byte[] {1, 0});
+    append(file, delimited(event("//foo:b")));
+    List<BuildEvent> events = new ArrayList<>();
+    try (BepFileFollower follower = new BepFileFollower(file)) {
+      follower.poll(events::add);
+
+      assertThat(events).containsExactly(event("//foo:a"), event("//foo:b")).inOrder();
+      assertThat(follower.getSkippedEvents()).isEqualTo(1);
+      assertThat(follower.hasPartialEvent()).isFalse();
+    }
+  }
+
+  private static BuildEvent event(String label) {
+    return BuildEvent.newBuilder()
+        .setId(
+            BuildEventId.newBuilder()
+                .setTargetCompleted(TargetCompletedId.newBuilder().setLabel(label)))
+        .build();
+  }
+
+  private static byte[] delimited(BuildEvent event) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    event.writeDelimitedTo(out);
+    return out.toByteArray();
+  }
+
+  private static void append(Path file, byte[] bytes) throws Exception {
+    Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+}
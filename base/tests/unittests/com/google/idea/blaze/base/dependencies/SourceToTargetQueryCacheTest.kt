@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.dependencies
+
+import com.google.common.collect.ImmutableListMultimap
+import com.google.common.truth.Truth
+import com.google.idea.blaze.base.model.primitives.Label
+import com.google.idea.blaze.base.model.primitives.WorkspacePath
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot
+import java.io.File
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+
+@RunWith(JUnit4::class)
+class SourceToTargetQueryCacheTest {
+
+  @get:Rule
+  val folder = TemporaryFolder()
+
+  private lateinit var workspace: File
+  private lateinit var cacheDir: File
+  private var queries = 0
+
+  private val query = SourceToTargetQueryCache.PackageQuery { packagePath ->
+    queries++
+    ImmutableListMultimap.of(
+      "Foo.java",
+      TargetInfo.builder(Label.create("//${packagePath.relativePath()}:lib"), "java_library").build(),
+    )
+  }
+
+  @Before
+  fun setUp() {
+    workspace = folder.newFolder("workspace")
+    cacheDir = folder.newFolder("cache")
+    write("foo/BUILD", "load('//tools:defs.bzl', 'lib')\nlib(name = 'lib', srcs = glob(['**/*.java']))")
+    write("foo/Foo.java", "")
+    write("tools/defs.bzl", "load(':common.bzl', 'common')")
+    write("tools/common.bzl", "common = 1")
+  }
+
+  private fun write(path: String, content: String) {
+    val file = File(workspace, path)
+    file.parentFile.mkdirs()
+    file.writeText(content)
+  }
+
+  private fun lookup(cache: SourceToTargetQueryCache, source: String = "//foo:Foo.java") =
+    cache.getTargets(
+      WorkspaceRoot(workspace),
+      cacheDir,
+      { dir -> File(dir, "BUILD").takeIf { it.isFile } },
+      Label.create(source),
+      query,
+    )
+
+  @Test
+  fun unchangedPackage_hitsCache() {
+    val cache = SourceToTargetQueryCache(null)
+
+    Truth.assertThat(lookup(cache)!!.map { it.label }).containsExactly(Label.create("//foo:lib"))
+    Truth.assertThat(lookup(cache, "//foo:Bar.java")).isEmpty()
+    Truth.assertThat(queries).isEqualTo(1)
+
+    // a new session reads the result stored on disk
+    Truth.assertThat(lookup(SourceToTargetQueryCache(null))!!.map { it.label })
+      .containsExactly(Label.create("//foo:lib"))
+    Truth.assertThat(queries).isEqualTo(1)
+  }
+
+  @Test
+  fun packageWithoutBuildFile_isNotQueried() {
+    Truth.assertThat(lookup(SourceToTargetQueryCache(null), "//bar:Bar.java")).isNull()
+    Truth.assertThat(queries).isEqualTo(0)
+  }
+
+  @Test
+  fun changedBuildFile_missesCache() {
+    val cache = SourceToTargetQueryCache(null)
+    lookup(cache)
+
+    write("foo/BUILD", "java_library(name = 'lib', srcs = ['Foo.java'])")
+    lookup(cache)
+
+    Truth.assertThat(queries).isEqualTo(2)
+  }
+
+  @Test
+  fun changedTransitivelyLoadedBzl_missesCache() {
+    val cache = SourceToTargetQueryCache(null)
+    lookup(cache)
+
+    write("tools/common.bzl", "common = 2")
+    lookup(cache)
+
+    Truth.assertThat(queries).isEqualTo(2)
+  }
+
+  @Test
+  fun addedAndRemovedFiles_missCache() {
+    val cache = SourceToTargetQueryCache(null)
+    lookup(cache)
+
+    write("foo/sub/Bar.java", "")
+    lookup(cache)
+    Truth.assertThat(queries).isEqualTo(2)
+
+    File(workspace, "foo/sub/Bar.java").delete()
+    lookup(cache)
+    Truth.assertThat(queries).isEqualTo(3)
+  }
+
+  @Test
+  fun filesInSubpackage_hitCache() {
+    write("foo/sub/BUILD", "")
+    val cache = SourceToTargetQueryCache(null)
+    lookup(cache)
+
+    write("foo/sub/Bar.java", "")
+    lookup(cache)
+
+    Truth.assertThat(queries).isEqualTo(1)
+  }
+
+  @Test
+  fun loadedFilesInWorkspace() {
+    val buildFile = """
+      load("//tools/build_defs:java.bzl", "java_lib")
+      load(':defs.bzl', 'macro')
+      load("@@//:root.bzl", "root")
+      load("@rules_java//java:defs.bzl", "java_library")
+      java_lib(name = 'lib')
+    """.trimIndent()
+
+    Truth.assertThat(SourceToTargetQueryCache.loadedFiles(WorkspacePath("foo/bar"), buildFile))
+      .containsExactly(
+        WorkspacePath("tools/build_defs/java.bzl"),
+        WorkspacePath("foo/bar/defs.bzl"),
+        WorkspacePath("root.bzl"),
+      )
+      .inOrder()
+  }
+}
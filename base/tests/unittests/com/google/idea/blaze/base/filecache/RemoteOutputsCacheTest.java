@@ -16,16 +16,29 @@
 package com.google.idea.blaze.base.filecache;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.idea.blaze.base.command.buildresult.RemoteOutputArtifact;
+import com.google.idea.blaze.base.model.RemoteOutputArtifacts;
 import com.google.idea.common.experiments.ExperimentService;
 import com.google.idea.common.experiments.MockExperimentService;
 import com.google.idea.testing.IntellijRule;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
@@ -33,6 +46,7 @@ import org.junit.runners.JUnit4;
 @RunWith(JUnit4.class)
 public class RemoteOutputsCacheTest {
   @Rule public final IntellijRule intellij = new IntellijRule();
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
 
   @Before
   public void setUp() throws Exception {
@@ -110,4 +124,106 @@ public class RemoteOutputsCacheTest {
     assertThat(RemoteOutputsCache.getCacheKey(artifact1))
         .isNotEqualTo(RemoteOutputsCache.getCacheKey(artifact2));
   }
+
+  @Test
+  public void testMaterializeSharesContentsWithSameDigest() throws Exception {
+    RemoteOutputArtifact artifact = mock(RemoteOutputArtifact.class);
+    when(artifact.getInputStream())
+        .thenAnswer(invocation -> new ByteArrayInputStream("contents".getBytes(UTF_8)));
+    Path cacheDir = temporaryFolder.getRoot().toPath();
+    Path contentDir = cacheDir.resolve(".content");
+
+    RemoteOutputsCache.materialize(contentDir, cacheDir.resolve("a_1.jar"), "abc123", artifact);
+    RemoteOutputsCache.materialize(contentDir, cacheDir.resolve("b_2.jar"), "abc123", artifact);
+
+    verify(artifact, times(1)).getInputStream();
+    assertThat(Files.readAllBytes(cacheDir.resolve("a_1.jar")))
+        .isEqualTo("contents".getBytes(UTF_8));
+    assertThat(Files.readAllBytes(cacheDir.resolve("b_2.jar")))
+        .isEqualTo("contents".getBytes(UTF_8));
+  }
+
+  @Test
+  public void testFindUpdatedOutputsComparesDigests() throws Exception {
+    Path cacheDir = temporaryFolder.getRoot().toPath();
+    Files.write(cacheDir.resolve("a_1.jar"), new byte[0]);
+    Files.write(cacheDir.resolve("b_2.jar"), new byte[0]);
+    RemoteOutputArtifact unchanged = artifactWithDigest("abc123");
+    RemoteOutputArtifact changed = artifactWithDigest("def456");
+
+    Map<String, RemoteOutputArtifact> updated =
+        RemoteOutputsCache.findUpdatedOutputs(
+            ImmutableMap.of("a_1.jar", unchanged, "b_2.jar", changed),
+            ImmutableMap.of("a_1.jar", "abc123", "b_2.jar", "abc123"),
+            ImmutableMap.of(
+                "a_1.jar", cacheDir.resolve("a_1.jar").toFile(),
+                "b_2.jar", cacheDir.resolve("b_2.jar").toFile()),
+            RemoteOutputArtifacts.EMPTY);
+
+    assertThat(updated).containsExactly("b_2.jar", changed);
+  }
+
+  @Test
+  public void testFindUpdatedOutputsRefetchesDeletedCacheFile() throws Exception {
+    Path cacheDir = temporaryFolder.getRoot().toPath();
+    RemoteOutputArtifact artifact = artifactWithDigest("abc123");
+
+    Map<String, RemoteOutputArtifact> updated =
+        RemoteOutputsCache.findUpdatedOutputs(
+            ImmutableMap.of("a_1.jar", artifact),
+            ImmutableMap.of("a_1.jar", "abc123"),
+            ImmutableMap.of("a_1.jar", cacheDir.resolve("a_1.jar").toFile()),
+            RemoteOutputArtifacts.EMPTY);
+
+    assertThat(updated).containsExactly("a_1.jar", artifact);
+  }
+
+  @Test
+  public void testMaterializeAllKeepsContentsIfAnyKeySucceeds() throws Exception {
+    RemoteOutputArtifact artifact = artifactWithDigest("abc123");
+    Path cacheDir = temporaryFolder.getRoot().toPath();
+    Path contentDir = cacheDir.resolve(".content");
+    Set<String> failed = new HashSet<>();
+
+    RemoteOutputsCache.materializeAll(
+        contentDir,
+        cacheDir,
+        "abc123",
+        artifact,
+        ImmutableList.of("a_1.jar", "missing/b_2.jar"),
+        failed::add);
+
+    assertThat(failed).containsExactly("missing/b_2.jar");
+    assertThat(Files.exists(contentDir.resolve("abc123"))).isTrue();
+    assertThat(Files.readAllBytes(cacheDir.resolve("a_1.jar")))
+        .isEqualTo("contents".getBytes(UTF_8));
+  }
+
+  @Test
+  public void testMaterializeAllDeletesContentsIfEveryKeyFails() throws Exception {
+    RemoteOutputArtifact artifact = artifactWithDigest("abc123");
+    Path cacheDir = temporaryFolder.getRoot().toPath();
+    Path contentDir = cacheDir.resolve(".content");
+    Set<String> failed = new HashSet<>();
+
+    // the parent directories don't exist, so neither link nor copy can succeed
+    RemoteOutputsCache.materializeAll(
+        contentDir,
+        cacheDir,
+        "abc123",
+        artifact,
+        ImmutableList.of("missing/a_1.jar", "missing/b_2.jar"),
+        failed::add);
+
+    assertThat(failed).containsExactly("missing/a_1.jar", "missing/b_2.jar");
+    assertThat(Files.exists(contentDir.resolve("abc123"))).isFalse();
+  }
+
+  private static RemoteOutputArtifact artifactWithDigest(String digest) throws Exception {
+    RemoteOutputArtifact artifact = mock(RemoteOutputArtifact.class);
+    when(artifact.getDigest()).thenReturn(digest);
+    when(artifact.getInputStream())
+        .thenAnswer(invocation -> new ByteArrayInputStream("contents".getBytes(UTF_8)));
+    return artifact;
+  }
 }
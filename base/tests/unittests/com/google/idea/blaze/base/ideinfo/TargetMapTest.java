@@ -0,0 +1,206 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.ideinfo;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
+import com.google.idea.blaze.base.model.primitives.Kind;
+import com.google.idea.blaze.base.model.primitives.Label;
+import com.google.idea.blaze.base.model.primitives.LanguageClass;
+import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the lookups of {@link TargetMap}. */
+@RunWith(JUnit4.class)
+public class TargetMapTest extends BlazeTestCase {
+  private static final int PACKAGES = 1000;
+  private static final int TARGETS_PER_PACKAGE = 100;
+  private static final int LOOKUPS = 100;
+
+  @Override
+  protected void initTest(
+      @NotNull Container applicationServices, @NotNull Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    ExtensionPointImpl<Kind.Provider> kindProvider =
+        registerExtensionPoint(Kind.Provider.EP_NAME, Kind.Provider.class);
+    kindProvider.registerExtension(new GenericBlazeRules());
+    applicationServices.register(Kind.ApplicationState.class, new Kind.ApplicationState());
+  }
+
+  @Test
+  public void testLabelLookupIncludesAllConfigurations() {
+    TargetMap targetMap =
+        TargetMapBuilder.builder()
+            .addTarget(TargetIdeInfo.builder().setLabel("//foo:bar").setKind("proto_library"))
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setLabel("//foo:bar")
+                    .setKind("proto_library")
+                    .setConfigurationId("k8-opt"))
+            .addTarget(TargetIdeInfo.builder().setLabel("//foo:baz").setKind("sh_binary"))
+            .build();
+
+    assertThat(targetMap.get(Label.create("//foo:bar"))).hasSize(2);
+    assertThat(targetMap.get(Label.create("//foo:qux"))).isEmpty();
+  }
+
+  @Test
+  public void testLanguageLookup() {
+    TargetMap targetMap =
+        TargetMapBuilder.builder()
+            .addTarget(TargetIdeInfo.builder().setLabel("//foo:bar").setKind("proto_library"))
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setLabel("//foo:plugin")
+                    .setKind("intellij_plugin_debug_target"))
+            .build();
+
+    assertThat(targetMap.targetsOfLanguage(LanguageClass.JAVA))
+        .containsExactly(targetMap.get(TargetKey.forPlainTarget(Label.create("//foo:plugin"))));
+    assertThat(targetMap.targetsOfLanguage(LanguageClass.GENERIC))
+        .containsExactly(targetMap.get(TargetKey.forPlainTarget(Label.create("//foo:bar"))));
+    assertThat(targetMap.targetsOfLanguage(LanguageClass.PYTHON)).isEmpty();
+  }
+
+  /**
+   * Compares label and language lookups in a project sized target map with the scans over every
+   * target which they replace.
+   */
+  @Test
+  public void testLookupLatencyInLargeTargetMap() {
+    TargetMapBuilder builder = TargetMapBuilder.builder();
+    for (int p = 0; p < PACKAGES; p++) {
+      for (int t = 0; t < TARGETS_PER_PACKAGE; t++) {
+        builder.addTarget(
+            TargetIdeInfo.builder()
+                .setLabel(String.format("//pkg%d:target%d", p, t))
+                .setKind(t == 0 ? "intellij_plugin_debug_target" : "sh_binary"));
+      }
+    }
+    TargetMap targetMap = builder.build();
+    List<Label> labels = new ArrayList<>();
+    for (int p = 0; p < PACKAGES; p += PACKAGES / LOOKUPS) {
+      labels.add(Label.create(String.format("//pkg%d:target%d", p, p % TARGETS_PER_PACKAGE)));
+    }
+    // build the indexes, which happens once per target map
+    targetMap.get(labels.get(0));
+    targetMap.targetsOfLanguage(LanguageClass.JAVA);
+
+    long start = System.nanoTime();
+    for (Label label : labels) {
+      assertThat(targetMap.get(label)).hasSize(1);
+      assertThat(targetMap.targetsOfLanguage(LanguageClass.JAVA)).hasSize(PACKAGES);
+    }
+    long indexedNanos = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    for (Label label : labels) {
+      assertThat(
+              targetMap.targets().stream()
+                  .filter(target -> target.getKey().label().equals(label))
+                  .count())
+          .isEqualTo(1);
+      assertThat(
+              targetMap.targets().stream()
+                  .filter(target -> target.getKind().hasLanguage(LanguageClass.JAVA))
+                  .count())
+          .isEqualTo(PACKAGES);
+    }
+    long scanNanos = System.nanoTime() - start;
+
+    assertWithMessage(
+            "%s lookups in %s targets: indexed %sms, scanning %sms",
+            LOOKUPS,
+            PACKAGES * TARGETS_PER_PACKAGE,
+            indexedNanos / 1_000_000,
+            scanNanos / 1_000_000)
+        .that(indexedNanos)
+        .isLessThan(scanNanos);
+  }
+
+  @Test
+  public void testLazyContainsDoesNotDecode() {
+    TargetKey good = TargetKey.forPlainTarget(Label.create("//foo:good"));
+    TargetKey broken = TargetKey.forPlainTarget(Label.create("//foo:broken"));
+    CountingSource source =
+        new CountingSource(
+            ImmutableMap.of(
+                good, TargetIdeInfo.builder().setLabel("//foo:good").setKind("sh_binary").build()),
+            ImmutableSet.of(good, broken));
+    TargetMap targetMap = TargetMap.lazy(source);
+
+    assertThat(targetMap.contains(good)).isTrue();
+    assertThat(targetMap.contains(broken)).isTrue();
+    assertThat(targetMap.contains(TargetKey.forPlainTarget(Label.create("//foo:none")))).isFalse();
+    assertThat(source.loads).isEmpty();
+  }
+
+  @Test
+  public void testLazyTargetFailingToDecodeIsOnlyDecodedOnce() {
+    TargetKey broken = TargetKey.forPlainTarget(Label.create("//foo:broken"));
+    CountingSource source = new CountingSource(ImmutableMap.of(), ImmutableSet.of(broken));
+    TargetMap targetMap = TargetMap.lazy(source);
+
+    assertThat(targetMap.get(broken)).isNull();
+    assertThat(targetMap.get(broken)).isNull();
+    assertThat(targetMap.get(Label.create("//foo:broken"))).isEmpty();
+
+    assertThat(source.loads).containsExactly(broken);
+  }
+
+  /** Serves fixed targets, any other key fails to decode. */
+  private static class CountingSource implements TargetMap.Source {
+    private final ImmutableMap<TargetKey, TargetIdeInfo> targets;
+    private final ImmutableSet<TargetKey> keys;
+    private final List<TargetKey> loads = new ArrayList<>();
+
+    CountingSource(ImmutableMap<TargetKey, TargetIdeInfo> targets, ImmutableSet<TargetKey> keys) {
+      this.targets = targets;
+      this.keys = keys;
+    }
+
+    @Override
+    public ImmutableSet<TargetKey> keys() {
+      return keys;
+    }
+
+    @Nullable
+    @Override
+    public TargetIdeInfo load(TargetKey key) {
+      loads.add(key);
+      return targets.get(key);
+    }
+
+    @Nullable
+    @Override
+    public ByteBuffer serialized(TargetKey key) {
+      TargetIdeInfo target = targets.get(key);
+      return target != null ? ByteBuffer.wrap(target.toProto().toByteArray()) : null;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.lang.buildfile.references;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link GlobResultCache}. */
+@RunWith(JUnit4.class)
+public class GlobResultCacheTest {
+  private static final File PACKAGE = new File("/workspace/java/com/google");
+
+  private final FakeTicker ticker = new FakeTicker();
+  private final GlobResultCache cache = new GlobResultCache(ticker);
+  private final AtomicInteger globs = new AtomicInteger();
+
+  private ImmutableList<File> glob(String include) {
+    return cache.get(
+        PACKAGE,
+        ImmutableList.of(include),
+        ImmutableList.of(),
+        true,
+        () -> {
+          globs.incrementAndGet();
+          return ImmutableList.of(new File(PACKAGE, "Foo.java"));
+        });
+  }
+
+  @Test
+  public void testRepeatedGlobIsCached() {
+    assertThat(glob("**/*.java")).containsExactly(new File(PACKAGE, "Foo.java"));
+    assertThat(glob("**/*.java")).containsExactly(new File(PACKAGE, "Foo.java"));
+    assertThat(globs.get()).isEqualTo(1);
+
+    glob("*.txt");
+    assertThat(globs.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testChangesInsidePackageInvalidate() {
+    glob("**/*.java");
+    cache.invalidate(ImmutableSet.of("/workspace/java/com/google/sub/Bar.java"));
+    glob("**/*.java");
+    assertThat(globs.get()).isEqualTo(2);
+
+    cache.invalidate(ImmutableSet.of("/workspace/java"));
+    glob("**/*.java");
+    assertThat(globs.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void testChangesOutsidePackageKeepCache() {
+    glob("**/*.java");
+    cache.invalidate(
+        ImmutableSet.of("/workspace/java/com/googler/Bar.java", "/workspace/javascript"));
+    glob("**/*.java");
+    assertThat(globs.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testBatchInvalidatesEachChangedPackage() {
+    glob("**/*.java");
+    cache.invalidate(
+        ImmutableSet.of("/workspace/javascript/foo.js", "/workspace/java/com/google/Bar.java"));
+    glob("**/*.java");
+    assertThat(globs.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testLargeBatchClearsCache() {
+    glob("**/*.java");
+    Set<String> paths =
+        IntStream.rangeClosed(0, GlobResultCache.MAX_INVALIDATED_PATHS)
+            .mapToObj(i -> "/elsewhere/file" + i)
+            .collect(Collectors.toSet());
+    cache.invalidate(paths);
+    glob("**/*.java");
+    assertThat(globs.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testEntriesExpire() {
+    glob("**/*.java");
+    ticker.advance(Duration.ofMinutes(1));
+    glob("**/*.java");
+    assertThat(globs.get()).isEqualTo(1);
+
+    // files created outside the IDE may have no VFS event, so the results are eventually redone
+    ticker.advance(Duration.ofHours(1));
+    glob("**/*.java");
+    assertThat(globs.get()).isEqualTo(2);
+  }
+
+  private static class FakeTicker extends Ticker {
+    private long nanos;
+
+    void advance(Duration duration) {
+      nanos += duration.toNanos();
+    }
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+  }
+}
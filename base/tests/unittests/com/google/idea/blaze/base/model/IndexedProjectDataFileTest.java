@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetKey;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.ideinfo.TargetMapBuilder;
+import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
+import com.google.idea.blaze.base.model.primitives.Kind;
+import com.google.idea.blaze.base.model.primitives.Label;
+import com.google.idea.blaze.base.settings.BuildSystemName;
+import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
+import java.io.File;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link IndexedProjectDataFile}. */
+@RunWith(JUnit4.class)
+public class IndexedProjectDataFileTest extends BlazeTestCase {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Override
+  protected void initTest(
+      @NotNull Container applicationServices, @NotNull Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    ExtensionPointImpl<Kind.Provider> kindProvider =
+        registerExtensionPoint(Kind.Provider.EP_NAME, Kind.Provider.class);
+    kindProvider.registerExtension(new GenericBlazeRules());
+    applicationServices.register(Kind.ApplicationState.class, new Kind.ApplicationState());
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    TargetMap targetMap =
+        TargetMapBuilder.builder()
+            .addTarget(TargetIdeInfo.builder().setLabel("//foo:bar").setKind("proto_library"))
+            .addTarget(
+                TargetIdeInfo.builder()
+                    .setLabel("//foo:baz")
+                    .setKind("sh_binary")
+                    .addDependency("//foo:bar"))
+            .build();
+    BlazeProjectData data = MockBlazeProjectDataBuilder.builder().setTargetMap(targetMap).build();
+    File file = folder.newFile("cache.dat.idx");
+
+    data.saveToDiskIndexed(file);
+    BlazeProjectData loaded = BlazeProjectData.loadFromDiskIndexed(BuildSystemName.Bazel, file);
+
+    assertThat(loaded.targetMap().map()).isEqualTo(targetMap.map());
+    assertThat(loaded.blazeInfo()).isEqualTo(data.blazeInfo());
+    assertThat(loaded.workspaceLanguageSettings()).isEqualTo(data.workspaceLanguageSettings());
+  }
+
+  @Test
+  public void testLazyTargetMapEqualsDecodedTargetMap() throws Exception {
+    TargetMap targetMap =
+        TargetMapBuilder.builder()
+            .addTarget(TargetIdeInfo.builder().setLabel("//foo:bar").setKind("proto_library"))
+            .build();
+    TargetMap other =
+        TargetMapBuilder.builder()
+            .addTarget(TargetIdeInfo.builder().setLabel("//foo:bar").setKind("sh_binary"))
+            .build();
+    File file = folder.newFile("cache.dat.idx");
+    MockBlazeProjectDataBuilder.builder().setTargetMap(targetMap).build().saveToDiskIndexed(file);
+
+    TargetMap lazy =
+        BlazeProjectData.loadFromDiskIndexed(BuildSystemName.Bazel, file).targetMap();
+
+    assertThat(lazy).isEqualTo(targetMap);
+    assertThat(targetMap).isEqualTo(lazy);
+    assertThat(lazy.hashCode()).isEqualTo(targetMap.hashCode());
+    assertThat(lazy).isNotEqualTo(other);
+  }
+
+  @Test
+  public void testSaveReplacesLoadedFile() throws Exception {
+    File file = folder.newFile("cache.dat.idx");
+    TargetMap first =
+        TargetMapBuilder.builder()
+            .addTarget(TargetIdeInfo.builder().setLabel("//foo:bar").setKind("proto_library"))
+            .build();
+    MockBlazeProjectDataBuilder.builder().setTargetMap(first).build().saveToDiskIndexed(file);
+    BlazeProjectData loaded = BlazeProjectData.loadFromDiskIndexed(BuildSystemName.Bazel, file);
+
+    TargetMap second =
+        TargetMapBuilder.builder()
+            .addTarget(TargetIdeInfo.builder().setLabel("//foo:baz").setKind("sh_binary"))
+            .build();
+    MockBlazeProjectDataBuilder.builder().setTargetMap(second).build().saveToDiskIndexed(file);
+
+    assertThat(loaded.targetMap().get(TargetKey.forPlainTarget(Label.create("//foo:bar"))))
+        .isNotNull();
+    assertThat(
+            BlazeProjectData.loadFromDiskIndexed(BuildSystemName.Bazel, file).targetMap().map())
+        .isEqualTo(second.map());
+  }
+}
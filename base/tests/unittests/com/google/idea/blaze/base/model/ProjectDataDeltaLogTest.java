@@ -0,0 +1,169 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.model;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.devtools.intellij.model.ProjectData;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.ideinfo.TargetMapBuilder;
+import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
+import com.google.idea.blaze.base.model.primitives.Kind;
+import com.google.idea.blaze.base.settings.BuildSystemName;
+import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ProjectDataDeltaLog}. */
+@RunWith(JUnit4.class)
+public class ProjectDataDeltaLogTest extends BlazeTestCase {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private File log;
+
+  @Override
+  protected void initTest(
+      @NotNull Container applicationServices, @NotNull Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    ExtensionPointImpl<Kind.Provider> kindProvider =
+        registerExtensionPoint(Kind.Provider.EP_NAME, Kind.Provider.class);
+    kindProvider.registerExtension(new GenericBlazeRules());
+    applicationServices.register(Kind.ApplicationState.class, new Kind.ApplicationState());
+    log = new File(folder.getRoot(), "cache.dat.log");
+  }
+
+  @Test
+  public void testDiffAndApplyRoundTrip() throws Exception {
+    BlazeProjectData base =
+        projectData(
+            TargetMapBuilder.builder()
+                .addTarget(target("//foo:unchanged", "sh_binary"))
+                .addTarget(target("//foo:changed", "sh_binary"))
+                .addTarget(target("//foo:removed", "sh_binary"))
+                .build());
+    BlazeProjectData next =
+        projectData(
+            TargetMapBuilder.builder()
+                .addTarget(target("//foo:unchanged", "sh_binary"))
+                .addTarget(target("//foo:changed", "proto_library"))
+                .addTarget(target("//foo:added", "sh_binary"))
+                .build());
+
+    ProjectDataDeltaLog.append(base, next, log);
+    BlazeProjectData applied = ProjectDataDeltaLog.apply(BuildSystemName.Bazel, base, log);
+
+    assertThat(applied.targetMap().map()).isEqualTo(next.targetMap().map());
+    assertThat(applied.targetMap()).isEqualTo(next.targetMap());
+  }
+
+  @Test
+  public void testApplyMultipleEntriesOnIndexedSnapshot() throws Exception {
+    BlazeProjectData first =
+        projectData(
+            TargetMapBuilder.builder()
+                .addTarget(target("//foo:a", "sh_binary"))
+                .addTarget(target("//foo:b", "sh_binary"))
+                .build());
+    File snapshot = new File(folder.getRoot(), "cache.dat.idx");
+    first.saveToDiskIndexed(snapshot);
+    BlazeProjectData base = BlazeProjectData.loadFromDiskIndexed(BuildSystemName.Bazel, snapshot);
+    BlazeProjectData second =
+        projectData(
+            TargetMapBuilder.builder()
+                .addTarget(target("//foo:a", "sh_binary"))
+                .addTarget(target("//foo:c", "sh_binary"))
+                .build());
+    BlazeProjectData third =
+        projectData(
+            TargetMapBuilder.builder()
+                .addTarget(target("//foo:b", "proto_library"))
+                .addTarget(target("//foo:c", "sh_binary"))
+                .build());
+
+    ProjectDataDeltaLog.append(base, second, log);
+    ProjectDataDeltaLog.append(second, third, log);
+    BlazeProjectData applied = ProjectDataDeltaLog.apply(BuildSystemName.Bazel, base, log);
+
+    assertThat(applied.targetMap().map()).isEqualTo(third.targetMap().map());
+  }
+
+  @Test
+  public void testOnlyChangedProjectDataFieldsAreStored() throws Exception {
+    TargetMap targets =
+        TargetMapBuilder.builder().addTarget(target("//foo:a", "sh_binary")).build();
+    BlazeProjectData base = projectData(targets);
+    BlazeProjectData sameInfo = projectData(targets);
+    BlazeProjectData newInfo =
+        MockBlazeProjectDataBuilder.builder()
+            .setTargetMap(targets)
+            .setOutputBase("/usr/workspace/5678")
+            .build();
+
+    ProjectDataDeltaLog.append(base, sameInfo, log);
+    ProjectDataDeltaLog.append(sameInfo, newInfo, log);
+
+    try (InputStream in = new FileInputStream(log)) {
+      ProjectData.ProjectDataDelta unchanged = ProjectData.ProjectDataDelta.parseDelimitedFrom(in);
+      ProjectData.ProjectDataDelta changed = ProjectData.ProjectDataDelta.parseDelimitedFrom(in);
+      assertThat(unchanged.getProjectData().getAllFields()).isEmpty();
+      assertThat(unchanged.getUpdatedTargetsList()).isEmpty();
+      assertThat(changed.getProjectData().hasBlazeInfo()).isTrue();
+      assertThat(changed.getProjectData().hasWorkspacePathResolver()).isFalse();
+    }
+    BlazeProjectData applied = ProjectDataDeltaLog.apply(BuildSystemName.Bazel, base, log);
+    assertThat(applied.blazeInfo()).isEqualTo(newInfo.blazeInfo());
+    assertThat(applied.workspacePathResolver()).isEqualTo(base.workspacePathResolver());
+  }
+
+  @Test
+  public void testTruncatedEntryIsIgnored() throws Exception {
+    BlazeProjectData base =
+        projectData(TargetMapBuilder.builder().addTarget(target("//foo:a", "sh_binary")).build());
+    BlazeProjectData next =
+        projectData(TargetMapBuilder.builder().addTarget(target("//foo:b", "sh_binary")).build());
+    BlazeProjectData last =
+        projectData(TargetMapBuilder.builder().addTarget(target("//foo:c", "sh_binary")).build());
+    ProjectDataDeltaLog.append(base, next, log);
+    long complete = log.length();
+    ProjectDataDeltaLog.append(next, last, log);
+    try (OutputStream out = new FileOutputStream(log, /* append= */ true)) {
+      out.getChannel().truncate(complete + 2);
+    }
+
+    BlazeProjectData applied = ProjectDataDeltaLog.apply(BuildSystemName.Bazel, base, log);
+
+    assertThat(applied.targetMap().map()).isEqualTo(next.targetMap().map());
+  }
+
+  private static BlazeProjectData projectData(TargetMap targetMap) {
+    return MockBlazeProjectDataBuilder.builder().setTargetMap(targetMap).build();
+  }
+
+  private static TargetIdeInfo.Builder target(String label, String kind) {
+    return TargetIdeInfo.builder().setLabel(label).setKind(kind);
+  }
+}
@@ -212,6 +212,31 @@ public class BlazeXmlSchemaTest {
     assertThat(BlazeXmlSchema.getErrorContent(testCase.errors.get(0))).isNull();
   }
 
+  /** Parses several megabytes of captured output, as produced by chatty or flaky tests. */
+  @Test
+  public void testLargeOutputIsCapped() {
+    String line = "x".repeat(99) + "\n";
+    StringBuilder xml = new StringBuilder("<testsuite name='com.google.ChattyTest'>");
+    for (int i = 0; i < 100; i++) {
+      xml.append("<testcase name='testCase").append(i).append("' status='run'><system-out>");
+      // the first test case logs far more than the cap, the others 50kB each
+      xml.append(line.repeat(i == 0 ? 50_000 : 500));
+      xml.append("</system-out></testcase>");
+    }
+    xml.append("</testsuite>");
+
+    TestSuite parsed =
+        BlazeXmlSchema.parse(
+            new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(parsed.testCases).hasSize(100);
+    String capped = parsed.testCases.get(0).sysOut;
+    assertThat(capped.length()).isLessThan(BlazeXmlSchema.MAX_TEXT_LENGTH + 100);
+    assertThat(capped)
+        .endsWith("(" + (5_000_000 - BlazeXmlSchema.MAX_TEXT_LENGTH) + " characters truncated)");
+    assertThat(parsed.testCases.get(1).sysOut).hasLength(50_000);
+  }
+
   private static TestSuite parseXml(String... lines) {
     InputStream stream =
         new ByteArrayInputStream(Joiner.on('\n').join(lines).getBytes(StandardCharsets.UTF_8));
@@ -21,6 +21,7 @@ import static com.google.common.truth.Truth.assertThat;
 import com.google.common.collect.ImmutableList;
 import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos;
 import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEventId.TestResultId;
+import com.google.devtools.build.lib.buildeventstream.BuildEventStreamProtos.BuildEventId.TestSummaryId;
 import com.google.idea.blaze.base.BlazeTestCase;
 import com.google.idea.blaze.base.command.buildresult.BuildEventProtocolOutputReader;
 import com.google.idea.blaze.base.command.buildresult.bepparser.BuildEventStreamProvider;
@@ -31,6 +32,7 @@ import com.google.idea.blaze.base.command.buildresult.LocalFileParser;
 import com.google.idea.blaze.base.command.buildresult.bepparser.BuildEventStreamProvider;
 import com.google.idea.blaze.base.command.buildresult.bepparser.BuildEventStreamProvider.BuildEventStreamException;
 import com.google.idea.blaze.base.command.buildresult.bepparser.OutputArtifactParser;
+import com.google.idea.blaze.base.model.primitives.Label;
 import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.testFramework.rules.TempDirectory;
@@ -38,6 +40,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
@@ -100,6 +103,37 @@ public class LocalBuildEventProtocolTestFinderStrategyTest extends BlazeTestCase
         .containsExactlyElementsIn(results.perTargetResults.entries());
   }
 
+  @Test
+  public void pollTestResults_shouldReportTargetsOnceSummarized()
+      throws IOException, GetArtifactsException {
+    File bepOutputFile =
+        tempDirectory.newFile(
+            "tmp/bep_output.txt",
+            asByteArray(
+                ImmutableList.of(
+                    testResultEvent(
+                        "//java/com/google:Test1",
+                        BuildEventStreamProtos.TestStatus.PASSED,
+                        ImmutableList.of("/usr/local/tmp/_cache/test_result.xml")))));
+    LocalBuildEventProtocolTestFinderStrategy strategy =
+        new LocalBuildEventProtocolTestFinderStrategy(bepOutputFile);
+    try {
+      assertThat(strategy.pollTestResults(0)).isEqualTo(BlazeTestResults.NO_RESULTS);
+
+      Files.write(
+          bepOutputFile.toPath(),
+          asByteArray(ImmutableList.of(testSummaryEvent("//java/com/google:Test1"))),
+          StandardOpenOption.APPEND);
+
+      BlazeTestResults results = strategy.pollTestResults(0);
+      assertThat(results.perTargetResults.keySet())
+          .containsExactly(Label.create("//java/com/google:Test1"));
+      assertThat(strategy.pollTestResults(0)).isEqualTo(BlazeTestResults.NO_RESULTS);
+    } finally {
+      strategy.deleteTemporaryOutputFiles();
+    }
+  }
+
   private static byte[] asByteArray(Iterable<BuildEventStreamProtos.BuildEvent.Builder> events)
       throws IOException {
     ByteArrayOutputStream output = new ByteArrayOutputStream();
@@ -124,6 +158,16 @@ public class LocalBuildEventProtocolTestFinderStrategyTest extends BlazeTestCase
                         .collect(toImmutableList())));
   }
 
+  private static BuildEventStreamProtos.BuildEvent.Builder testSummaryEvent(String label) {
+    return BuildEventStreamProtos.BuildEvent.newBuilder()
+        .setId(
+            BuildEventStreamProtos.BuildEventId.newBuilder()
+                .setTestSummary(TestSummaryId.newBuilder().setLabel(label)))
+        .setTestSummary(
+            BuildEventStreamProtos.TestSummary.newBuilder()
+                .setOverallStatus(BuildEventStreamProtos.TestStatus.PASSED));
+  }
+
   private static BuildEventStreamProtos.File toEventFile(String filePath) {
     return BuildEventStreamProtos.File.newBuilder().setUri(fileUrl(filePath)).build();
   }
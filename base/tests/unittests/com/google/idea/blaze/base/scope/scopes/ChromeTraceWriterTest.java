@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.scope.scopes;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.scope.Scope;
+import com.google.idea.blaze.base.scope.scopes.TimingScope.EventType;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ChromeTraceWriter} and {@link TimingTraceScope}. */
+@RunWith(JUnit4.class)
+public class ChromeTraceWriterTest extends BlazeTestCase {
+
+  @Test
+  public void testWritesNestedScopes() throws Exception {
+    List<TimingScope> roots = new ArrayList<>();
+    Scope.root(
+        context -> {
+          context.push(new TimingTraceScope(roots::add));
+          Scope.push(
+              context,
+              outer -> {
+                outer.push(new TimingScope("Build phase", EventType.Other));
+                Scope.push(
+                    outer,
+                    inner -> {
+                      inner.push(new TimingScope("BlazeBuild", EventType.BlazeInvocation));
+                    });
+              });
+        });
+    assertThat(roots).hasSize(1);
+
+    StringWriter writer = new StringWriter();
+    ChromeTraceWriter.write(roots, writer);
+
+    JsonArray events =
+        JsonParser.parseString(writer.toString()).getAsJsonObject().getAsJsonArray("traceEvents");
+    List<String> names = new ArrayList<>();
+    for (JsonElement element : events) {
+      JsonObject event = element.getAsJsonObject();
+      if (event.get("ph").getAsString().equals("X")) {
+        names.add(event.get("name").getAsString());
+        assertThat(event.get("tid").getAsLong()).isEqualTo(Thread.currentThread().getId());
+        assertThat(event.get("dur").getAsLong()).isAtLeast(0);
+      } else {
+        assertThat(event.get("name").getAsString()).isEqualTo("thread_name");
+      }
+    }
+    assertThat(names).containsExactly("Build phase", "BlazeBuild").inOrder();
+    assertThat(events).hasSize(3);
+  }
+}
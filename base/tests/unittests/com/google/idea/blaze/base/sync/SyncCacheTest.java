@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.model.BlazeProjectData;
+import com.google.idea.blaze.base.model.MockBlazeProjectDataBuilder;
+import com.google.idea.blaze.base.settings.BlazeImportSettings;
+import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
+import com.intellij.openapi.project.Project;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import kotlinx.coroutines.GlobalScope;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SyncCache}. */
+@RunWith(JUnit4.class)
+public class SyncCacheTest extends BlazeTestCase {
+  private BlazeProjectData oldProjectData;
+  private BlazeProjectData newProjectData;
+
+  private final AtomicInteger computations = new AtomicInteger();
+  private SyncingProjectDataManager projectDataManager;
+  private SyncCache syncCache;
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    oldProjectData = MockBlazeProjectDataBuilder.builder().build();
+    newProjectData = MockBlazeProjectDataBuilder.builder().build();
+    projectDataManager = new SyncingProjectDataManager();
+    projectDataManager.projectData = oldProjectData;
+    projectServices.register(BlazeProjectDataManager.class, projectDataManager);
+    syncCache = new SyncCache(project, GlobalScope.INSTANCE);
+    projectServices.register(SyncCache.class, syncCache);
+  }
+
+  @Test
+  public void testValueIsComputedOncePerSync() {
+    assertThat(syncCache.get("key", this::count)).isEqualTo(1);
+    assertThat(syncCache.get("key", this::count)).isEqualTo(1);
+    assertThat(syncCache.stats("key").getMisses().get()).isEqualTo(1);
+    assertThat(syncCache.stats("key").getHits().get()).isEqualTo(1);
+
+    syncCache.clear();
+
+    assertThat(syncCache.get("key", this::count)).isEqualTo(2);
+  }
+
+  @Test
+  public void testFailureIsCachedUntilNextSync() {
+    SyncCache.SyncCacheComputable<Integer> failing =
+        (project, projectData) -> {
+          computations.incrementAndGet();
+          throw new IllegalStateException("failed");
+        };
+
+    assertThrows(IllegalStateException.class, () -> syncCache.get("key", failing));
+    assertThrows(IllegalStateException.class, () -> syncCache.get("key", failing));
+    assertThat(syncCache.tryGet("key", failing)).isNull();
+    assertThat(computations.get()).isEqualTo(1);
+
+    syncCache.clear();
+
+    assertThat(syncCache.get("key", this::count)).isEqualTo(2);
+  }
+
+  @Test
+  public void testValueComputedFromProjectDataOfPreviousSyncIsNotCached() {
+    // a sync completes right after the project data was read
+    projectDataManager.syncOnNextRead = true;
+
+    BlazeProjectData computedFrom = syncCache.get("key", (project, projectData) -> projectData);
+
+    assertThat(computedFrom).isSameInstanceAs(newProjectData);
+    assertThat(syncCache.get("key", (project, projectData) -> projectData))
+        .isSameInstanceAs(newProjectData);
+  }
+
+  private Integer count(Project project, BlazeProjectData data) {
+    return computations.incrementAndGet();
+  }
+
+  /** Returns the old project data once before the sync cache is cleared by a sync. */
+  private class SyncingProjectDataManager implements BlazeProjectDataManager {
+    boolean syncOnNextRead;
+    private BlazeProjectData projectData;
+
+    @Nullable
+    @Override
+    public BlazeProjectData getBlazeProjectData() {
+      BlazeProjectData data = projectData;
+      if (syncOnNextRead) {
+        syncOnNextRead = false;
+        projectData = newProjectData;
+        syncCache.clear();
+      }
+      return data;
+    }
+
+    @Nullable
+    @Override
+    public BlazeProjectData loadProject(BlazeImportSettings importSettings) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void saveProject(BlazeImportSettings importSettings, BlazeProjectData projectData) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.aspects;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo.TargetIdeInfo;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
+import com.google.idea.blaze.base.async.executor.MockBlazeExecutor;
+import com.google.idea.blaze.base.filecache.LocalFileState;
+import com.google.idea.blaze.common.artifact.ArtifactState;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link AspectOutputPrefetcher}. */
+@RunWith(JUnit4.class)
+public class AspectOutputPrefetcherTest extends BlazeTestCase {
+  private static final String KEY = "k8-fastbuild/bin/foo/foo.intellij-info.txt";
+  private static final TargetIdeInfo PROTO = TargetIdeInfo.newBuilder().addTags("parsed").build();
+
+  private final AspectOutputPrefetcher prefetcher = new AspectOutputPrefetcher();
+  private final AtomicInteger reads = new AtomicInteger();
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    applicationServices.register(BlazeExecutor.class, new MockBlazeExecutor());
+  }
+
+  @Test
+  public void testTakeReturnsPrefetchedProto() throws Exception {
+    prefetcher.start(null);
+    prefetch(new LocalFileState(KEY, 10));
+
+    assertThat(prefetcher.take(new LocalFileState(KEY, 10)).get()).isEqualTo(PROTO);
+    assertThat(reads.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testResultCanOnlyBeTakenOnce() {
+    prefetcher.start(null);
+    prefetch(new LocalFileState(KEY, 10));
+
+    assertThat(prefetcher.take(new LocalFileState(KEY, 10))).isNotNull();
+    assertThat(prefetcher.take(new LocalFileState(KEY, 10))).isNull();
+  }
+
+  @Test
+  public void testFileChangedAfterPrefetchIsNotTaken() {
+    prefetcher.start(null);
+    prefetch(new LocalFileState(KEY, 10));
+
+    assertThat(prefetcher.take(new LocalFileState(KEY, 20))).isNull();
+  }
+
+  @Test
+  public void testFileUnchangedSinceLastSyncIsNotPrefetched() {
+    prefetcher.start(ImmutableMap.of(KEY, new LocalFileState(KEY, 10)));
+    prefetch(new LocalFileState(KEY, 10));
+
+    assertThat(reads.get()).isEqualTo(0);
+    assertThat(prefetcher.take(new LocalFileState(KEY, 10))).isNull();
+  }
+
+  @Test
+  public void testFileChangedSinceLastSyncIsPrefetched() {
+    prefetcher.start(ImmutableMap.of(KEY, new LocalFileState(KEY, 10)));
+    prefetch(new LocalFileState(KEY, 20));
+
+    assertThat(reads.get()).isEqualTo(1);
+    assertThat(prefetcher.take(new LocalFileState(KEY, 20))).isNotNull();
+  }
+
+  @Test
+  public void testClearDropsResultsNotTaken() {
+    prefetcher.start(null);
+    prefetch(new LocalFileState(KEY, 10));
+    prefetch(new LocalFileState("other.intellij-info.txt", 10));
+    assertThat(prefetcher.take(new LocalFileState(KEY, 10))).isNotNull();
+
+    prefetcher.clear();
+
+    assertThat(prefetcher.take(new LocalFileState("other.intellij-info.txt", 10))).isNull();
+  }
+
+  @Test
+  public void testListenerOfPreviousBuildStopsPrefetching() {
+    prefetcher.start(null);
+    long generation = prefetcher.currentGeneration();
+    prefetcher.clear();
+
+    prefetcher.prefetch(new LocalFileState(KEY, 10), this::read, generation);
+
+    assertThat(reads.get()).isEqualTo(0);
+    assertThat(prefetcher.take(new LocalFileState(KEY, 10))).isNull();
+  }
+
+  private void prefetch(ArtifactState state) {
+    prefetcher.prefetch(state, this::read, prefetcher.currentGeneration());
+  }
+
+  private TargetIdeInfo read() {
+    reads.incrementAndGet();
+    return PROTO;
+  }
+}
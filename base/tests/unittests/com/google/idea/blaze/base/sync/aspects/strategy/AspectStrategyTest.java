@@ -16,9 +16,11 @@
 package com.google.idea.blaze.base.sync.aspects.strategy;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.devtools.intellij.ideinfo.IntellijIdeInfo;
 import com.google.idea.blaze.base.BlazeTestCase;
 import com.google.idea.blaze.base.command.BlazeCommand;
 import com.google.idea.blaze.base.command.BlazeCommandName;
@@ -26,7 +28,11 @@ import com.google.idea.blaze.base.model.primitives.Label;
 import com.google.idea.blaze.base.model.primitives.LanguageClass;
 import com.google.idea.blaze.base.sync.aspects.storage.AspectWriter;
 import com.google.idea.blaze.base.sync.aspects.strategy.AspectStrategy.OutputGroup;
+import com.google.idea.blaze.common.artifact.BlazeArtifact;
 import com.intellij.openapi.project.Project;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
@@ -135,6 +141,63 @@ public class AspectStrategyTest extends BlazeTestCase {
             "intellij-compile-dart");
   }
 
+  @Test
+  public void testJsonAndTextAspectFilesParseToSameProto() throws IOException {
+    String text =
+        String.join(
+            "\n",
+            "key { label: \"//foo:bar\" aspect_ids: \"a\" }",
+            "kind: \"cc_library\"",
+            "tags: \"manual\"",
+            "tags: \"no-ide\"",
+            "deps { dependency_type: 1 target { label: \"//foo:baz\" } }",
+            "deps { dependency_type: 0 target { label: \"//foo:qux\" } }");
+    String json =
+        "{\"key\":{\"aspect_ids\":[\"a\"],\"label\":\"//foo:bar\"},"
+            + "\"kind\":\"cc_library\",\"tags\":[\"manual\",\"no-ide\"],"
+            + "\"deps\":[{\"dependency_type\":1,\"target\":{\"label\":\"//foo:baz\"}},"
+            + "{\"dependency_type\":0,\"target\":{\"label\":\"//foo:qux\"}}],"
+            + "\"unknown_field\":{\"nested\":[1,2]},\"py_ide_info\":null}";
+
+    IntellijIdeInfo.TargetIdeInfo fromText =
+        strategy.readAspectFile(artifact("bar.intellij-info.txt", text));
+    IntellijIdeInfo.TargetIdeInfo fromJson =
+        strategy.readAspectFile(artifact("bar.intellij-info.json", json));
+
+    assertThat(fromJson).isEqualTo(fromText);
+    assertThat(fromJson.getDepsCount()).isEqualTo(2);
+    assertThat(fromJson.hasPyIdeInfo()).isFalse();
+  }
+
+  @Test
+  public void testAspectOutputFilePredicateMatchesBothFormats() {
+    assertThat(AspectStrategy.ASPECT_OUTPUT_FILE_PREDICATE.test("foo/bar.intellij-info.txt"))
+        .isTrue();
+    assertThat(AspectStrategy.ASPECT_OUTPUT_FILE_PREDICATE.test("foo/bar.intellij-info.json"))
+        .isTrue();
+    assertThat(AspectStrategy.ASPECT_OUTPUT_FILE_PREDICATE.test("foo/bar.jar")).isFalse();
+  }
+
+  private static BlazeArtifact artifact(String path, String contents) {
+    byte[] bytes = contents.getBytes(UTF_8);
+    return new BlazeArtifact() {
+      @Override
+      public Path getArtifactPath() {
+        return Path.of(path);
+      }
+
+      @Override
+      public long getLength() {
+        return bytes.length;
+      }
+
+      @Override
+      public BufferedInputStream getInputStream() {
+        return new BufferedInputStream(new ByteArrayInputStream(bytes));
+      }
+    };
+  }
+
   private BlazeCommand.Builder emptyBuilder() {
     return BlazeCommand.builder("/usr/bin/blaze", BlazeCommandName.BUILD);
   }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.data;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
+import com.google.idea.blaze.base.ideinfo.TargetMap;
+import com.google.idea.blaze.base.ideinfo.TargetMapBuilder;
+import com.google.idea.blaze.base.model.BlazeProjectData;
+import com.google.idea.blaze.base.model.MockBlazeProjectDataBuilder;
+import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
+import com.google.idea.blaze.base.model.primitives.Kind;
+import com.google.idea.blaze.base.settings.BuildSystemName;
+import com.intellij.openapi.extensions.impl.ExtensionPointImpl;
+import java.io.File;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for which project data snapshot {@link AspectSyncProjectDataManager} loads. */
+@RunWith(JUnit4.class)
+public class AspectSyncProjectDataManagerTest extends BlazeTestCase {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private TargetMap gzTargets;
+  private TargetMap indexedTargets;
+  private File file;
+  private File indexedFile;
+
+  @Override
+  protected void initTest(
+      @NotNull Container applicationServices, @NotNull Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    ExtensionPointImpl<Kind.Provider> kindProvider =
+        registerExtensionPoint(Kind.Provider.EP_NAME, Kind.Provider.class);
+    kindProvider.registerExtension(new GenericBlazeRules());
+    applicationServices.register(Kind.ApplicationState.class, new Kind.ApplicationState());
+    gzTargets = targetMap("//foo:gz");
+    indexedTargets = targetMap("//foo:indexed");
+    file = new File(folder.getRoot(), "cache.dat.gz");
+    indexedFile = new File(folder.getRoot(), "cache.dat.idx");
+  }
+
+  @Test
+  public void testIndexedCacheOffLoadsIndexedFileWhenOnlyIndexedFileExists() throws Exception {
+    projectData(indexedTargets).saveToDiskIndexed(indexedFile);
+
+    BlazeProjectData loaded = load(/* preferIndexed= */ false);
+
+    assertThat(loaded.targetMap().map()).isEqualTo(indexedTargets.map());
+  }
+
+  @Test
+  public void testIndexedCacheOffPrefersGzFile() throws Exception {
+    projectData(gzTargets).saveToDisk(file);
+    projectData(indexedTargets).saveToDiskIndexed(indexedFile);
+
+    BlazeProjectData loaded = load(/* preferIndexed= */ false);
+
+    assertThat(loaded.targetMap().map()).isEqualTo(gzTargets.map());
+  }
+
+  @Test
+  public void testIndexedCacheOnPrefersIndexedFile() throws Exception {
+    projectData(gzTargets).saveToDisk(file);
+    projectData(indexedTargets).saveToDiskIndexed(indexedFile);
+
+    BlazeProjectData loaded = load(/* preferIndexed= */ true);
+
+    assertThat(loaded.targetMap().map()).isEqualTo(indexedTargets.map());
+  }
+
+  @Test
+  public void testIndexedCacheOnLoadsGzFileWhenOnlyGzFileExists() throws Exception {
+    projectData(gzTargets).saveToDisk(file);
+
+    BlazeProjectData loaded = load(/* preferIndexed= */ true);
+
+    assertThat(loaded.targetMap().map()).isEqualTo(gzTargets.map());
+  }
+
+  private BlazeProjectData load(boolean preferIndexed) throws Exception {
+    return AspectSyncProjectDataManager.loadSnapshot(
+        BuildSystemName.Bazel, file, indexedFile, preferIndexed);
+  }
+
+  private static BlazeProjectData projectData(TargetMap targetMap) {
+    return MockBlazeProjectDataBuilder.builder().setTargetMap(targetMap).build();
+  }
+
+  private static TargetMap targetMap(String label) {
+    return TargetMapBuilder.builder()
+        .addTarget(TargetIdeInfo.builder().setLabel(label).setKind("proto_library"))
+        .build();
+  }
+}
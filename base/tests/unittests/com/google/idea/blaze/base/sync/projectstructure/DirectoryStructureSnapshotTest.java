@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.projectstructure;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.projectview.section.sections.DirectoryEntry;
+import com.google.idea.blaze.base.settings.BuildSystemName;
+import com.google.idea.blaze.base.sync.projectview.ImportRoots;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the incremental walks of {@link DirectoryStructureSnapshot}. */
+@RunWith(JUnit4.class)
+public class DirectoryStructureSnapshotTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final WorkspaceRoot workspaceRoot = new WorkspaceRoot(new File("/root"));
+  private final List<Collection<WorkspacePath>> walks = new ArrayList<>();
+  // the directories on the fake file system
+  private final TreeSet<String> directories = new TreeSet<>();
+
+  private ImportRoots importRoots;
+  private DirectoryStructureSnapshot snapshot;
+
+  @Before
+  public void setUp() throws Exception {
+    importRoots =
+        ImportRoots.builder(workspaceRoot, BuildSystemName.Blaze)
+            .add(DirectoryEntry.include(new WorkspacePath("foo")))
+            .build();
+    File snapshotFile = new File(temporaryFolder.getRoot(), "directoryStructure");
+    snapshot = new DirectoryStructureSnapshot(() -> snapshotFile);
+    directories.addAll(ImmutableList.of("foo", "foo/a", "foo/b", "other"));
+  }
+
+  private TreeSet<String> sync(DirectoryStructureSnapshot.Walker walker) throws Exception {
+    DirectoryStructure structure =
+        snapshot.getDirectoryStructure(workspaceRoot, importRoots, /* walkAll= */ false, walker);
+    TreeSet<String> paths = new TreeSet<>();
+    DirectoryStructure.collectPaths(structure, paths);
+    return paths;
+  }
+
+  private DirectoryStructure walk(Collection<WorkspacePath> roots) {
+    walks.add(ImmutableList.copyOf(roots));
+    return DirectoryStructure.fromPaths(roots, directories);
+  }
+
+  @Test
+  public void testOnlyChangedDirectoriesWalked() throws Exception {
+    assertThat(sync(this::walk)).containsExactly("foo", "foo/a", "foo/b");
+    assertThat(walks).containsExactly(ImmutableList.of(new WorkspacePath("foo")));
+
+    directories.add("foo/a/new");
+    directories.remove("foo/b");
+    snapshot.directoryChanged("/root/foo/a/new");
+    snapshot.directoryChanged("/root/foo/b");
+    walks.clear();
+
+    assertThat(sync(this::walk)).containsExactly("foo", "foo/a", "foo/a/new");
+    assertThat(walks)
+        .containsExactly(
+            ImmutableList.of(new WorkspacePath("foo/a/new"), new WorkspacePath("foo/b")));
+  }
+
+  @Test
+  public void testUnchangedSnapshotNotWalked() throws Exception {
+    sync(this::walk);
+    walks.clear();
+
+    assertThat(sync(this::walk)).containsExactly("foo", "foo/a", "foo/b");
+    assertThat(walks).isEmpty();
+  }
+
+  @Test
+  public void testChangesKeptWhenWalkFails() throws Exception {
+    sync(this::walk);
+    directories.add("foo/a/new");
+    snapshot.directoryChanged("/root/foo/a/new");
+
+    ExecutionException failure = new ExecutionException(new RuntimeException("walk failed"));
+    try {
+      sync(
+          roots -> {
+            throw failure;
+          });
+      throw new AssertionError("expected the walk to fail");
+    } catch (ExecutionException e) {
+      assertThat(e).isSameInstanceAs(failure);
+    }
+    walks.clear();
+
+    assertThat(sync(this::walk)).containsExactly("foo", "foo/a", "foo/a/new", "foo/b");
+    assertThat(walks).containsExactly(ImmutableList.of(new WorkspacePath("foo/a/new")));
+  }
+}
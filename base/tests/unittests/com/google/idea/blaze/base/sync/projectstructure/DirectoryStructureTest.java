@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.projectstructure;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import java.util.List;
+import java.util.TreeSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for building a {@link DirectoryStructure} from a persisted list of directories. */
+@RunWith(JUnit4.class)
+public class DirectoryStructureTest {
+
+  @Test
+  public void testFromPathsOnlyIncludesDirectoriesBelowRoots() {
+    List<String> paths = ImmutableList.of("foo", "foo/bar", "foo/bar/baz", "foo/qux", "other");
+
+    DirectoryStructure structure =
+        DirectoryStructure.fromPaths(ImmutableList.of(new WorkspacePath("foo")), paths);
+
+    assertThat(structure.directories.keySet()).containsExactly(new WorkspacePath("foo"));
+    DirectoryStructure foo = structure.directories.get(new WorkspacePath("foo"));
+    assertThat(foo.directories.keySet())
+        .containsExactly(new WorkspacePath("foo/bar"), new WorkspacePath("foo/qux"));
+    assertThat(foo.directories.get(new WorkspacePath("foo/bar")).directories.keySet())
+        .containsExactly(new WorkspacePath("foo/bar/baz"));
+  }
+
+  @Test
+  public void testCollectPathsRoundTrips() {
+    List<String> paths = ImmutableList.of("a", "a/b", "a/b/c", "d", "d/e");
+    DirectoryStructure structure =
+        DirectoryStructure.fromPaths(
+            ImmutableList.of(new WorkspacePath("a"), new WorkspacePath("d")), paths);
+
+    TreeSet<String> collected = new TreeSet<>();
+    DirectoryStructure.collectPaths(structure, collected);
+
+    assertThat(collected).containsExactlyElementsIn(paths);
+  }
+
+  @Test
+  public void testMissingRootDirectoryIsSkipped() {
+    DirectoryStructure structure =
+        DirectoryStructure.fromPaths(
+            ImmutableList.of(new WorkspacePath("missing")), ImmutableList.of("other"));
+
+    assertThat(structure.directories).isEmpty();
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.projectview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.google.idea.blaze.base.sync.projectview.ImportRoots.ProjectDirectoriesHelper;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for the path containment of {@link ProjectDirectoriesHelper}. */
+@RunWith(JUnit4.class)
+public class ProjectDirectoriesHelperTest {
+  private static final int EXCLUDES = 5000;
+
+  private static ProjectDirectoriesHelper helper(List<String> roots, List<String> excludes) {
+    return new ProjectDirectoriesHelper(
+        roots.stream().map(WorkspacePath::new).collect(ImmutableList.toImmutableList()),
+        excludes.stream().map(WorkspacePath::new).collect(ImmutableSet.toImmutableSet()),
+        /* excludePathsForBazelQuery= */ ImmutableSet.of());
+  }
+
+  @Test
+  public void testRootsAndExcludes() {
+    ProjectDirectoriesHelper helper =
+        helper(ImmutableList.of("foo", "bar/baz"), ImmutableList.of("foo/excluded", "bar"));
+
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("foo"))).isTrue();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("foo/sub/dir"))).isTrue();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("foo/excluded"))).isFalse();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("foo/excluded/sub"))).isFalse();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("foo/excludedsibling"))).isTrue();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("foobar"))).isFalse();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("fo"))).isFalse();
+    // excludes apply even to root directories below them
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("bar/baz"))).isFalse();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath(""))).isFalse();
+  }
+
+  @Test
+  public void testWorkspaceRootIncludesEverything() {
+    ProjectDirectoriesHelper helper = helper(ImmutableList.of(""), ImmutableList.of("out"));
+
+    assertThat(helper.containsWorkspacePath(new WorkspacePath(""))).isTrue();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("any/path"))).isTrue();
+    assertThat(helper.containsWorkspacePath(new WorkspacePath("out/path"))).isFalse();
+  }
+
+  @Test
+  public void testManyExcludes() {
+    List<String> excludes = new ArrayList<>();
+    for (int i = 0; i < EXCLUDES; i++) {
+      excludes.add(String.format("root/dir%d/generated", i));
+    }
+    ProjectDirectoriesHelper helper = helper(ImmutableList.of("root"), excludes);
+
+    for (int i = 0; i < EXCLUDES; i++) {
+      assertThat(helper.containsWorkspacePath(new WorkspacePath("root/dir" + i + "/src/main")))
+          .isTrue();
+      assertThat(helper.containsWorkspacePath(new WorkspacePath("root/dir" + i + "/generated")))
+          .isFalse();
+      assertThat(
+              helper.containsWorkspacePath(new WorkspacePath("root/dir" + i + "/generated/src")))
+          .isFalse();
+      assertThat(helper.containsWorkspacePath(new WorkspacePath("root/dir" + i + "/generatedx")))
+          .isTrue();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.sharding;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.idea.blaze.base.model.primitives.Label;
+import com.google.idea.blaze.base.sync.sharding.ShardCostHistory.Cost;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link CostBasedTargetSharder} and {@link ShardCostHistory}. */
+@RunWith(JUnit4.class)
+public class CostBasedTargetSharderTest {
+
+  private static Set<Label> targets(String pkg, int count) {
+    ImmutableSet.Builder<Label> targets = ImmutableSet.builder();
+    for (int i = 0; i < count; i++) {
+      targets.add(Label.create(String.format("//%s:t%02d", pkg, i)));
+    }
+    return targets.build();
+  }
+
+  @Test
+  public void testExpensivePackagesAreSpreadAcrossShards() {
+    Set<Label> targets =
+        ImmutableSet.<Label>builder()
+            .addAll(targets("cpp/heavy1", 2))
+            .addAll(targets("cpp/heavy2", 2))
+            .addAll(targets("java/light1", 2))
+            .addAll(targets("java/light2", 2))
+            .build();
+    ImmutableList<ImmutableList<Label>> shards =
+        CostBasedTargetSharder.calculateTargetBatches(
+            targets,
+            4,
+            label ->
+                label.toString().startsWith("//cpp") ? new Cost(1000, 1000) : new Cost(1, 1));
+
+    assertThat(shards).hasSize(2);
+    for (ImmutableList<Label> shard : shards) {
+      assertThat(shard).hasSize(4);
+      assertThat(shard.stream().filter(l -> l.toString().startsWith("//cpp")).count())
+          .isEqualTo(2);
+    }
+  }
+
+  @Test
+  public void testPackagesAreSplitToRespectShardSize() {
+    Set<Label> targets = targets("big", 10);
+    ImmutableList<ImmutableList<Label>> shards =
+        CostBasedTargetSharder.calculateTargetBatches(targets, 4, label -> new Cost(1, 1));
+
+    assertThat(shards).hasSize(3);
+    assertThat(shards.stream().mapToInt(ImmutableList::size).max().getAsInt()).isAtMost(4);
+    assertThat(
+            shards.stream().flatMap(ImmutableList::stream).collect(ImmutableSet.toImmutableSet()))
+        .isEqualTo(targets);
+  }
+
+  @Test
+  public void testNoShardsWithoutHistory() {
+    assertThat(CostBasedTargetSharder.calculateTargetBatches(targets("foo", 10), 4, label -> null))
+        .isNull();
+  }
+
+  @Test
+  public void testNoShardsIfTargetsFitIntoOne() {
+    assertThat(
+            CostBasedTargetSharder.calculateTargetBatches(
+                targets("foo", 4), 4, label -> new Cost(1, 1)))
+        .isNull();
+  }
+
+  @Test
+  public void testShardDurationSplitByOutputSize() {
+    Map<String, Cost> costs =
+        ShardCostHistory.measure(
+            ImmutableList.<Label>builder()
+                .addAll(targets("a", 1))
+                .addAll(targets("b", 3))
+                .build(),
+            1000,
+            ImmutableMap.of("//a", 300L, "//b", 100L));
+
+    assertThat(costs.get("//a").millisPerTarget).isWithin(0.01).of(750);
+    assertThat(costs.get("//a").bytesPerTarget).isWithin(0.01).of(300);
+    assertThat(costs.get("//b").millisPerTarget).isWithin(0.01).of(250.0 / 3);
+  }
+
+  @Test
+  public void testPackagesNotMeasuredRecentlyEvicted() {
+    long now = ShardCostHistory.MAX_AGE.toMillis() * 2;
+    Map<String, Cost> costs = new HashMap<>();
+    costs.put("//old", new Cost(1, 1, now - ShardCostHistory.MAX_AGE.toMillis() - 1));
+    costs.put("//recent", new Cost(1, 1, now - 1));
+
+    ShardCostHistory.evict(costs, now);
+
+    assertThat(costs.keySet()).containsExactly("//recent");
+  }
+
+  @Test
+  public void testOnlyMostRecentlyMeasuredPackagesKept() {
+    long now = ShardCostHistory.MAX_AGE.toMillis();
+    Map<String, Cost> costs = new HashMap<>();
+    for (int i = 0; i <= ShardCostHistory.MAX_PACKAGES; i++) {
+      costs.put("//p" + i, new Cost(1, 1, now - ShardCostHistory.MAX_PACKAGES + i));
+    }
+
+    ShardCostHistory.evict(costs, now);
+
+    assertThat(costs).hasSize(ShardCostHistory.MAX_PACKAGES);
+    assertThat(costs).doesNotContainKey("//p0");
+    assertThat(costs).containsKey("//p" + ShardCostHistory.MAX_PACKAGES);
+  }
+}
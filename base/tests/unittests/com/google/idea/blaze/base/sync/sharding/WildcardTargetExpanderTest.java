@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.sharding;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.util.concurrent.Uninterruptibles.sleepUninterruptibly;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
+import com.google.idea.blaze.base.async.executor.MockBlazeExecutor;
+import com.google.idea.blaze.base.command.buildresult.BuildResult.Status;
+import com.google.idea.blaze.base.model.primitives.TargetExpression;
+import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.sync.sharding.WildcardTargetExpander.ExpandedTargetsResult;
+import com.google.idea.blaze.exception.BuildException;
+import com.google.idea.common.experiments.ExperimentService;
+import com.google.idea.common.experiments.MockExperimentService;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the sharded queries of {@link WildcardTargetExpander}. */
+@RunWith(JUnit4.class)
+public class WildcardTargetExpanderTest extends BlazeTestCase {
+
+  private final List<String> queried = Collections.synchronizedList(new ArrayList<>());
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    applicationServices.register(ExperimentService.class, new MockExperimentService());
+    applicationServices.register(BlazeExecutor.class, new MockBlazeExecutor());
+  }
+
+  @Test
+  public void testResultsMergedInShardOrder() {
+    ImmutableList<ImmutableList<TargetExpression>> shards =
+        ImmutableList.of(
+            ImmutableList.of(target("//a/...")),
+            ImmutableList.of(target("//b/...")),
+            ImmutableList.of(target("//c/...")));
+
+    ExpandedTargetsResult result =
+        WildcardTargetExpander.queryShards(
+            BlazeContext.create(),
+            shards,
+            /* parallelism= */ 3,
+            shard -> {
+              String pkg = shard.get(0).toString().replace("/...", "");
+              // later shards finish first
+              int delayMillis = pkg.equals("//a") ? 200 : pkg.equals("//b") ? 100 : 0;
+              sleepUninterruptibly(delayMillis, MILLISECONDS);
+              return output("java_library rule " + pkg + ":lib");
+            },
+            ruleType -> true);
+
+    assertThat(result.buildResult.status).isEqualTo(Status.SUCCESS);
+    assertThat(result.singleTargets)
+        .containsExactly(target("//a:lib"), target("//b:lib"), target("//c:lib"))
+        .inOrder();
+  }
+
+  @Test
+  public void testQueriesBoundedByParallelism() {
+    ImmutableList.Builder<ImmutableList<TargetExpression>> shards = ImmutableList.builder();
+    for (int i = 0; i < 8; i++) {
+      shards.add(ImmutableList.of(target("//pkg" + i + "/...")));
+    }
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+
+    ExpandedTargetsResult result =
+        WildcardTargetExpander.queryShards(
+            BlazeContext.create(),
+            shards.build(),
+            /* parallelism= */ 2,
+            shard -> {
+              maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+              sleepUninterruptibly(20, MILLISECONDS);
+              running.decrementAndGet();
+              queried.add(shard.get(0).toString());
+              return null;
+            },
+            ruleType -> true);
+
+    assertThat(result.buildResult.status).isEqualTo(Status.SUCCESS);
+    assertThat(queried).hasSize(8);
+    assertThat(maxRunning.get()).isAtMost(2);
+  }
+
+  @Test
+  public void testFailedQuerySkipsLaterShards() {
+    ImmutableList<ImmutableList<TargetExpression>> shards =
+        ImmutableList.of(
+            ImmutableList.of(target("//a/...")),
+            ImmutableList.of(target("//b/...")),
+            ImmutableList.of(target("//c/...")));
+
+    ExpandedTargetsResult result =
+        WildcardTargetExpander.queryShards(
+            BlazeContext.create(),
+            shards,
+            /* parallelism= */ 1,
+            shard -> {
+              queried.add(shard.get(0).toString());
+              if (queried.size() == 1) {
+                throw new BuildException("query failed");
+              }
+              return output("java_library rule //b:lib");
+            },
+            ruleType -> true);
+
+    assertThat(result.buildResult.status).isEqualTo(Status.FATAL_ERROR);
+    assertThat(result.singleTargets).isEmpty();
+    assertThat(queried).containsExactly("//a/...");
+  }
+
+  @Test
+  public void testOutputOfShardFinishingAfterFailureIsClosed() {
+    ImmutableList<ImmutableList<TargetExpression>> shards =
+        ImmutableList.of(
+            ImmutableList.of(target("//a/...")), ImmutableList.of(target("//b/...")));
+    TrackedOutput slowOutput = new TrackedOutput("java_library rule //b:lib");
+
+    ExpandedTargetsResult result =
+        WildcardTargetExpander.queryShards(
+            BlazeContext.create(),
+            shards,
+            /* parallelism= */ 2,
+            shard -> {
+              if (shard.get(0).toString().equals("//a/...")) {
+                throw new BuildException("query failed");
+              }
+              sleepUninterruptibly(100, MILLISECONDS);
+              return slowOutput;
+            },
+            ruleType -> true);
+
+    assertThat(result.buildResult.status).isEqualTo(Status.FATAL_ERROR);
+    assertThat(slowOutput.closed).isTrue();
+  }
+
+  private static ByteArrayInputStream output(String... lines) {
+    return new ByteArrayInputStream(String.join("\n", lines).getBytes(UTF_8));
+  }
+
+  private static TargetExpression target(String expression) {
+    return Preconditions.checkNotNull(TargetExpression.fromStringSafe(expression));
+  }
+
+  private static class TrackedOutput extends ByteArrayInputStream {
+    volatile boolean closed;
+
+    TrackedOutput(String... lines) {
+      super(String.join("\n", lines).getBytes(UTF_8));
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.sync.workspace;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RealPathCache}. */
+@RunWith(JUnit4.class)
+public class RealPathCacheTest {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final RealPathCache cache = RealPathCache.getInstance();
+  private final List<RealPathCache.Session> sessions = new ArrayList<>();
+
+  @After
+  public void tearDown() {
+    sessions.forEach(RealPathCache.Session::close);
+  }
+
+  private RealPathCache.Session startCaching() {
+    RealPathCache.Session session = cache.startCaching();
+    sessions.add(session);
+    return session;
+  }
+
+  @Test
+  public void testSymlinkResolvedOnceWhileCaching() throws Exception {
+    Path target = temporaryFolder.newFolder("workspace").toPath().toRealPath();
+    Path link = temporaryFolder.getRoot().toPath().resolve("external");
+    Files.createSymbolicLink(link, target);
+    RealPathCache.Session session = startCaching();
+
+    assertThat(cache.toRealPath(link)).isEqualTo(target);
+    assertThat(cache.toRealPath(link)).isEqualTo(target);
+    assertThat(session.statsSummary()).isEqualTo("Real path cache: 2 lookups, 1 hits (50%)");
+
+    Path otherTarget = temporaryFolder.newFolder("other").toPath().toRealPath();
+    Files.delete(link);
+    Files.createSymbolicLink(link, otherTarget);
+    assertThat(cache.toRealPath(link)).isEqualTo(target);
+
+    session.close();
+    assertThat(cache.toRealPath(link)).isEqualTo(otherTarget);
+  }
+
+  @Test
+  public void testNotCachedOutsideSync() throws Exception {
+    Path target = temporaryFolder.newFolder("workspace").toPath().toRealPath();
+    Path link = temporaryFolder.getRoot().toPath().resolve("external");
+    Files.createSymbolicLink(link, target);
+
+    assertThat(cache.toRealPath(link)).isEqualTo(target);
+
+    Path otherTarget = temporaryFolder.newFolder("other").toPath().toRealPath();
+    Files.delete(link);
+    Files.createSymbolicLink(link, otherTarget);
+    assertThat(cache.toRealPath(link)).isEqualTo(otherTarget);
+  }
+
+  @Test
+  public void testMissingPathNotCached() throws Exception {
+    Path missing = temporaryFolder.getRoot().toPath().resolve("missing");
+    startCaching();
+
+    assertThat(cache.toRealPath(missing)).isNull();
+    Files.createFile(missing);
+    assertThat(cache.toRealPath(missing)).isEqualTo(missing.toRealPath());
+  }
+
+  @Test
+  public void testCachingContinuesUntilLastSessionClosed() throws Exception {
+    Path target = temporaryFolder.newFolder("workspace").toPath().toRealPath();
+    Path link = temporaryFolder.getRoot().toPath().resolve("external");
+    Files.createSymbolicLink(link, target);
+    RealPathCache.Session first = startCaching();
+    RealPathCache.Session second = startCaching();
+    assertThat(cache.toRealPath(link)).isEqualTo(target);
+
+    Path otherTarget = temporaryFolder.newFolder("other").toPath().toRealPath();
+    Files.delete(link);
+    Files.createSymbolicLink(link, otherTarget);
+    first.close();
+    // closing a session twice must not end the other one
+    first.close();
+    assertThat(cache.toRealPath(link)).isEqualTo(target);
+
+    second.close();
+    assertThat(cache.toRealPath(link)).isEqualTo(otherTarget);
+  }
+
+  @Test
+  public void testSessionStatsOnlyCountLookupsSinceItStarted() throws Exception {
+    Path target = temporaryFolder.newFolder("workspace").toPath().toRealPath();
+    RealPathCache.Session first = startCaching();
+    cache.toRealPath(target);
+    RealPathCache.Session second = startCaching();
+    assertThat(second.statsSummary()).isNull();
+
+    cache.toRealPath(target);
+    assertThat(first.statsSummary()).isEqualTo("Real path cache: 2 lookups, 1 hits (50%)");
+    assertThat(second.statsSummary()).isEqualTo("Real path cache: 1 lookups, 1 hits (100%)");
+  }
+}
@@ -17,14 +17,12 @@ package com.google.idea.blaze.base.targetmaps;
 
 import static com.google.common.truth.Truth.assertThat;
 
-import com.google.common.collect.ImmutableMultimap;
 import com.google.idea.blaze.base.BlazeTestCase;
 import com.google.idea.blaze.base.ideinfo.ArtifactLocation;
 import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
 import com.google.idea.blaze.base.ideinfo.TargetKey;
 import com.google.idea.blaze.base.ideinfo.TargetMap;
 import com.google.idea.blaze.base.ideinfo.TargetMapBuilder;
-import com.google.idea.blaze.base.model.MockBlazeProjectDataBuilder;
 import com.google.idea.blaze.base.model.primitives.GenericBlazeRules;
 import com.google.idea.blaze.base.model.primitives.Kind;
 import com.google.idea.blaze.base.model.primitives.Kind.Provider;
@@ -35,9 +33,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
-/** Tests for the reverse dependency map */
+/** Tests for the reverse edges of {@link DependencyGraph}. */
 @RunWith(JUnit4.class)
-public class ReverseDependencyMapTest extends BlazeTestCase {
+public class DependencyGraphTest extends BlazeTestCase {
   @Override
   protected void initTest(
       @NotNull Container applicationServices, @NotNull Container projectServices) {
@@ -66,13 +64,9 @@ public class ReverseDependencyMapTest extends BlazeTestCase {
                     .setKind("proto_library"))
             .build();
 
-    ImmutableMultimap<TargetKey, TargetKey> reverseDependencies =
-        ReverseDependencyMap.createRdepsMap(
-            getProject(), MockBlazeProjectDataBuilder.builder().setTargetMap(targetMap).build());
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l2")),
-            TargetKey.forPlainTarget(Label.create("//l:l1")));
+    DependencyGraph graph = DependencyGraph.create(targetMap);
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l2"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l1")));
   }
 
   @Test
@@ -99,17 +93,11 @@ public class ReverseDependencyMapTest extends BlazeTestCase {
                     .setKind("proto_library"))
             .build();
 
-    ImmutableMultimap<TargetKey, TargetKey> reverseDependencies =
-        ReverseDependencyMap.createRdepsMap(
-            getProject(), MockBlazeProjectDataBuilder.builder().setTargetMap(targetMap).build());
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l2")),
-            TargetKey.forPlainTarget(Label.create("//l:l1")));
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l3")),
-            TargetKey.forPlainTarget(Label.create("//l:l1")));
+    DependencyGraph graph = DependencyGraph.create(targetMap);
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l2"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l1")));
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l3"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l1")));
   }
 
   @Test
@@ -136,17 +124,11 @@ public class ReverseDependencyMapTest extends BlazeTestCase {
                     .setKind("proto_library"))
             .build();
 
-    ImmutableMultimap<TargetKey, TargetKey> reverseDependencies =
-        ReverseDependencyMap.createRdepsMap(
-            getProject(), MockBlazeProjectDataBuilder.builder().setTargetMap(targetMap).build());
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l3")),
-            TargetKey.forPlainTarget(Label.create("//l:l1")));
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l3")),
-            TargetKey.forPlainTarget(Label.create("//l:l2")));
+    DependencyGraph graph = DependencyGraph.create(targetMap);
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l3"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l1")));
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l3"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l2")));
   }
 
   @Test
@@ -185,25 +167,17 @@ public class ReverseDependencyMapTest extends BlazeTestCase {
                     .setKind("proto_library"))
             .build();
 
-    ImmutableMultimap<TargetKey, TargetKey> reverseDependencies =
-        ReverseDependencyMap.createRdepsMap(
-            getProject(), MockBlazeProjectDataBuilder.builder().setTargetMap(targetMap).build());
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l3")),
-            TargetKey.forPlainTarget(Label.create("//l:l1")));
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l3")),
-            TargetKey.forPlainTarget(Label.create("//l:l2")));
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l3")),
-            TargetKey.forPlainTarget(Label.create("//l:l4")));
-    assertThat(reverseDependencies)
-        .containsEntry(
-            TargetKey.forPlainTarget(Label.create("//l:l4")),
-            TargetKey.forPlainTarget(Label.create("//l:l5")));
+    DependencyGraph graph = DependencyGraph.create(targetMap);
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l3"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l1")));
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l3"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l2")));
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l3"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l4")));
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l4"))))
+        .contains(TargetKey.forPlainTarget(Label.create("//l:l5")));
+    assertThat(graph.getReverseDependencies(TargetKey.forPlainTarget(Label.create("//l:l5"))))
+        .isEmpty();
   }
 
   private static ArtifactLocation sourceRoot(String relativePath) {
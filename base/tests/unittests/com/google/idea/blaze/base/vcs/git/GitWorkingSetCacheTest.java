@@ -0,0 +1,248 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.vcs.git;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.google.idea.blaze.base.model.primitives.WorkspaceRoot;
+import com.google.idea.blaze.base.scope.BlazeContext;
+import com.google.idea.blaze.base.sync.workspace.WorkingSet;
+import com.google.idea.blaze.base.vcs.git.GitWorkingSetProvider.Change;
+import com.google.idea.blaze.base.vcs.git.GitWorkingSetProvider.RepositoryInfo;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link GitWorkingSetCache} */
+@RunWith(JUnit4.class)
+public class GitWorkingSetCacheTest {
+  private static final String UPSTREAM = "upstream";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final FakeGit git = new FakeGit();
+  private final BlazeContext context = BlazeContext.create();
+  private WorkspaceRoot workspaceRoot;
+  private GitWorkingSetCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    workspaceRoot = new WorkspaceRoot(folder.newFolder("workspace"));
+    git.indexFile = folder.newFile("index");
+    cache = new GitWorkingSetCache(git, root -> ImmutableList.of("bazel-out"));
+  }
+
+  @Test
+  public void testFirstCallRunsFullStatus() {
+    git.committed.put("committed", Change.ADDED);
+    git.status.put("modified", Change.MODIFIED);
+
+    WorkingSet workingSet = getWorkingSet();
+
+    assertThat(workingSet.addedFiles).containsExactly(new WorkspacePath("committed"));
+    assertThat(workingSet.modifiedFiles).containsExactly(new WorkspacePath("modified"));
+    assertThat(git.committedCalls).isEqualTo(1);
+    assertThat(git.statusCalls).containsExactly(ImmutableList.of());
+  }
+
+  @Test
+  public void testUnchangedRepositoryRunsNoGitStatus() {
+    git.status.put("modified", Change.MODIFIED);
+    getWorkingSet();
+
+    WorkingSet workingSet = getWorkingSet();
+
+    assertThat(workingSet.modifiedFiles).containsExactly(new WorkspacePath("modified"));
+    assertThat(git.committedCalls).isEqualTo(1);
+    assertThat(git.statusCalls).hasSize(1);
+  }
+
+  @Test
+  public void testChangedDirectoryReplacesItsSubtree() {
+    git.status.put("dir/a", Change.MODIFIED);
+    git.status.put("dir/sub/b", Change.ADDED);
+    git.status.put("dir/sub0", Change.ADDED);
+    git.status.put("other", Change.MODIFIED);
+    getWorkingSet();
+
+    git.status.remove("dir/sub/b");
+    git.status.put("dir/sub/c", Change.ADDED);
+    fileChanged("dir/sub", false);
+    fileChanged("dir/sub/c", false);
+    WorkingSet workingSet = getWorkingSet();
+
+    assertThat(git.statusCalls.get(1)).containsExactly("dir/sub");
+    assertThat(workingSet.addedFiles)
+        .containsExactly(new WorkspacePath("dir/sub/c"), new WorkspacePath("dir/sub0"));
+    assertThat(workingSet.modifiedFiles)
+        .containsExactly(new WorkspacePath("dir/a"), new WorkspacePath("other"));
+  }
+
+  @Test
+  public void testIgnoresChangesOutsideTheWorkingTree() {
+    getWorkingSet();
+
+    fileChanged(".git/index", false);
+    fileChanged("bazel-out/k8-fastbuild/bin/target", false);
+    cache.fileChanged(workspaceRoot, folder.getRoot() + "/elsewhere", false);
+    getWorkingSet();
+
+    assertThat(git.statusCalls).hasSize(1);
+  }
+
+  @Test
+  public void testManyChangedPathsFallBackToFullStatus() {
+    getWorkingSet();
+
+    for (int i = 0; i <= GitWorkingSetCache.MAX_INCREMENTAL_PATHS; i++) {
+      fileChanged("file" + i, false);
+    }
+    getWorkingSet();
+
+    assertThat(git.statusCalls).hasSize(2);
+    assertThat(git.statusCalls.get(1)).isEmpty();
+  }
+
+  @Test
+  public void testExternalChangeFallsBackToFullStatus() {
+    getWorkingSet();
+
+    fileChanged("changed", false);
+    fileChanged("refreshed", true);
+    getWorkingSet();
+
+    assertThat(git.statusCalls).hasSize(2);
+    assertThat(git.statusCalls.get(1)).isEmpty();
+  }
+
+  @Test
+  public void testHeadChangeInvalidatesCommittedChanges() {
+    git.committed.put("committed", Change.ADDED);
+    getWorkingSet();
+
+    git.head = "new head";
+    git.committed.clear();
+    WorkingSet workingSet = getWorkingSet();
+
+    assertThat(workingSet.addedFiles).isEmpty();
+    assertThat(git.committedCalls).isEqualTo(2);
+    assertThat(git.statusCalls).containsExactly(ImmutableList.of(), ImmutableList.of());
+  }
+
+  @Test
+  public void testUpstreamChangeInvalidatesCommittedChanges() {
+    getWorkingSet();
+
+    cache.getWorkingSet(workspaceRoot, "new upstream", context);
+
+    assertThat(git.committedCalls).isEqualTo(2);
+    assertThat(git.statusCalls).containsExactly(ImmutableList.of(), ImmutableList.of());
+  }
+
+  @Test
+  public void testIndexChangeInvalidatesStatus() {
+    git.status.put("unstaged", Change.MODIFIED);
+    getWorkingSet();
+
+    git.status.clear();
+    git.indexFile.setLastModified(git.indexFile.lastModified() + 10_000);
+    WorkingSet workingSet = getWorkingSet();
+
+    assertThat(workingSet.modifiedFiles).isEmpty();
+    assertThat(git.committedCalls).isEqualTo(1);
+    assertThat(git.statusCalls).containsExactly(ImmutableList.of(), ImmutableList.of());
+  }
+
+  @Test
+  public void testFailedStatusIsNotCached() {
+    getWorkingSet();
+
+    git.failStatus = true;
+    fileChanged("changed", false);
+    assertThat(getWorkingSet()).isNull();
+
+    git.failStatus = false;
+    getWorkingSet();
+    assertThat(git.committedCalls).isEqualTo(2);
+    assertThat(git.statusCalls.get(2)).isEmpty();
+  }
+
+  @Nullable
+  private WorkingSet getWorkingSet() {
+    return cache.getWorkingSet(workspaceRoot, UPSTREAM, context);
+  }
+
+  private void fileChanged(String relativePath, boolean fromRefresh) {
+    File file = workspaceRoot.fileForPath(new WorkspacePath(relativePath));
+    cache.fileChanged(workspaceRoot, file.getPath(), fromRefresh);
+  }
+
+  /** Serves fixed git results and records which commands ran. */
+  private static class FakeGit implements GitWorkingSetCache.Git {
+    File indexFile;
+    String head = "head";
+    boolean failStatus;
+    final NavigableMap<String, Change> committed = new TreeMap<>();
+    final NavigableMap<String, Change> status = new TreeMap<>();
+    int committedCalls;
+    final List<List<String>> statusCalls = new ArrayList<>();
+
+    @Override
+    public RepositoryInfo getRepositoryInfo(WorkspaceRoot workspaceRoot) {
+      return new RepositoryInfo("", indexFile, head);
+    }
+
+    @Override
+    public NavigableMap<String, Change> getCommittedChanges(
+        WorkspaceRoot workspaceRoot, String head, String upstreamSha, BlazeContext context) {
+      committedCalls++;
+      return new TreeMap<>(committed);
+    }
+
+    @Nullable
+    @Override
+    public NavigableMap<String, Change> getStatus(
+        WorkspaceRoot workspaceRoot, Collection<String> gitPaths, BlazeContext context) {
+      statusCalls.add(new ArrayList<>(gitPaths));
+      if (failStatus) {
+        return null;
+      }
+      NavigableMap<String, Change> result = new TreeMap<>();
+      status.forEach(
+          (path, change) -> {
+            if (gitPaths.isEmpty()
+                || gitPaths.stream()
+                    .anyMatch(dir -> path.equals(dir) || path.startsWith(dir + "/"))) {
+              result.put(path, change);
+            }
+          });
+      return result;
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.base.vcs.git;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.idea.blaze.base.model.primitives.WorkspacePath;
+import com.google.idea.blaze.base.sync.workspace.WorkingSet;
+import com.google.idea.blaze.base.vcs.git.GitWorkingSetProvider.Change;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for parsing and combining git output in {@link GitWorkingSetProvider} */
+@RunWith(JUnit4.class)
+public class GitWorkingSetProviderTest {
+  private static final String HASH = "78981922613b2afb6025042ff6bd878ac1994e85";
+
+  @Test
+  public void testParseStatus() {
+    String output =
+        String.join(
+            "\0",
+            "# branch.oid " + HASH,
+            "1 .M N... 100644 100644 100644 " + HASH + " " + HASH + " modified file.txt",
+            "1 .D N... 100644 100644 000000 " + HASH + " " + HASH + " deleted",
+            "1 A. N... 000000 100644 100644 " + HASH + " " + HASH + " added",
+            "1 AD N... 000000 100644 000000 " + HASH + " " + HASH + " added/then/deleted",
+            "u UU N... 100644 100644 100644 100644 " + HASH + " " + HASH + " " + HASH + " merge",
+            "? untracked/file",
+            "");
+
+    assertThat(GitWorkingSetProvider.parseStatus(output))
+        .containsExactly(
+            "modified file.txt", Change.MODIFIED,
+            "deleted", Change.DELETED,
+            "added", Change.ADDED,
+            "merge", Change.MODIFIED,
+            "untracked/file", Change.ADDED);
+  }
+
+  @Test
+  public void testParseNameStatus() {
+    String output = String.join("\0", "A", "added", "M", "modified", "D", "deleted", "T", "type");
+
+    assertThat(GitWorkingSetProvider.parseNameStatus(output))
+        .containsExactly(
+            "added", Change.ADDED,
+            "modified", Change.MODIFIED,
+            "deleted", Change.DELETED,
+            "type", Change.MODIFIED);
+  }
+
+  @Test
+  public void testCombineAppliesUncommittedChanges() {
+    Map<String, Change> committed =
+        ImmutableMap.of(
+            "added", Change.ADDED,
+            "committed/only", Change.DELETED,
+            "committed/deletion", Change.DELETED,
+            "modified", Change.MODIFIED);
+    Map<String, Change> uncommitted =
+        ImmutableMap.of(
+            "added", Change.MODIFIED,
+            "committed/deletion", Change.ADDED,
+            "modified", Change.DELETED,
+            "new", Change.ADDED);
+
+    assertThat(GitWorkingSetProvider.combine(committed, uncommitted))
+        .containsExactly(
+            "added", Change.ADDED,
+            "committed/only", Change.DELETED,
+            "committed/deletion", Change.MODIFIED,
+            "modified", Change.DELETED,
+            "new", Change.ADDED);
+  }
+
+  @Test
+  public void testWorkingSetOnlyContainsFilesInWorkspace() {
+    WorkingSet workingSet =
+        GitWorkingSetProvider.toWorkingSet(
+            "root/",
+            ImmutableMap.of(
+                "root/added", Change.ADDED,
+                "root/modified", Change.MODIFIED,
+                "root/deleted", Change.DELETED,
+                "other/file", Change.MODIFIED));
+
+    assertThat(workingSet.addedFiles).containsExactly(new WorkspacePath("added"));
+    assertThat(workingSet.modifiedFiles).containsExactly(new WorkspacePath("modified"));
+    assertThat(workingSet.deletedFiles).containsExactly(new WorkspacePath("deleted"));
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.google.idea.blaze.cpp;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -65,8 +66,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import javax.annotation.Nullable;
 
 /** Main entry point for C/CPP configuration data. */
 @Service(Service.Level.PROJECT)
@@ -84,6 +87,10 @@ public final class BlazeCWorkspace {
 
   private final Project project;
 
+  // update tasks of consecutive syncs may overlap, so the last update is published as one snapshot
+  private volatile PreviousUpdate<BlazeResolveConfigurationData, ConfigurationSwitches>
+      previousUpdate = PreviousUpdate.empty();
+
   private BlazeCWorkspace(Project project) {
     this.configurationResolver = new BlazeConfigurationResolver(project);
     this.resolverResult = BlazeConfigurationResolverResult.empty();
@@ -131,8 +138,13 @@ public final class BlazeCWorkspace {
                   indicator.setText("Updating Configurations...");
                   indicator.setFraction(0.0);
 
-                  final var model = calculateConfigurations(blazeProjectData, newResult, indicator);
+                  final var executionRoot = blazeProjectData.blazeInfo().getExecutionRoot();
+                  final var reusableSwitches = previousUpdate.reusableSwitches(
+                      syncMode, executionRoot, oldResult.hasSameHeaderRoots(newResult));
+                  final var model = calculateConfigurations(
+                      blazeProjectData, newResult, reusableSwitches, indicator);
                   commit(SERIALIZATION_VERSION, context, model, blazeProjectData);
+                  previousUpdate = new PreviousUpdate<>(model.switches, executionRoot);
                   LOG.info(String.format("Update configurations took %dms", s.elapsed(TimeUnit.MILLISECONDS)));
                 }
                 resolverResult = newResult;
@@ -141,6 +153,35 @@ public final class BlazeCWorkspace {
             });
   }
 
+  /** The switches computed by an update, by configuration, and the execution root they used. */
+  @VisibleForTesting
+  static final class PreviousUpdate<K, V> {
+    private final ImmutableMap<K, V> switches;
+    @Nullable private final File executionRoot;
+
+    PreviousUpdate(ImmutableMap<K, V> switches, @Nullable File executionRoot) {
+      this.switches = switches;
+      this.executionRoot = executionRoot;
+    }
+
+    static <K, V> PreviousUpdate<K, V> empty() {
+      return new PreviousUpdate<>(ImmutableMap.of(), null);
+    }
+
+    /**
+     * The switches of an unchanged configuration can be reused, unless something outside of the
+     * configuration data which affects include path resolution changed as well.
+     */
+    ImmutableMap<K, V> reusableSwitches(
+        SyncMode syncMode, File executionRoot, boolean sameHeaderRoots) {
+      return !syncMode.equals(SyncMode.FULL)
+              && executionRoot.equals(this.executionRoot)
+              && sameHeaderRoots
+          ? switches
+          : ImmutableMap.of();
+    }
+  }
+
   private ImmutableMap<TargetKey, BlazeCTargetInfoService.TargetInfo> calculatePersistentInformation(
       BlazeConfigurationResolverResult resolverResult) {
 
@@ -191,9 +232,93 @@ public final class BlazeCWorkspace {
     }
   }
 
+  /**
+   * Computes the compiler switches of a single configuration. All targets in a resolve
+   * configuration share the same flags, defines, and includes (they are grouped by equivalence
+   * class), so this is done once per configuration.
+   */
+  private ConfigurationSwitches calculateSwitches(
+      BlazeResolveConfiguration resolveConfiguration,
+      BlazeConfigurationResolverResult configResolveData,
+      ExecutionRootPathResolver executionRootPathResolver
+  ) {
+    logResolveConfiguration(resolveConfiguration);
+
+    final var configData = resolveConfiguration.getConfigurationData();
+    final var compilerSettings = configData.compilerSettings();
+    final var compilerSwitchesBuilder = compilerSettings.createSwitchBuilder();
+
+    CoptsProcessor.apply(
+        /* options = */ configData.localCopts(),
+        /* kind = */ compilerSettings.getCompilerKind(),
+        /* sink = */ compilerSwitchesBuilder,
+        /* resolver = */ executionRootPathResolver
+    );
+
+    // transitiveDefines are sourced from a target's (and transitive deps) "defines" attribute
+    configData.transitiveDefines().forEach(compilerSwitchesBuilder::withMacro);
+
+    final Function<ExecutionRootPath, Stream<File>> resolver;
+    if (HeaderCacheService.getEnabled()) {
+      final var includesCache = HeaderCacheService.of(project);
+
+      resolver = executionRootPath -> Stream.of(includesCache
+          .resolve(configData.configurationId(), executionRootPath)
+          .map(Path::toFile)
+          .orElseGet(() -> executionRootPathResolver.resolveExecutionRootPath(executionRootPath))
+      );
+    } else {
+      // legacy resolver, use `resolveToIncludesDirectories` and filter with `HeaderRootsTrimmer`
+      resolver = executionRootPath -> executionRootPathResolver
+          .resolveToIncludeDirectories(executionRootPath)
+          .stream()
+          .filter(configResolveData::isValidHeaderRoot);
+    }
+
+    // transitiveIncludeDirectories are sourced from CcSkylarkApiProvider.include_directories
+    configData.transitiveIncludeDirectories().stream()
+        .flatMap(resolver)
+        .map(File::getAbsolutePath)
+        .forEach(compilerSwitchesBuilder::withIncludePath);
+
+    // transitiveQuoteIncludeDirectories are sourced from CcSkylarkApiProvider.quote_include_directories
+    final var quoteIncludePaths = configData.transitiveQuoteIncludeDirectories().stream()
+        .flatMap(resolver)
+        .map(File::getAbsolutePath)
+        .collect(ImmutableList.toImmutableList());
+    quoteIncludePaths.forEach(compilerSwitchesBuilder::withQuoteIncludePath);
+
+    // transitiveSystemIncludeDirectories are sourced from CcSkylarkApiProvider.system_include_directories
+    // Note: We would ideally use -isystem here, but it interacts badly with the switches that get built by
+    // ClangUtils::addIncludeDirectories (it uses -I for system libraries).
+    configData.transitiveSystemIncludeDirectories().stream()
+        .flatMap(resolver)
+        .map(File::getAbsolutePath)
+        .forEach(compilerSwitchesBuilder::withSystemIncludePath);
+
+    final var cCompilerSwitches = buildSwitchBuilder(
+        compilerSettings,
+        compilerSwitchesBuilder,
+        executionRootPathResolver,
+        CLanguageKind.C,
+        configData.localConlyopts()
+    );
+
+    final var cppCompilerSwitches = buildSwitchBuilder(
+        compilerSettings,
+        compilerSwitchesBuilder,
+        executionRootPathResolver,
+        CLanguageKind.CPP,
+        configData.localCxxopts()
+    );
+
+    return new ConfigurationSwitches(cCompilerSwitches, cppCompilerSwitches, quoteIncludePaths);
+  }
+
   private WorkspaceModel calculateConfigurations(
       BlazeProjectData blazeProjectData,
       BlazeConfigurationResolverResult configResolveData,
+      ImmutableMap<BlazeResolveConfigurationData, ConfigurationSwitches> reusableSwitches,
       ProgressIndicator indicator
   ) {
     final var workspaceModifiable = OCWorkspaceImpl.getInstanceImpl(project)
@@ -204,96 +329,44 @@ public final class BlazeCWorkspace {
     final var configurations = configResolveData.getAllConfigurations();
     final var executionRootPathResolver = ExecutionRootPathResolver.fromProjectData(project, blazeProjectData);
 
-    int progress = 0;
+    // the switches are independent of each other, so compute them in parallel and only for
+    // configurations which changed since the last update
+    final var progress = new AtomicInteger();
+    final var reused = new AtomicInteger();
+    final var switches = ParallelChunks.map(configurations, resolveConfiguration -> {
+      var result = reusableSwitches.get(resolveConfiguration.getConfigurationData());
+      if (result != null) {
+        reused.incrementAndGet();
+      } else {
+        result = calculateSwitches(resolveConfiguration, configResolveData, executionRootPathResolver);
+      }
+      indicator.setFraction(((double) progress.incrementAndGet()) / configurations.size());
+      return result;
+    });
+    LOG.info(String.format(
+        "Reused compiler switches of %d of %d configurations", reused.get(), configurations.size()));
 
-    for (final var resolveConfiguration : configurations) {
-      logResolveConfiguration(resolveConfiguration);
+    final var switchesMap = ImmutableMap.<BlazeResolveConfigurationData, ConfigurationSwitches>builder();
+    for (int i = 0; i < configurations.size(); i++) {
+      final var resolveConfiguration = configurations.get(i);
+      final var configSwitches = switches.get(i);
+      switchesMap.put(resolveConfiguration.getConfigurationData(), configSwitches);
 
       indicator.setText2(resolveConfiguration.getDisplayName());
-      indicator.setFraction(((double) progress) / configurations.size());
 
-      final var configData = resolveConfiguration.getConfigurationData();
-      final var compilerSettings = configData.compilerSettings();
+      final var compilerSettings = resolveConfiguration.getConfigurationData().compilerSettings();
       final var configLanguages = new HashMap<OCLanguageKind, PerLanguageCompilerOpts>();
       final var configSourceFiles = new HashMap<VirtualFile, PerFileCompilerOpts>();
 
-      // All targets in a resolve configuration share the same flags, defines, and includes
-      // (they are grouped by equivalence class). Compute switches once per configuration.
-      final var compilerSwitchesBuilder = compilerSettings.createSwitchBuilder();
-
-      CoptsProcessor.apply(
-          /* options = */ configData.localCopts(),
-          /* kind = */ compilerSettings.getCompilerKind(),
-          /* sink = */ compilerSwitchesBuilder,
-          /* resolver = */ executionRootPathResolver
-      );
-
-      // transitiveDefines are sourced from a target's (and transitive deps) "defines" attribute
-      configData.transitiveDefines().forEach(compilerSwitchesBuilder::withMacro);
-
-      final Function<ExecutionRootPath, Stream<File>> resolver;
-      if (HeaderCacheService.getEnabled()) {
-        final var includesCache = HeaderCacheService.of(project);
-
-        resolver = executionRootPath -> Stream.of(includesCache
-            .resolve(configData.configurationId(), executionRootPath)
-            .map(Path::toFile)
-            .orElseGet(() -> executionRootPathResolver.resolveExecutionRootPath(executionRootPath))
-        );
-      } else {
-        // legacy resolver, use `resolveToIncludesDirectories` and filter with `HeaderRootsTrimmer`
-        resolver = executionRootPath -> executionRootPathResolver
-            .resolveToIncludeDirectories(executionRootPath)
-            .stream()
-            .filter(configResolveData::isValidHeaderRoot);
-      }
-
-      // transitiveIncludeDirectories are sourced from CcSkylarkApiProvider.include_directories
-      configData.transitiveIncludeDirectories().stream()
-          .flatMap(resolver)
-          .map(File::getAbsolutePath)
-          .forEach(compilerSwitchesBuilder::withIncludePath);
-
-      // transitiveQuoteIncludeDirectories are sourced from CcSkylarkApiProvider.quote_include_directories
-      final var quoteIncludePaths = configData.transitiveQuoteIncludeDirectories().stream()
-          .flatMap(resolver)
-          .map(File::getAbsolutePath)
-          .collect(ImmutableList.toImmutableList());
-      quoteIncludePaths.forEach(compilerSwitchesBuilder::withQuoteIncludePath);
-
-      // transitiveSystemIncludeDirectories are sourced from CcSkylarkApiProvider.system_include_directories
-      // Note: We would ideally use -isystem here, but it interacts badly with the switches that get built by
-      // ClangUtils::addIncludeDirectories (it uses -I for system libraries).
-      configData.transitiveSystemIncludeDirectories().stream()
-          .flatMap(resolver)
-          .map(File::getAbsolutePath)
-          .forEach(compilerSwitchesBuilder::withSystemIncludePath);
-
-      final var cCompilerSwitches = buildSwitchBuilder(
-          compilerSettings,
-          compilerSwitchesBuilder,
-          executionRootPathResolver,
-          CLanguageKind.C,
-          configData.localConlyopts()
-      );
-
-      final var cppCompilerSwitches = buildSwitchBuilder(
-          compilerSettings,
-          compilerSwitchesBuilder,
-          executionRootPathResolver,
-          CLanguageKind.CPP,
-          configData.localCxxopts()
-      );
-
       for (final var target : resolveConfiguration.getTargets()) {
         for (final var vf : resolveConfiguration.getSources(target)) {
           final var kind = resolveConfiguration.getDeclaredLanguageKind(project, vf);
 
           final PerFileCompilerOpts perFileCompilerOpts;
           if (kind == CLanguageKind.C) {
-            perFileCompilerOpts = new PerFileCompilerOpts(kind, cCompilerSwitches);
+            perFileCompilerOpts = new PerFileCompilerOpts(kind, configSwitches.cSwitches);
           } else {
-            perFileCompilerOpts = new PerFileCompilerOpts(CLanguageKind.CPP, cppCompilerSwitches);
+            perFileCompilerOpts = new PerFileCompilerOpts(CLanguageKind.CPP, configSwitches.cppSwitches);
           }
           configSourceFiles.put(vf, perFileCompilerOpts);
 
@@ -302,7 +375,8 @@ public final class BlazeCWorkspace {
             // configLanguages switches. We want some basic header search roots (genfiles),
             // which are part of every target's iquote directories. See:
             // https://github.com/bazelbuild/bazel/blob/2c493e8a2132d54f4b2fb8046f6bcef11e92cd22/src/main/java/com/google/devtools/build/lib/rules/cpp/CcCompilationHelper.java#L911
-            addConfigLanguageSwitches(configLanguages, compilerSettings, quoteIncludePaths, kind);
+            addConfigLanguageSwitches(
+                configLanguages, compilerSettings, configSwitches.quoteIncludePaths, kind);
           }
         }
       }
@@ -324,15 +398,14 @@ public final class BlazeCWorkspace {
 
       environmentMap.put(modelConfig, CppEnvironmentProvider.createEnvironment(compilerSettings));
       languageMap.put(modelConfig, configLanguages);
-
-      progress++;
     }
 
     return new WorkspaceModel(
         workspaceModifiable,
         environmentMap,
         languageMap,
-        blazeProjectData.blazeInfo().getExecutionRoot()
+        blazeProjectData.blazeInfo().getExecutionRoot(),
+        switchesMap.build()
     );
   }
 
@@ -378,6 +451,22 @@ public final class BlazeCWorkspace {
     }
   }
 
+  /** The compiler switches shared by all sources of a configuration. */
+  private static class ConfigurationSwitches {
+    final CidrCompilerSwitches cSwitches;
+    final CidrCompilerSwitches cppSwitches;
+    final ImmutableList<String> quoteIncludePaths;
+
+    private ConfigurationSwitches(
+        CidrCompilerSwitches cSwitches,
+        CidrCompilerSwitches cppSwitches,
+        ImmutableList<String> quoteIncludePaths) {
+      this.cSwitches = cSwitches;
+      this.cppSwitches = cppSwitches;
+      this.quoteIncludePaths = quoteIncludePaths;
+    }
+  }
+
   /** Group compiler options for a specific language. */
   private static class PerLanguageCompilerOpts {
 
@@ -408,16 +497,19 @@ public final class BlazeCWorkspace {
     // TODO(CPP-51220): remove together with BlazeCompilerSettings#getCompilerProbeKind
     private final Map<OCResolveConfiguration.ModifiableModel, Map<OCLanguageKind, PerLanguageCompilerOpts>> languages;
     private final File directory;
+    final ImmutableMap<BlazeResolveConfigurationData, ConfigurationSwitches> switches;
 
     private WorkspaceModel(
         OCWorkspace.ModifiableModel model,
         Map<OCResolveConfiguration.ModifiableModel, CidrToolEnvironment> environments,
         Map<OCResolveConfiguration.ModifiableModel, Map<OCLanguageKind, PerLanguageCompilerOpts>> languages,
-        File directory) {
+        File directory,
+        ImmutableMap<BlazeResolveConfigurationData, ConfigurationSwitches> switches) {
       this.model = model;
       this.environments = environments;
       this.languages = languages;
       this.directory = directory;
+      this.switches = switches;
     }
 
     /** Updates the compiler of every configuration. */
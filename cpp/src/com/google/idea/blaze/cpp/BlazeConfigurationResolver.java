@@ -31,6 +31,7 @@ import com.google.idea.blaze.base.scope.scopes.TimingScope.EventType;
 import com.google.idea.blaze.base.settings.Blaze;
 import com.google.idea.blaze.base.sync.projectview.ProjectViewTargetImportFilter;
 import com.google.idea.blaze.base.sync.workspace.ExecutionRootPathResolver;
+import com.google.idea.blaze.base.sync.workspace.RealPathCache;
 import com.google.idea.blaze.base.sync.workspace.WorkspaceHelper;
 import com.google.idea.blaze.base.sync.workspace.WorkspacePathResolver;
 import com.google.idea.blaze.common.PrintOutput;
@@ -145,8 +146,11 @@ final class BlazeConfigurationResolver {
 
       if (externalWorkspace != null) {
         try {
-          Path externalWorkspaceRealPath = externalWorkspace.directory().toPath().toRealPath();
-          return workspacePathResolver.getWorkspacePath(externalWorkspaceRealPath.toFile());
+          Path externalWorkspaceRealPath =
+              RealPathCache.getInstance().toRealPath(externalWorkspace.directory().toPath());
+          return externalWorkspaceRealPath != null
+              ? workspacePathResolver.getWorkspacePath(externalWorkspaceRealPath.toFile())
+              : null;
         } catch (IOException ioException) {
           logger.warn("Failed to resolve real external workspace location", ioException);
         }
@@ -180,13 +184,18 @@ final class BlazeConfigurationResolver {
     Scope.push(parentContext, context -> {
       context.push(new TimingScope("Build C configuration map", EventType.Other));
 
+      final var targets = blazeProjectData.targetMap().targets().asList();
+      final var configurations = ParallelChunks.map(targets, target ->
+          targetFilter.test(target) ? createResolveConfiguration(target, compilerSettings) : null
+      );
+
       final var targetToData = new HashMap<TargetKey, BlazeResolveConfigurationData>();
-      blazeProjectData.targetMap().targets().stream().filter(targetFilter).forEach(target -> {
-        final var data = createResolveConfiguration(target, compilerSettings);
+      for (int i = 0; i < targets.size(); i++) {
+        final var data = configurations.get(i);
         if (data != null) {
-          targetToData.put(target.getKey(), data);
+          targetToData.put(targets.get(i).getKey(), data);
         }
-      });
+      }
 
       findEquivalenceClasses(context, blazeProjectData, targetToData, builder);
     });
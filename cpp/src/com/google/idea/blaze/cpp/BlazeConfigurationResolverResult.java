@@ -73,6 +73,10 @@ final class BlazeConfigurationResolverResult {
     return xcodeProperties;
   }
 
+  boolean hasSameHeaderRoots(BlazeConfigurationResolverResult other) {
+    return validHeaderRoots.equals(other.validHeaderRoots);
+  }
+
   boolean isValidHeaderRoot(File absolutePath) {
     return validHeaderRoots.contains(absolutePath.toPath());
   }
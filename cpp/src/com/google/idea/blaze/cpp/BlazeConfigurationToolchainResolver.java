@@ -82,7 +82,8 @@ public final class BlazeConfigurationToolchainResolver {
           .filter(target -> target.getcToolchainIdeInfo() != null)
           .collect(toImmutableMap(TargetIdeInfo::getKey, TargetIdeInfo::getcToolchainIdeInfo));
 
-      final var toolchainDepsTable = buildToolchainDepsTable(targetMap.targets(), toolchains);
+      final var toolchainDepsTable =
+          buildToolchainDepsTable(targetMap.targetsOfLanguage(LanguageClass.C), toolchains);
       verifyToolchainDeps(context, toolchainDepsTable);
 
       return buildLookupTable(toolchainDepsTable, toolchains);
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.cpp;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Maps a list in parallel chunks on the bounded {@link BlazeExecutor} pool. Cancelling the calling
+ * thread's progress indicator cancels all chunks.
+ *
+ * <p>The calling thread blocks until all chunks are done, so it must not be a {@link
+ * BlazeExecutor} thread itself: once every pool thread waits for chunks, none is left to run them.
+ * Calls from within a chunk are the one case this can detect, and they map sequentially instead.
+ */
+final class ParallelChunks {
+
+  // lists smaller than this are not worth the scheduling overhead
+  private static final int MIN_PARALLEL_SIZE = 64;
+  // more chunks than threads, so that uneven chunks still keep every thread busy
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  // set while a chunk runs on a pool thread
+  private static final ThreadLocal<Boolean> inChunk = ThreadLocal.withInitial(() -> false);
+
+  private ParallelChunks() {}
+
+  /** Applies {@code function} to every item and returns the results in the same order. */
+  static <T, R> List<R> map(List<T> items, Function<T, R> function) {
+    ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+    if (items.size() < MIN_PARALLEL_SIZE || inChunk.get()) {
+      return mapChunk(items, function, indicator);
+    }
+
+    int chunkCount =
+        Math.min(items.size(), Runtime.getRuntime().availableProcessors() * CHUNKS_PER_THREAD);
+    int chunkSize = (items.size() + chunkCount - 1) / chunkCount;
+
+    List<ListenableFuture<List<R>>> futures = new ArrayList<>();
+    for (int start = 0; start < items.size(); start += chunkSize) {
+      List<T> chunk = items.subList(start, Math.min(start + chunkSize, items.size()));
+      futures.add(
+          BlazeExecutor.getInstance().submit(() -> mapChunkInPool(chunk, function, indicator)));
+    }
+    ListenableFuture<List<List<R>>> all = Futures.allAsList(futures);
+
+    try {
+      while (true) {
+        if (indicator != null) {
+          indicator.checkCanceled();
+        }
+        try {
+          List<R> results = new ArrayList<>(items.size());
+          all.get(100, TimeUnit.MILLISECONDS).forEach(results::addAll);
+          return results;
+        } catch (TimeoutException e) {
+          // check for cancellation again
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessCanceledException(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      all.cancel(true);
+    }
+  }
+
+  private static <T, R> List<R> mapChunkInPool(
+      List<T> chunk, Function<T, R> function, ProgressIndicator indicator) {
+    boolean nested = inChunk.get();
+    inChunk.set(true);
+    try {
+      return mapChunk(chunk, function, indicator);
+    } finally {
+      inChunk.set(nested);
+    }
+  }
+
+  private static <T, R> List<R> mapChunk(
+      List<T> chunk, Function<T, R> function, ProgressIndicator indicator) {
+    List<R> results = new ArrayList<>(chunk.size());
+    for (T item : chunk) {
+      if (indicator != null) {
+        indicator.checkCanceled();
+      }
+      results.add(function.apply(item));
+    }
+    return results;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.cpp.sync
+
+import com.intellij.openapi.diagnostic.logger
+import java.io.IOException
+import java.nio.file.Files
+import java.nio.file.LinkOption
+import java.nio.file.Path
+import java.util.concurrent.Executor
+
+private val LOG = logger<HeaderCacheCleaner>()
+
+/**
+ * Deletes stale header cache files in the background.
+ *
+ * All methods, and the background delete itself, run under the same [lock] as the refresh. The
+ * delete works on the state at the time it runs, not at the time it was scheduled, so it never
+ * removes a header which a later refresh cached again.
+ *
+ * Since the delete waits for a running refresh, the [executor] must be a dedicated serial one, not
+ * a pool which the refresh itself waits on. At most one delete is queued at a time.
+ */
+internal class HeaderCacheCleaner(
+  private val lock: Any,
+  private val executor: Executor,
+  private val tracked: () -> Set<Path>,
+) {
+  // stale cache files which are not deleted yet, guarded by lock
+  private val pending = HashSet<Path>()
+
+  // directory to remove all untracked files from, guarded by lock
+  private var cleanupDirectory: Path? = null
+
+  // whether a delete is queued and has not started yet, guarded by lock
+  private var scheduled = false
+
+  /** Called by a refresh for the cache files it keeps, so they are no longer deleted. */
+  fun reclaim(paths: Collection<Path>) {
+    check(Thread.holdsLock(lock))
+    paths.forEach(pending::remove)
+  }
+
+  /**
+   * Schedules [stale] files to be deleted. If [cleanupDirectory] is given, all files in it which
+   * are not tracked when the delete runs are deleted as well.
+   */
+  fun schedule(stale: Collection<Path>, cleanupDirectory: Path?) {
+    check(Thread.holdsLock(lock))
+    pending.addAll(stale)
+    if (cleanupDirectory != null) {
+      this.cleanupDirectory = cleanupDirectory
+    }
+    if (pending.isEmpty() && this.cleanupDirectory == null || scheduled) return
+
+    scheduled = true
+    executor.execute {
+      synchronized(lock) {
+        scheduled = false
+        deletePending()
+      }
+    }
+  }
+
+  private fun deletePending() {
+    for (path in pending) {
+      try {
+        Files.deleteIfExists(path)
+      } catch (e: IOException) {
+        LOG.debug("failed to delete stale header $path", e)
+      }
+    }
+    pending.clear()
+
+    val directory = cleanupDirectory ?: return
+    cleanupDirectory = null
+    if (!Files.exists(directory)) return
+
+    val keep = tracked()
+    try {
+      Files.walk(directory).use { files ->
+        files.filter { !Files.isDirectory(it, LinkOption.NOFOLLOW_LINKS) && it !in keep }
+          .forEach { Files.deleteIfExists(it) }
+      }
+    } catch (e: IOException) {
+      LOG.warn("failed to clean up cc includes cache", e)
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package com.google.idea.blaze.cpp.sync
 
+import com.google.common.util.concurrent.Futures
+import com.google.common.util.concurrent.ListenableFuture
 import com.google.idea.blaze.base.filecache.FileCache
 import com.google.idea.blaze.base.command.buildresult.LocalFileArtifact
 import com.google.idea.blaze.base.ideinfo.ArtifactLocation
@@ -23,6 +25,7 @@ import com.google.idea.blaze.base.ideinfo.TargetKey
 import com.google.idea.blaze.base.logging.LoggedDirectoryProvider
 import com.google.idea.blaze.base.model.BlazeProjectData
 import com.google.idea.blaze.base.model.primitives.ExecutionRootPath
+import com.google.idea.blaze.base.prefetch.FetchExecutor
 import com.google.idea.blaze.base.projectview.ProjectViewSet
 import com.google.idea.blaze.base.scope.BlazeContext
 import com.google.idea.blaze.base.scope.Scope
@@ -32,18 +35,23 @@ import com.google.idea.blaze.base.sync.SyncMode
 import com.google.idea.blaze.base.sync.aspects.BlazeBuildOutputs
 import com.google.idea.blaze.base.sync.data.BlazeDataStorage
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager
+import com.google.idea.blaze.common.artifact.BlazeArtifact
+import com.google.idea.blaze.common.artifact.OutputArtifact
 import com.intellij.openapi.components.Service
 import com.intellij.openapi.components.service
 import com.intellij.openapi.diagnostic.logger
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils
 import com.intellij.openapi.project.Project
 import com.intellij.openapi.project.getProjectDataPath
-import com.intellij.openapi.util.io.NioFiles
 import com.intellij.openapi.util.registry.Registry
+import com.intellij.util.concurrency.AppExecutorUtil
 import com.intellij.util.concurrency.annotations.RequiresBackgroundThread
 import com.intellij.util.concurrency.annotations.RequiresReadLockAbsence
 import java.io.IOException
 import java.nio.file.Files
+import java.nio.file.LinkOption
 import java.nio.file.Path
+import java.nio.file.StandardCopyOption
 import java.nio.file.StandardOpenOption
 import java.util.*
 
@@ -76,8 +84,19 @@ class HeaderCacheService(private val project: Project) {
     }
   }
 
-  // tracks headers which are actually stored in the cache
-  private val cacheTracker: MutableSet<String> = mutableSetOf()
+  private val manifestFile: Path get() = cacheDirectory.resolveSibling("$CACHE_DIRECTORY.manifest")
+
+  // cache path -> fingerprint of the header it was created from, only accessed under refreshLock
+  private var manifest: MutableMap<Path, String>? = null
+  private val refreshLock = Any()
+
+  // the cleaner blocks on the refresh lock, so it must not take a thread from the FetchExecutor
+  private val cleaner = HeaderCacheCleaner(
+    refreshLock,
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("HeaderCacheCleaner", 1),
+  ) {
+    manifest?.keys?.toSet() ?: emptySet()
+  }
 
   private fun cacheDirectory(configurationId: String): Path {
     return cacheDirectory.resolve(configurationId.ifBlank { "default" })
@@ -87,81 +106,165 @@ class HeaderCacheService(private val project: Project) {
     return cacheDirectory(key.configuration())
   }
 
-  @Synchronized
-  @RequiresReadLockAbsence
-  @RequiresBackgroundThread
-  @Throws(IOException::class)
-  private fun clear() {
-    cacheTracker.clear()
-
-    if (Files.exists(cacheDirectory)) {
-      // On windows this could be replaced with a rename and asynchronous delete for better performance.
-      NioFiles.deleteRecursively(cacheDirectory)
-    }
-
-    LOG.trace("cleared cc includes cache")
-  }
+  /** A header which should be present in the cache. */
+  private class Entry(val key: TargetKey, val header: ArtifactLocation, val artifact: BlazeArtifact)
 
-  @Synchronized
+  /**
+   * Brings the cache up to date with the headers of the target map. Only headers whose fingerprint
+   * changed since they were cached are copied (or linked) again, in parallel on the
+   * [FetchExecutor]. Headers which are no longer referenced are deleted in the background.
+   *
+   * On a non-incremental sync, files in the cache directory which are not tracked by the manifest
+   * are deleted as well.
+   *
+   * Waiting for the copies checks the current progress indicator, so a cancelled sync stops the
+   * refresh. Headers whose copy did not finish are cached again by the next refresh.
+   */
   @RequiresReadLockAbsence
   @RequiresBackgroundThread
   fun refresh(projectData: BlazeProjectData, nonInc: Boolean) {
-    if (nonInc) {
-      clear()
-    } else {
-      // only reset in memory data on incremental sync
-      cacheTracker.clear()
-    }
-
-    for ((key, target) in projectData.targetMap().map()) {
-      refreshTarget(projectData, key, target)
-    }
-  }
-
-  private fun refreshTarget(projectData: BlazeProjectData, key: TargetKey, target: TargetIdeInfo) {
-    val info = target.getcIdeInfo() ?: return
+    synchronized(refreshLock) {
+      val manifest = manifest ?: readManifest().also { manifest = it }
+      val decoder = projectData.artifactLocationDecoder()
+
+      val entries = LinkedHashMap<Path, Entry>()
+      for ((key, target) in projectData.targetMap().map()) {
+        val info = target.getcIdeInfo() ?: continue
+        val targetCacheDirectory = cacheDirectory(key)
+
+        for (header in info.compilationContext().headers()) {
+          // check if the header is inside bazel-bin
+          if (!isInBazelBin(header)) continue
+
+          val path = resolveCachePath(targetCacheDirectory, header)
+          if (!entries.containsKey(path)) {
+            entries[path] = Entry(key, header, decoder.resolveOutput(header))
+          }
+        }
+      }
 
-    val targetCacheDirectory = cacheDirectory(key)
-    val decoder = projectData.artifactLocationDecoder()
+      // a delete scheduled by an earlier refresh must not remove headers which are used again
+      cleaner.reclaim(entries.keys)
 
-    for (header in info.compilationContext().headers()) {
-      // check if the header is inside bazel-bin
-      if (!isInBazelBin(header)) continue
+      val updates = LinkedHashMap<Path, ListenableFuture<String?>>()
+      for ((path, entry) in entries) {
+        val fingerprint = fingerprint(entry.artifact)
+        if (fingerprint != null && manifest[path] == fingerprint && Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+          continue
+        }
+        // forget the old version until the copy finishes, so an interrupted copy is never trusted
+        manifest.remove(path)
+        updates[path] = FetchExecutor.EXECUTOR.submit<String?> { cacheHeader(path, entry) }
+      }
 
-      // check if the header is already present in the cache
-      if (!cacheTracker.add(key.configuration() + "/" + header.relativePath())) continue
+      val fingerprints = try {
+        ProgressIndicatorUtils.awaitWithCheckCanceled(Futures.allAsList(updates.values))
+      } catch (e: Throwable) {
+        updates.values.forEach { it.cancel(true) }
+        writeManifest(manifest)
+        throw e
+      }
+      for ((path, fingerprint) in updates.keys.zip(fingerprints)) {
+        if (fingerprint != null) {
+          manifest[path] = fingerprint
+        }
+      }
 
-      val path = resolveCachePath(targetCacheDirectory, header)
+      val stale = manifest.keys.filter { !entries.containsKey(it) }
+      stale.forEach(manifest::remove)
+      writeManifest(manifest)
 
-      try {
-        Files.createDirectories(path.parent)
+      LOG.trace("refreshed cc includes cache: ${updates.size} updated, ${stale.size} stale")
+      cleaner.schedule(stale, if (nonInc) cacheDirectory else null)
+    }
+  }
 
-        // delete existing entry to handle type changes (symlink <-> regular file) on incremental sync
-        Files.deleteIfExists(path)
+  /**
+   * Copies or links the header into the cache. Returns the fingerprint of the cached header, or
+   * null if it could not be cached or its version is unknown, in which case it's refreshed again
+   * on the next sync.
+   */
+  private fun cacheHeader(path: Path, entry: Entry): String? {
+    val artifact = entry.artifact
+
+    try {
+      Files.createDirectories(path.parent)
+
+      // delete existing entry to handle type changes (symlink <-> regular file) on incremental sync
+      Files.deleteIfExists(path)
+
+      // for local files which are not generated, check if the file is a symlink (e.g. _virtual_includes)
+      if (artifact is LocalFileArtifact && entry.header.isSource) {
+        val localPath = artifact.file.toPath()
+        if (Files.isSymbolicLink(localPath)) {
+          // fall through to content-copy if symlink creation failed (e.g. Windows without Developer Mode)
+          val realPath = localPath.toRealPath()
+          if (tryCreateSymlink(path, realPath)) return "link:$realPath"
+        }
+      }
 
-        val artifact = decoder.resolveOutput(header)
+      // content copy for regular (generated) files, remote files, or as a fallback when symlink creation fails
+      artifact.inputStream.use { src ->
+        Files.newOutputStream(
+          path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        ).use { dst ->
+          src.transferTo(dst)
+        }
+      }
+      return fingerprint(artifact)
+    } catch (e: IOException) {
+      LOG.warn("failed to cache header ${entry.header.relativePath()} for ${entry.key.label()} (${entry.key.configuration()})", e)
+      return null
+    }
+  }
 
-        // for local files which are not generated, check if the file is a symlink (e.g. _virtual_includes)
-        if (artifact is LocalFileArtifact && header.isSource) {
-          val localPath = artifact.file.toPath()
-          if (Files.isSymbolicLink(localPath)) {
-            // fall through to content-copy if symlink creation failed (e.g. Windows without Developer Mode)
-            if (tryCreateSymlink(path, localPath.toRealPath())) continue
+  /** Identifies the version of a header, or returns null if it cannot be determined cheaply. */
+  private fun fingerprint(artifact: BlazeArtifact): String? {
+    return when (artifact) {
+      is OutputArtifact -> artifact.digest.ifBlank { null }?.let { "digest:$it" }
+      is LocalFileArtifact -> {
+        val file = artifact.file.toPath()
+        try {
+          if (Files.isSymbolicLink(file)) {
+            "link:${file.toRealPath()}"
+          } else {
+            "mtime:${Files.getLastModifiedTime(file).toMillis()}:${Files.size(file)}"
           }
+        } catch (e: IOException) {
+          null
         }
+      }
+      else -> null
+    }
+  }
 
-        // content copy for regular (generated) files, remote files, or as a fallback when symlink creation fails
-        artifact.inputStream.use { src ->
-          Files.newOutputStream(
-            path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
-          ).use { dst ->
-            src.transferTo(dst)
-          }
+  private fun readManifest(): MutableMap<Path, String> {
+    val manifest = HashMap<Path, String>()
+    if (!Files.exists(manifestFile)) return manifest
+
+    try {
+      Files.readAllLines(manifestFile).forEach { line ->
+        val separator = line.indexOf('\t')
+        if (separator > 0) {
+          manifest[cacheDirectory.resolve(line.substring(separator + 1))] = line.substring(0, separator)
         }
-      } catch (e: IOException) {
-        cacheTracker.remove(header.relativePath())
-        LOG.warn("failed to cache header ${header.relativePath()} for ${key.label()} (${key.configuration()})", e)
       }
+    } catch (e: IOException) {
+      LOG.warn("failed to read cc includes cache manifest, refreshing all headers", e)
+      manifest.clear()
+    }
+    return manifest
+  }
+
+  private fun writeManifest(manifest: Map<Path, String>) {
+    val tmp = manifestFile.resolveSibling("${manifestFile.fileName}.tmp")
+    try {
+      Files.createDirectories(manifestFile.parent)
+      Files.write(tmp, manifest.map { (path, fingerprint) -> "$fingerprint\t${cacheDirectory.relativize(path)}" })
+      Files.move(tmp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+    } catch (e: IOException) {
+      LOG.warn("failed to write cc includes cache manifest", e)
+      try { Files.deleteIfExists(manifestFile) } catch (_: IOException) {}
     }
   }
 
@@ -180,12 +283,11 @@ class HeaderCacheService(private val project: Project) {
     }
   }
 
-  @Synchronized
+  // resolving only computes the cache path, so it does not need to wait for a running refresh
   fun resolve(target: TargetKey, executionRootPath: ExecutionRootPath): Optional<Path> {
     return resolve(target.configuration(), executionRootPath);
   }
 
-  @Synchronized
   fun resolve(configurationId: String, executionRootPath: ExecutionRootPath): Optional<Path> {
     val path = executionRootPath.path()
     if (!isInBazelBin(path)) return Optional.empty()
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.cpp;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.idea.blaze.base.sync.SyncMode;
+import com.google.idea.blaze.cpp.BlazeCWorkspace.PreviousUpdate;
+import java.io.File;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for the reuse of compiler switches in {@link BlazeCWorkspace}. */
+@RunWith(JUnit4.class)
+public class BlazeCWorkspaceTest {
+  private static final File EXECUTION_ROOT = new File("/execroot/main");
+
+  private final PreviousUpdate<String, String> previousUpdate =
+      new PreviousUpdate<>(ImmutableMap.of("config", "switches"), EXECUTION_ROOT);
+
+  @Test
+  public void testSwitchesReusedByIncrementalSync() {
+    assertThat(previousUpdate.reusableSwitches(SyncMode.INCREMENTAL, EXECUTION_ROOT, true))
+        .containsExactly("config", "switches");
+  }
+
+  @Test
+  public void testSwitchesNotReusedByFullSync() {
+    assertThat(previousUpdate.reusableSwitches(SyncMode.FULL, EXECUTION_ROOT, true)).isEmpty();
+  }
+
+  @Test
+  public void testSwitchesNotReusedAfterExecutionRootChanged() {
+    assertThat(
+            previousUpdate.reusableSwitches(
+                SyncMode.INCREMENTAL, new File("/execroot/other"), true))
+        .isEmpty();
+  }
+
+  @Test
+  public void testSwitchesNotReusedAfterHeaderRootsChanged() {
+    assertThat(previousUpdate.reusableSwitches(SyncMode.INCREMENTAL, EXECUTION_ROOT, false))
+        .isEmpty();
+  }
+
+  @Test
+  public void testNothingReusedBeforeFirstUpdate() {
+    assertThat(
+            PreviousUpdate.<String, String>empty()
+                .reusableSwitches(SyncMode.INCREMENTAL, EXECUTION_ROOT, true))
+        .isEmpty();
+  }
+}
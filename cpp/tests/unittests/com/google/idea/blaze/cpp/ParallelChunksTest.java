@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.cpp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.idea.blaze.base.BlazeTestCase;
+import com.google.idea.blaze.base.async.executor.BlazeExecutor;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.impl.ProgressManagerImpl;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ParallelChunks}. */
+@RunWith(JUnit4.class)
+public class ParallelChunksTest extends BlazeTestCase {
+  private final PoolExecutor executor = new PoolExecutor(2);
+
+  @Override
+  protected void initTest(Container applicationServices, Container projectServices) {
+    super.initTest(applicationServices, projectServices);
+    applicationServices.register(BlazeExecutor.class, executor);
+    applicationServices.register(ProgressManager.class, new ProgressManagerImpl());
+  }
+
+  @After
+  public void shutdownExecutor() {
+    executor.getExecutor().shutdownNow();
+  }
+
+  private static List<Integer> range(int size) {
+    return IntStream.range(0, size).boxed().collect(Collectors.toList());
+  }
+
+  @Test
+  public void testResultsKeepOrder() {
+    List<Integer> items = range(1000);
+
+    List<Integer> results = ParallelChunks.map(items, i -> i * 2);
+
+    assertThat(results)
+        .containsExactlyElementsIn(items.stream().map(i -> i * 2).collect(Collectors.toList()))
+        .inOrder();
+  }
+
+  @Test
+  public void testLargeListMappedOnPool() {
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    ParallelChunks.map(
+        range(1000),
+        i -> {
+          threads.add(Thread.currentThread());
+          return i;
+        });
+
+    assertThat(threads).doesNotContain(Thread.currentThread());
+  }
+
+  @Test
+  public void testSmallListMappedOnCallingThread() {
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    ParallelChunks.map(
+        range(10),
+        i -> {
+          threads.add(Thread.currentThread());
+          return i;
+        });
+
+    assertThat(threads).containsExactly(Thread.currentThread());
+  }
+
+  @Test(timeout = 10_000)
+  public void testNestedCallDoesNotWaitForPool() {
+    // every pool thread runs an outer chunk, so nested chunks could never be scheduled
+    List<List<Integer>> results =
+        ParallelChunks.map(range(100), i -> ParallelChunks.map(range(100), j -> i + j));
+
+    assertThat(results).hasSize(100);
+    assertThat(results.get(99)).hasSize(100);
+    assertThat(results.get(99).get(99)).isEqualTo(198);
+  }
+
+  @Test
+  public void testExceptionIsRethrown() {
+    try {
+      ParallelChunks.map(
+          range(1000),
+          i -> {
+            if (i == 500) {
+              throw new IllegalArgumentException("bad item");
+            }
+            return i;
+          });
+      fail("The exception of a chunk should be rethrown.");
+    } catch (IllegalArgumentException e) {
+      assertThat(e).hasMessageThat().isEqualTo("bad item");
+    }
+  }
+
+  private static class PoolExecutor extends BlazeExecutor {
+    private final ListeningExecutorService executor;
+
+    PoolExecutor(int threads) {
+      executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threads));
+    }
+
+    @Override
+    public <T> ListenableFuture<T> submit(Callable<T> callable) {
+      return executor.submit(callable);
+    }
+
+    @Override
+    public ListeningExecutorService getExecutor() {
+      return executor;
+    }
+  }
+}
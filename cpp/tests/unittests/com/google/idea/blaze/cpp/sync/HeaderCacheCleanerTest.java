@@ -0,0 +1,144 @@
+/*
+ * Copyright 2026 The Bazel Authors. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.idea.blaze.cpp.sync;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link HeaderCacheCleaner}. */
+@RunWith(JUnit4.class)
+public class HeaderCacheCleanerTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  private final Object lock = new Object();
+  private final List<Runnable> scheduled = new ArrayList<>();
+  private final Set<Path> tracked = new HashSet<>();
+  private HeaderCacheCleaner cleaner;
+  private Path cacheDirectory;
+
+  @Before
+  public void setUp() throws Exception {
+    cleaner = new HeaderCacheCleaner(lock, scheduled::add, () -> ImmutableSet.copyOf(tracked));
+    cacheDirectory = folder.newFolder("headerCache").toPath();
+  }
+
+  @Test
+  public void testStaleHeaderIsDeleted() throws Exception {
+    Path stale = header("foo/stale.h");
+
+    synchronized (lock) {
+      cleaner.schedule(ImmutableList.of(stale), /* cleanupDirectory= */ null);
+    }
+    assertThat(Files.exists(stale)).isTrue();
+    runScheduled();
+
+    assertThat(Files.exists(stale)).isFalse();
+  }
+
+  @Test
+  public void testHeaderReclaimedByLaterRefreshIsKept() throws Exception {
+    Path header = header("foo/header.h");
+
+    synchronized (lock) {
+      cleaner.schedule(ImmutableList.of(header), /* cleanupDirectory= */ null);
+    }
+    // the next refresh runs before the delete and uses the header again
+    synchronized (lock) {
+      cleaner.reclaim(ImmutableList.of(header));
+    }
+    runScheduled();
+
+    assertThat(Files.exists(header)).isTrue();
+  }
+
+  @Test
+  public void testCleanupKeepsFilesTrackedWhenItRuns() throws Exception {
+    Path tracked = header("foo/tracked.h");
+    Path untracked = header("foo/untracked.h");
+    this.tracked.add(tracked);
+
+    synchronized (lock) {
+      cleaner.schedule(ImmutableList.of(), cacheDirectory);
+    }
+    // cached by a refresh after the cleanup was scheduled
+    Path cachedLater = header("bar/later.h");
+    this.tracked.add(cachedLater);
+    runScheduled();
+
+    assertThat(Files.exists(tracked)).isTrue();
+    assertThat(Files.exists(cachedLater)).isTrue();
+    assertThat(Files.exists(untracked)).isFalse();
+  }
+
+  @Test
+  public void testNothingIsScheduledWithoutStaleHeaders() {
+    synchronized (lock) {
+      cleaner.schedule(ImmutableList.of(), /* cleanupDirectory= */ null);
+    }
+
+    assertThat(scheduled).isEmpty();
+  }
+
+  @Test
+  public void testQueuedDeleteIsNotScheduledAgain() throws Exception {
+    Path first = header("foo/first.h");
+    Path second = header("foo/second.h");
+
+    synchronized (lock) {
+      cleaner.schedule(ImmutableList.of(first), /* cleanupDirectory= */ null);
+      cleaner.schedule(ImmutableList.of(second), /* cleanupDirectory= */ null);
+    }
+    assertThat(scheduled).hasSize(1);
+    runScheduled();
+
+    assertThat(Files.exists(first)).isFalse();
+    assertThat(Files.exists(second)).isFalse();
+
+    // once the queued delete started, later deletes are scheduled again
+    Path third = header("foo/third.h");
+    synchronized (lock) {
+      cleaner.schedule(ImmutableList.of(third), /* cleanupDirectory= */ null);
+    }
+    assertThat(scheduled).hasSize(1);
+  }
+
+  private Path header(String relativePath) throws Exception {
+    Path path = cacheDirectory.resolve(relativePath);
+    Files.createDirectories(path.getParent());
+    Files.writeString(path, "// header");
+    return path;
+  }
+
+  private void runScheduled() {
+    List<Runnable> tasks = new ArrayList<>(scheduled);
+    scheduled.clear();
+    tasks.forEach(Runnable::run);
+  }
+}
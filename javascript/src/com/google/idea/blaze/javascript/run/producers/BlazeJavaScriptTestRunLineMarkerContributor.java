@@ -18,7 +18,6 @@ package com.google.idea.blaze.javascript.run.producers;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Iterables;
 import com.google.idea.blaze.base.ideinfo.TargetIdeInfo;
 import com.google.idea.blaze.base.ideinfo.TargetKey;
@@ -33,7 +32,7 @@ import com.google.idea.blaze.base.run.SourceToTargetFinder;
 import com.google.idea.blaze.base.run.smrunner.SmRunnerUtils;
 import com.google.idea.blaze.base.sync.BlazeSyncModificationTracker;
 import com.google.idea.blaze.base.sync.data.BlazeProjectDataManager;
-import com.google.idea.blaze.base.targetmaps.ReverseDependencyMap;
+import com.google.idea.blaze.base.targetmaps.DependencyGraph;
 import com.google.idea.common.experiments.BoolExperiment;
 import com.intellij.execution.lineMarker.ExecutorAction;
 import com.intellij.execution.lineMarker.RunLineMarkerContributor;
@@ -54,7 +53,6 @@ import com.intellij.util.io.URLUtil;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import javax.annotation.Nullable;
 import javax.swing.Icon;
@@ -128,7 +126,7 @@ public class BlazeJavaScriptTestRunLineMarkerContributor extends RunLineMarkerCo
             return Result.create(
                 ImmutableList.of(), BlazeSyncModificationTracker.getInstance(project));
           }
-          ImmutableMultimap<TargetKey, TargetKey> rdeps = ReverseDependencyMap.get(project);
+          DependencyGraph dependencyGraph = DependencyGraph.get(project);
           TargetMap targetMap = projectData.targetMap();
           return Result.create(
               SourceToTargetFinder.findTargetsForSourceFile(
@@ -140,9 +138,7 @@ public class BlazeJavaScriptTestRunLineMarkerContributor extends RunLineMarkerCo
                   .filter(t -> t.getKind().hasLanguage(LanguageClass.JAVASCRIPT))
                   .map(t -> t.label)
                   .map(TargetKey::forPlainTarget)
-                  .map(rdeps::get)
-                  .filter(Objects::nonNull)
-                  .flatMap(Collection::stream)
+                  .flatMap(key -> dependencyGraph.getReverseDependencies(key).stream())
                   .filter(
                       key -> {
                         TargetIdeInfo target = targetMap.get(key);
@@ -69,9 +69,8 @@ public class AlwaysPresentPythonSyncPlugin implements BlazeSyncPlugin {
       return true;
     }
     boolean hasPythonTarget =
-        blazeProjectData.targetMap().targets().stream()
-            .filter(target -> importRoots.importAsSource(target.getKey().label()))
-            .anyMatch(target -> target.getKind().hasLanguage(LanguageClass.PYTHON));
+        blazeProjectData.targetMap().targetsOfLanguage(LanguageClass.PYTHON).stream()
+            .anyMatch(target -> importRoots.importAsSource(target.getKey().label()));
     if (!hasPythonTarget) {
       return true;
     }